@@ -0,0 +1,192 @@
+package com.udacity.webcrawler;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * An AIMD (additive increase, multiplicative decrease) controller that limits the number of page
+ * fetches in flight during a crawl.
+ *
+ * <p>The controller collects fetch outcomes into fixed-length sample windows. At the end of each
+ * window it compares the window's throughput, mean latency and error rate against the previous
+ * window, and then:
+ *
+ * <ul>
+ *   <li>halves the limit if the error rate is too high, or if latency grew without any gain in
+ *       throughput (the hosts being crawled are saturated);</li>
+ *   <li>otherwise raises the limit by one if throughput did not drop;</li>
+ *   <li>otherwise leaves the limit unchanged.</li>
+ * </ul>
+ *
+ * <p>The limit always stays within the configured minimum and maximum. Every decision is logged so
+ * that it can be audited after the crawl.
+ *
+ * <p>This class is thread-safe.
+ */
+final class AdaptiveParallelismController {
+
+  private static final Logger LOGGER =
+      Logger.getLogger(AdaptiveParallelismController.class.getName());
+
+  /**
+   * The minimum length of a sample window.
+   */
+  static final Duration WINDOW = Duration.ofSeconds(1);
+
+  /**
+   * The minimum number of completed fetches in a sample window before a decision is made.
+   */
+  static final int MIN_SAMPLES = 4;
+
+  /**
+   * The error rate above which the limit is always decreased.
+   */
+  static final double MAX_ERROR_RATE = 0.1;
+
+  /**
+   * How much the mean latency may grow, relative to the previous window, before the hosts being
+   * crawled are considered saturated.
+   */
+  static final double LATENCY_TOLERANCE = 1.5;
+
+  private final Clock clock;
+  private final int minLimit;
+  private final int maxLimit;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition permitAvailable = lock.newCondition();
+
+  // All of the following fields are guarded by the lock.
+  private int limit;
+  private int inFlight;
+  private Instant windowStart;
+  private int windowFetches;
+  private int windowErrors;
+  private long windowLatencyNanos;
+  private double lastThroughput = -1;
+  private double lastLatencyMillis = -1;
+
+  /**
+   * Creates a controller whose limit starts at {@code initialLimit}, clamped to the given bounds.
+   */
+  AdaptiveParallelismController(Clock clock, int minLimit, int maxLimit, int initialLimit) {
+    if (minLimit < 1 || maxLimit < minLimit) {
+      throw new IllegalArgumentException(
+          "Invalid parallelism bounds: [" + minLimit + ", " + maxLimit + "]");
+    }
+    this.clock = Objects.requireNonNull(clock);
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    this.windowStart = clock.instant();
+  }
+
+  /**
+   * Blocks until fewer than {@link #getLimit()} fetches are in flight, and then claims a slot for
+   * a new fetch. Every successful call must be followed by a call to {@link #release}.
+   */
+  void acquire() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      while (inFlight >= limit) {
+        permitAvailable.await();
+      }
+      inFlight++;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns true if a call to {@link #acquire()} would not block right now.
+   */
+  boolean hasPermit() {
+    lock.lock();
+    try {
+      return inFlight < limit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Releases a slot claimed by {@link #acquire()} and records the outcome of the fetch.
+   *
+   * @param latency how long the fetch took.
+   * @param failed  whether the fetch failed.
+   */
+  void release(Duration latency, boolean failed) {
+    Objects.requireNonNull(latency);
+    lock.lock();
+    try {
+      inFlight--;
+      windowFetches++;
+      windowLatencyNanos += latency.toNanos();
+      if (failed) {
+        windowErrors++;
+      }
+      maybeAdjust();
+      permitAvailable.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the current maximum number of fetches allowed in flight.
+   */
+  int getLimit() {
+    lock.lock();
+    try {
+      return limit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void maybeAdjust() {
+    Instant now = clock.instant();
+    Duration elapsed = Duration.between(windowStart, now);
+    if (windowFetches < MIN_SAMPLES || elapsed.compareTo(WINDOW) < 0) {
+      return;
+    }
+
+    double throughput = windowFetches / (elapsed.toNanos() / 1e9);
+    double latencyMillis = windowLatencyNanos / 1e6 / windowFetches;
+    double errorRate = (double) windowErrors / windowFetches;
+
+    int newLimit = limit;
+    String reason;
+    if (errorRate > MAX_ERROR_RATE) {
+      newLimit = Math.max(minLimit, limit / 2);
+      reason = "error rate too high";
+    } else if (lastLatencyMillis > 0
+        && latencyMillis > lastLatencyMillis * LATENCY_TOLERANCE
+        && throughput <= lastThroughput) {
+      newLimit = Math.max(minLimit, limit / 2);
+      reason = "latency grew without a gain in throughput";
+    } else if (throughput >= lastThroughput) {
+      newLimit = Math.min(maxLimit, limit + 1);
+      reason = "throughput held or improved";
+    } else {
+      reason = "throughput dropped";
+    }
+
+    LOGGER.info(String.format(
+        "Parallelism %d -> %d (%s): %.1f pages/s, %.1f ms mean latency, %.1f%% errors",
+        limit, newLimit, reason, throughput, latencyMillis, errorRate * 100));
+
+    limit = newLimit;
+    lastThroughput = throughput;
+    lastLatencyMillis = latencyMillis;
+    windowStart = now;
+    windowFetches = 0;
+    windowErrors = 0;
+    windowLatencyNanos = 0;
+  }
+}
@@ -0,0 +1,157 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.parser.PageParser;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live counters of the crawler's activity, shared by every crawl in the application, so that they
+ * can be read while a crawl is running.
+ *
+ * <p>The counters are cumulative, like Prometheus counters: rates such as pages fetched per second
+ * are worked out by whoever reads them. The gauges go up and down with the crawl.
+ *
+ * <p>This class is thread-safe, and neither updating nor reading the counters takes a lock, so
+ * reading them never holds up the crawl.
+ */
+public final class CrawlMetrics {
+
+  /**
+   * The reasons a fetch can fail.
+   */
+  public enum FetchError {
+    /**
+     * The server answered with a {@code 4xx} status code.
+     */
+    HTTP_4XX,
+    /**
+     * The server answered with a {@code 5xx} status code.
+     */
+    HTTP_5XX,
+    /**
+     * The page took too long to download or to parse.
+     */
+    TIMEOUT,
+    /**
+     * The page was dropped because it was not HTML.
+     */
+    DROPPED,
+    /**
+     * Any other failure, such as a connection error.
+     */
+    OTHER;
+
+    /**
+     * Returns the name of this error as a metric label value.
+     */
+    public String label() {
+      return name().toLowerCase(Locale.ROOT);
+    }
+  }
+
+  private final LongAdder pagesFetched = new LongAdder();
+  private final LongAdder urlsVisited = new LongAdder();
+  private final LongAdder inFlight = new LongAdder();
+  private final LongAdder frontier = new LongAdder();
+  private final LongAdder[] errors = new LongAdder[FetchError.values().length];
+
+  public CrawlMetrics() {
+    for (int i = 0; i < errors.length; i++) {
+      errors[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Records that the given number of URLs were found and are waiting to be crawled.
+   */
+  void urlsQueued(int count) {
+    frontier.add(count);
+  }
+
+  /**
+   * Records that a queued URL is being crawled, or was discarded.
+   */
+  void urlDequeued() {
+    frontier.decrement();
+  }
+
+  /**
+   * Records that a URL was admitted to the crawl.
+   */
+  void urlVisited() {
+    urlsVisited.increment();
+  }
+
+  /**
+   * Records that a fetch started. Must be followed by a call to {@link #fetchFinished}.
+   */
+  void fetchStarted() {
+    inFlight.increment();
+  }
+
+  /**
+   * Records that a fetch finished with the given result, or with an exception if the result is
+   * null.
+   */
+  void fetchFinished(PageParser.Result result) {
+    inFlight.decrement();
+    pagesFetched.increment();
+    if (result == null) {
+      errors[FetchError.OTHER.ordinal()].increment();
+    } else if (result.getFailure().isPresent()) {
+      errors[classify(result).ordinal()].increment();
+    }
+  }
+
+  private static FetchError classify(PageParser.Result result) {
+    if (result.isTimedOut()) {
+      return FetchError.TIMEOUT;
+    }
+    if (result.isDropped()) {
+      return FetchError.DROPPED;
+    }
+    if (result.getStatusCode() >= 500) {
+      return FetchError.HTTP_5XX;
+    }
+    if (result.getStatusCode() >= 400) {
+      return FetchError.HTTP_4XX;
+    }
+    return FetchError.OTHER;
+  }
+
+  /**
+   * Returns the number of fetches that finished, whether they succeeded or not.
+   */
+  public long getPagesFetched() {
+    return pagesFetched.sum();
+  }
+
+  /**
+   * Returns the number of URLs admitted to a crawl.
+   */
+  public long getUrlsVisited() {
+    return urlsVisited.sum();
+  }
+
+  /**
+   * Returns the number of fetches in progress.
+   */
+  public long getFetchesInFlight() {
+    return inFlight.sum();
+  }
+
+  /**
+   * Returns the number of URLs that were found but not crawled yet.
+   */
+  public long getFrontierSize() {
+    return frontier.sum();
+  }
+
+  /**
+   * Returns the number of fetches that failed for the given reason.
+   */
+  public long getFetchErrors(FetchError error) {
+    return errors[error.ordinal()].sum();
+  }
+}
@@ -0,0 +1,262 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.parser.FetchPhase;
+import com.udacity.webcrawler.parser.PageParser;
+import com.udacity.webcrawler.profiler.LatencyHistogram;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Breaks down the latency of the fetches of a single crawl by host, HTTP status class and
+ * {@link FetchPhase}, so that slow hosts can be told apart from slow pages.
+ *
+ * <p>To keep the memory use bounded, only up to a configured number of hosts get histograms of
+ * their own, and the fetches of all other hosts are counted together under {@link #OTHER_HOSTS}.
+ * Hosts are tracked as they are first fetched from until there are that many. After that, a fetch
+ * from an untracked host that took longer than the 99th percentile of the fastest tracked host
+ * evicts that host, whose fetches then count towards {@link #OTHER_HOSTS}, and its host is tracked
+ * in its place. So the tracked hosts drift towards the slowest ones, however late in the crawl
+ * they are found. Histograms for a status class are only created once a fetch gets a response of
+ * that class.
+ *
+ * <p>Only remote pages have a host. Local files are not counted.
+ *
+ * <p>This class is thread-safe. Recording a fetch takes no lock, except for the first fetch from
+ * each host while there are still hosts to be tracked, and fetches from untracked hosts that are
+ * slow enough to evict one. A fetch recorded by another thread while its host is being evicted
+ * may be left out of the report.
+ */
+final class FetchLatencyBreakdown {
+
+  /**
+   * The name under which the fetches of hosts that are not tracked on their own are reported.
+   */
+  static final String OTHER_HOSTS = "(other hosts)";
+
+  /**
+   * The number of hosts listed in the report.
+   */
+  static final int REPORTED_HOSTS = 10;
+
+  private static final String[] STATUS_CLASSES = {"no status", "1xx", "2xx", "3xx", "4xx", "5xx"};
+  private static final int PHASES = FetchPhase.values().length;
+
+  private final int maxHosts;
+  private final ConcurrentMap<String, HostLatency> hosts = new ConcurrentHashMap<>();
+  private final HostLatency otherHosts = new HostLatency();
+  private volatile boolean full;
+
+  // Once every host is tracked, the 99th percentile latency of the fastest tracked host, as of the
+  // last time a host was evicted or could have been. Fetches from untracked hosts that are no
+  // slower are counted under OTHER_HOSTS without taking the lock.
+  private volatile long evictionNanos;
+
+  /**
+   * Creates an empty breakdown.
+   *
+   * @param maxHosts the number of hosts that are tracked on their own.
+   */
+  FetchLatencyBreakdown(int maxHosts) {
+    this.maxHosts = maxHosts;
+    this.full = maxHosts <= 0;
+    this.evictionNanos = maxHosts <= 0 ? Long.MAX_VALUE : 0;
+  }
+
+  /**
+   * Records a fetch of the given URL.
+   *
+   * @param url    the URL that was fetched.
+   * @param result the outcome of the fetch.
+   * @param total  the time the crawler spent on the fetch, from start to finish.
+   */
+  void record(String url, PageParser.Result result, Duration total) {
+    String host = HostCircuitBreakers.hostOf(url);
+    if (host == null) {
+      return;
+    }
+    long[] phaseNanos = new long[PHASES];
+    for (FetchPhase phase : FetchPhase.values()) {
+      phaseNanos[phase.ordinal()] = result.getPhaseTime(phase).toNanos();
+    }
+    record(host, result.getStatusCode(), phaseNanos, total.toNanos());
+  }
+
+  /**
+   * Records a fetch from the given host.
+   *
+   * @param host       the host of the fetched page.
+   * @param statusCode the HTTP status code of the response, or 0 if there was none.
+   * @param phaseNanos the time spent in each {@link FetchPhase}, indexed by ordinal.
+   * @param totalNanos the time the crawler spent on the fetch, from start to finish.
+   */
+  void record(String host, int statusCode, long[] phaseNanos, long totalNanos) {
+    HostLatency latency = hosts.get(host);
+    if (latency == null) {
+      latency = full && totalNanos <= evictionNanos ? otherHosts : track(host, totalNanos);
+    }
+    latency.record(statusClassOf(statusCode), phaseNanos, totalNanos);
+  }
+
+  /**
+   * Returns the histograms of the given host, which is tracked if there is room for it, or if the
+   * given fetch from it was slower than the fastest tracked host, which is then evicted. Returns
+   * the histograms of {@link #OTHER_HOSTS} otherwise.
+   */
+  private synchronized HostLatency track(String host, long totalNanos) {
+    HostLatency latency = hosts.get(host);
+    if (latency != null) {
+      return latency;
+    }
+    if (hosts.size() < maxHosts) {
+      latency = new HostLatency();
+      hosts.put(host, latency);
+      return latency;
+    }
+    full = true;
+
+    String fastest = null;
+    long fastestNanos = Long.MAX_VALUE;
+    long nextNanos = Long.MAX_VALUE;
+    for (Map.Entry<String, HostLatency> e : hosts.entrySet()) {
+      long p99 = e.getValue().total.getPercentile(99).toNanos();
+      if (p99 < fastestNanos) {
+        nextNanos = fastestNanos;
+        fastest = e.getKey();
+        fastestNanos = p99;
+      } else if (p99 < nextNanos) {
+        nextNanos = p99;
+      }
+    }
+    if (fastest == null || totalNanos <= fastestNanos) {
+      evictionNanos = fastestNanos;
+      return otherHosts;
+    }
+    otherHosts.add(hosts.remove(fastest));
+    latency = new HostLatency();
+    hosts.put(host, latency);
+    evictionNanos = Math.min(nextNanos, totalNanos);
+    return latency;
+  }
+
+  private static int statusClassOf(int statusCode) {
+    int statusClass = statusCode / 100;
+    return statusClass >= 1 && statusClass < STATUS_CLASSES.length ? statusClass : 0;
+  }
+
+  /**
+   * Returns the {@link #REPORTED_HOSTS} hosts with the highest 99th percentile fetch latency,
+   * slowest first, each with a description of its latency by status class and phase, such as:
+   * <pre>
+   *   p99 812.000ms over 120 fetches; 2xx: 115 fetches, p99 dns 3.000ms,
+   *   time to first byte 640.000ms, download 120.000ms, parse 30.000ms, total 790.000ms; ...
+   * </pre>
+   *
+   * <p>The map is empty if no remote page was fetched.
+   */
+  Map<String, String> getSlowestHosts() {
+    Map<String, HostLatency> all = new LinkedHashMap<>(hosts);
+    if (otherHosts.total.getCount() > 0) {
+      all.put(OTHER_HOSTS, otherHosts);
+    }
+    Map<String, String> report = new LinkedHashMap<>();
+    all.entrySet().stream()
+        .sorted(Comparator.comparing(
+                (Map.Entry<String, HostLatency> e) -> e.getValue().total.getPercentile(99))
+            .reversed()
+            .thenComparing(Map.Entry::getKey))
+        .limit(REPORTED_HOSTS)
+        .forEach(e -> report.put(e.getKey(), e.getValue().describe()));
+    return report;
+  }
+
+  private static String formatMillis(Duration duration) {
+    return String.format(Locale.ROOT, "%.3fms", duration.toNanos() / 1e6);
+  }
+
+  /**
+   * The latency histograms of a single host.
+   */
+  private static final class HostLatency {
+    final LatencyHistogram total = new LatencyHistogram();
+
+    // For each status class, a histogram per phase followed by one of the total.
+    final AtomicReferenceArray<LatencyHistogram[]> byStatusClass =
+        new AtomicReferenceArray<>(STATUS_CLASSES.length);
+
+    void record(int statusClass, long[] phaseNanos, long totalNanos) {
+      total.record(totalNanos);
+      LatencyHistogram[] histograms = histogramsOf(statusClass);
+      for (int i = 0; i < PHASES; i++) {
+        histograms[i].record(phaseNanos[i]);
+      }
+      histograms[PHASES].record(totalNanos);
+    }
+
+    /**
+     * Adds every fetch recorded for the given host to this one.
+     */
+    void add(HostLatency other) {
+      total.add(other.total);
+      for (int statusClass = 0; statusClass < STATUS_CLASSES.length; statusClass++) {
+        LatencyHistogram[] added = other.byStatusClass.get(statusClass);
+        if (added == null) {
+          continue;
+        }
+        LatencyHistogram[] histograms = histogramsOf(statusClass);
+        for (int i = 0; i < histograms.length; i++) {
+          histograms[i].add(added[i]);
+        }
+      }
+    }
+
+    private LatencyHistogram[] histogramsOf(int statusClass) {
+      LatencyHistogram[] histograms = byStatusClass.get(statusClass);
+      if (histograms == null) {
+        LatencyHistogram[] created = new LatencyHistogram[PHASES + 1];
+        for (int i = 0; i < created.length; i++) {
+          created[i] = new LatencyHistogram();
+        }
+        histograms = byStatusClass.compareAndSet(statusClass, null, created)
+            ? created
+            : byStatusClass.get(statusClass);
+      }
+      return histograms;
+    }
+
+    String describe() {
+      StringBuilder builder = new StringBuilder()
+          .append("p99 ")
+          .append(formatMillis(total.getPercentile(99)))
+          .append(" over ")
+          .append(total.getCount())
+          .append(" fetches");
+      for (int statusClass = 0; statusClass < STATUS_CLASSES.length; statusClass++) {
+        LatencyHistogram[] histograms = byStatusClass.get(statusClass);
+        if (histograms == null) {
+          continue;
+        }
+        builder.append("; ")
+            .append(STATUS_CLASSES[statusClass])
+            .append(": ")
+            .append(histograms[PHASES].getCount())
+            .append(" fetches, p99");
+        for (FetchPhase phase : FetchPhase.values()) {
+          builder.append(' ')
+              .append(phase.name().toLowerCase(Locale.ROOT).replace('_', ' '))
+              .append(' ')
+              .append(formatMillis(histograms[phase.ordinal()].getPercentile(99)))
+              .append(',');
+        }
+        builder.append(" total ").append(formatMillis(histograms[PHASES].getPercentile(99)));
+      }
+      return builder.toString();
+    }
+  }
+}
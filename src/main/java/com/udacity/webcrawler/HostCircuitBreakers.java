@@ -0,0 +1,236 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.parser.PageParser;
+
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.UnknownHostException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Logger;
+
+/**
+ * Tracks the health of every host reached during a single crawl, and stops the crawler from
+ * fetching pages on hosts that keep failing.
+ *
+ * <p>Each host has its own circuit breaker, which starts out closed. A breaker opens after a
+ * configured number of consecutive failed fetches, where a fetch that takes longer than the
+ * configured latency threshold also counts as a failure. While a breaker is open, URLs on its host
+ * are not fetched. Once the backoff has elapsed, the breaker is half-open and a single probe fetch
+ * is let through: if it succeeds the breaker closes, otherwise it opens again with twice the
+ * backoff, up to {@link #MAX_BACKOFF_MULTIPLIER} times the configured backoff.
+ *
+ * <p>Only remote pages have a host. Local files are never subject to a circuit breaker.
+ *
+ * <p>This class is thread-safe.
+ */
+final class HostCircuitBreakers {
+
+  private static final Logger LOGGER = Logger.getLogger(HostCircuitBreakers.class.getName());
+
+  /**
+   * The maximum factor by which repeated failed probes can grow the backoff.
+   */
+  static final int MAX_BACKOFF_MULTIPLIER = 32;
+
+  /**
+   * The states of a circuit breaker.
+   */
+  enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private final Clock clock;
+  private final int failureThreshold;
+  private final Duration latencyThreshold;
+  private final Duration backoff;
+  private final ConcurrentMap<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+  /**
+   * Creates a set of circuit breakers.
+   *
+   * @param clock            the clock used to time backoffs.
+   * @param failureThreshold the number of consecutive failures after which a host's breaker opens.
+   *                         If this is less than 1, no breaker ever opens.
+   * @param latencyThreshold fetches that take longer than this count as failures. If this is zero,
+   *                         slow fetches are not counted as failures.
+   * @param backoff          how long a breaker stays open before a probe fetch is allowed.
+   */
+  HostCircuitBreakers(
+      Clock clock, int failureThreshold, Duration latencyThreshold, Duration backoff) {
+    this.clock = Objects.requireNonNull(clock);
+    this.failureThreshold = failureThreshold;
+    this.latencyThreshold = Objects.requireNonNull(latencyThreshold);
+    this.backoff = Objects.requireNonNull(backoff);
+  }
+
+  /**
+   * Returns whether the circuit breakers are enabled at all.
+   */
+  boolean isEnabled() {
+    return failureThreshold > 0;
+  }
+
+  /**
+   * Returns true if the given URL may be fetched now. Every call that returns true must be followed
+   * by a call to {@link #record}, so that a probe fetch on a half-open breaker is accounted for.
+   *
+   * <p>When this returns false, the URL has been counted as skipped for its host.
+   */
+  boolean allowRequest(String url) {
+    if (!isEnabled()) {
+      return true;
+    }
+    String host = hostOf(url);
+    if (host == null) {
+      return true;
+    }
+    return breakers.computeIfAbsent(host, h -> new Breaker()).allowRequest(host);
+  }
+
+  /**
+   * Records the outcome of a fetch that was allowed by {@link #allowRequest}.
+   *
+   * @param url     the fetched URL.
+   * @param latency how long the fetch took.
+   * @param failed  whether the fetch failed because of a problem with the host. See
+   *                {@link #isHostFailure(PageParser.Result)}.
+   */
+  void record(String url, Duration latency, boolean failed) {
+    if (!isEnabled()) {
+      return;
+    }
+    String host = hostOf(url);
+    if (host == null) {
+      return;
+    }
+    boolean slow = !latencyThreshold.isZero() && latency.compareTo(latencyThreshold) > 0;
+    breakers.computeIfAbsent(host, h -> new Breaker()).record(host, failed || slow);
+  }
+
+  /**
+   * Returns the current state of every host whose breaker opened at least once during the crawl,
+   * keyed and sorted by host. Each value describes the state of the breaker, how many times it
+   * opened and how many URLs were skipped because of it.
+   */
+  Map<String, String> getReport() {
+    Map<String, String> report = new TreeMap<>();
+    breakers.forEach((host, breaker) -> {
+      synchronized (breaker) {
+        if (breaker.timesOpened > 0) {
+          report.put(host, breaker.state + " (opened " + breaker.timesOpened + " times, "
+              + breaker.skipped + " URLs skipped)");
+        }
+      }
+    });
+    return report;
+  }
+
+  /**
+   * Returns the state of the breaker for the given host.
+   */
+  State getState(String host) {
+    Breaker breaker = breakers.get(host);
+    if (breaker == null) {
+      return State.CLOSED;
+    }
+    synchronized (breaker) {
+      return breaker.state;
+    }
+  }
+
+  /**
+   * Returns true if the given failed result says more about the health of the host than about
+   * the page itself: connection problems, timeouts and server errors.
+   */
+  static boolean isHostFailure(PageParser.Result result) {
+    if (result.getStatusCode() >= 500) {
+      return true;
+    }
+    Exception failure = result.getFailure().orElse(null);
+    return failure instanceof SocketException
+        || failure instanceof SocketTimeoutException
+        || failure instanceof UnknownHostException;
+  }
+
+  /**
+   * Returns the host of the given URL, or null if it has none.
+   */
+  static String hostOf(String url) {
+    try {
+      return new URI(url).getHost();
+    } catch (URISyntaxException e) {
+      return null;
+    }
+  }
+
+  /**
+   * The circuit breaker of a single host. All fields are guarded by the breaker's monitor.
+   */
+  private final class Breaker {
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private int backoffMultiplier = 1;
+    private Instant openUntil = Instant.MIN;
+    private boolean probeInFlight;
+    private int timesOpened;
+    private int skipped;
+
+    synchronized boolean allowRequest(String host) {
+      if (state == State.OPEN && !clock.instant().isBefore(openUntil)) {
+        state = State.HALF_OPEN;
+        LOGGER.info("Circuit breaker for " + host + " is half-open; probing");
+      }
+      if (state == State.CLOSED) {
+        return true;
+      }
+      if (state == State.HALF_OPEN && !probeInFlight) {
+        probeInFlight = true;
+        return true;
+      }
+      skipped++;
+      return false;
+    }
+
+    synchronized void record(String host, boolean failed) {
+      if (state == State.HALF_OPEN && probeInFlight) {
+        probeInFlight = false;
+        if (failed) {
+          backoffMultiplier = Math.min(MAX_BACKOFF_MULTIPLIER, backoffMultiplier * 2);
+          open(host, "probe failed");
+        } else {
+          state = State.CLOSED;
+          consecutiveFailures = 0;
+          backoffMultiplier = 1;
+          LOGGER.info("Circuit breaker for " + host + " closed; probe succeeded");
+        }
+        return;
+      }
+      if (!failed) {
+        consecutiveFailures = 0;
+        return;
+      }
+      consecutiveFailures++;
+      if (state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+        open(host, consecutiveFailures + " consecutive failures");
+      }
+    }
+
+    private void open(String host, String reason) {
+      Duration wait = backoff.multipliedBy(backoffMultiplier);
+      state = State.OPEN;
+      openUntil = clock.instant().plus(wait);
+      timesOpened++;
+      LOGGER.info("Circuit breaker for " + host + " opened for " + wait.toMillis() + "ms ("
+          + reason + ")");
+    }
+  }
+}
@@ -0,0 +1,17 @@
+package com.udacity.webcrawler;
+
+import javax.inject.Qualifier;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * A binding annotation for the maximum number of concurrent page fetches allowed when adaptive
+ * parallelism is enabled.
+ *
+ * <p>The value bound to this annotation is the value of the {@code "maxParallelism"} option from
+ * the crawler configuration JSON, or the target parallelism if that option is unset.
+ */
+@Qualifier
+@Retention(RetentionPolicy.RUNTIME)
+public @interface MaxParallelism {
+}
@@ -0,0 +1,81 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.json.PageStats;
+import com.udacity.webcrawler.parser.FetchPhase;
+import com.udacity.webcrawler.parser.PageParser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Records the {@link PageStats} of every page parsed during a single crawl, for the page table of
+ * a binary crawl result.
+ *
+ * <p>The stats are only worth their memory when a binary result is written, so a disabled recorder
+ * is used otherwise, which records nothing.
+ *
+ * <p>This class is thread-safe. Recording a page takes no lock.
+ */
+final class PageStatsRecorder {
+
+  private static final PageStatsRecorder DISABLED = new PageStatsRecorder(false);
+
+  private final boolean enabled;
+  private final Queue<PageStats> pages = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Creates an empty recorder.
+   */
+  PageStatsRecorder() {
+    this(true);
+  }
+
+  private PageStatsRecorder(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * Returns a recorder that records nothing.
+   */
+  static PageStatsRecorder disabled() {
+    return DISABLED;
+  }
+
+  /**
+   * Records the stats of the page at the given URL and depth, which was parsed into the given
+   * result.
+   */
+  void record(String url, int depth, PageParser.Result result) {
+    if (!enabled) {
+      return;
+    }
+    long fetchNanos = 0;
+    for (FetchPhase phase : FetchPhase.values()) {
+      fetchNanos += result.getPhaseTime(phase).toNanos();
+    }
+    int words = 0;
+    for (int count : result.getWordCounts().values()) {
+      words += count;
+    }
+    pages.add(new PageStats(
+        url,
+        depth,
+        result.getStatusCode(),
+        words,
+        result.getWordCounts().size(),
+        result.getLinks().size(),
+        fetchNanos / 1000,
+        result.isTruncated(),
+        result.isDropped(),
+        result.getFailure().isPresent()));
+  }
+
+  /**
+   * Returns the stats recorded so far, in the order the pages were recorded.
+   */
+  List<PageStats> getPages() {
+    return new ArrayList<>(pages);
+  }
+}
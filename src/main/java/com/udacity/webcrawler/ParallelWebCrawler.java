@@ -1,23 +1,41 @@
 package com.udacity.webcrawler;
 
+import com.udacity.webcrawler.graph.LinkGraph;
+import com.udacity.webcrawler.graph.LinkGraphRecorder;
+import com.udacity.webcrawler.index.InvertedIndexBuilder;
 import com.udacity.webcrawler.json.CrawlResult;
 import com.udacity.webcrawler.parser.PageParser;
 import com.udacity.webcrawler.parser.PageParserFactory;
+import com.udacity.webcrawler.trace.TraceRecorder;
 
 import javax.inject.Inject;
+import javax.inject.Provider;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -26,13 +44,30 @@ import java.util.stream.Collectors;
  * {@link ForkJoinPool} to efficiently crawl the web.
  */
 public final class ParallelWebCrawler implements WebCrawler {
+  // How long a crawl that ran out of time waits for its running tasks before its result is built.
+  private static final Duration CANCEL_GRACE = Duration.ofMillis(100);
+
   private final Clock clock;
   private final PageParserFactory parserFactory;
   private final Duration timeout;
   private final int popularWordCount;
   private final int maxDepth;
   private final List<Pattern> ignoredUrls;
+  private final int parallelism;
+  private final int minParallelism;
+  private final int maxParallelism;
+  private final Provider<HostCircuitBreakers> breakersProvider;
+  private final Provider<RetryPolicy> retryPolicyProvider;
+  private final Provider<FetchLatencyBreakdown> latencyProvider;
+  private final Provider<PageStatsRecorder> pagesProvider;
+  private final Provider<LinkGraphRecorder> graphProvider;
+  private final Provider<RankWeightedWordCounts> rankedProvider;
+  private final Provider<InvertedIndexBuilder> indexProvider;
+  private final boolean strictDeadline;
+  private final CrawlMetrics metrics;
+  private final TraceRecorder trace;
   private final ForkJoinPool pool;
+  private final ScheduledExecutorService retryScheduler;
 
   @Inject
   ParallelWebCrawler(
@@ -42,116 +77,409 @@ public final class ParallelWebCrawler implements WebCrawler {
           @PopularWordCount int popularWordCount,
           @MaxDepth int maxDepth,
           @IgnoredUrls List<Pattern> ignoredUrls,
-          @TargetParallelism int parallelism) {
+          @TargetParallelism int parallelism,
+          @MinParallelism int minParallelism,
+          @MaxParallelism int maxParallelism,
+          Provider<HostCircuitBreakers> breakersProvider,
+          Provider<RetryPolicy> retryPolicyProvider,
+          Provider<FetchLatencyBreakdown> latencyProvider,
+          Provider<PageStatsRecorder> pagesProvider,
+          Provider<LinkGraphRecorder> graphProvider,
+          Provider<RankWeightedWordCounts> rankedProvider,
+          Provider<InvertedIndexBuilder> indexProvider,
+          @StrictDeadline boolean strictDeadline,
+          CrawlMetrics metrics,
+          TraceRecorder trace) {
     this.clock = clock;
     this.parserFactory = parserFactory;
     this.timeout = timeout;
     this.popularWordCount = popularWordCount;
     this.maxDepth = maxDepth;
     this.ignoredUrls = ignoredUrls;
+    this.parallelism = parallelism;
+    this.minParallelism = minParallelism;
+    this.maxParallelism = maxParallelism;
+    this.breakersProvider = breakersProvider;
+    this.retryPolicyProvider = retryPolicyProvider;
+    this.latencyProvider = latencyProvider;
+    this.pagesProvider = pagesProvider;
+    this.graphProvider = graphProvider;
+    this.rankedProvider = rankedProvider;
+    this.indexProvider = indexProvider;
+    this.strictDeadline = strictDeadline;
+    this.metrics = metrics;
+    this.trace = trace;
+
+    // Create the ForkJoinPool with the desired parallelism. Fetches blocked in the pool get
+    // spare workers, and so do joins on their tasks, so the pool is capped at a spare worker per
+    // fetch slot; past that, blocked workers simply wait rather than start more threads.
+    int poolParallelism = Math.min(parallelism, getMaxParallelism());
+    this.pool = new ForkJoinPool(
+        poolParallelism,
+        ForkJoinPool.defaultForkJoinWorkerThreadFactory,
+        null,
+        false,
+        0,
+        poolParallelism + maxParallelism,
+        1,
+        saturated -> true,
+        60,
+        TimeUnit.SECONDS);
 
-    // Create the ForkJoinPool with the desired parallelism
-    this.pool = new ForkJoinPool(Math.min(parallelism, getMaxParallelism()));
+    // Retries wait on this scheduler's single thread, which then hands them to the pool, so that
+    // no worker is tied up while a retry waits for its backoff to elapse.
+    ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+      Thread thread = new Thread(runnable, "crawler-retry-scheduler");
+      thread.setDaemon(true);
+      return thread;
+    });
+    scheduler.setRemoveOnCancelPolicy(true);
+    this.retryScheduler = scheduler;
   }
 
   @Override
   public CrawlResult crawl(List<String> startingUrls) {
-    Instant deadline = clock.instant().plus(timeout);
-
-    // Thread-safe collections for shared data
-    ConcurrentMap<String, Integer> counts = new ConcurrentHashMap<>();
-    Set<String> visitedUrls = new ConcurrentSkipListSet<>();
+    CrawlState state = new CrawlState(clock.instant().plus(timeout));
 
     // Create tasks for each starting URL
     List<CrawlTask> tasks = startingUrls.stream()
-            .map(url -> new CrawlTask(url, deadline, 0, counts, visitedUrls))
+            .map(url -> new CrawlTask(url, 0, state))
             .collect(Collectors.toList());
+    metrics.urlsQueued(tasks.size());
 
-    // Invoke all tasks using ForkJoinTask.invokeAll() for RecursiveAction
-    ForkJoinTask.invokeAll(tasks);
+    // Run all the tasks on this crawler's pool, rather than the common pool
+    RecursiveAction root = new RecursiveAction() {
+      @Override
+      protected void compute() {
+        ForkJoinTask.invokeAll(tasks);
+      }
+    };
+    if (strictDeadline) {
+      runUntilDeadline(root, state);
+    } else {
+      pool.invoke(root);
 
-    pool.shutdown();
+      // Retries are not part of the task tree above, so wait for them separately
+      state.awaitRetries();
+    }
 
-    // Sort and limit the word counts
-    Map<String, Integer> sortedCounts = WordCounts.sort(counts, popularWordCount);
+    // Sort and limit the word counts, weighted by the rank of their pages if asked to
+    LinkGraph graph = state.graph.toGraph();
+    Map<String, Integer> sortedCounts = WordCounts.sort(
+        state.ranked.isEnabled() ? state.ranked.weigh(graph) : state.counts, popularWordCount);
 
     // Return the crawl result
     return new CrawlResult.Builder()
             .setWordCounts(sortedCounts)
-            .setUrlsVisited(visitedUrls.size())
+            .setAllWordCounts(state.counts)
+            .setUrlsVisited(state.visitedUrls.size())
+            .setHostCircuitBreakers(state.breakers.getReport())
+            .setPagesTruncated(state.pagesTruncated.get())
+            .setPagesDropped(state.pagesDropped.get())
+            .setPartial(state.partial)
+            .setSlowestHosts(state.latency.getSlowestHosts())
+            .setPages(state.pages.getPages())
+            .setLinkGraph(graph)
+            .setIndex(state.index.build())
             .build();
   }
 
+  /**
+   * Runs the given root task, and any retries it schedules, until they finish or the crawl's
+   * deadline passes. In the latter case the crawl is cancelled: tasks that are still running
+   * discard their pages and start no new ones, and retries that have not started yet never will.
+   *
+   * <p>Downloads that are still in flight when the crawl is cancelled cannot be interrupted, and
+   * not every step of a fetch, such as looking up the host, has a timeout. So this only waits a
+   * short grace period for the pool to go quiet, and then stops the recording of pages, so that
+   * the result is built from the pages recorded so far while late tasks finish on their own.
+   */
+  private void runUntilDeadline(RecursiveAction root, CrawlState state) {
+    pool.execute(root);
+    try {
+      root.get(state.remaining().toMillis(), TimeUnit.MILLISECONDS);
+      if (state.awaitRetries(state.remaining())) {
+        return;
+      }
+    } catch (TimeoutException e) {
+      // Fall through to cancel the crawl.
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      throw new CompletionException(e.getCause());
+    }
+    state.cancel();
+    Duration grace = timeout.compareTo(CANCEL_GRACE) < 0 ? timeout : CANCEL_GRACE;
+    pool.awaitQuiescence(grace.toMillis(), TimeUnit.MILLISECONDS);
+    state.stopRecording();
+  }
+
+  /**
+   * Returns the number of workers in this crawler's pool, including the spare ones started while
+   * others are blocked on a fetch.
+   */
+  int getPoolSize() {
+    return pool.getPoolSize();
+  }
+
   @Override
   public int getMaxParallelism() {
     return Runtime.getRuntime().availableProcessors();
   }
 
+  /**
+   * The state shared by all the tasks of a single crawl.
+   */
+  private final class CrawlState {
+    final Instant deadline;
+
+    // Thread-safe collections for shared data
+    final ConcurrentMap<String, Integer> counts = new ConcurrentHashMap<>();
+    final Set<String> visitedUrls = new ConcurrentSkipListSet<>();
+    final AtomicInteger pagesTruncated = new AtomicInteger();
+    final AtomicInteger pagesDropped = new AtomicInteger();
+
+    // Only throttle fetches when there is a range of parallelism to adapt within. Otherwise the
+    // size of the pool alone bounds the number of fetches in flight.
+    final AdaptiveParallelismController controller = maxParallelism > minParallelism
+        ? new AdaptiveParallelismController(clock, minParallelism, maxParallelism, parallelism)
+        : null;
+
+    final HostCircuitBreakers breakers = breakersProvider.get();
+    final RetryPolicy retryPolicy = retryPolicyProvider.get();
+    final FetchLatencyBreakdown latency = latencyProvider.get();
+    final PageStatsRecorder pages = pagesProvider.get();
+    final LinkGraphRecorder graph = graphProvider.get();
+    final RankWeightedWordCounts ranked = rankedProvider.get();
+    final InvertedIndexBuilder index = indexProvider.get();
+
+    // Set once the crawl has run out of time, in which case no new pages are crawled.
+    volatile boolean cancelled;
+
+    // Tasks record their pages under the read lock, and only if the crawl is not cancelled, so
+    // that once the write lock has been taken after cancelling, no page is recorded any more.
+    private final ReadWriteLock recording = new ReentrantReadWriteLock();
+
+    // Set if any page was not crawled because the crawl ran out of time.
+    volatile boolean partial;
+
+    // The number of retries that have been scheduled but have not finished yet, and their
+    // futures so that they can be cancelled. Both are guarded by this.
+    private int pendingRetries;
+    private final Set<ScheduledFuture<?>> scheduledRetries = new HashSet<>();
+
+    CrawlState(Instant deadline) {
+      this.deadline = deadline;
+    }
+
+    /**
+     * Returns the time left until the deadline, which is negative once it has passed.
+     */
+    Duration remaining() {
+      return Duration.between(clock.instant(), deadline);
+    }
+
+    synchronized void retryScheduled(ScheduledFuture<?> future) {
+      pendingRetries++;
+      scheduledRetries.add(future);
+    }
+
+    synchronized void retryStarted(ScheduledFuture<?> future) {
+      scheduledRetries.remove(future);
+    }
+
+    synchronized void retryFinished() {
+      pendingRetries--;
+      if (pendingRetries == 0) {
+        notifyAll();
+      }
+    }
+
+    synchronized void awaitRetries() {
+      try {
+        while (pendingRetries > 0) {
+          wait();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    /**
+     * Waits at most the given time for pending retries to finish. Returns true if they did.
+     */
+    synchronized boolean awaitRetries(Duration maxWait) throws InterruptedException {
+      long end = System.nanoTime() + maxWait.toNanos();
+      while (pendingRetries > 0) {
+        long left = end - System.nanoTime();
+        if (left <= 0) {
+          return false;
+        }
+        TimeUnit.NANOSECONDS.timedWait(this, left);
+      }
+      return true;
+    }
+
+    /**
+     * Stops the crawl: running tasks stop at their next check, and scheduled retries are
+     * cancelled.
+     */
+    synchronized void cancel() {
+      cancelled = true;
+      partial = true;
+      scheduledRetries.forEach(future -> {
+        if (future.cancel(false)) {
+          metrics.urlDequeued();
+        }
+      });
+      scheduledRetries.clear();
+    }
+
+    /**
+     * Locks the crawl's results for recording a page, and returns the lock to unlock afterwards,
+     * or null if the crawl was cancelled and the page must not be recorded.
+     */
+    Lock startRecording() {
+      Lock lock = recording.readLock();
+      lock.lock();
+      if (cancelled) {
+        lock.unlock();
+        return null;
+      }
+      return lock;
+    }
+
+    /**
+     * Waits for the tasks that are recording a page to finish, after the crawl was cancelled.
+     * No page is recorded after this returns.
+     */
+    void stopRecording() {
+      recording.writeLock().lock();
+      recording.writeLock().unlock();
+    }
+  }
+
   /**
    * A RecursiveAction that crawls a single URL and recursively crawls its links.
    */
   private final class CrawlTask extends RecursiveAction {
     private final String url;
-    private final Instant deadline;
     private final int depth;
-    private final ConcurrentMap<String, Integer> counts;
-    private final Set<String> visitedUrls;
-
-    CrawlTask(
-            String url,
-            Instant deadline,
-            int depth,
-            ConcurrentMap<String, Integer> counts,
-            Set<String> visitedUrls) {
+    private final CrawlState state;
+    private final int retried;
+
+    CrawlTask(String url, int depth, CrawlState state) {
+      this(url, depth, state, 0);
+    }
+
+    CrawlTask(String url, int depth, CrawlState state, int retried) {
       this.url = url;
-      this.deadline = deadline;
       this.depth = depth;
-      this.counts = counts;
-      this.visitedUrls = visitedUrls;
+      this.state = state;
+      this.retried = retried;
     }
 
     @Override
     protected void compute() {
+      metrics.urlDequeued();
+      long begin = trace.begin();
+      try {
+        crawl();
+      } finally {
+        trace.end("crawl", retried > 0 ? "retry" : "task", url, begin);
+        if (retried > 0) {
+          state.retryFinished();
+        }
+      }
+    }
+
+    private void crawl() {
       // Check if we should stop crawling
       if (depth >= maxDepth) {
+        UrlAdmissionEvent.emit(url, depth, "max depth");
         return;
       }
 
       // Check if we've run out of time
-      if (clock.instant().isAfter(deadline)) {
+      if (state.cancelled || clock.instant().isAfter(state.deadline)) {
+        state.partial = true;
+        UrlAdmissionEvent.emit(url, depth, "deadline");
         return;
       }
 
       // Check if URL matches any ignored pattern
       for (Pattern pattern : ignoredUrls) {
         if (pattern.matcher(url).matches()) {
+          UrlAdmissionEvent.emit(url, depth, "ignored");
           return;
         }
       }
 
-      // Try to add the URL to visited set (atomic operation)
-      if (!visitedUrls.add(url)) {
-        return; // Already visited
+      // Try to add the URL to visited set (atomic operation). A retry was already added by the
+      // first attempt.
+      if (retried == 0 && !state.visitedUrls.add(url)) {
+        UrlAdmissionEvent.emit(url, depth, "already visited");
+        return;
+      }
+
+      // Skip the URL if its host is failing. It is not counted as visited, so it can still be
+      // crawled if another page links to it after the host recovers.
+      if (!state.breakers.allowRequest(url)) {
+        state.visitedUrls.remove(url);
+        UrlAdmissionEvent.emit(url, depth, "circuit open");
+        return;
+      }
+      UrlAdmissionEvent.emit(url, depth, null);
+      if (retried == 0) {
+        metrics.urlVisited();
       }
 
       try {
-        // Parse the page
-        PageParser.Result result = parserFactory.get(url).parse();
+        // Parse the page. If the crawl was cancelled in the meantime, the page is discarded.
+        PageParser.Result result = fetch();
+        if (result == null || state.cancelled) {
+          return;
+        }
+
+        // Retry transient failures later, without holding on to this worker in the meantime
+        if (result.getFailure().isPresent() && scheduleRetry(result)) {
+          return;
+        }
+
+        // Check once more that the crawl is still on, so that its result is not changed while
+        // it is being built
+        Lock recording = state.startRecording();
+        if (recording == null) {
+          return;
+        }
+        try {
+          state.pages.record(url, depth, result);
+          state.graph.record(url, result.getLinks());
+          state.ranked.record(url, result.getWordCounts());
+          state.index.add(url, result.getWordCounts());
+          if (result.isTruncated()) {
+            state.pagesTruncated.incrementAndGet();
+          }
+          if (result.isDropped()) {
+            state.pagesDropped.incrementAndGet();
+          }
 
-        // Process words from this page
-        for (Map.Entry<String, Integer> e : result.getWordCounts().entrySet()) {
-          counts.merge(e.getKey(), e.getValue(), Integer::sum);
+          // Process words from this page
+          for (Map.Entry<String, Integer> e : result.getWordCounts().entrySet()) {
+            state.counts.merge(e.getKey(), e.getValue(), Integer::sum);
+          }
+        } finally {
+          recording.unlock();
         }
 
         // Create subtasks for links
         List<CrawlTask> subtasks = new ArrayList<>();
         for (String link : result.getLinks()) {
-          CrawlTask subtask = new CrawlTask(
-                  link, deadline, depth + 1, counts, visitedUrls);
-          subtasks.add(subtask);
+          subtasks.add(new CrawlTask(link, depth + 1, state));
         }
 
         // Invoke all subtasks
+        metrics.urlsQueued(subtasks.size());
         ForkJoinTask.invokeAll(subtasks);
 
       } catch (Exception e) {
@@ -159,5 +487,128 @@ public final class ParallelWebCrawler implements WebCrawler {
         System.err.println("Error crawling " + url + ": " + e.getMessage());
       }
     }
+
+    /**
+     * Schedules a retry of this task's page if the retry policy allows one that starts before the
+     * deadline. Returns whether a retry was scheduled.
+     */
+    private boolean scheduleRetry(PageParser.Result result) {
+      Optional<Duration> delay = state.retryPolicy.nextDelay(result, retried);
+      if (delay.isEmpty()) {
+        return false;
+      }
+      if (clock.instant().plus(delay.get()).isAfter(state.deadline)) {
+        state.partial = true;
+        return false;
+      }
+      CrawlTask retry = new CrawlTask(url, depth, state, retried + 1);
+      metrics.urlsQueued(1);
+      synchronized (state) {
+        // Holding the lock makes sure the future is registered before the retry can start.
+        ScheduledFuture<?>[] future = new ScheduledFuture<?>[1];
+        future[0] = retryScheduler.schedule(() -> {
+          state.retryStarted(future[0]);
+          pool.execute(retry);
+        }, delay.get().toMillis(), TimeUnit.MILLISECONDS);
+        state.retryScheduled(future[0]);
+      }
+      return true;
+    }
+
+    /**
+     * Downloads and parses this task's page, waiting for the adaptive parallelism controller to
+     * allow it if there is one. Returns null if the page was not fetched because the crawl ran
+     * out of time while waiting.
+     */
+    private PageParser.Result fetch() throws InterruptedException {
+      FetchBlocker blocker = new FetchBlocker(url, state);
+      if (state.controller == null) {
+        blocker.block();
+      } else {
+        // Waiting for a slot is not compensated: every queued page would otherwise get a spare
+        // worker of its own, and the pool would grow with the queue rather than with the limit.
+        long begin = trace.begin();
+        state.controller.acquire();
+        trace.end("crawl", "wait for fetch slot", url, begin);
+
+        // Fetches block on I/O, so let the pool start spare workers while this one is blocked.
+        // This is what allows the controller to raise the number of fetches in flight above the
+        // size of the pool, while the pool grows by at most one worker per slot.
+        ForkJoinPool.managedBlock(blocker);
+      }
+      return blocker.getResult();
+    }
+  }
+
+  /**
+   * A {@link ForkJoinPool.ManagedBlocker} that fetches a page, and reports the outcome to the
+   * host's circuit breaker and, if there is one, to the {@link AdaptiveParallelismController}
+   * whose slot the caller claimed for it.
+   */
+  private final class FetchBlocker implements ForkJoinPool.ManagedBlocker {
+    private final String url;
+    private final CrawlState state;
+    private PageParser.Result result;
+    private RuntimeException failure;
+    private boolean done;
+
+    FetchBlocker(String url, CrawlState state) {
+      this.url = url;
+      this.state = state;
+    }
+
+    @Override
+    public boolean block() {
+      Instant start = clock.instant();
+      Duration remaining = Duration.between(start, state.deadline);
+      if (state.cancelled || (strictDeadline && remaining.isNegative())) {
+        if (state.controller != null) {
+          state.controller.release(Duration.ZERO, false);
+        }
+        state.partial = true;
+        done = true;
+        return true;
+      }
+      state.retryPolicy.recordRequest();
+      metrics.fetchStarted();
+      try {
+        PageParser parser = strictDeadline
+            ? parserFactory.get(url, remaining)
+            : parserFactory.get(url);
+        result = parser.parse();
+        if (strictDeadline && remaining.compareTo(timeout) < 0 && result.isTimedOut()) {
+          // The page may only have failed because its timeout was cut short by the deadline.
+          state.partial = true;
+        }
+      } catch (RuntimeException e) {
+        failure = e;
+      } finally {
+        metrics.fetchFinished(result);
+        Duration latency = Duration.between(start, clock.instant());
+        if (result != null) {
+          state.latency.record(url, result, latency);
+        }
+        state.breakers.record(
+            url, latency, result == null || HostCircuitBreakers.isHostFailure(result));
+        if (state.controller != null) {
+          state.controller.release(
+              latency, result == null || result.getFailure().isPresent());
+        }
+        done = true;
+      }
+      return true;
+    }
+
+    @Override
+    public boolean isReleasable() {
+      return done;
+    }
+
+    PageParser.Result getResult() {
+      if (failure != null) {
+        throw failure;
+      }
+      return result;
+    }
   }
-}
\ No newline at end of file
+}
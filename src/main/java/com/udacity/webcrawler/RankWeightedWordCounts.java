@@ -0,0 +1,82 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.graph.LinkGraph;
+import com.udacity.webcrawler.graph.PageRank;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Weighs the words counted during a single crawl by the PageRank of the pages they were seen on.
+ *
+ * <p>The word counts of every page are kept until the end of the crawl, when the pages are ranked
+ * over the link graph of the crawl. A word seen on a page then counts for the rank of the page
+ * divided by the mean rank, so the weighted counts of a crawl whose pages all have the same rank
+ * are its raw counts.
+ *
+ * <p>The counts are only worth their memory when the popular words are ranked this way, so a
+ * disabled instance is used otherwise, which records nothing.
+ *
+ * <p>This class is thread-safe.
+ */
+final class RankWeightedWordCounts {
+
+  private static final RankWeightedWordCounts DISABLED = new RankWeightedWordCounts(null);
+
+  private final PageRank pageRank;
+  private final Map<String, Map<String, Integer>> countsByUrl = new ConcurrentHashMap<>();
+
+  /**
+   * Creates an empty instance that ranks pages with the given {@link PageRank}, or a disabled one
+   * if it is null.
+   */
+  RankWeightedWordCounts(PageRank pageRank) {
+    this.pageRank = pageRank;
+  }
+
+  /**
+   * Returns an instance that records nothing.
+   */
+  static RankWeightedWordCounts disabled() {
+    return DISABLED;
+  }
+
+  /**
+   * Returns true if the popular words are ranked by weighted counts.
+   */
+  boolean isEnabled() {
+    return pageRank != null;
+  }
+
+  /**
+   * Records the word counts of the page at the given URL.
+   */
+  void record(String url, Map<String, Integer> wordCounts) {
+    if (pageRank != null && !wordCounts.isEmpty()) {
+      countsByUrl.put(url, wordCounts);
+    }
+  }
+
+  /**
+   * Ranks the pages of the given link graph, and returns the weighted count of every word recorded
+   * on them, rounded to the nearest integer.
+   */
+  Map<String, Integer> weigh(LinkGraph graph) {
+    double[] ranks = pageRank.rank(graph);
+    Map<String, Double> weighted = new HashMap<>();
+    for (int node = 0; node < ranks.length; node++) {
+      Map<String, Integer> counts = countsByUrl.get(graph.getUrl(node));
+      if (counts == null) {
+        continue;
+      }
+      double weight = ranks[node] * ranks.length;
+      for (Map.Entry<String, Integer> e : counts.entrySet()) {
+        weighted.merge(e.getKey(), e.getValue() * weight, Double::sum);
+      }
+    }
+    Map<String, Integer> rounded = new HashMap<>();
+    weighted.forEach((word, count) -> rounded.put(word, (int) Math.round(count)));
+    return rounded;
+  }
+}
@@ -0,0 +1,145 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.parser.PageParser;
+
+import java.net.SocketException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides whether, and when, a failed fetch should be retried during a single crawl.
+ *
+ * <p>Only transient failures are retried: connection errors such as a reset or refused
+ * connection, {@code 429 Too Many Requests}, and the {@code 500}, {@code 502}, {@code 503} and
+ * {@code 504} server errors. The delay before a retry is chosen with "full jitter": a random
+ * duration between zero and the base delay doubled once per previous attempt, capped at
+ * {@link #MAX_DELAY}. If the server sent a {@code Retry-After} header, that delay is used instead.
+ *
+ * <p>To stop retries from amplifying the load on a struggling host, all retries in a crawl share a
+ * budget: the number of retries may not exceed the configured fraction of the number of fetches,
+ * except for a small allowance of {@link #MIN_RETRIES} so that a crawl with very few pages can
+ * still retry.
+ *
+ * <p>This class is thread-safe.
+ */
+final class RetryPolicy {
+
+  /**
+   * The maximum delay before a retry, unless the server asked for a longer one.
+   */
+  static final Duration MAX_DELAY = Duration.ofSeconds(10);
+
+  /**
+   * The number of retries allowed regardless of the budget.
+   */
+  static final int MIN_RETRIES = 3;
+
+  private final int maxRetries;
+  private final Duration baseDelay;
+  private final double budgetRatio;
+  private final Random random;
+
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong retries = new AtomicLong();
+
+  /**
+   * Creates a retry policy.
+   *
+   * @param maxRetries  the maximum number of times a single URL is retried. If this is less than
+   *                    1, nothing is ever retried.
+   * @param baseDelay   the upper bound of the delay before the first retry.
+   * @param budgetRatio the maximum number of retries, as a fraction of the number of fetches.
+   * @param random      the source of randomness for jitter.
+   */
+  RetryPolicy(int maxRetries, Duration baseDelay, double budgetRatio, Random random) {
+    this.maxRetries = maxRetries;
+    this.baseDelay = Objects.requireNonNull(baseDelay);
+    this.budgetRatio = budgetRatio;
+    this.random = Objects.requireNonNull(random);
+  }
+
+  /**
+   * Counts a fetch, including retried fetches, towards the retry budget.
+   */
+  void recordRequest() {
+    requests.incrementAndGet();
+  }
+
+  /**
+   * Returns how long to wait before retrying a fetch, or an empty {@link Optional} if it should
+   * not be retried. A non-empty return value takes a retry from the budget.
+   *
+   * @param result  the result of the failed fetch.
+   * @param retried the number of times this URL has already been retried.
+   */
+  Optional<Duration> nextDelay(PageParser.Result result, int retried) {
+    if (!isTransient(result)) {
+      return Optional.empty();
+    }
+    return nextDelay(retried, result.getRetryAfter());
+  }
+
+  /**
+   * Returns how long to wait before retrying a transient failure, or an empty {@link Optional} if
+   * the URL has been retried too often or the retry budget is used up.
+   *
+   * @param retried    the number of times this URL has already been retried.
+   * @param retryAfter the delay requested by the server, if any.
+   */
+  Optional<Duration> nextDelay(int retried, Optional<Duration> retryAfter) {
+    if (retried >= maxRetries || !tryAcquireBudget()) {
+      return Optional.empty();
+    }
+    if (retryAfter.isPresent()) {
+      return retryAfter;
+    }
+    long ceiling = MAX_DELAY.toMillis();
+    if (retried < 31) {
+      ceiling = Math.min(ceiling, baseDelay.toMillis() << retried);
+    }
+    long jittered;
+    synchronized (random) {
+      jittered = (long) (random.nextDouble() * (ceiling + 1));
+    }
+    return Optional.of(Duration.ofMillis(jittered));
+  }
+
+  /**
+   * Returns the number of retries taken from the budget so far.
+   */
+  long getRetryCount() {
+    return retries.get();
+  }
+
+  private boolean tryAcquireBudget() {
+    while (true) {
+      long used = retries.get();
+      double allowed = Math.max(MIN_RETRIES, budgetRatio * requests.get());
+      if (used + 1 > allowed) {
+        return false;
+      }
+      if (retries.compareAndSet(used, used + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Returns true if the given result is a failure that is likely to go away on its own.
+   */
+  static boolean isTransient(PageParser.Result result) {
+    switch (result.getStatusCode()) {
+      case 429:
+      case 500:
+      case 502:
+      case 503:
+      case 504:
+        return true;
+      default:
+        return result.getFailure().orElse(null) instanceof SocketException;
+    }
+  }
+}
@@ -1,10 +1,15 @@
 package com.udacity.webcrawler;
 
+import com.udacity.webcrawler.graph.LinkGraph;
+import com.udacity.webcrawler.graph.LinkGraphRecorder;
+import com.udacity.webcrawler.index.InvertedIndexBuilder;
 import com.udacity.webcrawler.json.CrawlResult;
 import com.udacity.webcrawler.parser.PageParser;
 import com.udacity.webcrawler.parser.PageParserFactory;
+import com.udacity.webcrawler.trace.TraceRecorder;
 
 import javax.inject.Inject;
+import javax.inject.Provider;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
@@ -26,6 +31,14 @@ final class SequentialWebCrawler implements WebCrawler {
   private final int popularWordCount;
   private final int maxDepth;
   private final List<Pattern> ignoredUrls;
+  private final boolean strictDeadline;
+  private final CrawlMetrics metrics;
+  private final Provider<FetchLatencyBreakdown> latencyProvider;
+  private final Provider<PageStatsRecorder> pagesProvider;
+  private final Provider<LinkGraphRecorder> graphProvider;
+  private final Provider<RankWeightedWordCounts> rankedProvider;
+  private final Provider<InvertedIndexBuilder> indexProvider;
+  private final TraceRecorder trace;
 
   @Inject
   SequentialWebCrawler(
@@ -34,13 +47,29 @@ final class SequentialWebCrawler implements WebCrawler {
       @Timeout Duration timeout,
       @PopularWordCount int popularWordCount,
       @MaxDepth int maxDepth,
-      @IgnoredUrls List<Pattern> ignoredUrls) {
+      @IgnoredUrls List<Pattern> ignoredUrls,
+      @StrictDeadline boolean strictDeadline,
+      CrawlMetrics metrics,
+      Provider<FetchLatencyBreakdown> latencyProvider,
+      Provider<PageStatsRecorder> pagesProvider,
+      Provider<LinkGraphRecorder> graphProvider,
+      Provider<RankWeightedWordCounts> rankedProvider,
+      Provider<InvertedIndexBuilder> indexProvider,
+      TraceRecorder trace) {
     this.clock = clock;
     this.parserFactory = parserFactory;
     this.timeout = timeout;
     this.popularWordCount = popularWordCount;
     this.maxDepth = maxDepth;
     this.ignoredUrls = ignoredUrls;
+    this.strictDeadline = strictDeadline;
+    this.metrics = metrics;
+    this.latencyProvider = latencyProvider;
+    this.pagesProvider = pagesProvider;
+    this.graphProvider = graphProvider;
+    this.rankedProvider = rankedProvider;
+    this.indexProvider = indexProvider;
+    this.trace = trace;
   }
 
   @Override
@@ -48,19 +77,36 @@ final class SequentialWebCrawler implements WebCrawler {
     Instant deadline = clock.instant().plus(timeout);
     Map<String, Integer> counts = new HashMap<>();
     Set<String> visitedUrls = new HashSet<>();
+    PageStats stats = new PageStats();
+    FetchLatencyBreakdown latency = latencyProvider.get();
+    Recorders recorders = new Recorders(
+        pagesProvider.get(), graphProvider.get(), rankedProvider.get(), indexProvider.get());
+    metrics.urlsQueued(startingUrls.size());
     for (String url : startingUrls) {
-      crawlInternal(url, deadline, maxDepth, counts, visitedUrls);
+      crawlInternal(url, deadline, maxDepth, counts, visitedUrls, stats, latency, recorders);
     }
+    LinkGraph graph = recorders.graph().toGraph();
+    CrawlResult.Builder result = new CrawlResult.Builder()
+        .setPagesTruncated(stats.truncated)
+        .setPagesDropped(stats.dropped)
+        .setPartial(stats.partial)
+        .setSlowestHosts(latency.getSlowestHosts())
+        .setAllWordCounts(counts)
+        .setPages(recorders.pages().getPages())
+        .setLinkGraph(graph)
+        .setIndex(recorders.index().build());
 
     if (counts.isEmpty()) {
-      return new CrawlResult.Builder()
+      return result
           .setWordCounts(counts)
           .setUrlsVisited(visitedUrls.size())
           .build();
     }
 
-    return new CrawlResult.Builder()
-        .setWordCounts(WordCounts.sort(counts, popularWordCount))
+    Map<String, Integer> popularCounts =
+        recorders.ranked().isEnabled() ? recorders.ranked().weigh(graph) : counts;
+    return result
+        .setWordCounts(WordCounts.sort(popularCounts, popularWordCount))
         .setUrlsVisited(visitedUrls.size())
         .build();
   }
@@ -70,20 +116,64 @@ final class SequentialWebCrawler implements WebCrawler {
       Instant deadline,
       int maxDepth,
       Map<String, Integer> counts,
-      Set<String> visitedUrls) {
-    if (maxDepth == 0 || clock.instant().isAfter(deadline)) {
+      Set<String> visitedUrls,
+      PageStats stats,
+      FetchLatencyBreakdown latency,
+      Recorders recorders) {
+    metrics.urlDequeued();
+    int depth = this.maxDepth - maxDepth;
+    if (maxDepth == 0) {
+      UrlAdmissionEvent.emit(url, depth, "max depth");
+      return;
+    }
+    Instant now = clock.instant();
+    if (now.isAfter(deadline)) {
+      stats.partial = true;
+      UrlAdmissionEvent.emit(url, depth, "deadline");
       return;
     }
     for (Pattern pattern : ignoredUrls) {
       if (pattern.matcher(url).matches()) {
+        UrlAdmissionEvent.emit(url, depth, "ignored");
         return;
       }
     }
     if (visitedUrls.contains(url)) {
+      UrlAdmissionEvent.emit(url, depth, "already visited");
       return;
     }
     visitedUrls.add(url);
-    PageParser.Result result = parserFactory.get(url).parse();
+    UrlAdmissionEvent.emit(url, depth, null);
+    metrics.urlVisited();
+    Duration remaining = Duration.between(now, deadline);
+    PageParser parser = strictDeadline
+        ? parserFactory.get(url, remaining)
+        : parserFactory.get(url);
+    PageParser.Result result = null;
+    Instant start = clock.instant();
+    long begin = trace.begin();
+    metrics.fetchStarted();
+    try {
+      result = parser.parse();
+    } finally {
+      metrics.fetchFinished(result);
+      trace.end("crawl", "task", url, begin);
+    }
+    latency.record(url, result, Duration.between(start, clock.instant()));
+    recorders.pages().record(url, depth, result);
+    recorders.graph().record(url, result.getLinks());
+    recorders.ranked().record(url, result.getWordCounts());
+    recorders.index().add(url, result.getWordCounts());
+    if (strictDeadline && remaining.compareTo(timeout) < 0 && result.isTimedOut()) {
+      // The page may only have failed because its timeout was cut short by the deadline.
+      stats.partial = true;
+    }
+    if (result.isTruncated()) {
+      stats.truncated++;
+    }
+    if (result.isDropped()) {
+      stats.dropped++;
+    }
     for (Map.Entry<String, Integer> e : result.getWordCounts().entrySet()) {
       if (counts.containsKey(e.getKey())) {
         counts.put(e.getKey(), e.getValue() + counts.get(e.getKey()));
@@ -91,8 +181,29 @@ final class SequentialWebCrawler implements WebCrawler {
         counts.put(e.getKey(), e.getValue());
       }
     }
+    metrics.urlsQueued(result.getLinks().size());
     for (String link : result.getLinks()) {
-      crawlInternal(link, deadline, maxDepth - 1, counts, visitedUrls);
+      crawlInternal(link, deadline, maxDepth - 1, counts, visitedUrls, stats, latency, recorders);
     }
   }
+
+  /**
+   * The recorders of a single crawl that record every page parsed.
+   */
+  private record Recorders(
+      PageStatsRecorder pages,
+      LinkGraphRecorder graph,
+      RankWeightedWordCounts ranked,
+      InvertedIndexBuilder index) {
+  }
+
+  /**
+   * Counts the pages that hit one of the page limits during a crawl, and records whether the crawl
+   * ran out of time.
+   */
+  private static final class PageStats {
+    int truncated;
+    int dropped;
+    boolean partial;
+  }
 }
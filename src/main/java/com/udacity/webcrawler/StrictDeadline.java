@@ -0,0 +1,17 @@
+package com.udacity.webcrawler;
+
+import javax.inject.Qualifier;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * A binding annotation for whether the crawler must return as soon as its deadline passes,
+ * abandoning any page downloads that are still in flight.
+ *
+ * <p>The value bound to this annotation is the value of the {@code "strictDeadline"} option from
+ * the crawler configuration JSON.
+ */
+@Qualifier
+@Retention(RetentionPolicy.RUNTIME)
+public @interface StrictDeadline {
+}
@@ -0,0 +1,60 @@
+package com.udacity.webcrawler;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event for the crawler's decision whether to crawl a URL.
+ *
+ * <p>The decision takes no time worth measuring, so a threshold would not filter anything out.
+ * Since the event fires for every link the crawler finds, it is disabled by default instead, and
+ * has to be enabled in the recording settings.
+ */
+@Name("com.udacity.webcrawler.UrlAdmission")
+@Label("URL Admission")
+@Category("Web Crawler")
+@Description("Whether the crawler admitted a URL, and why not if it was rejected")
+@Enabled(false)
+@StackTrace(false)
+final class UrlAdmissionEvent extends Event {
+
+  @Label("URL")
+  String url;
+
+  @Label("Host")
+  String host;
+
+  @Label("Depth")
+  int depth;
+
+  @Label("Admitted")
+  boolean admitted;
+
+  @Label("Reason")
+  @Description("Why the URL was rejected, or \"admitted\"")
+  String reason;
+
+  /**
+   * Commits an event for the given URL, if the event is enabled.
+   *
+   * @param url      the URL.
+   * @param depth    the number of links followed to reach the URL.
+   * @param reason   why the URL was rejected, or null if it was admitted.
+   */
+  static void emit(String url, int depth, String reason) {
+    UrlAdmissionEvent event = new UrlAdmissionEvent();
+    if (event.isEnabled()) {
+      event.url = url;
+      event.host = HostCircuitBreakers.hostOf(url);
+      event.depth = depth;
+      event.admitted = reason == null;
+      event.reason = reason == null ? "admitted" : reason;
+      event.commit();
+    }
+  }
+}
@@ -5,9 +5,13 @@ import com.google.inject.Key;
 import com.google.inject.Provides;
 import com.google.inject.ProvisionException;
 import com.google.inject.multibindings.Multibinder;
+import com.udacity.webcrawler.graph.LinkGraphRecorder;
+import com.udacity.webcrawler.graph.PageRank;
+import com.udacity.webcrawler.index.InvertedIndexBuilder;
 import com.udacity.webcrawler.json.CrawlerConfiguration;
 import com.udacity.webcrawler.parser.ParserModule;
 import com.udacity.webcrawler.profiler.Profiler;
+import com.udacity.webcrawler.trace.TraceRecorder;
 
 import javax.inject.Qualifier;
 import javax.inject.Singleton;
@@ -17,6 +21,7 @@ import java.time.Clock;
 import java.time.Duration;
 import java.util.List;
 import java.util.Objects;
+import java.util.Random;
 import java.util.Set;
 import java.util.regex.Pattern;
 
@@ -51,9 +56,14 @@ public final class WebCrawlerModule extends AbstractModule {
     multibinder.addBinding().to(ParallelWebCrawler.class);
 
     bind(Clock.class).toInstance(Clock.systemUTC());
+    bind(CrawlMetrics.class).in(Singleton.class);
+    bind(TraceRecorder.class).toInstance(config.getTraceOutputPath().isEmpty()
+        ? TraceRecorder.disabled()
+        : new TraceRecorder(config.getTraceBufferSize()));
     bind(Key.get(Integer.class, MaxDepth.class)).toInstance(config.getMaxDepth());
     bind(Key.get(Integer.class, PopularWordCount.class)).toInstance(config.getPopularWordCount());
     bind(Key.get(Duration.class, Timeout.class)).toInstance(config.getTimeout());
+    bind(Key.get(Boolean.class, StrictDeadline.class)).toInstance(config.isStrictDeadline());
     bind(new Key<List<Pattern>>(IgnoredUrls.class) {
     }).toInstance(config.getIgnoredUrls());
 
@@ -61,6 +71,8 @@ public final class WebCrawlerModule extends AbstractModule {
         new ParserModule.Builder()
             .setTimeout(config.getTimeout())
             .setIgnoredWords(config.getIgnoredWords())
+            .setMaxBodyBytes(config.getMaxBodyBytes())
+            .setMaxParseTime(config.getMaxParseTime())
             .build());
   }
 
@@ -98,6 +110,104 @@ public final class WebCrawlerModule extends AbstractModule {
     return Runtime.getRuntime().availableProcessors();
   }
 
+  @Provides
+  @Singleton
+  @MaxParallelism
+  int provideMaxParallelism(@TargetParallelism int targetParallelism) {
+    if (config.getMaxParallelism() > 0) {
+      return config.getMaxParallelism();
+    }
+    return Math.max(targetParallelism, config.getMinParallelism());
+  }
+
+  @Provides
+  @Singleton
+  @MinParallelism
+  int provideMinParallelism(
+      @TargetParallelism int targetParallelism, @MaxParallelism int maxParallelism) {
+    if (config.getMinParallelism() > 0) {
+      return config.getMinParallelism();
+    }
+    return Math.max(1, Math.min(targetParallelism, maxParallelism));
+  }
+
+  /**
+   * Provides a fresh set of circuit breakers for every crawl, so that host health does not carry
+   * over between crawls.
+   */
+  @Provides
+  HostCircuitBreakers provideHostCircuitBreakers(Clock clock) {
+    return new HostCircuitBreakers(
+        clock,
+        config.getCircuitBreakerFailureThreshold(),
+        config.getCircuitBreakerLatencyThreshold(),
+        config.getCircuitBreakerBackoff());
+  }
+
+  /**
+   * Provides a fresh fetch latency breakdown for every crawl.
+   */
+  @Provides
+  FetchLatencyBreakdown provideFetchLatencyBreakdown() {
+    return new FetchLatencyBreakdown(config.getLatencyBreakdownHosts());
+  }
+
+  /**
+   * Provides a fresh retry policy for every crawl, so that each crawl has its own retry budget.
+   */
+  @Provides
+  RetryPolicy provideRetryPolicy() {
+    return new RetryPolicy(
+        config.getMaxRetries(),
+        config.getRetryBaseDelay(),
+        config.getRetryBudgetRatio(),
+        new Random());
+  }
+
+  /**
+   * Provides a fresh page stats recorder for every crawl, which only records anything if the
+   * crawl result is written in the binary format.
+   */
+  @Provides
+  PageStatsRecorder providePageStatsRecorder() {
+    return config.getResultFormat().writesBinary()
+        ? new PageStatsRecorder()
+        : PageStatsRecorder.disabled();
+  }
+
+  /**
+   * Provides a fresh link graph recorder for every crawl, which only records anything if the link
+   * graph is written or the pages are ranked.
+   */
+  @Provides
+  LinkGraphRecorder provideLinkGraphRecorder() {
+    return config.getLinkGraphOutputPath().isEmpty() && !config.isRankWeightedWordCounts()
+        ? LinkGraphRecorder.disabled()
+        : new LinkGraphRecorder();
+  }
+
+  /**
+   * Provides a fresh set of per-page word counts for every crawl, which only records anything if
+   * the popular words are weighted by PageRank.
+   */
+  @Provides
+  RankWeightedWordCounts provideRankWeightedWordCounts() {
+    return config.isRankWeightedWordCounts()
+        ? new RankWeightedWordCounts(new PageRank(config.getPageRankDampingFactor()))
+        : RankWeightedWordCounts.disabled();
+  }
+
+  /**
+   * Provides a fresh inverted index builder for every crawl, which only indexes anything if the
+   * index is written.
+   */
+  @Provides
+  InvertedIndexBuilder provideInvertedIndexBuilder() {
+    return config.getIndexOutputPath().isEmpty()
+        ? InvertedIndexBuilder.disabled()
+        : new InvertedIndexBuilder();
+  }
+
   @Provides
   @Singleton
   WebCrawler provideWebCrawlerProxy(Profiler wrapper, @Internal WebCrawler delegate) {
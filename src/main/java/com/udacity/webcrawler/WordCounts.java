@@ -1,10 +1,13 @@
 package com.udacity.webcrawler;
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Utility class that sorts the word count map.
@@ -40,6 +43,46 @@ public final class WordCounts {
             ));
   }
 
+  /**
+   * Visits every word of the given map with its count, in the order of {@link #sort}, without
+   * copying the map.
+   *
+   * <p>The order is found in two parallel sorts: first the words alone by length and then
+   * alphabetically, and then their positions in that order by count, packed into primitive
+   * {@code long}s with the counts. This needs only a few arrays of one element per word, rather
+   * than an entry object per word, so the memory it takes stays small next to the map itself even
+   * for vocabularies of tens of millions of words.
+   *
+   * <p>The map must not be modified while it is being visited.
+   */
+  public static void forEachSorted(Map<String, Integer> wordCounts, WordCountVisitor visitor)
+      throws IOException {
+    String[] words = wordCounts.keySet().toArray(new String[0]);
+    Arrays.parallelSort(words, Comparator.comparingInt(String::length).reversed()
+        .thenComparing(Comparator.naturalOrder()));
+    int[] counts = new int[words.length];
+    IntStream.range(0, words.length).parallel().forEach(i -> counts[i] = wordCounts.get(words[i]));
+    // More frequent words first, and then in the order of the words array, which is the order of
+    // the index in the low bits.
+    long[] order = new long[words.length];
+    for (int i = 0; i < words.length; i++) {
+      order[i] = ((long) (Integer.MAX_VALUE - counts[i]) << 32) | i;
+    }
+    Arrays.parallelSort(order);
+    for (long key : order) {
+      int index = (int) key;
+      visitor.visit(words[index], counts[index]);
+    }
+  }
+
+  /**
+   * Receives the words visited by {@link #forEachSorted}.
+   */
+  @FunctionalInterface
+  public interface WordCountVisitor {
+    void visit(String word, int count) throws IOException;
+  }
+
   /**
    * A {@link Comparator} that sorts word count pairs correctly:
    *
@@ -0,0 +1,241 @@
+package com.udacity.webcrawler.graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The graph of the links between the pages of a crawl, in compressed sparse row (CSR) form.
+ *
+ * <p>Each page that was crawled is a node, numbered from 0 in the order the pages were first seen.
+ * The links of node {@code i} are the nodes {@code targets[offsets[i]]} up to, but not including,
+ * {@code targets[offsets[i + 1]]}, in increasing order, without duplicates. Links to pages that
+ * were not crawled, such as pages beyond the maximum depth, are left out, so every link leads to
+ * another node of the graph.
+ *
+ * <p>Apart from the URLs, the whole graph is two arrays of ints, so it takes 4 bytes per link and
+ * 4 bytes per page. The number of links is limited to {@link Integer#MAX_VALUE}.
+ *
+ * <p>This class is immutable.
+ */
+public final class LinkGraph {
+
+  private static final LinkGraph EMPTY = new LinkGraph(new String[0], new int[1], new int[0]);
+
+  private static final byte[] MAGIC = {'W', 'C', 'L', 'G'};
+  private static final int VERSION = 1;
+  private static final int BUFFER_BYTES = 1 << 20;
+
+  private final String[] urls;
+  private final int[] offsets;
+  private final int[] targets;
+
+  LinkGraph(String[] urls, int[] offsets, int[] targets) {
+    if (offsets.length != urls.length + 1 || offsets[urls.length] != targets.length) {
+      throw new IllegalArgumentException("offsets do not match the nodes and links");
+    }
+    this.urls = urls;
+    this.offsets = offsets;
+    this.targets = targets;
+  }
+
+  /**
+   * Returns a graph with no nodes.
+   */
+  public static LinkGraph empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Returns the number of nodes, which is the number of pages crawled.
+   */
+  public int getNodeCount() {
+    return urls.length;
+  }
+
+  /**
+   * Returns the number of links between nodes.
+   */
+  public int getLinkCount() {
+    return targets.length;
+  }
+
+  /**
+   * Returns the URL of the given node.
+   */
+  public String getUrl(int node) {
+    return urls[node];
+  }
+
+  /**
+   * Returns the number of links from the given node.
+   */
+  public int getOutDegree(int node) {
+    return offsets[node + 1] - offsets[node];
+  }
+
+  /**
+   * Returns the nodes the given node links to, in increasing order.
+   */
+  public int[] getLinks(int node) {
+    return Arrays.copyOfRange(targets, offsets[node], offsets[node + 1]);
+  }
+
+  /**
+   * Returns the row offsets of the graph, which must not be modified.
+   */
+  int[] offsets() {
+    return offsets;
+  }
+
+  /**
+   * Returns the link targets of the graph, which must not be modified.
+   */
+  int[] targets() {
+    return targets;
+  }
+
+  /**
+   * Writes the graph to the given {@link Path}, replacing any file that is already there.
+   *
+   * <p>The file starts with the bytes {@code WCLG}, a version number, the number of nodes and the
+   * number of links, followed by the offsets, the targets, and the URLs as their length in bytes
+   * followed by their UTF-8 encoding. All numbers are little-endian ints.
+   *
+   * @throws IOException if there was a problem writing the graph.
+   */
+  public void write(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+      buffer.put(MAGIC).putInt(VERSION).putInt(urls.length).putInt(targets.length);
+      putInts(channel, buffer, offsets);
+      putInts(channel, buffer, targets);
+      for (String url : urls) {
+        byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+        ensure(channel, buffer, Integer.BYTES);
+        buffer.putInt(bytes.length);
+        if (bytes.length > buffer.capacity()) {
+          flush(channel, buffer);
+          writeFully(channel, ByteBuffer.wrap(bytes));
+        } else {
+          ensure(channel, buffer, bytes.length);
+          buffer.put(bytes);
+        }
+      }
+      flush(channel, buffer);
+    }
+  }
+
+  private static void putInts(FileChannel channel, ByteBuffer buffer, int[] values)
+      throws IOException {
+    for (int i = 0; i < values.length; ) {
+      ensure(channel, buffer, Integer.BYTES);
+      int count = Math.min(values.length - i, buffer.remaining() / Integer.BYTES);
+      buffer.asIntBuffer().put(values, i, count);
+      buffer.position(buffer.position() + count * Integer.BYTES);
+      i += count;
+    }
+  }
+
+  private static void ensure(FileChannel channel, ByteBuffer buffer, int bytes)
+      throws IOException {
+    if (buffer.remaining() < bytes) {
+      flush(channel, buffer);
+    }
+  }
+
+  private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    writeFully(channel, buffer);
+    buffer.clear();
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  /**
+   * Reads a graph written by {@link #write(Path)}.
+   *
+   * @throws IOException if the file cannot be read, or is not a link graph.
+   */
+  public static LinkGraph read(Path path) throws IOException {
+    Objects.requireNonNull(path);
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+      buffer.flip();
+      fill(channel, buffer, MAGIC.length + 3 * Integer.BYTES, path);
+      byte[] magic = new byte[MAGIC.length];
+      buffer.get(magic);
+      if (!Arrays.equals(magic, MAGIC) || buffer.getInt() != VERSION) {
+        throw new IOException("Not a link graph: " + path);
+      }
+      int nodes = buffer.getInt();
+      int links = buffer.getInt();
+      if (nodes < 0 || links < 0) {
+        throw new IOException("Not a link graph: " + path);
+      }
+      int[] offsets = getInts(channel, buffer, nodes + 1, path);
+      int[] targets = getInts(channel, buffer, links, path);
+      String[] urls = new String[nodes];
+      for (int i = 0; i < nodes; i++) {
+        fill(channel, buffer, Integer.BYTES, path);
+        byte[] bytes = new byte[buffer.getInt()];
+        for (int read = 0; read < bytes.length; ) {
+          fill(channel, buffer, 1, path);
+          int count = Math.min(bytes.length - read, buffer.remaining());
+          buffer.get(bytes, read, count);
+          read += count;
+        }
+        urls[i] = new String(bytes, StandardCharsets.UTF_8);
+      }
+      try {
+        return new LinkGraph(urls, offsets, targets);
+      } catch (IllegalArgumentException e) {
+        throw new IOException("Not a link graph: " + path, e);
+      }
+    }
+  }
+
+  private static int[] getInts(FileChannel channel, ByteBuffer buffer, int length, Path path)
+      throws IOException {
+    int[] values = new int[length];
+    for (int i = 0; i < length; ) {
+      fill(channel, buffer, Integer.BYTES, path);
+      IntBuffer ints = buffer.asIntBuffer();
+      int count = Math.min(length - i, ints.remaining());
+      ints.get(values, i, count);
+      buffer.position(buffer.position() + count * Integer.BYTES);
+      i += count;
+    }
+    return values;
+  }
+
+  /**
+   * Makes sure the buffer has at least the given number of bytes left to read, reading more from
+   * the channel if it does not.
+   */
+  private static void fill(FileChannel channel, ByteBuffer buffer, int bytes, Path path)
+      throws IOException {
+    if (buffer.remaining() >= bytes) {
+      return;
+    }
+    buffer.compact();
+    while (buffer.position() < bytes) {
+      if (channel.read(buffer) < 0) {
+        throw new IOException("Unexpected end of link graph: " + path);
+      }
+    }
+    buffer.flip();
+  }
+}
@@ -0,0 +1,255 @@
+package com.udacity.webcrawler.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Records the links between the pages of a single crawl, and compacts them into a
+ * {@link LinkGraph} once the crawl is over.
+ *
+ * <p>Every URL gets a dense int ID the first time it is seen, either as a page that was crawled or
+ * as the target of a link. Each thread appends the links of the pages it crawled to a buffer of its
+ * own, as the ID of the page, the number of links and the IDs of their targets, in chunks of ints
+ * that are never copied once they are full. Recording a page therefore takes no lock, apart from
+ * the first time each URL is seen, and costs 4 bytes per link.
+ *
+ * <p>{@link #toGraph()} turns the buffers into the CSR arrays of a {@link LinkGraph}, renumbering
+ * the pages that were crawled and dropping links to pages that were not. While it runs, the
+ * buffers and the graph both take 4 bytes per link.
+ *
+ * <p>Recording is thread-safe. The graph should be built once the threads have stopped recording,
+ * such as at the end of a crawl; pages recorded while it is being built may or may not be included,
+ * and pages recorded after that are ignored.
+ */
+public final class LinkGraphRecorder {
+
+  private static final int CHUNK_INTS = 1 << 16;
+
+  private static final LinkGraphRecorder DISABLED = new LinkGraphRecorder(false);
+
+  private final boolean enabled;
+  private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+  private final AtomicInteger nextId = new AtomicInteger();
+  private final Queue<EdgeBuffer> buffers = new ConcurrentLinkedQueue<>();
+  private final ThreadLocal<EdgeBuffer> localBuffer = ThreadLocal.withInitial(() -> {
+    EdgeBuffer buffer = new EdgeBuffer();
+    buffers.add(buffer);
+    return buffer;
+  });
+  private volatile boolean built;
+
+  /**
+   * Creates an empty recorder.
+   */
+  public LinkGraphRecorder() {
+    this(true);
+  }
+
+  private LinkGraphRecorder(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * Returns a recorder that records nothing, and whose graph is always empty.
+   */
+  public static LinkGraphRecorder disabled() {
+    return DISABLED;
+  }
+
+  /**
+   * Returns true if this recorder records links.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Records that the page at the given URL was crawled, and links to the given URLs.
+   */
+  public void record(String url, List<String> links) {
+    if (!enabled || built) {
+      return;
+    }
+    int[] row = new int[links.size() + 2];
+    row[0] = id(url);
+    row[1] = links.size();
+    for (int i = 0; i < links.size(); i++) {
+      row[i + 2] = id(links.get(i));
+    }
+    localBuffer.get().add(row);
+  }
+
+  private int id(String url) {
+    Integer id = ids.get(url);
+    if (id != null) {
+      return id;
+    }
+    return ids.computeIfAbsent(url, key -> nextId.getAndIncrement());
+  }
+
+  /**
+   * Compacts the links recorded so far into a {@link LinkGraph}. The recorder ignores pages
+   * recorded after this.
+   *
+   * @throws IllegalStateException if more than {@link Integer#MAX_VALUE} links were recorded.
+   */
+  public LinkGraph toGraph() {
+    if (!enabled) {
+      return LinkGraph.empty();
+    }
+    built = true;
+    List<Rows> snapshots = new ArrayList<>();
+    buffers.forEach(buffer -> snapshots.add(buffer.snapshot()));
+
+    // Number the pages that were crawled in the order their URLs were first seen. The IDs of the
+    // pages recorded in the snapshots were all handed out before the snapshots were taken.
+    int seen = nextId.get();
+    BitSet crawled = new BitSet(seen);
+    snapshots.forEach(rows -> rows.forEach((source, targets, from, to) -> crawled.set(source)));
+    int[] node = new int[seen];
+    int nodes = 0;
+    for (int id = 0; id < seen; id++) {
+      node[id] = crawled.get(id) ? nodes++ : -1;
+    }
+
+    // Count the links of each node, then lay them out by their offsets.
+    int[] offsets = new int[nodes + 1];
+    snapshots.forEach(rows -> rows.forEach((source, targets, from, to) -> {
+      for (int i = from; i < to; i++) {
+        if (node[targets[i]] >= 0) {
+          offsets[node[source] + 1]++;
+        }
+      }
+    }));
+    long links = 0;
+    for (int i = 1; i <= nodes; i++) {
+      links += offsets[i];
+      if (links > Integer.MAX_VALUE) {
+        throw new IllegalStateException("Too many links for a LinkGraph: " + links);
+      }
+      offsets[i] = (int) links;
+    }
+    int[] targets = new int[(int) links];
+    int[] next = Arrays.copyOf(offsets, nodes);
+    snapshots.forEach(rows -> rows.forEach((source, row, from, to) -> {
+      int cursor = node[source];
+      for (int i = from; i < to; i++) {
+        int target = node[row[i]];
+        if (target >= 0) {
+          targets[next[cursor]++] = target;
+        }
+      }
+    }));
+
+    // Sort the links of each node and drop the duplicates, then close the gaps they leave.
+    int[] unique = new int[nodes];
+    IntStream.range(0, nodes).parallel().forEach(i -> {
+      Arrays.sort(targets, offsets[i], offsets[i + 1]);
+      int end = offsets[i];
+      for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+        if (j == offsets[i] || targets[j] != targets[j - 1]) {
+          targets[end++] = targets[j];
+        }
+      }
+      unique[i] = end - offsets[i];
+    });
+    int length = 0;
+    for (int i = 0; i < nodes; i++) {
+      System.arraycopy(targets, offsets[i], targets, length, unique[i]);
+      offsets[i] = length;
+      length += unique[i];
+    }
+    offsets[nodes] = length;
+
+    String[] urls = new String[nodes];
+    ids.forEach((url, id) -> {
+      if (id < seen && node[id] >= 0) {
+        urls[node[id]] = url;
+      }
+    });
+    return new LinkGraph(
+        urls, offsets, length == targets.length ? targets : Arrays.copyOf(targets, length));
+  }
+
+  /**
+   * Receives a row of links: a page and the slice of an array that holds its targets.
+   */
+  @FunctionalInterface
+  private interface RowVisitor {
+    void visit(int source, int[] targets, int from, int to);
+  }
+
+  /**
+   * The rows of an {@link EdgeBuffer} at some point in time.
+   */
+  private record Rows(int[][] chunks, long size) {
+
+    /**
+     * Visits each row. A row that spans chunks is visited once per chunk.
+     */
+    void forEach(RowVisitor visitor) {
+      long position = 0;
+      while (position < size) {
+        int source = get(position);
+        int count = get(position + 1);
+        position += 2;
+        long end = position + count;
+        while (position < end) {
+          int chunk = (int) (position / CHUNK_INTS);
+          int from = (int) (position % CHUNK_INTS);
+          int to = (int) Math.min(CHUNK_INTS, from + (end - position));
+          visitor.visit(source, chunks[chunk], from, to);
+          position += to - from;
+        }
+        if (count == 0) {
+          visitor.visit(source, chunks[0], 0, 0);
+        }
+      }
+    }
+
+    private int get(long position) {
+      return chunks[(int) (position / CHUNK_INTS)][(int) (position % CHUNK_INTS)];
+    }
+  }
+
+  /**
+   * The rows recorded by a single thread. Only that thread appends to it, and it publishes each
+   * row by writing the volatile size once the row is complete, so that another thread that reads
+   * the size first sees every row up to it.
+   */
+  private static final class EdgeBuffer {
+    private volatile int[][] chunks = {new int[CHUNK_INTS]};
+    private volatile long size;
+
+    void add(int[] row) {
+      int[][] current = chunks;
+      long position = size;
+      for (int value : row) {
+        int chunk = (int) (position / CHUNK_INTS);
+        if (chunk == current.length || current[chunk] == null) {
+          // The array of chunks is replaced rather than changed, so a snapshot never sees it
+          // change.
+          current = Arrays.copyOf(current, chunk == current.length ? chunk * 2 : current.length);
+          current[chunk] = new int[CHUNK_INTS];
+          chunks = current;
+        }
+        current[chunk][(int) (position % CHUNK_INTS)] = value;
+        position++;
+      }
+      size = position;
+    }
+
+    Rows snapshot() {
+      long published = size;
+      return new Rows(chunks, published);
+    }
+  }
+}
@@ -0,0 +1,206 @@
+package com.udacity.webcrawler.graph;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes the PageRank of every node of a {@link LinkGraph} by power iteration.
+ *
+ * <p>Each iteration pulls the rank of every node from the nodes that link to it, so the links are
+ * first turned around into a CSR graph of incoming links. The nodes are then split into ranges of
+ * about the same number of links, which are ranked in parallel on a {@link ForkJoinPool} without
+ * sharing anything they write. The rank of nodes with no links is spread over every node, as if
+ * they linked to all of them, so the ranks always sum to 1.
+ *
+ * <p>The iteration stops once the ranks move by less than the tolerance in total (their L1
+ * distance), or after the maximum number of iterations. Each iteration takes time proportional to
+ * the number of nodes and links, and the ranks take three arrays of doubles.
+ *
+ * <p>This class is thread-safe.
+ */
+public final class PageRank {
+
+  /**
+   * The damping factor of the original PageRank paper.
+   */
+  public static final double DEFAULT_DAMPING_FACTOR = 0.85;
+
+  static final double DEFAULT_TOLERANCE = 1e-6;
+  static final int DEFAULT_MAX_ITERATIONS = 100;
+
+  // The number of nodes plus links below which a range is ranked without being split further.
+  private static final int GRAIN = 1 << 14;
+
+  private final double dampingFactor;
+  private final double tolerance;
+  private final int maxIterations;
+  private final ForkJoinPool pool;
+
+  /**
+   * Creates a PageRank with the given damping factor, the default tolerance and maximum number of
+   * iterations, which runs on the common pool.
+   */
+  public PageRank(double dampingFactor) {
+    this(dampingFactor, DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Creates a PageRank.
+   *
+   * @param dampingFactor the probability of following a link rather than jumping to a random node.
+   * @param tolerance     the L1 distance between the ranks of two iterations below which the ranks
+   *                      are considered to have converged.
+   * @param maxIterations the number of iterations after which to stop even if the ranks have not
+   *                      converged.
+   * @param pool          the pool to rank the nodes on.
+   */
+  public PageRank(double dampingFactor, double tolerance, int maxIterations, ForkJoinPool pool) {
+    if (!(dampingFactor > 0 && dampingFactor < 1)) {
+      throw new IllegalArgumentException("dampingFactor must be between 0 and 1");
+    }
+    if (!(tolerance >= 0)) {
+      throw new IllegalArgumentException("tolerance cannot be negative");
+    }
+    if (maxIterations <= 0) {
+      throw new IllegalArgumentException("maxIterations must be positive");
+    }
+    this.dampingFactor = dampingFactor;
+    this.tolerance = tolerance;
+    this.maxIterations = maxIterations;
+    this.pool = pool;
+  }
+
+  /**
+   * Returns the rank of every node of the given graph, indexed by node, which sum to 1.
+   */
+  public double[] rank(LinkGraph graph) {
+    int nodes = graph.getNodeCount();
+    if (nodes == 0) {
+      return new double[0];
+    }
+    int[] outOffsets = graph.offsets();
+    int[] inOffsets = new int[nodes + 1];
+    int[] sources = transpose(graph, inOffsets);
+
+    double[] rank = new double[nodes];
+    double[] next = new double[nodes];
+    double[] share = new double[nodes];
+    Arrays.fill(rank, 1.0 / nodes);
+    for (int iteration = 0; iteration < maxIterations; iteration++) {
+      double[] current = rank;
+      double dangling = pool.invoke(new RangeTask(inOffsets, 0, nodes, (from, to) -> {
+        double sum = 0;
+        for (int node = from; node < to; node++) {
+          int degree = outOffsets[node + 1] - outOffsets[node];
+          if (degree == 0) {
+            share[node] = 0;
+            sum += current[node];
+          } else {
+            share[node] = current[node] / degree;
+          }
+        }
+        return sum;
+      }));
+
+      double base = (1 - dampingFactor + dampingFactor * dangling) / nodes;
+      double[] updated = next;
+      double distance = pool.invoke(new RangeTask(inOffsets, 0, nodes, (from, to) -> {
+        double sum = 0;
+        for (int node = from; node < to; node++) {
+          double pulled = 0;
+          for (int i = inOffsets[node]; i < inOffsets[node + 1]; i++) {
+            pulled += share[sources[i]];
+          }
+          updated[node] = base + dampingFactor * pulled;
+          sum += Math.abs(updated[node] - current[node]);
+        }
+        return sum;
+      }));
+
+      next = rank;
+      rank = updated;
+      if (distance < tolerance) {
+        break;
+      }
+    }
+    return rank;
+  }
+
+  /**
+   * Returns the sources of the links of the given graph, grouped by target, and fills in the
+   * offsets of each target's group.
+   */
+  private static int[] transpose(LinkGraph graph, int[] inOffsets) {
+    int nodes = graph.getNodeCount();
+    int[] outOffsets = graph.offsets();
+    int[] targets = graph.targets();
+    for (int target : targets) {
+      inOffsets[target + 1]++;
+    }
+    for (int node = 0; node < nodes; node++) {
+      inOffsets[node + 1] += inOffsets[node];
+    }
+    int[] next = Arrays.copyOf(inOffsets, nodes);
+    int[] sources = new int[targets.length];
+    for (int source = 0; source < nodes; source++) {
+      for (int i = outOffsets[source]; i < outOffsets[source + 1]; i++) {
+        sources[next[targets[i]]++] = source;
+      }
+    }
+    return sources;
+  }
+
+  /**
+   * Computes a sum over a range of nodes.
+   */
+  @FunctionalInterface
+  private interface RangeSum {
+    double sum(int from, int to);
+  }
+
+  /**
+   * Splits a range of nodes in two, by the number of nodes and incoming links, until the halves
+   * are small enough to sum directly, and adds up their sums.
+   */
+  private static final class RangeTask extends RecursiveTask<Double> {
+    private static final long serialVersionUID = 1L;
+
+    private final int[] inOffsets;
+    private final int from;
+    private final int to;
+    private final RangeSum sum;
+
+    RangeTask(int[] inOffsets, int from, int to, RangeSum sum) {
+      this.inOffsets = inOffsets;
+      this.from = from;
+      this.to = to;
+      this.sum = sum;
+    }
+
+    @Override
+    protected Double compute() {
+      long work = (long) (to - from) + inOffsets[to] - inOffsets[from];
+      if (work <= GRAIN || to - from < 2) {
+        return sum.sum(from, to);
+      }
+      // Split where half of the work is done, so that a few nodes with many links do not make
+      // one half much slower than the other.
+      long half = from + inOffsets[from] + work / 2;
+      int low = from + 1;
+      int high = to - 1;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (middle + inOffsets[middle] < half) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      RangeTask left = new RangeTask(inOffsets, from, low, sum);
+      left.fork();
+      double right = new RangeTask(inOffsets, low, to, sum).compute();
+      return left.join() + right;
+    }
+  }
+}
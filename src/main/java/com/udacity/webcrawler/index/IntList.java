@@ -0,0 +1,38 @@
+package com.udacity.webcrawler.index;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of ints, which takes 4 bytes per value rather than an object per value.
+ */
+final class IntList {
+  private int[] values;
+  private int size;
+
+  IntList(int capacity) {
+    this.values = new int[Math.max(capacity, 4)];
+  }
+
+  void add(int value) {
+    if (size == values.length) {
+      values = Arrays.copyOf(values, values.length + (values.length >> 1));
+    }
+    values[size++] = value;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns the array the values are stored in, of which only the first {@link #size()} are in
+   * the list.
+   */
+  int[] values() {
+    return values;
+  }
+
+  int[] toArray() {
+    return Arrays.copyOf(values, size);
+  }
+}
@@ -0,0 +1,229 @@
+package com.udacity.webcrawler.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An index from each word seen during a crawl to the pages it was seen on.
+ *
+ * <p>Each page with any words is a document, numbered from 0. The document IDs of each word are
+ * stored in increasing order, as compressed postings: the gaps between them, in variable-length
+ * integers that mostly take a byte each. The dictionary of words is sorted, so a word is found by
+ * binary search, and only its own postings are decompressed.
+ *
+ * <p>This class is immutable.
+ */
+public final class InvertedIndex {
+
+  private static final InvertedIndex EMPTY = new InvertedIndex(
+      new Segment(new String[0], new int[0], new int[0], new byte[0], new int[0], new String[0]),
+      new String[0]);
+
+  private static final int MAGIC = 0x57434949;
+  private static final int VERSION = 1;
+
+  private final Segment segment;
+  private final String[] urls;
+
+  private InvertedIndex(Segment segment, String[] urls) {
+    this.segment = segment;
+    this.urls = urls;
+  }
+
+  /**
+   * Returns an index of the documents of the given segment, whose IDs must be dense.
+   */
+  static InvertedIndex of(Segment segment) {
+    String[] urls = new String[segment.documents.length];
+    for (int i = 0; i < urls.length; i++) {
+      urls[segment.documents[i]] = segment.urls[i];
+    }
+    return new InvertedIndex(segment, urls);
+  }
+
+  /**
+   * Returns an index with no documents.
+   */
+  public static InvertedIndex empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Returns the number of documents, which is the number of pages with any words.
+   */
+  public int getDocumentCount() {
+    return urls.length;
+  }
+
+  /**
+   * Returns the number of distinct words.
+   */
+  public int getTermCount() {
+    return segment.terms.length;
+  }
+
+  /**
+   * Returns the number of postings, which is the number of distinct words of each document, added
+   * up over all documents.
+   */
+  public long getPostingCount() {
+    return segment.size();
+  }
+
+  /**
+   * Returns the URL of the page of the given document.
+   */
+  public String getUrl(int document) {
+    return urls[document];
+  }
+
+  /**
+   * Returns the documents the given word was seen in, in increasing order.
+   */
+  public int[] lookup(String term) {
+    int index = segment.find(term);
+    return index < 0 ? new int[0] : segment.decode(index);
+  }
+
+  /**
+   * Returns the documents all of the given words were seen in, in increasing order. If no words
+   * are given, no documents are returned.
+   */
+  public int[] and(List<String> terms) {
+    if (terms.isEmpty()) {
+      return new int[0];
+    }
+    int[] indexes = new int[terms.size()];
+    for (int i = 0; i < indexes.length; i++) {
+      indexes[i] = segment.find(terms.get(i));
+      if (indexes[i] < 0) {
+        return new int[0];
+      }
+    }
+    // Start from the rarest word, so that the list being intersected only ever shrinks from the
+    // shortest one.
+    Integer[] order = new Integer[indexes.length];
+    Arrays.setAll(order, i -> indexes[i]);
+    Arrays.sort(order, Comparator.comparingInt(index -> segment.documentFrequencies[index]));
+    int[] result = segment.decode(order[0]);
+    for (int i = 1; i < order.length && result.length > 0; i++) {
+      result = intersect(result, segment.decode(order[i]));
+    }
+    return result;
+  }
+
+  /**
+   * Returns the documents all of the given words were seen in. See {@link #and(List)}.
+   */
+  public int[] and(String... terms) {
+    return and(Arrays.asList(terms));
+  }
+
+  private static int[] intersect(int[] a, int[] b) {
+    int[] result = new int[Math.min(a.length, b.length)];
+    int size = 0;
+    for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+      if (a[i] < b[j]) {
+        i++;
+      } else if (a[i] > b[j]) {
+        j++;
+      } else {
+        result[size++] = a[i];
+        i++;
+        j++;
+      }
+    }
+    return Arrays.copyOf(result, size);
+  }
+
+  /**
+   * Writes the index to the given {@link Path}, replacing any file that is already there.
+   *
+   * <p>The file holds a magic number, a version number, the URLs of the documents, the dictionary
+   * with the document frequency and postings offset of each word, and the postings themselves.
+   * Strings are stored as their length in bytes followed by their UTF-8 encoding.
+   *
+   * @throws IOException if there was a problem writing the index.
+   */
+  public void write(Path path) throws IOException {
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+        Files.newOutputStream(path, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(urls.length);
+      for (String url : urls) {
+        writeString(out, url);
+      }
+      out.writeInt(segment.terms.length);
+      for (int i = 0; i < segment.terms.length; i++) {
+        writeString(out, segment.terms[i]);
+        out.writeInt(segment.documentFrequencies[i]);
+        out.writeInt(segment.offsets[i]);
+      }
+      out.writeInt(segment.postings.length);
+      out.write(segment.postings);
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Reads an index written by {@link #write(Path)}.
+   *
+   * @throws IOException if the file cannot be read, or is not an inverted index.
+   */
+  public static InvertedIndex read(Path path) throws IOException {
+    Objects.requireNonNull(path);
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException("Not an inverted index: " + path);
+      }
+      int documents = in.readInt();
+      String[] urls = new String[documents];
+      int[] ids = new int[documents];
+      for (int i = 0; i < documents; i++) {
+        urls[i] = readString(in);
+        ids[i] = i;
+      }
+      int termCount = in.readInt();
+      String[] terms = new String[termCount];
+      int[] documentFrequencies = new int[termCount];
+      int[] offsets = new int[termCount];
+      for (int i = 0; i < termCount; i++) {
+        terms[i] = readString(in);
+        documentFrequencies[i] = in.readInt();
+        offsets[i] = in.readInt();
+      }
+      byte[] postings = new byte[in.readInt()];
+      in.readFully(postings);
+      return new InvertedIndex(
+          new Segment(terms, documentFrequencies, offsets, postings, ids, urls), urls);
+    } catch (EOFException | NegativeArraySizeException e) {
+      throw new IOException("Not an inverted index: " + path, e);
+    }
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
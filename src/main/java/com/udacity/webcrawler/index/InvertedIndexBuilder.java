@@ -0,0 +1,224 @@
+package com.udacity.webcrawler.index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds the {@link InvertedIndex} of a single crawl from the words of each page, as the pages are
+ * parsed.
+ *
+ * <p>Each thread adds its pages to a segment of its own, which only it locks, apart from once at
+ * the end of the crawl, so adding a page never waits for another thread. Once a segment holds
+ * {@link #SEGMENT_POSTINGS} postings, it is handed over to a background thread, which compresses
+ * it and merges it with the others: {@link #MERGE_FACTOR} segments of about the same size are
+ * merged into one, which is in turn merged with others of its size, so each posting is merged a
+ * logarithmic number of times. The crawling threads therefore only spend the time it takes to add
+ * each word of a page to a hash map.
+ *
+ * <p>{@link #build()} hands over the segments that are not full yet, and waits for the background
+ * thread to merge everything into a single index.
+ *
+ * <p>Adding pages is thread-safe. The index should be built once the threads have stopped adding
+ * pages, such as at the end of a crawl; pages added while it is being built are left out.
+ */
+public final class InvertedIndexBuilder {
+
+  static final int SEGMENT_POSTINGS = 1 << 18;
+  static final int MERGE_FACTOR = 8;
+
+  private static final InvertedIndexBuilder DISABLED = new InvertedIndexBuilder(false);
+
+  private final boolean enabled;
+  private final AtomicInteger nextDocument = new AtomicInteger();
+  private final Queue<ThreadSegment> threadSegments = new ConcurrentLinkedQueue<>();
+  private final ThreadLocal<ThreadSegment> localSegment = ThreadLocal.withInitial(() -> {
+    ThreadSegment segment = new ThreadSegment();
+    threadSegments.add(segment);
+    return segment;
+  });
+  private final ThreadPoolExecutor merger;
+  private volatile boolean built;
+
+  // The merged segments by level: level i holds segments that were merged i times, and the
+  // failure of the first merge that failed. Only the merger thread uses them.
+  private final List<List<Segment>> levels = new ArrayList<>();
+  private IllegalStateException failure;
+
+  /**
+   * Creates an empty builder.
+   */
+  public InvertedIndexBuilder() {
+    this(true);
+  }
+
+  private InvertedIndexBuilder(boolean enabled) {
+    this.enabled = enabled;
+    // The merger thread goes away when it has nothing to do, so a builder that is never built
+    // does not keep a thread around.
+    this.merger = enabled
+        ? new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            runnable -> {
+              Thread thread = new Thread(runnable, "crawler-index-merger");
+              thread.setDaemon(true);
+              return thread;
+            })
+        : null;
+  }
+
+  /**
+   * Returns a builder that indexes nothing, and whose index is always empty.
+   */
+  public static InvertedIndexBuilder disabled() {
+    return DISABLED;
+  }
+
+  /**
+   * Returns true if this builder indexes pages.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Adds the page at the given URL, with the given words, to the index. Pages with no words are
+   * not indexed.
+   */
+  public void add(String url, Map<String, Integer> wordCounts) {
+    if (!enabled || wordCounts.isEmpty()) {
+      return;
+    }
+    ThreadSegment segment = localSegment.get();
+    synchronized (segment) {
+      if (built) {
+        return;
+      }
+      segment.batch.add(nextDocument.getAndIncrement(), url, wordCounts);
+      if (segment.batch.postings >= SEGMENT_POSTINGS) {
+        // Handed over under the lock, so that build() cannot have the final merge run before
+        // the batch is merged.
+        handOver(segment.drain());
+      }
+    }
+  }
+
+  /**
+   * Merges every page added so far into an index. The builder indexes nothing after this.
+   */
+  public InvertedIndex build() {
+    if (!enabled) {
+      return InvertedIndex.empty();
+    }
+    built = true;
+    for (ThreadSegment segment : threadSegments) {
+      Batch rest;
+      synchronized (segment) {
+        rest = segment.drain();
+      }
+      if (rest.documents.size() > 0) {
+        handOver(rest);
+      }
+    }
+    Future<Segment> merged = merger.submit(() -> {
+      if (failure != null) {
+        throw failure;
+      }
+      List<Segment> all = new ArrayList<>();
+      levels.forEach(all::addAll);
+      levels.clear();
+      return all.size() == 1 ? all.get(0) : Segment.merge(all);
+    });
+    try {
+      return InvertedIndex.of(merged.get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while building the index", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Failed to build the index", e.getCause());
+    }
+  }
+
+  /**
+   * Has the merger thread compress the given batch and merge it with the others.
+   */
+  private void handOver(Batch batch) {
+    merger.execute(() -> {
+      if (failure != null) {
+        return;
+      }
+      try {
+        addSegment(batch.toSegment());
+      } catch (RuntimeException | OutOfMemoryError e) {
+        // Fail the build, rather than return an index that silently lacks pages.
+        failure = new IllegalStateException("Failed to merge index segments", e);
+      }
+    });
+  }
+
+  /**
+   * Adds a segment to the lowest level, and merges every level that gets full into the next one.
+   */
+  private void addSegment(Segment segment) {
+    for (int level = 0; ; level++) {
+      if (level == levels.size()) {
+        levels.add(new ArrayList<>());
+      }
+      List<Segment> segments = levels.get(level);
+      segments.add(segment);
+      if (segments.size() < MERGE_FACTOR) {
+        return;
+      }
+      segment = Segment.merge(segments);
+      segments.clear();
+    }
+  }
+
+  /**
+   * The segment of a thread, which holds the batch of pages it added since the batch was last
+   * handed over. It is locked by its thread while adding a page, and by {@link #build()}.
+   */
+  private static final class ThreadSegment {
+    Batch batch = new Batch();
+
+    /**
+     * Returns the current batch, and starts a new one.
+     */
+    Batch drain() {
+      Batch drained = batch;
+      batch = new Batch();
+      return drained;
+    }
+  }
+
+  /**
+   * The postings of a batch of pages, before they are compressed.
+   */
+  private static final class Batch {
+    final Map<String, IntList> postingsByTerm = new HashMap<>();
+    final IntList documents = new IntList(64);
+    final List<String> urls = new ArrayList<>();
+    long postings;
+
+    void add(int document, String url, Map<String, Integer> wordCounts) {
+      documents.add(document);
+      urls.add(url);
+      for (String word : wordCounts.keySet()) {
+        postingsByTerm.computeIfAbsent(word, key -> new IntList(4)).add(document);
+      }
+      postings += wordCounts.size();
+    }
+
+    Segment toSegment() {
+      return Segment.of(postingsByTerm, documents, urls);
+    }
+  }
+}
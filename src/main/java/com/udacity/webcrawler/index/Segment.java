@@ -0,0 +1,208 @@
+package com.udacity.webcrawler.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * An immutable part of an inverted index: a sorted dictionary of terms, the compressed postings of
+ * each term, and the URLs of the documents it covers.
+ *
+ * <p>The postings of a term are its document IDs in increasing order, each stored as its gap from
+ * the one before it (the first one as itself) in a variable-length integer of 7 bits per byte,
+ * lowest first, with the high bit set on every byte but the last. The document IDs of a crawl
+ * are dense and close together, so most gaps take a single byte.
+ */
+final class Segment {
+
+  final String[] terms;
+  final int[] documentFrequencies;
+  final int[] offsets;
+  final byte[] postings;
+  final int[] documents;
+  final String[] urls;
+
+  Segment(
+      String[] terms,
+      int[] documentFrequencies,
+      int[] offsets,
+      byte[] postings,
+      int[] documents,
+      String[] urls) {
+    this.terms = terms;
+    this.documentFrequencies = documentFrequencies;
+    this.offsets = offsets;
+    this.postings = postings;
+    this.documents = documents;
+    this.urls = urls;
+  }
+
+  /**
+   * Returns the number of postings in this segment.
+   */
+  long size() {
+    long size = 0;
+    for (int frequency : documentFrequencies) {
+      size += frequency;
+    }
+    return size;
+  }
+
+  /**
+   * Returns the index of the given term in the dictionary, or a negative number if it is not
+   * there.
+   */
+  int find(String term) {
+    return Arrays.binarySearch(terms, term);
+  }
+
+  /**
+   * Returns the document IDs of the term at the given index of the dictionary, in increasing
+   * order.
+   */
+  int[] decode(int term) {
+    int[] documents = new int[documentFrequencies[term]];
+    int position = offsets[term];
+    int document = 0;
+    for (int i = 0; i < documents.length; i++) {
+      int gap = 0;
+      for (int shift = 0; ; shift += 7) {
+        byte next = postings[position++];
+        gap |= (next & 0x7F) << shift;
+        if (next >= 0) {
+          break;
+        }
+      }
+      document += gap;
+      documents[i] = document;
+    }
+    return documents;
+  }
+
+  /**
+   * Builds a segment from the postings of each term, whose document IDs must be in increasing
+   * order, and the URLs of the given documents.
+   */
+  static Segment of(Map<String, IntList> postingsByTerm, IntList documents, List<String> urls) {
+    String[] terms = postingsByTerm.keySet().toArray(new String[0]);
+    Arrays.sort(terms);
+    Encoder encoder = new Encoder(terms.length);
+    for (String term : terms) {
+      IntList postings = postingsByTerm.get(term);
+      encoder.add(postings.values(), postings.size());
+    }
+    return encoder.build(terms, documents.toArray(), urls.toArray(new String[0]));
+  }
+
+  /**
+   * Merges the given segments, which must cover different documents, into one.
+   */
+  static Segment merge(List<Segment> segments) {
+    // Walk the dictionaries of all the segments at once, in order, with a cursor per segment.
+    PriorityQueue<int[]> cursors = new PriorityQueue<>(
+        (a, b) -> segments.get(a[0]).terms[a[1]].compareTo(segments.get(b[0]).terms[b[1]]));
+    int documentCount = 0;
+    for (int i = 0; i < segments.size(); i++) {
+      if (segments.get(i).terms.length > 0) {
+        cursors.add(new int[] {i, 0});
+      }
+      documentCount += segments.get(i).documents.length;
+    }
+    List<String> terms = new ArrayList<>();
+    Encoder encoder = new Encoder(16);
+    List<int[]> lists = new ArrayList<>();
+    while (!cursors.isEmpty()) {
+      int[] first = cursors.poll();
+      String term = segments.get(first[0]).terms[first[1]];
+      lists.clear();
+      lists.add(segments.get(first[0]).decode(first[1]));
+      advance(cursors, segments, first);
+      while (!cursors.isEmpty()
+          && segments.get(cursors.peek()[0]).terms[cursors.peek()[1]].equals(term)) {
+        int[] next = cursors.poll();
+        lists.add(segments.get(next[0]).decode(next[1]));
+        advance(cursors, segments, next);
+      }
+      int[] merged = lists.size() == 1 ? lists.get(0) : concatenateSorted(lists);
+      terms.add(term);
+      encoder.add(merged, merged.length);
+    }
+
+    int[] documents = new int[documentCount];
+    String[] urls = new String[documentCount];
+    int position = 0;
+    for (Segment segment : segments) {
+      System.arraycopy(segment.documents, 0, documents, position, segment.documents.length);
+      System.arraycopy(segment.urls, 0, urls, position, segment.urls.length);
+      position += segment.documents.length;
+    }
+    return encoder.build(terms.toArray(new String[0]), documents, urls);
+  }
+
+  private static void advance(PriorityQueue<int[]> cursors, List<Segment> segments, int[] cursor) {
+    cursor[1]++;
+    if (cursor[1] < segments.get(cursor[0]).terms.length) {
+      cursors.add(cursor);
+    }
+  }
+
+  private static int[] concatenateSorted(List<int[]> lists) {
+    int length = 0;
+    for (int[] list : lists) {
+      length += list.length;
+    }
+    int[] all = new int[length];
+    int position = 0;
+    for (int[] list : lists) {
+      System.arraycopy(list, 0, all, position, list.length);
+      position += list.length;
+    }
+    Arrays.sort(all);
+    return all;
+  }
+
+  /**
+   * Encodes postings lists one after the other into a growing array of bytes.
+   */
+  private static final class Encoder {
+    private static final int MAX_BYTES = Integer.MAX_VALUE - 8;
+
+    private final IntList documentFrequencies;
+    private final IntList offsets;
+    private byte[] bytes = new byte[1024];
+    private int size;
+
+    Encoder(int terms) {
+      this.documentFrequencies = new IntList(terms);
+      this.offsets = new IntList(terms);
+    }
+
+    void add(int[] documents, int count) {
+      documentFrequencies.add(count);
+      offsets.add(size);
+      int previous = 0;
+      for (int i = 0; i < count; i++) {
+        int gap = documents[i] - previous;
+        previous = documents[i];
+        if (bytes.length - size < 5) {
+          if (bytes.length == MAX_BYTES) {
+            throw new IllegalStateException("Too many postings for a segment");
+          }
+          bytes = Arrays.copyOf(bytes, (int) Math.min(2L * bytes.length, MAX_BYTES));
+        }
+        while ((gap & ~0x7F) != 0) {
+          bytes[size++] = (byte) ((gap & 0x7F) | 0x80);
+          gap >>>= 7;
+        }
+        bytes[size++] = (byte) gap;
+      }
+    }
+
+    Segment build(String[] terms, int[] documents, String[] urls) {
+      return new Segment(terms, documentFrequencies.toArray(), offsets.toArray(),
+          Arrays.copyOf(bytes, size), documents, urls);
+    }
+  }
+}
@@ -0,0 +1,330 @@
+package com.udacity.webcrawler.json;
+
+import com.udacity.webcrawler.WordCounts;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Reads a crawl result written by {@link BinaryResultWriter}.
+ *
+ * <p>Opening a result only reads its footer and summary. Each column is memory-mapped when it is
+ * first read, so reading the popular words or the page table of a crawl does not read its whole
+ * vocabulary.
+ *
+ * <p>A reader holds the file open until it is closed. It is not thread-safe.
+ */
+public final class BinaryResultReader implements AutoCloseable {
+
+  private final Path path;
+  private final FileChannel channel;
+  private final Map<String, Section> sections;
+  private final int urlsVisited;
+  private final int pagesTruncated;
+  private final int pagesDropped;
+  private final boolean partial;
+  private final int popularWordCount;
+  private final Map<String, String> hostCircuitBreakers;
+  private final Map<String, String> slowestHosts;
+
+  private BinaryResultReader(Path path, FileChannel channel) throws IOException {
+    this.path = path;
+    this.channel = channel;
+    this.sections = readFooter();
+    ByteBuffer summary = map("summary");
+    this.urlsVisited = (int) getVarLong(summary);
+    this.pagesTruncated = (int) getVarLong(summary);
+    this.pagesDropped = (int) getVarLong(summary);
+    this.partial = summary.get() != 0;
+    this.popularWordCount = (int) getVarLong(summary);
+    this.hostCircuitBreakers = getStrings(summary);
+    this.slowestHosts = getStrings(summary);
+  }
+
+  /**
+   * Opens the binary crawl result at the given {@link Path}.
+   *
+   * @throws IOException if the file cannot be read, or is not a binary crawl result of a version
+   *                     this class can read.
+   */
+  public static BinaryResultReader open(Path path) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      return new BinaryResultReader(path, channel);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private Map<String, Section> readFooter() throws IOException {
+    int magic = BinaryResultWriter.MAGIC.length;
+    long size = channel.size();
+    if (size < 2L * magic + Integer.BYTES + Long.BYTES) {
+      throw corrupt("too short");
+    }
+    ByteBuffer header = read(0, magic + Integer.BYTES);
+    if (!hasMagic(header)) {
+      throw corrupt("no header");
+    }
+    int version = header.getInt();
+    if (version != BinaryResultWriter.VERSION) {
+      throw new IOException("Unsupported binary crawl result version " + version + ": " + path);
+    }
+    int trailerLength = Long.BYTES + magic;
+    ByteBuffer trailer = read(size - trailerLength, trailerLength);
+    long footer = trailer.getLong();
+    if (!hasMagic(trailer) || footer < magic + Integer.BYTES || footer > size - trailerLength) {
+      throw corrupt("no footer");
+    }
+    ByteBuffer index = read(footer, (int) (size - trailerLength - footer));
+    Map<String, Section> sections = new LinkedHashMap<>();
+    try {
+      long count = getVarLong(index);
+      for (long i = 0; i < count; i++) {
+        Section section = new Section(
+            getString(index), index.getLong(), index.getLong(), (int) getVarLong(index));
+        if (section.offset() < 0 || section.length() < 0
+            || section.offset() + section.length() > footer) {
+          throw corrupt("section " + section.name() + " out of bounds");
+        }
+        sections.put(section.name(), section);
+      }
+    } catch (BufferUnderflowException e) {
+      throw corrupt("truncated footer");
+    }
+    return sections;
+  }
+
+  private ByteBuffer read(long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw corrupt("unexpected end of file");
+      }
+    }
+    return buffer.flip();
+  }
+
+  private static boolean hasMagic(ByteBuffer buffer) {
+    byte[] magic = new byte[BinaryResultWriter.MAGIC.length];
+    buffer.get(magic);
+    return Arrays.equals(magic, BinaryResultWriter.MAGIC);
+  }
+
+  private IOException corrupt(String reason) {
+    return new IOException("Not a binary crawl result (" + reason + "): " + path);
+  }
+
+  /**
+   * Returns the names of the sections of the file, in the order they were written.
+   */
+  public List<String> getSectionNames() {
+    return List.copyOf(sections.keySet());
+  }
+
+  /**
+   * Returns the number of URLs visited. See {@link CrawlResult#getUrlsVisited()}.
+   */
+  public int getUrlsVisited() {
+    return urlsVisited;
+  }
+
+  /**
+   * Returns the number of truncated pages. See {@link CrawlResult#getPagesTruncated()}.
+   */
+  public int getPagesTruncated() {
+    return pagesTruncated;
+  }
+
+  /**
+   * Returns the number of dropped pages. See {@link CrawlResult#getPagesDropped()}.
+   */
+  public int getPagesDropped() {
+    return pagesDropped;
+  }
+
+  /**
+   * Returns whether the crawl was cut short by its deadline. See {@link CrawlResult#isPartial()}.
+   */
+  public boolean isPartial() {
+    return partial;
+  }
+
+  /**
+   * Returns the circuit breaker states of failing hosts. See
+   * {@link CrawlResult#getHostCircuitBreakers()}.
+   */
+  public Map<String, String> getHostCircuitBreakers() {
+    return hostCircuitBreakers;
+  }
+
+  /**
+   * Returns the latency breakdown of the slowest hosts. See {@link CrawlResult#getSlowestHosts()}.
+   */
+  public Map<String, String> getSlowestHosts() {
+    return slowestHosts;
+  }
+
+  /**
+   * Returns the number of distinct words counted in the crawl.
+   */
+  public int getVocabularySize() {
+    return sections.get("words").rows();
+  }
+
+  /**
+   * Returns the most popular words, as in {@link CrawlResult#getWordCounts()}. Only the beginning
+   * of the dictionary is read, or the popular words alone if they were not its first words.
+   */
+  public Map<String, Integer> getPopularWordCounts() throws IOException {
+    Map<String, Integer> popular = new LinkedHashMap<>();
+    if (sections.containsKey("popular")) {
+      ByteBuffer words = map("popular");
+      for (int i = 0; i < popularWordCount; i++) {
+        popular.put(getString(words), (int) getVarLong(words));
+      }
+    } else {
+      ByteBuffer words = map("words");
+      ByteBuffer counts = map("counts");
+      for (int i = 0; i < popularWordCount; i++) {
+        popular.put(getString(words), (int) getVarLong(counts));
+      }
+    }
+    return Collections.unmodifiableMap(popular);
+  }
+
+  /**
+   * Visits every word counted in the crawl with its count, in the order of
+   * {@link WordCounts#forEachSorted}.
+   */
+  public void forEachWord(WordCounts.WordCountVisitor visitor) throws IOException {
+    ByteBuffer words = map("words");
+    ByteBuffer counts = map("counts");
+    for (int i = getVocabularySize(); i > 0; i--) {
+      visitor.visit(getString(words), (int) getVarLong(counts));
+    }
+  }
+
+  /**
+   * Returns the number of pages in the page table.
+   */
+  public int getPageCount() {
+    return sections.get("page.url").rows();
+  }
+
+  /**
+   * Passes the stats of every page to the given consumer, in the order the pages were parsed.
+   */
+  public void forEachPage(Consumer<PageStats> consumer) throws IOException {
+    ByteBuffer urls = map("page.url");
+    ByteBuffer depths = map("page.depth");
+    ByteBuffer statuses = map("page.status");
+    ByteBuffer words = map("page.words");
+    ByteBuffer distinctWords = map("page.distinctWords");
+    ByteBuffer links = map("page.links");
+    ByteBuffer fetchMicros = map("page.fetchMicros");
+    ByteBuffer flags = map("page.flags");
+    for (int i = getPageCount(); i > 0; i--) {
+      int flag = flags.get();
+      consumer.accept(new PageStats(
+          getString(urls),
+          (int) getVarLong(depths),
+          (int) getVarLong(statuses),
+          (int) getVarLong(words),
+          (int) getVarLong(distinctWords),
+          (int) getVarLong(links),
+          getVarLong(fetchMicros),
+          (flag & BinaryResultWriter.FLAG_TRUNCATED) != 0,
+          (flag & BinaryResultWriter.FLAG_DROPPED) != 0,
+          (flag & BinaryResultWriter.FLAG_FAILED) != 0));
+    }
+  }
+
+  /**
+   * Returns the stats of every page, in the order the pages were parsed.
+   */
+  public List<PageStats> readPages() throws IOException {
+    List<PageStats> pages = new ArrayList<>(getPageCount());
+    forEachPage(pages::add);
+    return pages;
+  }
+
+  /**
+   * Reads the whole file back into a {@link CrawlResult}, with every word and page.
+   */
+  public CrawlResult readResult() throws IOException {
+    Map<String, Integer> allWordCounts = new HashMap<>();
+    forEachWord(allWordCounts::put);
+    return new CrawlResult.Builder()
+        .setWordCounts(getPopularWordCounts())
+        .setAllWordCounts(allWordCounts)
+        .setUrlsVisited(urlsVisited)
+        .setHostCircuitBreakers(hostCircuitBreakers)
+        .setPagesTruncated(pagesTruncated)
+        .setPagesDropped(pagesDropped)
+        .setPartial(partial)
+        .setSlowestHosts(slowestHosts)
+        .setPages(readPages())
+        .build();
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private ByteBuffer map(String name) throws IOException {
+    Section section = sections.get(name);
+    if (section == null) {
+      throw corrupt("no " + name + " section");
+    }
+    return channel.map(FileChannel.MapMode.READ_ONLY, section.offset(), section.length())
+        .order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private static Map<String, String> getStrings(ByteBuffer buffer) {
+    Map<String, String> values = new LinkedHashMap<>();
+    for (long i = getVarLong(buffer); i > 0; i--) {
+      values.put(getString(buffer), getString(buffer));
+    }
+    return Collections.unmodifiableMap(values);
+  }
+
+  private static String getString(ByteBuffer buffer) {
+    byte[] bytes = new byte[(int) getVarLong(buffer)];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Reads a variable-length integer written by {@link BinaryResultWriter}.
+   */
+  private static long getVarLong(ByteBuffer buffer) {
+    long value = 0;
+    for (int shift = 0; ; shift += 7) {
+      byte next = buffer.get();
+      value |= (long) (next & 0x7F) << shift;
+      if (next >= 0) {
+        return value;
+      }
+    }
+  }
+
+  private record Section(String name, long offset, long length, int rows) {
+  }
+}
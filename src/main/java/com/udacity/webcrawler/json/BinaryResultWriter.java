@@ -0,0 +1,282 @@
+package com.udacity.webcrawler.json;
+
+import com.udacity.webcrawler.WordCounts;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ToLongFunction;
+
+/**
+ * Utility class to write a {@link CrawlResult} to file in a compact binary, columnar format, which
+ * is read back by {@link BinaryResultReader}.
+ *
+ * <p>Unlike the JSON written by {@link CrawlResultWriter}, the binary result holds every word
+ * counted in the crawl and the {@link PageStats} of every page, so it is meant for crawls too large
+ * to be looked at as text. Each column is stored in a section of its own, so a reader that only
+ * needs one column never reads the others:
+ * <ul>
+ *   <li>{@code summary}: the number of URLs visited, truncated and dropped, whether the crawl was
+ *       partial, the number of popular words, and the circuit breakers and slowest hosts.</li>
+ *   <li>{@code words}: the dictionary of every word, in the order of
+ *       {@link WordCounts#forEachSorted}, so the popular words are usually the first ones.</li>
+ *   <li>{@code counts}: the count of each word of the dictionary, in the same order.</li>
+ *   <li>{@code popular}: only when the popular words are not the first ones of the dictionary,
+ *       as when they were ranked by weighted counts, each popular word followed by its count.</li>
+ *   <li>{@code page.url}, {@code page.depth}, {@code page.status}, {@code page.words},
+ *       {@code page.distinctWords}, {@code page.links}, {@code page.fetchMicros} and
+ *       {@code page.flags}: the page table, one column per field of {@link PageStats}, with the
+ *       three flags packed into a byte.</li>
+ * </ul>
+ *
+ * <p>All numbers are little-endian. Counts and other numbers that are usually small are stored as
+ * variable-length integers of 7 bits per byte, and strings as their length in bytes followed by
+ * their UTF-8 encoding. The file starts with {@link #MAGIC} and a version number, and ends with a
+ * footer that indexes the sections by name, offset, length and number of rows, followed by the
+ * offset of the footer and {@link #MAGIC} again, so a reader can find any section with two reads.
+ *
+ * <p>The file is written through a {@link FileChannel}, from a large direct buffer that is handed
+ * to the operating system without being copied.
+ */
+public final class BinaryResultWriter {
+
+  /**
+   * The bytes at the start and at the end of every binary result.
+   */
+  static final byte[] MAGIC = {'W', 'C', 'R', 'B'};
+
+  /**
+   * The version of the format written by this class.
+   */
+  static final int VERSION = 1;
+
+  static final int FLAG_TRUNCATED = 1;
+  static final int FLAG_DROPPED = 2;
+  static final int FLAG_FAILED = 4;
+
+  private static final int BUFFER_BYTES = 1 << 20;
+
+  private final CrawlResult result;
+
+  /**
+   * Creates a new {@link BinaryResultWriter} that will write the given {@link CrawlResult}.
+   */
+  public BinaryResultWriter(CrawlResult result) {
+    this.result = Objects.requireNonNull(result);
+  }
+
+  /**
+   * Writes the {@link CrawlResult} in the binary format to the given {@link Path}.
+   *
+   * <p>If a file already exists at the path, the existing file is replaced.
+   *
+   * @param path the file path where the crawl result data should be written.
+   */
+  public void write(Path path) {
+    write(path, BUFFER_BYTES);
+  }
+
+  void write(Path path, int bufferBytes) {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      write(new Output(channel, bufferBytes));
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to write binary crawl result to file", e);
+    }
+  }
+
+  private void write(Output out) throws IOException {
+    out.putBytes(MAGIC);
+    out.putInt(VERSION);
+    List<Section> sections = new ArrayList<>();
+
+    long start = out.position();
+    out.putVarLong(result.getUrlsVisited());
+    out.putVarLong(result.getPagesTruncated());
+    out.putVarLong(result.getPagesDropped());
+    out.putByte(result.isPartial() ? 1 : 0);
+    out.putVarLong(result.getWordCounts().size());
+    putStrings(out, result.getHostCircuitBreakers());
+    putStrings(out, result.getSlowestHosts());
+    sections.add(new Section("summary", start, out.position() - start, 1));
+
+    // The words are only sorted once, so their counts are kept aside until the dictionary is done,
+    // and the popular words are checked against the start of the dictionary on the way.
+    Map<String, Integer> popular = result.getWordCounts();
+    Iterator<Map.Entry<String, Integer>> expected = popular.entrySet().iterator();
+    boolean[] popularFirst = {popular.size() <= result.getAllWordCounts().size()};
+    int[] counts = new int[result.getAllWordCounts().size()];
+    int[] words = {0};
+    start = out.position();
+    WordCounts.forEachSorted(result.getAllWordCounts(), (word, count) -> {
+      if (popularFirst[0] && expected.hasNext()) {
+        Map.Entry<String, Integer> next = expected.next();
+        popularFirst[0] = next.getKey().equals(word) && next.getValue() == count;
+      }
+      out.putString(word);
+      counts[words[0]++] = count;
+    });
+    sections.add(new Section("words", start, out.position() - start, counts.length));
+    start = out.position();
+    for (int count : counts) {
+      out.putVarLong(count);
+    }
+    sections.add(new Section("counts", start, out.position() - start, counts.length));
+    if (!popularFirst[0]) {
+      start = out.position();
+      for (Map.Entry<String, Integer> entry : popular.entrySet()) {
+        out.putString(entry.getKey());
+        out.putVarLong(entry.getValue());
+      }
+      sections.add(new Section("popular", start, out.position() - start, popular.size()));
+    }
+
+    List<PageStats> pages = result.getPages();
+    start = out.position();
+    for (PageStats page : pages) {
+      out.putString(page.getUrl());
+    }
+    sections.add(new Section("page.url", start, out.position() - start, pages.size()));
+    putColumn(out, sections, "page.depth", pages, PageStats::getDepth);
+    putColumn(out, sections, "page.status", pages, PageStats::getStatusCode);
+    putColumn(out, sections, "page.words", pages, PageStats::getWords);
+    putColumn(out, sections, "page.distinctWords", pages, PageStats::getDistinctWords);
+    putColumn(out, sections, "page.links", pages, PageStats::getLinks);
+    putColumn(out, sections, "page.fetchMicros", pages, PageStats::getFetchMicros);
+    start = out.position();
+    for (PageStats page : pages) {
+      out.putByte((page.isTruncated() ? FLAG_TRUNCATED : 0)
+          | (page.isDropped() ? FLAG_DROPPED : 0)
+          | (page.isFailed() ? FLAG_FAILED : 0));
+    }
+    sections.add(new Section("page.flags", start, out.position() - start, pages.size()));
+
+    long footer = out.position();
+    out.putVarLong(sections.size());
+    for (Section section : sections) {
+      out.putString(section.name());
+      out.putLong(section.offset());
+      out.putLong(section.length());
+      out.putVarLong(section.rows());
+    }
+    out.putLong(footer);
+    out.putBytes(MAGIC);
+    out.flush();
+  }
+
+  private static void putStrings(Output out, Map<String, String> values) throws IOException {
+    out.putVarLong(values.size());
+    for (Map.Entry<String, String> entry : values.entrySet()) {
+      out.putString(entry.getKey());
+      out.putString(entry.getValue());
+    }
+  }
+
+  private static void putColumn(
+      Output out,
+      List<Section> sections,
+      String name,
+      List<PageStats> pages,
+      ToLongFunction<PageStats> field) throws IOException {
+    long start = out.position();
+    for (PageStats page : pages) {
+      out.putVarLong(field.applyAsLong(page));
+    }
+    sections.add(new Section(name, start, out.position() - start, pages.size()));
+  }
+
+  /**
+   * An entry of the footer index.
+   */
+  private record Section(String name, long offset, long length, int rows) {
+  }
+
+  /**
+   * A buffered, little-endian output to a {@link FileChannel}, which keeps track of its position
+   * in the file.
+   */
+  private static final class Output {
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private long flushed;
+
+    Output(FileChannel channel, int bufferBytes) {
+      this.channel = channel;
+      this.buffer = ByteBuffer.allocateDirect(bufferBytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    long position() {
+      return flushed + buffer.position();
+    }
+
+    void putByte(int value) throws IOException {
+      ensure(1);
+      buffer.put((byte) value);
+    }
+
+    void putInt(int value) throws IOException {
+      ensure(Integer.BYTES);
+      buffer.putInt(value);
+    }
+
+    void putLong(long value) throws IOException {
+      ensure(Long.BYTES);
+      buffer.putLong(value);
+    }
+
+    /**
+     * Writes the given value 7 bits at a time, lowest first, with the high bit of each byte set
+     * if more bytes follow.
+     */
+    void putVarLong(long value) throws IOException {
+      ensure(10);
+      while ((value & ~0x7FL) != 0) {
+        buffer.put((byte) ((value & 0x7F) | 0x80));
+        value >>>= 7;
+      }
+      buffer.put((byte) value);
+    }
+
+    void putString(String value) throws IOException {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      putVarLong(bytes.length);
+      putBytes(bytes);
+    }
+
+    void putBytes(byte[] bytes) throws IOException {
+      if (bytes.length > buffer.capacity()) {
+        flush();
+        ByteBuffer source = ByteBuffer.wrap(bytes);
+        while (source.hasRemaining()) {
+          flushed += channel.write(source);
+        }
+        return;
+      }
+      ensure(bytes.length);
+      buffer.put(bytes);
+    }
+
+    void flush() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        flushed += channel.write(buffer);
+      }
+      buffer.clear();
+    }
+
+    private void ensure(int bytes) throws IOException {
+      if (buffer.remaining() < bytes) {
+        flush();
+      }
+    }
+  }
+}
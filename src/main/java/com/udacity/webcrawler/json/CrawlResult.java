@@ -1,7 +1,14 @@
 package com.udacity.webcrawler.json;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.udacity.webcrawler.graph.LinkGraph;
+import com.udacity.webcrawler.index.InvertedIndex;
+
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -11,14 +18,43 @@ import java.util.Objects;
 public final class CrawlResult {
 
   private final Map<String, Integer> wordCounts;
+  private final Map<String, Integer> allWordCounts;
   private final int urlsVisited;
+  private final Map<String, String> hostCircuitBreakers;
+  private final int pagesTruncated;
+  private final int pagesDropped;
+  private final boolean partial;
+  private final Map<String, String> slowestHosts;
+  private final List<PageStats> pages;
+  private final LinkGraph linkGraph;
+  private final InvertedIndex index;
 
   /**
    * Constructs a {@link CrawlResult} with the given word counts and visited URL count.
    */
-  private CrawlResult(Map<String, Integer> wordCounts, int urlsVisited) {
+  private CrawlResult(
+      Map<String, Integer> wordCounts,
+      Map<String, Integer> allWordCounts,
+      int urlsVisited,
+      Map<String, String> hostCircuitBreakers,
+      int pagesTruncated,
+      int pagesDropped,
+      boolean partial,
+      Map<String, String> slowestHosts,
+      List<PageStats> pages,
+      LinkGraph linkGraph,
+      InvertedIndex index) {
     this.wordCounts = wordCounts;
+    this.allWordCounts = allWordCounts;
     this.urlsVisited = urlsVisited;
+    this.hostCircuitBreakers = hostCircuitBreakers;
+    this.pagesTruncated = pagesTruncated;
+    this.pagesDropped = pagesDropped;
+    this.partial = partial;
+    this.slowestHosts = slowestHosts;
+    this.pages = pages;
+    this.linkGraph = linkGraph;
+    this.index = index;
   }
 
   /**
@@ -40,6 +76,18 @@ public final class CrawlResult {
     return wordCounts;
   }
 
+  /**
+   * Returns an unmodifiable {@link Map} of every word that was encountered during the web crawl,
+   * in no particular order, with the total number of times it was seen.
+   *
+   * <p>This is the map the crawler counted the words in, rather than a copy, so it costs nothing
+   * to keep. It is not part of the JSON output; see {@code CrawlResultWriter#writeVocabulary}.
+   */
+  @JsonIgnore
+  public Map<String, Integer> getAllWordCounts() {
+    return allWordCounts;
+  }
+
   /**
    * Returns the number of distinct URLs the web crawler visited.
    *
@@ -52,12 +100,115 @@ public final class CrawlResult {
     return urlsVisited;
   }
 
+  /**
+   * Returns an unmodifiable {@link Map} from each host whose circuit breaker opened during the
+   * crawl to a description of the breaker's state at the end of the crawl.
+   *
+   * <p>The map is empty, and omitted from the JSON output, if no circuit breaker opened.
+   */
+  @JsonInclude(JsonInclude.Include.NON_EMPTY)
+  public Map<String, String> getHostCircuitBreakers() {
+    return hostCircuitBreakers;
+  }
+
+  /**
+   * Returns the number of pages that were larger than the {@code "maxBodyBytes"} option in the
+   * crawler configuration. Only the beginning of each of those pages was parsed.
+   *
+   * <p>This value is omitted from the JSON output if it is zero.
+   */
+  @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+  public int getPagesTruncated() {
+    return pagesTruncated;
+  }
+
+  /**
+   * Returns the number of pages that were visited but not parsed at all, either because they were
+   * not HTML or because parsing took longer than the {@code "maxParseMillis"} option in the
+   * crawler configuration.
+   *
+   * <p>This value is omitted from the JSON output if it is zero.
+   */
+  @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+  public int getPagesDropped() {
+    return pagesDropped;
+  }
+
+  /**
+   * Returns true if the crawl ran out of time before it could visit every page within reach, so
+   * that the other values in this result only cover the pages crawled before the deadline.
+   *
+   * <p>This value is omitted from the JSON output if it is false.
+   */
+  @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+  public boolean isPartial() {
+    return partial;
+  }
+
+  /**
+   * Returns an unmodifiable {@link Map} from the hosts with the highest 99th percentile fetch
+   * latency, slowest first, to a breakdown of their latency by HTTP status class and by phase of
+   * the fetch: DNS, time to first byte, download and parse.
+   *
+   * <p>The map is empty, and omitted from the JSON output, if no remote page was fetched.
+   */
+  @JsonInclude(JsonInclude.Include.NON_EMPTY)
+  public Map<String, String> getSlowestHosts() {
+    return slowestHosts;
+  }
+
+  /**
+   * Returns an unmodifiable {@link List} of the stats of every page that was parsed during the web
+   * crawl, in the order they were parsed.
+   *
+   * <p>The stats are only recorded when the {@code "resultFormat"} option in the crawler
+   * configuration includes the binary format, and the list is empty otherwise. It is not part of
+   * the JSON output; see {@link BinaryResultWriter}.
+   */
+  @JsonIgnore
+  public List<PageStats> getPages() {
+    return pages;
+  }
+
+  /**
+   * Returns the graph of the links between the pages that were crawled.
+   *
+   * <p>The links are only recorded when the {@code "linkGraphOutputPath"} option in the crawler
+   * configuration is set, and the graph is empty otherwise. It is not part of the JSON output; see
+   * {@link LinkGraph#write}.
+   */
+  @JsonIgnore
+  public LinkGraph getLinkGraph() {
+    return linkGraph;
+  }
+
+  /**
+   * Returns the index from each word to the pages it was seen on.
+   *
+   * <p>The pages are only indexed when the {@code "indexOutputPath"} option in the crawler
+   * configuration is set, and the index is empty otherwise. It is not part of the JSON output; see
+   * {@link InvertedIndex#write}.
+   */
+  @JsonIgnore
+  public InvertedIndex getIndex() {
+    return index;
+  }
+
   /**
    * A package-private builder class for constructing web crawl {@link CrawlResult}s.
    */
   public static final class Builder {
     private Map<String, Integer> wordFrequencies = new HashMap<>();
+    private Map<String, Integer> allWordFrequencies = new HashMap<>();
     private int pageCount;
+    private Map<String, String> hostCircuitBreakers = new HashMap<>();
+    private int pagesTruncated;
+    private int pagesDropped;
+    private boolean partial;
+    private Map<String, String> slowestHosts = new LinkedHashMap<>();
+    private List<PageStats> pages = List.of();
+    private LinkGraph linkGraph = LinkGraph.empty();
+    private InvertedIndex index = InvertedIndex.empty();
 
     /**
      * Sets the word counts. See {@link #getWordCounts()}
@@ -67,6 +218,14 @@ public final class CrawlResult {
       return this;
     }
 
+    /**
+     * Sets the counts of every word. See {@link #getAllWordCounts()}
+     */
+    public Builder setAllWordCounts(Map<String, Integer> allWordCounts) {
+      this.allWordFrequencies = Objects.requireNonNull(allWordCounts);
+      return this;
+    }
+
     /**
      * Sets the total number of URLs visited. See {@link #getUrlsVisited()}.
      */
@@ -75,11 +234,86 @@ public final class CrawlResult {
       return this;
     }
 
+    /**
+     * Sets the circuit breaker states of failing hosts. See {@link #getHostCircuitBreakers()}.
+     */
+    public Builder setHostCircuitBreakers(Map<String, String> hostCircuitBreakers) {
+      this.hostCircuitBreakers = Objects.requireNonNull(hostCircuitBreakers);
+      return this;
+    }
+
+    /**
+     * Sets the number of truncated pages. See {@link #getPagesTruncated()}.
+     */
+    public Builder setPagesTruncated(int pagesTruncated) {
+      this.pagesTruncated = pagesTruncated;
+      return this;
+    }
+
+    /**
+     * Sets the number of dropped pages. See {@link #getPagesDropped()}.
+     */
+    public Builder setPagesDropped(int pagesDropped) {
+      this.pagesDropped = pagesDropped;
+      return this;
+    }
+
+    /**
+     * Sets whether the crawl was cut short by its deadline. See {@link #isPartial()}.
+     */
+    public Builder setPartial(boolean partial) {
+      this.partial = partial;
+      return this;
+    }
+
+    /**
+     * Sets the latency breakdown of the slowest hosts. See {@link #getSlowestHosts()}.
+     */
+    public Builder setSlowestHosts(Map<String, String> slowestHosts) {
+      this.slowestHosts = Objects.requireNonNull(slowestHosts);
+      return this;
+    }
+
+    /**
+     * Sets the stats of every page. See {@link #getPages()}.
+     */
+    public Builder setPages(List<PageStats> pages) {
+      this.pages = Objects.requireNonNull(pages);
+      return this;
+    }
+
+    /**
+     * Sets the link graph. See {@link #getLinkGraph()}.
+     */
+    public Builder setLinkGraph(LinkGraph linkGraph) {
+      this.linkGraph = Objects.requireNonNull(linkGraph);
+      return this;
+    }
+
+    /**
+     * Sets the inverted index. See {@link #getIndex()}.
+     */
+    public Builder setIndex(InvertedIndex index) {
+      this.index = Objects.requireNonNull(index);
+      return this;
+    }
+
     /**
      * Constructs a {@link CrawlResult} from this builder.
      */
     public CrawlResult build() {
-      return new CrawlResult(Collections.unmodifiableMap(wordFrequencies), pageCount);
+      return new CrawlResult(
+          Collections.unmodifiableMap(wordFrequencies),
+          Collections.unmodifiableMap(allWordFrequencies),
+          pageCount,
+          Collections.unmodifiableMap(hostCircuitBreakers),
+          pagesTruncated,
+          pagesDropped,
+          partial,
+          Collections.unmodifiableMap(slowestHosts),
+          Collections.unmodifiableList(pages),
+          linkGraph,
+          index);
     }
   }
 }
\ No newline at end of file
@@ -1,19 +1,31 @@
 package com.udacity.webcrawler.json;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.udacity.webcrawler.WordCounts;
+
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.Map;
 import java.util.Objects;
 
 /**
  * Utility class to write a {@link CrawlResult} to file.
+ *
+ * <p>The JSON is written field by field with a streaming {@link JsonGenerator}, rather than by
+ * serializing the result through reflection, so nothing but the output buffer is held in memory
+ * while it is written. All writers share one preconfigured {@link ObjectMapper}, which is
+ * thread-safe once configured.
  */
 public final class CrawlResultWriter {
+
+  private static final ObjectMapper MAPPER =
+      new ObjectMapper().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
   private final CrawlResult result;
 
   /**
@@ -43,16 +55,80 @@ public final class CrawlResultWriter {
   /**
    * Formats the {@link CrawlResult} as JSON and writes it to the given {@link Writer}.
    *
+   * <p>Fields that are empty or zero, other than the word counts and the number of URLs visited,
+   * are left out, as documented on their getters in {@link CrawlResult}.
+   *
    * @param writer the destination where the crawl result data should be written.
    */
   public void write(Writer writer) {
-    ObjectMapper objectMapper = new ObjectMapper();
-    objectMapper.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    try (JsonGenerator json = MAPPER.createGenerator(writer)) {
+      json.writeStartObject();
+      json.writeObjectFieldStart("wordCounts");
+      for (Map.Entry<String, Integer> entry : result.getWordCounts().entrySet()) {
+        json.writeNumberField(entry.getKey(), entry.getValue());
+      }
+      json.writeEndObject();
+      json.writeNumberField("urlsVisited", result.getUrlsVisited());
+      writeIfNotEmpty(json, "hostCircuitBreakers", result.getHostCircuitBreakers());
+      if (result.getPagesTruncated() != 0) {
+        json.writeNumberField("pagesTruncated", result.getPagesTruncated());
+      }
+      if (result.getPagesDropped() != 0) {
+        json.writeNumberField("pagesDropped", result.getPagesDropped());
+      }
+      if (result.isPartial()) {
+        json.writeBooleanField("partial", true);
+      }
+      writeIfNotEmpty(json, "slowestHosts", result.getSlowestHosts());
+      json.writeEndObject();
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to write JSON", e);
+    }
+  }
+
+  private static void writeIfNotEmpty(JsonGenerator json, String name, Map<String, String> values)
+      throws IOException {
+    if (values.isEmpty()) {
+      return;
+    }
+    json.writeObjectFieldStart(name);
+    for (Map.Entry<String, String> entry : values.entrySet()) {
+      json.writeStringField(entry.getKey(), entry.getValue());
+    }
+    json.writeEndObject();
+  }
 
-    try {
-      objectMapper.writeValue(writer, result);
+  /**
+   * Writes every word counted in the crawl to the given {@link Path}, replacing any file that is
+   * already there. See {@link #writeVocabulary(Writer)}.
+   *
+   * @param path the file path where the vocabulary should be written.
+   */
+  public void writeVocabulary(Path path) {
+    try (BufferedWriter writer = Files.newBufferedWriter(path,
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      writeVocabulary(writer);
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to write vocabulary to file", e);
+    }
+  }
+
+  /**
+   * Writes every word counted in the crawl to the given {@link Writer}, as a JSON object from each
+   * word to its count, in the same order as the popular words of {@link #write(Writer)}.
+   *
+   * <p>The words are sorted in parallel by {@link WordCounts#forEachSorted}, and each one is
+   * written as soon as its turn comes, so no sorted copy of the vocabulary is ever built.
+   *
+   * @param writer the destination where the vocabulary should be written.
+   */
+  public void writeVocabulary(Writer writer) {
+    try (JsonGenerator json = MAPPER.createGenerator(writer)) {
+      json.writeStartObject();
+      WordCounts.forEachSorted(result.getAllWordCounts(), json::writeNumberField);
+      json.writeEndObject();
     } catch (IOException e) {
       throw new RuntimeException("Failed to write JSON", e);
     }
   }
-}
\ No newline at end of file
+}
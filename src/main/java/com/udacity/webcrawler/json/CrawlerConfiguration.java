@@ -2,9 +2,15 @@ package com.udacity.webcrawler.json;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.udacity.webcrawler.profiler.ProfileFormat;
+import com.udacity.webcrawler.profiler.ProfilingLevel;
+import com.udacity.webcrawler.trace.TraceRecorder;
+
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Set;
 import java.util.regex.Pattern;
@@ -20,34 +26,109 @@ public final class CrawlerConfiguration {
   private final List<Pattern> ignoredUrls;
   private final List<Pattern> ignoredWords;
   private final int parallelism;
+  private final int minParallelism;
+  private final int maxParallelism;
   private final String implementationOverride;
   private final int maxDepth;
   private final Duration timeout;
   private final int popularWordCount;
   private final String profileOutputPath;
   private final String resultPath;
+  private final int circuitBreakerFailureThreshold;
+  private final Duration circuitBreakerLatencyThreshold;
+  private final Duration circuitBreakerBackoff;
+  private final int maxRetries;
+  private final Duration retryBaseDelay;
+  private final double retryBudgetRatio;
+  private final int maxBodyBytes;
+  private final Duration maxParseTime;
+  private final boolean strictDeadline;
+  private final ProfilingLevel profilingLevel;
+  private final int profilingSampleInterval;
+  private final int metricsPort;
+  private final int latencyBreakdownHosts;
+  private final String traceOutputPath;
+  private final int traceBufferSize;
+  private final ProfileFormat profileOutputFormat;
+  private final String vocabularyOutputPath;
+  private final ResultFormat resultFormat;
+  private final String linkGraphOutputPath;
+  private final boolean rankWeightedWordCounts;
+  private final double pageRankDampingFactor;
+  private final String indexOutputPath;
+  private final String metricsBindAddress;
 
   private CrawlerConfiguration(
           List<String> startPages,
           List<Pattern> ignoredUrls,
           List<Pattern> ignoredWords,
           int parallelism,
+          int minParallelism,
+          int maxParallelism,
           String implementationOverride,
           int maxDepth,
           Duration timeout,
           int popularWordCount,
           String profileOutputPath,
-          String resultPath) {
+          String resultPath,
+          int circuitBreakerFailureThreshold,
+          Duration circuitBreakerLatencyThreshold,
+          Duration circuitBreakerBackoff,
+          int maxRetries,
+          Duration retryBaseDelay,
+          double retryBudgetRatio,
+          int maxBodyBytes,
+          Duration maxParseTime,
+          boolean strictDeadline,
+          ProfilingLevel profilingLevel,
+          int profilingSampleInterval,
+          int metricsPort,
+          int latencyBreakdownHosts,
+          String traceOutputPath,
+          int traceBufferSize,
+          ProfileFormat profileOutputFormat,
+          String vocabularyOutputPath,
+          ResultFormat resultFormat,
+          String linkGraphOutputPath,
+          boolean rankWeightedWordCounts,
+          double pageRankDampingFactor,
+          String indexOutputPath,
+          String metricsBindAddress) {
     this.startPages = startPages;
     this.ignoredUrls = ignoredUrls;
     this.ignoredWords = ignoredWords;
     this.parallelism = parallelism;
+    this.minParallelism = minParallelism;
+    this.maxParallelism = maxParallelism;
     this.implementationOverride = implementationOverride;
     this.maxDepth = maxDepth;
     this.timeout = timeout;
     this.popularWordCount = popularWordCount;
     this.profileOutputPath = profileOutputPath;
     this.resultPath = resultPath;
+    this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+    this.circuitBreakerLatencyThreshold = circuitBreakerLatencyThreshold;
+    this.circuitBreakerBackoff = circuitBreakerBackoff;
+    this.maxRetries = maxRetries;
+    this.retryBaseDelay = retryBaseDelay;
+    this.retryBudgetRatio = retryBudgetRatio;
+    this.maxBodyBytes = maxBodyBytes;
+    this.maxParseTime = maxParseTime;
+    this.strictDeadline = strictDeadline;
+    this.profilingLevel = profilingLevel;
+    this.profilingSampleInterval = profilingSampleInterval;
+    this.metricsPort = metricsPort;
+    this.latencyBreakdownHosts = latencyBreakdownHosts;
+    this.traceOutputPath = traceOutputPath;
+    this.traceBufferSize = traceBufferSize;
+    this.profileOutputFormat = profileOutputFormat;
+    this.vocabularyOutputPath = vocabularyOutputPath;
+    this.resultFormat = resultFormat;
+    this.linkGraphOutputPath = linkGraphOutputPath;
+    this.rankWeightedWordCounts = rankWeightedWordCounts;
+    this.pageRankDampingFactor = pageRankDampingFactor;
+    this.indexOutputPath = indexOutputPath;
+    this.metricsBindAddress = metricsBindAddress;
   }
 
   /**
@@ -86,6 +167,30 @@ public final class CrawlerConfiguration {
     return parallelism;
   }
 
+  /**
+   * The lower bound on the number of concurrent page fetches when adaptive parallelism is enabled.
+   * This setting is optional.
+   *
+   * <p>If set to a value less than 1, the target parallelism (see {@link #getParallelism()}) is
+   * used as the lower bound.
+   */
+  public int getMinParallelism() {
+    return minParallelism;
+  }
+
+  /**
+   * The upper bound on the number of concurrent page fetches when adaptive parallelism is enabled.
+   * This setting is optional.
+   *
+   * <p>If this is greater than the effective {@link #getMinParallelism()}, the parallel crawler
+   * continuously adjusts the number of in-flight fetches between the two bounds based on the
+   * observed throughput, latency and error rate. If set to a value less than 1, the target
+   * parallelism is used as the upper bound, which disables adaptive parallelism.
+   */
+  public int getMaxParallelism() {
+    return maxParallelism;
+  }
+
   /**
    * An explicit override for which web crawler implementation should be used for this crawl.
    *
@@ -173,6 +278,264 @@ public final class CrawlerConfiguration {
     return resultPath;
   }
 
+  /**
+   * The number of consecutive failed fetches from a single host after which the parallel crawler
+   * stops fetching pages from that host for a while. This setting is optional.
+   *
+   * <p>Connection errors, timeouts, HTTP server errors and fetches that are slower than
+   * {@link #getCircuitBreakerLatencyThreshold()} count as failures. If set to a value less than 1,
+   * which is the default, hosts are never skipped.
+   */
+  public int getCircuitBreakerFailureThreshold() {
+    return circuitBreakerFailureThreshold;
+  }
+
+  /**
+   * Fetches that take longer than this count as failures of their host for the purpose of
+   * {@link #getCircuitBreakerFailureThreshold()}. This setting is optional.
+   *
+   * <p>If zero, which is the default, slow fetches are not counted as failures.
+   */
+  public Duration getCircuitBreakerLatencyThreshold() {
+    return circuitBreakerLatencyThreshold;
+  }
+
+  /**
+   * How long the parallel crawler skips a host after its circuit breaker opens, before it allows a
+   * single probe fetch to test whether the host has recovered. Each failed probe doubles the
+   * backoff. This setting is optional, and defaults to one second.
+   *
+   * <p>See {@link #getCircuitBreakerFailureThreshold()}.
+   */
+  public Duration getCircuitBreakerBackoff() {
+    return circuitBreakerBackoff;
+  }
+
+  /**
+   * The maximum number of times the parallel crawler retries a page after a transient fetch
+   * failure, such as a reset connection, an HTTP 5xx error or an HTTP 429 response. This setting is
+   * optional.
+   *
+   * <p>If set to a value less than 1, which is the default, failed pages are never retried.
+   */
+  public int getMaxRetries() {
+    return maxRetries;
+  }
+
+  /**
+   * The upper bound of the randomized delay before the first retry of a page. The bound doubles
+   * with every further retry of the same page. This setting is optional, and defaults to 200
+   * milliseconds.
+   *
+   * <p>If the server sends a {@code Retry-After} header, its delay is used instead.
+   */
+  public Duration getRetryBaseDelay() {
+    return retryBaseDelay;
+  }
+
+  /**
+   * The maximum number of retries in a crawl, as a fraction of the number of fetches. This keeps
+   * retries from multiplying the load on hosts that are already failing. This setting is optional,
+   * and defaults to 0.1.
+   */
+  public double getRetryBudgetRatio() {
+    return retryBudgetRatio;
+  }
+
+  /**
+   * The maximum number of bytes of a page that the crawler downloads and parses. The rest of a
+   * larger page is ignored, and the page is counted as truncated. This setting is optional, and
+   * defaults to 2 MiB.
+   *
+   * <p>If set to 0, pages of any size are parsed in full.
+   */
+  public int getMaxBodyBytes() {
+    return maxBodyBytes;
+  }
+
+  /**
+   * The maximum amount of time the crawler spends downloading and parsing a single page. A page
+   * that takes longer is dropped. This setting is optional.
+   *
+   * <p>If zero, which is the default, there is no limit other than the download timeout.
+   */
+  public Duration getMaxParseTime() {
+    return maxParseTime;
+  }
+
+  /**
+   * If true, the crawl ends at its deadline, even if pages are still being downloaded: the
+   * timeout of each download is capped at the time remaining in the crawl, and pages still in
+   * flight at the deadline are abandoned. The crawl result is then flagged as partial. This setting
+   * is optional, and defaults to false.
+   *
+   * <p>If false, every download gets the full {@link #getTimeout()}, and the crawl waits for all
+   * downloads that started before the deadline to finish.
+   */
+  public boolean isStrictDeadline() {
+    return strictDeadline;
+  }
+
+  /**
+   * How much of the time spent in profiled methods is recorded: {@code "off"},
+   * {@code "sampled"} or {@code "full"}. This setting is optional, and defaults to
+   * {@code "full"}.
+   *
+   * <p>When profiling is off, profiled objects are not wrapped at all. When it is sampled, one in
+   * {@link #getProfilingSampleInterval()} calls is recorded and counted that many times.
+   */
+  public ProfilingLevel getProfilingLevel() {
+    return profilingLevel;
+  }
+
+  /**
+   * When the profiling level is {@code "sampled"}, the profiler records one in this many calls
+   * to each profiled method, on average. This setting is optional, and defaults to 100.
+   */
+  public int getProfilingSampleInterval() {
+    return profilingSampleInterval;
+  }
+
+  /**
+   * The port of the embedded HTTP server that serves live metrics at {@code /metrics} during
+   * the crawl, in the Prometheus text format. This setting is optional, and defaults to 0.
+   *
+   * <p>If 0, no metrics server is started.
+   */
+  public int getMetricsPort() {
+    return metricsPort;
+  }
+
+  /**
+   * The number of hosts whose fetch latency is broken down on its own in the crawl result. The
+   * fetches of any further hosts are counted together. This setting is optional, and defaults to
+   * 100.
+   *
+   * <p>The hosts are tracked in the order in which the crawler first fetches from them, until
+   * there are this many. After that, a host whose fetch is slower than the 99th percentile of the
+   * fastest tracked host takes its place, so slow hosts found late in the crawl are still broken
+   * down on their own.
+   */
+  public int getLatencyBreakdownHosts() {
+    return latencyBreakdownHosts;
+  }
+
+  /**
+   * Path to the file where a timeline of the crawl is written, in the Chrome trace event format,
+   * which can be opened in Perfetto or {@code chrome://tracing}. This setting is optional.
+   *
+   * <p>If empty, which is the default, no timeline is recorded.
+   */
+  public String getTraceOutputPath() {
+    return traceOutputPath;
+  }
+
+  /**
+   * The number of spans each thread keeps for the timeline. Once a thread has recorded more, its
+   * oldest spans are dropped. This setting is optional, and defaults to 16384.
+   *
+   * <p>Each thread's buffer starts small and grows to this size as it is needed, and all threads
+   * together keep at most {@link TraceRecorder#MAX_TOTAL_SPANS} spans (or this many, if it is
+   * more), which bounds the memory used by the timeline however many threads the crawl uses.
+   */
+  public int getTraceBufferSize() {
+    return traceBufferSize;
+  }
+
+  /**
+   * The format the profile data is written in: {@code "text"}, {@code "json"} or
+   * {@code "csv"}. This setting is optional.
+   *
+   * <p>If it is not set, the format is chosen by the extension of {@link #getProfileOutputPath()}:
+   * {@code .json} and {@code .jsonl} files get JSON, {@code .csv} files get CSV, and anything else,
+   * including standard output, gets text.
+   */
+  public ProfileFormat getProfileOutputFormat() {
+    return profileOutputFormat;
+  }
+
+  /**
+   * Path to the file where every word counted in the crawl is written with its count, as a JSON
+   * object sorted the same way as {@code "wordCounts"}, for analysis beyond the most popular
+   * words. This setting is optional.
+   *
+   * <p>If empty, which is the default, the vocabulary is not written.
+   */
+  public String getVocabularyOutputPath() {
+    return vocabularyOutputPath;
+  }
+
+  /**
+   * The format the crawl result is written in: {@code "json"}, which is the default,
+   * {@code "binary"} for the compact columnar format read by {@link BinaryResultReader}, or
+   * {@code "both"}, which writes the JSON to {@link #getResultPath()} and the binary result next to
+   * it, with {@code .bin} appended to its name. This setting is optional.
+   *
+   * <p>Only the binary format holds the whole vocabulary and a table of per-page stats, and it
+   * needs a result path, since it cannot be written to standard output.
+   */
+  public ResultFormat getResultFormat() {
+    return resultFormat;
+  }
+
+  /**
+   * Path to the file where the link graph of the crawl is written, in the compressed sparse row
+   * format of {@link com.udacity.webcrawler.graph.LinkGraph}. This setting is optional.
+   *
+   * <p>If empty, which is the default, the links between pages are not recorded at all.
+   */
+  public String getLinkGraphOutputPath() {
+    return linkGraphOutputPath;
+  }
+
+  /**
+   * If true, the popular words are ranked by counts weighted by the PageRank of the pages they
+   * were seen on, rather than by their raw counts. This setting is optional, and defaults to false.
+   *
+   * <p>Each time a word is seen on a page, it counts for the rank of the page divided by the mean
+   * rank of the crawled pages, so that words repeated across a link farm, whose pages few other
+   * pages link to, weigh less than words on pages that much of the crawl links to. The counts in
+   * {@code "wordCounts"} are the weighted counts, rounded to the nearest integer.
+   *
+   * <p>Turning this on records the link graph of the crawl and the word counts of every page until
+   * the end of the crawl.
+   */
+  public boolean isRankWeightedWordCounts() {
+    return rankWeightedWordCounts;
+  }
+
+  /**
+   * The probability that the random surfer of PageRank follows a link, rather than jumping to a
+   * random page, when {@link #isRankWeightedWordCounts()} is true. This setting is optional, and
+   * defaults to 0.85.
+   */
+  public double getPageRankDampingFactor() {
+    return pageRankDampingFactor;
+  }
+
+  /**
+   * Path to the file where the inverted index of the crawl is written, from each word to the
+   * pages it was seen on, to be queried with {@link com.udacity.webcrawler.index.InvertedIndex}.
+   * This setting is optional.
+   *
+   * <p>If empty, which is the default, the pages are not indexed at all.
+   */
+  public String getIndexOutputPath() {
+    return indexOutputPath;
+  }
+
+  /**
+   * The address the metrics server listens on (see {@link #getMetricsPort()}). This setting is
+   * optional, and defaults to an empty string.
+   *
+   * <p>If empty, the server only listens on the loopback interface. The metrics name the crawled
+   * hosts and the crawler's methods, so a wider address, such as {@code 0.0.0.0} for every
+   * interface, should only be set on purpose.
+   */
+  public String getMetricsBindAddress() {
+    return metricsBindAddress;
+  }
+
   /**
    * A builder class to create {@link CrawlerConfiguration} instances.
    */
@@ -181,12 +544,37 @@ public final class CrawlerConfiguration {
     private final Set<String> ignoredUrls = new LinkedHashSet<>();
     private final Set<String> ignoredWords = new LinkedHashSet<>();
     private int parallelism = -1;
+    private int minParallelism = -1;
+    private int maxParallelism = -1;
     private String implementationOverride = "";
     private int maxDepth = 0;
     private int timeoutSeconds = 1;
     private int popularWordCount = 0;
     private String profileOutputPath = "";
     private String resultPath = "";
+    private int circuitBreakerFailureThreshold = 0;
+    private int circuitBreakerLatencyThresholdMillis = 0;
+    private int circuitBreakerBackoffMillis = 1000;
+    private int maxRetries = 0;
+    private int retryBaseDelayMillis = 200;
+    private double retryBudgetRatio = 0.1;
+    private int maxBodyBytes = 2 * 1024 * 1024;
+    private int maxParseMillis = 0;
+    private boolean strictDeadline = false;
+    private String profilingLevel = "full";
+    private int profilingSampleInterval = 100;
+    private int metricsPort = 0;
+    private int latencyBreakdownHosts = 100;
+    private String traceOutputPath = "";
+    private int traceBufferSize = 16384;
+    private String profileOutputFormat = "";
+    private String vocabularyOutputPath = "";
+    private String resultFormat = "json";
+    private String linkGraphOutputPath = "";
+    private boolean rankWeightedWordCounts = false;
+    private double pageRankDampingFactor = 0.85;
+    private String indexOutputPath = "";
+    private String metricsBindAddress = "";
 
     /**
      * Adds a start page URL.
@@ -246,6 +634,28 @@ public final class CrawlerConfiguration {
       return this;
     }
 
+    /**
+     * Sets the lower bound on the number of concurrent fetches for adaptive parallelism.
+     *
+     * <p>See {@link #getMinParallelism()}.
+     */
+    @JsonProperty("minParallelism")
+    public Builder setMinParallelism(int minParallelism) {
+      this.minParallelism = minParallelism;
+      return this;
+    }
+
+    /**
+     * Sets the upper bound on the number of concurrent fetches for adaptive parallelism.
+     *
+     * <p>See {@link #getMaxParallelism()}.
+     */
+    @JsonProperty("maxParallelism")
+    public Builder setMaxParallelism(int maxParallelism) {
+      this.maxParallelism = maxParallelism;
+      return this;
+    }
+
     /**
      * Overrides the {@link com.udacity.webcrawler.WebCrawler} implementation that should be used
      * for the crawl.
@@ -313,6 +723,259 @@ public final class CrawlerConfiguration {
       return this;
     }
 
+    /**
+     * Sets the number of consecutive failures after which a host is skipped.
+     *
+     * <p>See {@link #getCircuitBreakerFailureThreshold()}.
+     */
+    @JsonProperty("circuitBreakerFailureThreshold")
+    public Builder setCircuitBreakerFailureThreshold(int circuitBreakerFailureThreshold) {
+      this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+      return this;
+    }
+
+    /**
+     * Sets the fetch latency above which a fetch counts as a failure, specified in milliseconds.
+     *
+     * <p>See {@link #getCircuitBreakerLatencyThreshold()}.
+     */
+    @JsonProperty("circuitBreakerLatencyThresholdMillis")
+    public Builder setCircuitBreakerLatencyThresholdMillis(int millis) {
+      this.circuitBreakerLatencyThresholdMillis = millis;
+      return this;
+    }
+
+    /**
+     * Sets how long a failing host is skipped before it is probed again, specified in milliseconds.
+     *
+     * <p>See {@link #getCircuitBreakerBackoff()}.
+     */
+    @JsonProperty("circuitBreakerBackoffMillis")
+    public Builder setCircuitBreakerBackoffMillis(int millis) {
+      this.circuitBreakerBackoffMillis = millis;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of retries per page.
+     *
+     * <p>See {@link #getMaxRetries()}.
+     */
+    @JsonProperty("maxRetries")
+    public Builder setMaxRetries(int maxRetries) {
+      this.maxRetries = maxRetries;
+      return this;
+    }
+
+    /**
+     * Sets the upper bound of the delay before the first retry, specified in milliseconds.
+     *
+     * <p>See {@link #getRetryBaseDelay()}.
+     */
+    @JsonProperty("retryBaseDelayMillis")
+    public Builder setRetryBaseDelayMillis(int millis) {
+      this.retryBaseDelayMillis = millis;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of retries as a fraction of the number of fetches.
+     *
+     * <p>See {@link #getRetryBudgetRatio()}.
+     */
+    @JsonProperty("retryBudgetRatio")
+    public Builder setRetryBudgetRatio(double retryBudgetRatio) {
+      this.retryBudgetRatio = retryBudgetRatio;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of bytes of a page to parse.
+     *
+     * <p>See {@link #getMaxBodyBytes()}.
+     */
+    @JsonProperty("maxBodyBytes")
+    public Builder setMaxBodyBytes(int maxBodyBytes) {
+      this.maxBodyBytes = maxBodyBytes;
+      return this;
+    }
+
+    /**
+     * Sets the maximum time spent on a single page, specified in milliseconds.
+     *
+     * <p>See {@link #getMaxParseTime()}.
+     */
+    @JsonProperty("maxParseMillis")
+    public Builder setMaxParseMillis(int millis) {
+      this.maxParseMillis = millis;
+      return this;
+    }
+
+    /**
+     * Sets whether the crawl ends exactly at its deadline.
+     *
+     * <p>See {@link #isStrictDeadline()}.
+     */
+    @JsonProperty("strictDeadline")
+    public Builder setStrictDeadline(boolean strictDeadline) {
+      this.strictDeadline = strictDeadline;
+      return this;
+    }
+
+    /**
+     * Sets the profiling level.
+     *
+     * <p>See {@link #getProfilingLevel()}.
+     */
+    @JsonProperty("profilingLevel")
+    public Builder setProfilingLevel(String level) {
+      this.profilingLevel = level;
+      return this;
+    }
+
+    /**
+     * Sets the profiling sample interval.
+     *
+     * <p>See {@link #getProfilingSampleInterval()}.
+     */
+    @JsonProperty("profilingSampleInterval")
+    public Builder setProfilingSampleInterval(int profilingSampleInterval) {
+      this.profilingSampleInterval = profilingSampleInterval;
+      return this;
+    }
+
+    /**
+     * Sets the port of the metrics server.
+     *
+     * <p>See {@link #getMetricsPort()}.
+     */
+    @JsonProperty("metricsPort")
+    public Builder setMetricsPort(int metricsPort) {
+      this.metricsPort = metricsPort;
+      return this;
+    }
+
+    /**
+     * Sets the number of hosts whose fetch latency is broken down on its own.
+     *
+     * <p>See {@link #getLatencyBreakdownHosts()}.
+     */
+    @JsonProperty("latencyBreakdownHosts")
+    public Builder setLatencyBreakdownHosts(int latencyBreakdownHosts) {
+      this.latencyBreakdownHosts = latencyBreakdownHosts;
+      return this;
+    }
+
+    /**
+     * Sets the path of the trace output file.
+     *
+     * <p>See {@link #getTraceOutputPath()}.
+     */
+    @JsonProperty("traceOutputPath")
+    public Builder setTraceOutputPath(String traceOutputPath) {
+      this.traceOutputPath = Objects.requireNonNull(traceOutputPath);
+      return this;
+    }
+
+    /**
+     * Sets the number of spans each thread keeps for the timeline.
+     *
+     * <p>See {@link #getTraceBufferSize()}.
+     */
+    @JsonProperty("traceBufferSize")
+    public Builder setTraceBufferSize(int traceBufferSize) {
+      this.traceBufferSize = traceBufferSize;
+      return this;
+    }
+
+    /**
+     * Sets the format of the profile data.
+     *
+     * <p>See {@link #getProfileOutputFormat()}.
+     */
+    @JsonProperty("profileOutputFormat")
+    public Builder setProfileOutputFormat(String profileOutputFormat) {
+      this.profileOutputFormat = Objects.requireNonNull(profileOutputFormat);
+      return this;
+    }
+
+    /**
+     * Sets the path of the vocabulary output file.
+     *
+     * <p>See {@link #getVocabularyOutputPath()}.
+     */
+    @JsonProperty("vocabularyOutputPath")
+    public Builder setVocabularyOutputPath(String vocabularyOutputPath) {
+      this.vocabularyOutputPath = Objects.requireNonNull(vocabularyOutputPath);
+      return this;
+    }
+
+    /**
+     * Sets the format of the crawl result.
+     *
+     * <p>See {@link #getResultFormat()}.
+     */
+    @JsonProperty("resultFormat")
+    public Builder setResultFormat(String resultFormat) {
+      this.resultFormat = Objects.requireNonNull(resultFormat);
+      return this;
+    }
+
+    /**
+     * Sets the path of the link graph output file.
+     *
+     * <p>See {@link #getLinkGraphOutputPath()}.
+     */
+    @JsonProperty("linkGraphOutputPath")
+    public Builder setLinkGraphOutputPath(String linkGraphOutputPath) {
+      this.linkGraphOutputPath = Objects.requireNonNull(linkGraphOutputPath);
+      return this;
+    }
+
+    /**
+     * Sets whether the popular words are ranked by PageRank-weighted counts.
+     *
+     * <p>See {@link #isRankWeightedWordCounts()}.
+     */
+    @JsonProperty("rankWeightedWordCounts")
+    public Builder setRankWeightedWordCounts(boolean rankWeightedWordCounts) {
+      this.rankWeightedWordCounts = rankWeightedWordCounts;
+      return this;
+    }
+
+    /**
+     * Sets the damping factor of PageRank.
+     *
+     * <p>See {@link #getPageRankDampingFactor()}.
+     */
+    @JsonProperty("pageRankDampingFactor")
+    public Builder setPageRankDampingFactor(double pageRankDampingFactor) {
+      this.pageRankDampingFactor = pageRankDampingFactor;
+      return this;
+    }
+
+    /**
+     * Sets the path of the inverted index output file.
+     *
+     * <p>See {@link #getIndexOutputPath()}.
+     */
+    @JsonProperty("indexOutputPath")
+    public Builder setIndexOutputPath(String indexOutputPath) {
+      this.indexOutputPath = Objects.requireNonNull(indexOutputPath);
+      return this;
+    }
+
+    /**
+     * Sets the address the metrics server listens on.
+     *
+     * <p>See {@link #getMetricsBindAddress()}.
+     */
+    @JsonProperty("metricsBindAddress")
+    public Builder setMetricsBindAddress(String metricsBindAddress) {
+      this.metricsBindAddress = Objects.requireNonNull(metricsBindAddress);
+      return this;
+    }
+
     /**
      * Constructs a {@link CrawlerConfiguration} from this builder.
      */
@@ -326,18 +989,97 @@ public final class CrawlerConfiguration {
       if (popularWordCount < 0) {
         throw new IllegalArgumentException("popularWordCount cannot be negative");
       }
+      if (minParallelism > 0 && maxParallelism > 0 && minParallelism > maxParallelism) {
+        throw new IllegalArgumentException("minParallelism cannot exceed maxParallelism");
+      }
+      if (circuitBreakerLatencyThresholdMillis < 0) {
+        throw new IllegalArgumentException(
+            "circuitBreakerLatencyThresholdMillis cannot be negative");
+      }
+      if (circuitBreakerBackoffMillis <= 0) {
+        throw new IllegalArgumentException("circuitBreakerBackoffMillis must be positive");
+      }
+      if (retryBaseDelayMillis < 0) {
+        throw new IllegalArgumentException("retryBaseDelayMillis cannot be negative");
+      }
+      if (retryBudgetRatio < 0) {
+        throw new IllegalArgumentException("retryBudgetRatio cannot be negative");
+      }
+      if (maxBodyBytes < 0) {
+        throw new IllegalArgumentException("maxBodyBytes cannot be negative");
+      }
+      if (maxParseMillis < 0) {
+        throw new IllegalArgumentException("maxParseMillis cannot be negative");
+      }
+      if (Arrays.stream(ProfilingLevel.values())
+          .noneMatch(level -> level.name().equalsIgnoreCase(profilingLevel))) {
+        throw new IllegalArgumentException("Unknown profilingLevel: " + profilingLevel);
+      }
+      if (profilingSampleInterval <= 0) {
+        throw new IllegalArgumentException("profilingSampleInterval must be positive");
+      }
+      if (metricsPort < 0 || metricsPort > 65535) {
+        throw new IllegalArgumentException("metricsPort must be between 0 and 65535");
+      }
+      if (latencyBreakdownHosts < 0) {
+        throw new IllegalArgumentException("latencyBreakdownHosts cannot be negative");
+      }
+      if (traceBufferSize <= 0) {
+        throw new IllegalArgumentException("traceBufferSize must be positive");
+      }
+      if (!profileOutputFormat.isEmpty() && Arrays.stream(ProfileFormat.values())
+          .noneMatch(format -> format.name().equalsIgnoreCase(profileOutputFormat))) {
+        throw new IllegalArgumentException("Unknown profileOutputFormat: " + profileOutputFormat);
+      }
+      if (Arrays.stream(ResultFormat.values())
+          .noneMatch(format -> format.name().equalsIgnoreCase(resultFormat))) {
+        throw new IllegalArgumentException("Unknown resultFormat: " + resultFormat);
+      }
+      if (!resultFormat.equalsIgnoreCase("json") && resultPath.isEmpty()) {
+        throw new IllegalArgumentException("A binary resultFormat needs a resultPath");
+      }
+      if (!(pageRankDampingFactor > 0 && pageRankDampingFactor < 1)) {
+        throw new IllegalArgumentException("pageRankDampingFactor must be between 0 and 1");
+      }
 
       return new CrawlerConfiguration(
               startPages.stream().collect(Collectors.toUnmodifiableList()),
               ignoredUrls.stream().map(Pattern::compile).collect(Collectors.toUnmodifiableList()),
               ignoredWords.stream().map(Pattern::compile).collect(Collectors.toUnmodifiableList()),
               parallelism,
+              minParallelism,
+              maxParallelism,
               implementationOverride,
               maxDepth,
               Duration.ofSeconds(timeoutSeconds),
               popularWordCount,
               profileOutputPath,
-              resultPath);
+              resultPath,
+              circuitBreakerFailureThreshold,
+              Duration.ofMillis(circuitBreakerLatencyThresholdMillis),
+              Duration.ofMillis(circuitBreakerBackoffMillis),
+              maxRetries,
+              Duration.ofMillis(retryBaseDelayMillis),
+              retryBudgetRatio,
+              maxBodyBytes,
+              Duration.ofMillis(maxParseMillis),
+              strictDeadline,
+              ProfilingLevel.valueOf(profilingLevel.toUpperCase(Locale.ROOT)),
+              profilingSampleInterval,
+              metricsPort,
+              latencyBreakdownHosts,
+              traceOutputPath,
+              traceBufferSize,
+              profileOutputFormat.isEmpty()
+                  ? ProfileFormat.forFileName(profileOutputPath)
+                  : ProfileFormat.valueOf(profileOutputFormat.toUpperCase(Locale.ROOT)),
+              vocabularyOutputPath,
+              ResultFormat.valueOf(resultFormat.toUpperCase(Locale.ROOT)),
+              linkGraphOutputPath,
+              rankWeightedWordCounts,
+              pageRankDampingFactor,
+              indexOutputPath,
+              metricsBindAddress);
     }
   }
 }
\ No newline at end of file
@@ -0,0 +1,129 @@
+package com.udacity.webcrawler.json;
+
+import java.util.Objects;
+
+/**
+ * The stats of a single page visited during a crawl, as stored in the page table of a binary
+ * result.
+ */
+public final class PageStats {
+  private final String url;
+  private final int depth;
+  private final int statusCode;
+  private final int words;
+  private final int distinctWords;
+  private final int links;
+  private final long fetchMicros;
+  private final boolean truncated;
+  private final boolean dropped;
+  private final boolean failed;
+
+  /**
+   * Creates the stats of a page.
+   *
+   * @param url           the URL of the page.
+   * @param depth         the number of links followed from a start page to reach the page.
+   * @param statusCode    the HTTP status code of the page, or 0 if it has none.
+   * @param words         the number of words counted on the page.
+   * @param distinctWords the number of different words counted on the page.
+   * @param links         the number of links on the page.
+   * @param fetchMicros   the time it took to fetch and parse the page, in microseconds.
+   * @param truncated     whether only the beginning of the page was parsed.
+   * @param dropped       whether the page was visited but not parsed at all.
+   * @param failed        whether fetching or parsing the page failed.
+   */
+  public PageStats(
+      String url,
+      int depth,
+      int statusCode,
+      int words,
+      int distinctWords,
+      int links,
+      long fetchMicros,
+      boolean truncated,
+      boolean dropped,
+      boolean failed) {
+    this.url = Objects.requireNonNull(url);
+    this.depth = depth;
+    this.statusCode = statusCode;
+    this.words = words;
+    this.distinctWords = distinctWords;
+    this.links = links;
+    this.fetchMicros = fetchMicros;
+    this.truncated = truncated;
+    this.dropped = dropped;
+    this.failed = failed;
+  }
+
+  public String getUrl() {
+    return url;
+  }
+
+  public int getDepth() {
+    return depth;
+  }
+
+  public int getStatusCode() {
+    return statusCode;
+  }
+
+  public int getWords() {
+    return words;
+  }
+
+  public int getDistinctWords() {
+    return distinctWords;
+  }
+
+  public int getLinks() {
+    return links;
+  }
+
+  public long getFetchMicros() {
+    return fetchMicros;
+  }
+
+  public boolean isTruncated() {
+    return truncated;
+  }
+
+  public boolean isDropped() {
+    return dropped;
+  }
+
+  public boolean isFailed() {
+    return failed;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof PageStats)) {
+      return false;
+    }
+    PageStats that = (PageStats) other;
+    return url.equals(that.url)
+        && depth == that.depth
+        && statusCode == that.statusCode
+        && words == that.words
+        && distinctWords == that.distinctWords
+        && links == that.links
+        && fetchMicros == that.fetchMicros
+        && truncated == that.truncated
+        && dropped == that.dropped
+        && failed == that.failed;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(url, depth, statusCode, words, distinctWords, links, fetchMicros,
+        truncated, dropped, failed);
+  }
+
+  @Override
+  public String toString() {
+    return "PageStats{url=" + url + ", depth=" + depth + ", statusCode=" + statusCode
+        + ", words=" + words + ", distinctWords=" + distinctWords + ", links=" + links
+        + ", fetchMicros=" + fetchMicros + ", truncated=" + truncated + ", dropped=" + dropped
+        + ", failed=" + failed + "}";
+  }
+}
@@ -0,0 +1,53 @@
+package com.udacity.webcrawler.json;
+
+import java.nio.file.Path;
+
+/**
+ * The format a {@link CrawlResult} is written in.
+ */
+public enum ResultFormat {
+
+  /**
+   * The JSON written by {@link CrawlResultWriter}, with the most popular words only.
+   */
+  JSON,
+
+  /**
+   * The columnar format written by {@link BinaryResultWriter}, with the whole vocabulary and the
+   * stats of every page.
+   */
+  BINARY,
+
+  /**
+   * Both: the JSON at the result path, and the binary result next to it.
+   */
+  BOTH;
+
+  /**
+   * The extension appended to the result path to name the binary result of {@link #BOTH}.
+   */
+  public static final String BINARY_EXTENSION = ".bin";
+
+  /**
+   * Returns true if this format includes the JSON result.
+   */
+  public boolean writesJson() {
+    return this != BINARY;
+  }
+
+  /**
+   * Returns true if this format includes the binary result.
+   */
+  public boolean writesBinary() {
+    return this != JSON;
+  }
+
+  /**
+   * Returns the path the binary result is written to, for the given result path.
+   */
+  public Path binaryPath(Path resultPath) {
+    return this == BOTH
+        ? resultPath.resolveSibling(resultPath.getFileName() + BINARY_EXTENSION)
+        : resultPath;
+  }
+}
@@ -1,19 +1,25 @@
 package com.udacity.webcrawler.main;
 
 import com.google.inject.Guice;
+import com.udacity.webcrawler.CrawlMetrics;
 import com.udacity.webcrawler.WebCrawler;
 import com.udacity.webcrawler.WebCrawlerModule;
+import com.udacity.webcrawler.json.BinaryResultWriter;
 import com.udacity.webcrawler.json.ConfigurationLoader;
 import com.udacity.webcrawler.json.CrawlResult;
 import com.udacity.webcrawler.json.CrawlResultWriter;
 import com.udacity.webcrawler.json.CrawlerConfiguration;
+import com.udacity.webcrawler.json.ResultFormat;
+import com.udacity.webcrawler.metrics.MetricsServer;
 import com.udacity.webcrawler.profiler.Profiler;
 import com.udacity.webcrawler.profiler.ProfilerModule;
+import com.udacity.webcrawler.trace.TraceRecorder;
 
 import javax.inject.Inject;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.net.InetAddress;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Objects;
@@ -32,22 +38,83 @@ public final class WebCrawlerMain {
   @Inject
   private Profiler profiler;
 
+  @Inject
+  private CrawlMetrics metrics;
+
+  @Inject
+  private TraceRecorder trace;
+
   private void run() throws Exception {
-    Guice.createInjector(new WebCrawlerModule(config), new ProfilerModule()).injectMembers(this);
+    Guice.createInjector(
+            new WebCrawlerModule(config),
+            new ProfilerModule(
+                config.getProfilingLevel(),
+                config.getProfilingSampleInterval(),
+                config.getProfileOutputFormat()))
+        .injectMembers(this);
 
-    CrawlResult result = crawler.crawl(config.getStartPages());
+    CrawlResult result;
+    if (config.getMetricsPort() > 0) {
+      String bindAddress = config.getMetricsBindAddress();
+      InetAddress address = bindAddress.isEmpty()
+          ? InetAddress.getLoopbackAddress()
+          : InetAddress.getByName(bindAddress);
+      try (MetricsServer server =
+               MetricsServer.start(address, config.getMetricsPort(), metrics, profiler)) {
+        String host = bindAddress.isEmpty() ? "localhost" : bindAddress;
+        System.out.println(
+            "Serving metrics at http://" + host + ":" + server.getPort() + "/metrics");
+        result = crawler.crawl(config.getStartPages());
+      }
+    } else {
+      result = crawler.crawl(config.getStartPages());
+    }
 
     // Write the crawl results to a JSON file (or System.out if no file path is given).
     CrawlResultWriter resultWriter = new CrawlResultWriter(result);
+    ResultFormat format = config.getResultFormat();
 
     if (!config.getResultPath().isEmpty()) {
       Path resultPath = Paths.get(config.getResultPath());
-      resultWriter.write(resultPath);
-      System.out.println("Crawl results written to: " + config.getResultPath());
+      if (format.writesJson()) {
+        resultWriter.write(resultPath);
+        System.out.println("Crawl results written to: " + resultPath);
+      }
+      if (format.writesBinary()) {
+        Path binaryPath = format.binaryPath(resultPath);
+        new BinaryResultWriter(result).write(binaryPath);
+        System.out.println("Binary crawl results written to: " + binaryPath);
+      }
     } else {
       resultWriter.write(new OutputStreamWriter(System.out));
     }
 
+    // Write every word counted, if asked to.
+    if (!config.getVocabularyOutputPath().isEmpty()) {
+      resultWriter.writeVocabulary(Paths.get(config.getVocabularyOutputPath()));
+      System.out.println("Vocabulary written to: " + config.getVocabularyOutputPath());
+    }
+
+    // Write the link graph of the crawl, if one was recorded.
+    if (!config.getLinkGraphOutputPath().isEmpty()) {
+      try {
+        result.getLinkGraph().write(Paths.get(config.getLinkGraphOutputPath()));
+        System.out.println("Link graph written to: " + config.getLinkGraphOutputPath());
+      } catch (IOException e) {
+        System.err.println("Failed to write link graph: " + e.getMessage());
+      }
+    }
+
+    // Write the inverted index of the crawl, if one was built.
+    if (!config.getIndexOutputPath().isEmpty()) {
+      try {
+        result.getIndex().write(Paths.get(config.getIndexOutputPath()));
+        System.out.println("Inverted index written to: " + config.getIndexOutputPath());
+      } catch (IOException e) {
+        System.err.println("Failed to write inverted index: " + e.getMessage());
+      }
+    }
+
     // Write the profile data to a text file (or System.out if no file path is given).
     String profileOutputPath = config.getProfileOutputPath();
     try {
@@ -59,6 +126,16 @@ public final class WebCrawlerMain {
     } catch (IOException e) {
       System.err.println("Failed to write profile data: " + e.getMessage());
     }
+
+    // Write the timeline of the crawl, if one was recorded.
+    if (!config.getTraceOutputPath().isEmpty()) {
+      try {
+        trace.write(Paths.get(config.getTraceOutputPath()));
+        System.out.println("Crawl trace written to: " + config.getTraceOutputPath());
+      } catch (IOException e) {
+        System.err.println("Failed to write crawl trace: " + e.getMessage());
+      }
+    }
   }
 
   public static void main(String[] args) throws Exception {
@@ -0,0 +1,121 @@
+package com.udacity.webcrawler.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.udacity.webcrawler.CrawlMetrics;
+import com.udacity.webcrawler.profiler.Profiler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * An embedded HTTP server that serves the crawler's live metrics at {@code /metrics}, in the
+ * Prometheus text format.
+ *
+ * <p>Scrapes are handled on a single thread of the server's own, and only read lock-free counters
+ * and histograms, so they never hold up the crawler's threads.
+ *
+ * <p>The metrics name the crawler's hosts and methods, so the server only listens on the loopback
+ * interface unless it is explicitly given another address.
+ */
+public final class MetricsServer implements AutoCloseable {
+
+  private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+
+  private MetricsServer(HttpServer server, ExecutorService executor) {
+    this.server = server;
+    this.executor = executor;
+  }
+
+  /**
+   * Starts a server on the given port, on the loopback interface.
+   *
+   * @param port     the port to listen on, or 0 for any free port.
+   * @param metrics  the crawler's metrics.
+   * @param profiler the profiler whose data is exported along with the metrics.
+   * @throws IOException if the server could not be started, for example because the port is in
+   *                     use.
+   */
+  public static MetricsServer start(int port, CrawlMetrics metrics, Profiler profiler)
+      throws IOException {
+    return start(InetAddress.getLoopbackAddress(), port, metrics, profiler);
+  }
+
+  /**
+   * Starts a server on the given address and port. The wildcard address listens on all
+   * interfaces.
+   *
+   * @param address  the address to listen on.
+   * @param port     the port to listen on, or 0 for any free port.
+   * @param metrics  the crawler's metrics.
+   * @param profiler the profiler whose data is exported along with the metrics.
+   * @throws IOException if the server could not be started, for example because the port is in
+   *                     use.
+   */
+  public static MetricsServer start(
+      InetAddress address, int port, CrawlMetrics metrics, Profiler profiler) throws IOException {
+    Objects.requireNonNull(address);
+    Objects.requireNonNull(metrics);
+    Objects.requireNonNull(profiler);
+
+    HttpServer server = HttpServer.create(new InetSocketAddress(address, port), 0);
+    ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "metrics-server");
+      thread.setDaemon(true);
+      return thread;
+    });
+    server.setExecutor(executor);
+    server.createContext("/metrics", exchange -> {
+      try (exchange) {
+        if (!exchange.getRequestMethod().equals("GET")) {
+          exchange.sendResponseHeaders(405, -1);
+          return;
+        }
+        respond(exchange, PrometheusFormat.format(metrics, profiler.getData()));
+      }
+    });
+    server.start();
+    return new MetricsServer(server, executor);
+  }
+
+  private static void respond(HttpExchange exchange, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+    exchange.sendResponseHeaders(200, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  /**
+   * Returns the address the server listens on.
+   */
+  public InetAddress getAddress() {
+    return server.getAddress().getAddress();
+  }
+
+  /**
+   * Returns the port the server listens on.
+   */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * Stops the server. Scrapes in progress are cut off.
+   */
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,124 @@
+package com.udacity.webcrawler.metrics;
+
+import com.udacity.webcrawler.CrawlMetrics;
+import com.udacity.webcrawler.profiler.LatencyHistogram;
+import com.udacity.webcrawler.profiler.MethodProfile;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Formats the crawler's metrics in the Prometheus text exposition format.
+ *
+ * <p>The latency of each profiled method is exported as a Prometheus histogram with a fixed set of
+ * buckets, {@link #BUCKETS}, read from its {@link LatencyHistogram}, so the size of the output does
+ * not depend on how many calls were recorded.
+ */
+final class PrometheusFormat {
+
+  /**
+   * The upper bounds of the buckets of the profiled method histograms.
+   */
+  static final List<Duration> BUCKETS = List.of(
+      Duration.ofMillis(1),
+      Duration.ofMillis(5),
+      Duration.ofMillis(10),
+      Duration.ofMillis(25),
+      Duration.ofMillis(50),
+      Duration.ofMillis(100),
+      Duration.ofMillis(250),
+      Duration.ofMillis(500),
+      Duration.ofSeconds(1),
+      Duration.ofMillis(2500),
+      Duration.ofSeconds(5),
+      Duration.ofSeconds(10),
+      Duration.ofSeconds(30));
+
+  private PrometheusFormat() {
+  }
+
+  /**
+   * Returns the given metrics and profiles in the Prometheus text format.
+   *
+   * @param metrics  the crawler's metrics.
+   * @param profiles the profiles of the profiled methods, keyed by method name.
+   */
+  static String format(CrawlMetrics metrics, Map<String, MethodProfile> profiles) {
+    StringBuilder out = new StringBuilder();
+
+    header(out, "webcrawler_pages_fetched_total", "counter",
+        "Fetches that finished, whether they succeeded or not.");
+    sample(out, "webcrawler_pages_fetched_total", "", metrics.getPagesFetched());
+
+    header(out, "webcrawler_fetch_errors_total", "counter", "Fetches that failed, by reason.");
+    for (CrawlMetrics.FetchError error : CrawlMetrics.FetchError.values()) {
+      sample(out, "webcrawler_fetch_errors_total", label("reason", error.label()),
+          metrics.getFetchErrors(error));
+    }
+
+    header(out, "webcrawler_fetches_in_flight", "gauge", "Fetches in progress.");
+    sample(out, "webcrawler_fetches_in_flight", "", metrics.getFetchesInFlight());
+
+    header(out, "webcrawler_frontier_size", "gauge", "URLs found but not crawled yet.");
+    sample(out, "webcrawler_frontier_size", "", metrics.getFrontierSize());
+
+    header(out, "webcrawler_urls_visited_total", "counter", "URLs admitted to a crawl.");
+    sample(out, "webcrawler_urls_visited_total", "", metrics.getUrlsVisited());
+
+    if (profiles.isEmpty()) {
+      return out.toString();
+    }
+    String histogram = "webcrawler_profiled_method_duration_seconds";
+    header(out, histogram, "histogram", "Elapsed time of calls to @Profiled methods.");
+    profiles.forEach((method, profile) -> {
+      LatencyHistogram elapsed = profile.getElapsed();
+      String methodLabel = label("method", method);
+      for (Duration bucket : BUCKETS) {
+        sample(out, histogram + "_bucket",
+            methodLabel + "," + label("le", seconds(bucket)), elapsed.getCountAtMost(bucket));
+      }
+      long count = elapsed.getCount();
+      sample(out, histogram + "_bucket", methodLabel + "," + label("le", "+Inf"), count);
+      sample(out, histogram + "_sum", methodLabel, seconds(elapsed.getTotal()));
+      sample(out, histogram + "_count", methodLabel, count);
+    });
+
+    String cpu = "webcrawler_profiled_method_cpu_seconds_total";
+    header(out, cpu, "counter", "CPU time used by calls to @Profiled methods, where measured.");
+    profiles.forEach((method, profile) ->
+        sample(out, cpu, label("method", method), seconds(profile.getCpuTime())));
+
+    String allocated = "webcrawler_profiled_method_allocated_bytes_total";
+    header(out, allocated, "counter",
+        "Bytes allocated by calls to @Profiled methods, where measured.");
+    profiles.forEach((method, profile) ->
+        sample(out, allocated, label("method", method), profile.getAllocatedBytes()));
+    return out.toString();
+  }
+
+  private static void header(StringBuilder out, String name, String type, String help) {
+    out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+  }
+
+  private static void sample(StringBuilder out, String name, String labels, Object value) {
+    out.append(name);
+    if (!labels.isEmpty()) {
+      out.append('{').append(labels).append('}');
+    }
+    out.append(' ').append(value).append('\n');
+  }
+
+  private static String label(String name, String value) {
+    String escaped = value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    return name + "=\"" + escaped + "\"";
+  }
+
+  private static String seconds(Duration duration) {
+    return String.format(Locale.ROOT, "%.9f", duration.toNanos() / 1e9)
+        .replaceAll("0+$", "")
+        .replaceAll("\\.$", ".0");
+  }
+}
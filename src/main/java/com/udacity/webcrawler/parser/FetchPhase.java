@@ -0,0 +1,35 @@
+package com.udacity.webcrawler.parser;
+
+/**
+ * The phases of fetching and parsing a page, which {@link PageParser.Result#getPhaseTime} reports
+ * separately.
+ *
+ * <p>The phases run one after the other, except for {@link #DOWNLOAD} and {@link #PARSE}: the body
+ * is streamed into the parser, so the two interleave, and the time is split by how long the parser
+ * waited for the next bytes of the body.
+ */
+public enum FetchPhase {
+
+  /**
+   * Resolving the host name of a remote page. Host names that were resolved recently are answered
+   * from the JVM's cache.
+   */
+  DNS,
+
+  /**
+   * From after the host name is resolved until the response headers have arrived, which includes
+   * connecting, the TLS handshake, sending the request and waiting for the server. For a local
+   * file, this is the time to open it.
+   */
+  TIME_TO_FIRST_BYTE,
+
+  /**
+   * Waiting for the body of the page to arrive.
+   */
+  DOWNLOAD,
+
+  /**
+   * Parsing the body of the page and gathering its words and links.
+   */
+  PARSE
+}
@@ -0,0 +1,133 @@
+package com.udacity.webcrawler.parser;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.SocketTimeoutException;
+
+/**
+ * An {@link InputStream} that enforces the size and time limits of a page while it is being
+ * streamed into the HTML parser, so that an oversized page is never buffered in full.
+ *
+ * <p>Once the byte limit is reached, the stream reports end-of-file and remembers that the page was
+ * truncated. Once the deadline has passed, reads throw a {@link ParseTimeoutException}.
+ *
+ * <p>A {@link SocketTimeoutException} from the wrapped stream is rethrown wrapped in an
+ * {@link UncheckedIOException}, because Jsoup's parser swallows socket timeouts from the stream it
+ * reads and retries, which would spin forever on a connection whose timeout has expired.
+ */
+final class LimitedInputStream extends FilterInputStream {
+
+  private final long maxBytes;
+  private final long deadlineNanos;
+  private long bytesRead;
+  private long readNanos;
+  private boolean truncated;
+
+  /**
+   * Wraps the given stream.
+   *
+   * @param in            the stream to wrap.
+   * @param maxBytes      the maximum number of bytes to read, or 0 for no limit.
+   * @param deadlineNanos the {@link System#nanoTime()} after which reads fail, or
+   *                      {@link Long#MAX_VALUE} for no deadline.
+   */
+  LimitedInputStream(InputStream in, long maxBytes, long deadlineNanos) {
+    super(in);
+    this.maxBytes = maxBytes;
+    this.deadlineNanos = deadlineNanos;
+  }
+
+  /**
+   * Returns the total time spent waiting for the wrapped stream, in nanoseconds.
+   */
+  long getReadNanos() {
+    return readNanos;
+  }
+
+  /**
+   * Returns true if the underlying stream had more data than the byte limit allowed.
+   */
+  boolean isTruncated() {
+    return truncated;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!checkLimits()) {
+      return -1;
+    }
+    int b;
+    long start = System.nanoTime();
+    try {
+      b = super.read();
+    } catch (SocketTimeoutException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      readNanos += System.nanoTime() - start;
+    }
+    if (b >= 0) {
+      bytesRead++;
+    }
+    return b;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (!checkLimits()) {
+      return -1;
+    }
+    if (maxBytes > 0) {
+      len = (int) Math.min(len, maxBytes - bytesRead);
+    }
+    int n;
+    long start = System.nanoTime();
+    try {
+      n = super.read(b, off, len);
+    } catch (SocketTimeoutException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      readNanos += System.nanoTime() - start;
+    }
+    if (n > 0) {
+      bytesRead += n;
+    }
+    return n;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    // Route skips through read() so that skipped bytes count towards the limit.
+    long skipped = 0;
+    while (skipped < n && read() >= 0) {
+      skipped++;
+    }
+    return skipped;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  /**
+   * Returns false if the byte limit has been reached, in which case the stream is at its end.
+   */
+  private boolean checkLimits() throws IOException {
+    if (deadlineNanos != Long.MAX_VALUE && System.nanoTime() - deadlineNanos > 0) {
+      throw new ParseTimeoutException();
+    }
+    if (maxBytes > 0 && bytesRead >= maxBytes) {
+      // Only flag the page as truncated if there really was more to read.
+      if (!truncated && super.read() >= 0) {
+        truncated = true;
+      }
+      return false;
+    }
+    return true;
+  }
+}
@@ -0,0 +1,49 @@
+package com.udacity.webcrawler.parser;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A Java Flight Recorder event for downloading the response headers of a page, or opening a local
+ * file. Reading the body is part of the {@link PageParseEvent} that follows, since the body is
+ * streamed into the parser.
+ *
+ * <p>By default only fetches that take at least 100 ms are recorded.
+ */
+@Name("com.udacity.webcrawler.PageFetch")
+@Label("Page Fetch")
+@Category("Web Crawler")
+@Description("Downloading the response headers of a page")
+@Threshold("100 ms")
+@StackTrace(false)
+final class PageFetchEvent extends Event {
+
+  @Label("URL")
+  String url;
+
+  @Label("Host")
+  String host;
+
+  @Label("Status Code")
+  @Description("The HTTP status code, or 0 for local files and failed requests")
+  int statusCode;
+
+  /**
+   * Ends the fetch of the given page, and commits the event if it is enabled and took at least
+   * the threshold.
+   */
+  void finish(String url, String host, int statusCode) {
+    end();
+    if (shouldCommit()) {
+      this.url = url;
+      this.host = host;
+      this.statusCode = statusCode;
+      commit();
+    }
+  }
+}
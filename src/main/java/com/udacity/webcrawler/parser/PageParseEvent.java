@@ -0,0 +1,60 @@
+package com.udacity.webcrawler.parser;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A Java Flight Recorder event for reading the body of a page into the parser and gathering its
+ * words and links.
+ *
+ * <p>By default only pages that take at least 50 ms are recorded.
+ */
+@Name("com.udacity.webcrawler.PageParse")
+@Label("Page Parse")
+@Category("Web Crawler")
+@Description("Reading and parsing the body of a page")
+@Threshold("50 ms")
+@StackTrace(false)
+final class PageParseEvent extends Event {
+
+  @Label("URL")
+  String url;
+
+  @Label("Host")
+  String host;
+
+  @Label("Words")
+  @Description("The number of distinct words on the page")
+  int words;
+
+  @Label("Links")
+  int links;
+
+  @Label("Truncated")
+  boolean truncated;
+
+  @Label("Dropped")
+  boolean dropped;
+
+  /**
+   * Ends the parse of the given page, and commits the event if it is enabled and took at least
+   * the threshold.
+   */
+  void finish(String url, String host, PageParser.Result result) {
+    end();
+    if (shouldCommit()) {
+      this.url = url;
+      this.host = host;
+      this.words = result.getWordCounts().size();
+      this.links = result.getLinks().size();
+      this.truncated = result.isTruncated();
+      this.dropped = result.isDropped();
+      commit();
+    }
+  }
+}
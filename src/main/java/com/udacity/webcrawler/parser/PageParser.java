@@ -2,12 +2,15 @@ package com.udacity.webcrawler.parser;
 
 import com.udacity.webcrawler.profiler.Profiled;
 
+import java.net.SocketTimeoutException;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -28,10 +31,30 @@ public interface PageParser {
   final class Result {
     private final Map<String, Integer> wordCounts;
     private final List<String> links;
+    private final int statusCode;
+    private final Exception failure;
+    private final Duration retryAfter;
+    private final boolean truncated;
+    private final boolean dropped;
+    private final long[] phaseNanos;
 
-    private Result(Map<String, Integer> wordCounts, List<String> links) {
+    private Result(
+        Map<String, Integer> wordCounts,
+        List<String> links,
+        int statusCode,
+        Exception failure,
+        Duration retryAfter,
+        boolean truncated,
+        boolean dropped,
+        long[] phaseNanos) {
       this.wordCounts = Objects.requireNonNull(wordCounts);
       this.links = Objects.requireNonNull(links);
+      this.statusCode = statusCode;
+      this.failure = failure;
+      this.retryAfter = retryAfter;
+      this.truncated = truncated;
+      this.dropped = dropped;
+      this.phaseNanos = phaseNanos;
     }
 
     /**
@@ -49,6 +72,64 @@ public interface PageParser {
       return links;
     }
 
+    /**
+     * Returns the HTTP status code of the response, or 0 if the page is not a remote page or no
+     * response was received.
+     */
+    public int getStatusCode() {
+      return statusCode;
+    }
+
+    /**
+     * Returns the exception that prevented the page from being downloaded or parsed, if any.
+     *
+     * <p>A failed result has no words or links. Pages that returned an HTTP error status are
+     * reported as failures, too.
+     */
+    public Optional<Exception> getFailure() {
+      return Optional.ofNullable(failure);
+    }
+
+    /**
+     * Returns how long the server asked clients to wait before trying again, if the response had
+     * a valid {@code Retry-After} header.
+     */
+    public Optional<Duration> getRetryAfter() {
+      return Optional.ofNullable(retryAfter);
+    }
+
+    /**
+     * Returns true if the page was larger than the maximum body size, in which case the words and
+     * links only come from the part of the page that was read.
+     */
+    public boolean isTruncated() {
+      return truncated;
+    }
+
+    /**
+     * Returns true if the page was skipped because it was not HTML, or because it took longer than
+     * the maximum parse time. A dropped page is also a failure; see {@link #getFailure()}.
+     */
+    public boolean isDropped() {
+      return dropped;
+    }
+
+    /**
+     * Returns true if the page failed because it took too long to download or to parse.
+     */
+    public boolean isTimedOut() {
+      return failure instanceof SocketTimeoutException || failure instanceof ParseTimeoutException;
+    }
+
+    /**
+     * Returns the time spent in the given phase of fetching and parsing the page, which is
+     * {@link Duration#ZERO} if the phase did not happen, such as DNS for a local file, or parsing
+     * for a page that failed to download.
+     */
+    public Duration getPhaseTime(FetchPhase phase) {
+      return Duration.ofNanos(phaseNanos[phase.ordinal()]);
+    }
+
     /**
      * A builder class for the parse {@link Result}. This builder keeps track of word counts and
      * hyperlinks encountered while parsing a web page.
@@ -56,6 +137,12 @@ public interface PageParser {
     static final class Builder {
       private final Map<String, Integer> wordCounts = new HashMap<>();
       private final Set<String> links = new HashSet<>();
+      private int statusCode;
+      private Exception failure;
+      private Duration retryAfter;
+      private boolean truncated;
+      private boolean dropped;
+      private final long[] phaseNanos = new long[FetchPhase.values().length];
 
       /**
        * Increments the frequency counter for the given word.
@@ -72,13 +159,84 @@ public interface PageParser {
         links.add(Objects.requireNonNull(link));
       }
 
+      /**
+       * Sets the HTTP status code of the response.
+       */
+      Builder setStatusCode(int statusCode) {
+        this.statusCode = statusCode;
+        return this;
+      }
+
+      /**
+       * Marks the page as failed because of the given exception.
+       */
+      Builder setFailure(Exception failure) {
+        this.failure = Objects.requireNonNull(failure);
+        return this;
+      }
+
+      /**
+       * Sets how long the server asked clients to wait before trying again.
+       */
+      Builder setRetryAfter(Duration retryAfter) {
+        this.retryAfter = Objects.requireNonNull(retryAfter);
+        return this;
+      }
+
+      /**
+       * Sets whether the page was truncated at the maximum body size.
+       */
+      Builder setTruncated(boolean truncated) {
+        this.truncated = truncated;
+        return this;
+      }
+
+      /**
+       * Sets whether the page was dropped because of its content type or parse time.
+       */
+      Builder setDropped(boolean dropped) {
+        this.dropped = dropped;
+        return this;
+      }
+
+      /**
+       * Adds the given time, in nanoseconds, to the time spent in the given phase.
+       */
+      Builder addPhaseTime(FetchPhase phase, long nanos) {
+        phaseNanos[phase.ordinal()] += nanos;
+        return this;
+      }
+
+      /**
+       * Forgets the words and links added so far, for a page that must not count half-way.
+       */
+      Builder discardContent() {
+        wordCounts.clear();
+        links.clear();
+        truncated = false;
+        return this;
+      }
+
+      /**
+       * Returns the HTTP status code set so far.
+       */
+      int getStatusCode() {
+        return statusCode;
+      }
+
       /**
        * Constructs a {@link Result} from this builder.
        */
       Result build() {
         return new Result(
             Collections.unmodifiableMap(wordCounts),
-            links.stream().collect(Collectors.toUnmodifiableList()));
+            links.stream().collect(Collectors.toUnmodifiableList()),
+            statusCode,
+            failure,
+            retryAfter,
+            truncated,
+            dropped,
+            phaseNanos.clone());
       }
     }
   }
@@ -1,5 +1,7 @@
 package com.udacity.webcrawler.parser;
 
+import java.time.Duration;
+
 /**
  * A factory interface that supplies instances of {@link PageParser} that have common parameters
  * (such as the timeout and ignored words) preset from injected values.
@@ -10,4 +12,10 @@ public interface PageParserFactory {
    * Returns a {@link PageParser} that parses the given {@link url}.
    */
   PageParser get(String url);
+
+  /**
+   * Returns a {@link PageParser} that parses the given {@link url} within the given time budget.
+   * Both the download timeout and the maximum parse time are capped at the budget.
+   */
+  PageParser get(String url, Duration budget);
 }
@@ -2,6 +2,7 @@ package com.udacity.webcrawler.parser;
 
 import com.udacity.webcrawler.Timeout;
 import com.udacity.webcrawler.profiler.Profiler;
+import com.udacity.webcrawler.trace.TraceRecorder;
 
 import javax.inject.Inject;
 import java.time.Duration;
@@ -12,23 +13,50 @@ import java.util.regex.Pattern;
  * A {@link PageParserFactory} that wraps its returned instances using a {@link Profiler}.
  */
 final class PageParserFactoryImpl implements PageParserFactory {
+  private static final Duration MIN_BUDGET = Duration.ofMillis(1);
+
   private final Profiler profiler;
   private final List<Pattern> ignoredWords;
   private final Duration timeout;
+  private final long maxBodyBytes;
+  private final Duration maxParseTime;
+  private final TraceRecorder trace;
 
   @Inject
   PageParserFactoryImpl(
-      Profiler profiler, @IgnoredWords List<Pattern> ignoredWords, @Timeout Duration timeout) {
+      Profiler profiler,
+      @IgnoredWords List<Pattern> ignoredWords,
+      @Timeout Duration timeout,
+      @MaxBodyBytes long maxBodyBytes,
+      @MaxParseTime Duration maxParseTime,
+      TraceRecorder trace) {
     this.profiler = profiler;
     this.ignoredWords = ignoredWords;
     this.timeout = timeout;
+    this.maxBodyBytes = maxBodyBytes;
+    this.maxParseTime = maxParseTime;
+    this.trace = trace;
   }
 
   @Override
   public PageParser get(String url) {
     // Here, parse the page with the initial timeout (instead of just the time remaining), to make
     // the download less likely to fail. Deadline enforcement should happen at a higher level.
-    PageParser delegate = new PageParserImpl(url, timeout, ignoredWords);
+    PageParser delegate =
+        new PageParserImpl(url, timeout, ignoredWords, maxBodyBytes, maxParseTime, trace);
+    return profiler.wrap(PageParser.class, delegate);
+  }
+
+  @Override
+  public PageParser get(String url, Duration budget) {
+    // Jsoup treats a zero timeout as infinite, so never go below one millisecond. A page whose
+    // budget is already used up then fails almost immediately.
+    Duration capped = budget.compareTo(MIN_BUDGET) < 0 ? MIN_BUDGET : budget;
+    Duration fetchTimeout = capped.compareTo(timeout) < 0 ? capped : timeout;
+    Duration parseTime =
+        maxParseTime.isZero() || capped.compareTo(maxParseTime) < 0 ? capped : maxParseTime;
+    PageParser delegate =
+        new PageParserImpl(url, fetchTimeout, ignoredWords, maxBodyBytes, parseTime, trace);
     return profiler.wrap(PageParser.class, delegate);
   }
 }
@@ -1,6 +1,10 @@
 package com.udacity.webcrawler.parser;
 
+import com.udacity.webcrawler.trace.TraceRecorder;
+import org.jsoup.Connection;
+import org.jsoup.HttpStatusException;
 import org.jsoup.Jsoup;
+import org.jsoup.UnsupportedMimeTypeException;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.nodes.Node;
@@ -10,15 +14,22 @@ import org.jsoup.select.NodeVisitor;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.regex.Pattern;
 
 /**
@@ -40,21 +51,77 @@ final class PageParserImpl implements PageParser {
    */
   private static final Pattern NON_WORD_CHARACTERS = Pattern.compile("\\W");
 
+  /**
+   * The most bytes of an HTTP error page that are read, and thrown away, so that its connection
+   * can be reused.
+   */
+  private static final int MAX_ERROR_BODY_BYTES = 64 * 1024;
+
   private final String uri;
   private final Duration timeout;
   private final List<Pattern> ignoredWords;
+  private final long maxBodyBytes;
+  private final Duration maxParseTime;
+  private final TraceRecorder trace;
 
   /**
-   * Constructs a page parser with the given parameters.
+   * Constructs a page parser with the given parameters, and no limit on the size of the page or
+   * the time it takes to parse it.
    *
    * @param uri          the URI of the file to parse.
    * @param timeout      the timeout to use when downloading the file, if it is remote.
    * @param ignoredWords patterns of which words should be ignored by the {@link #parse()} method.
    */
   PageParserImpl(String uri, Duration timeout, List<Pattern> ignoredWords) {
+    this(uri, timeout, ignoredWords, 0, Duration.ZERO);
+  }
+
+  /**
+   * Constructs a page parser with the given parameters.
+   *
+   * @param uri          the URI of the file to parse.
+   * @param timeout      the timeout to use when downloading the file, if it is remote.
+   * @param ignoredWords patterns of which words should be ignored by the {@link #parse()} method.
+   * @param maxBodyBytes the number of bytes of the page after which the rest of the page is
+   *                     ignored, or 0 for no limit.
+   * @param maxParseTime the time after which downloading and parsing the page is abandoned, or
+   *                     {@link Duration#ZERO} for no limit.
+   */
+  PageParserImpl(
+      String uri,
+      Duration timeout,
+      List<Pattern> ignoredWords,
+      long maxBodyBytes,
+      Duration maxParseTime) {
+    this(uri, timeout, ignoredWords, maxBodyBytes, maxParseTime, TraceRecorder.disabled());
+  }
+
+  /**
+   * Constructs a page parser with the given parameters, which records its fetch and parse in the
+   * given {@link TraceRecorder}.
+   *
+   * @param uri          the URI of the file to parse.
+   * @param timeout      the timeout to use when downloading the file, if it is remote.
+   * @param ignoredWords patterns of which words should be ignored by the {@link #parse()} method.
+   * @param maxBodyBytes the number of bytes of the page after which the rest of the page is
+   *                     ignored, or 0 for no limit.
+   * @param maxParseTime the time after which downloading and parsing the page is abandoned, or
+   *                     {@link Duration#ZERO} for no limit.
+   * @param trace        the recorder of the crawl's timeline.
+   */
+  PageParserImpl(
+      String uri,
+      Duration timeout,
+      List<Pattern> ignoredWords,
+      long maxBodyBytes,
+      Duration maxParseTime,
+      TraceRecorder trace) {
     this.uri = Objects.requireNonNull(uri);
     this.timeout = Objects.requireNonNull(timeout);
     this.ignoredWords = Objects.requireNonNull(ignoredWords);
+    this.maxBodyBytes = maxBodyBytes;
+    this.maxParseTime = Objects.requireNonNull(maxParseTime);
+    this.trace = Objects.requireNonNull(trace);
   }
 
   @Override
@@ -67,20 +134,120 @@ final class PageParserImpl implements PageParser {
       return new Result.Builder().build();
     }
 
-    Document document;
+    long deadlineNanos = maxParseTime.isZero()
+        ? Long.MAX_VALUE
+        : System.nanoTime() + maxParseTime.toNanos();
+    Result.Builder builder = new Result.Builder();
+    PageFetchEvent fetchEvent = new PageFetchEvent();
+    fetchEvent.begin();
+    long fetchBegin = trace.begin();
+    Body body;
     try {
-      document = parseDocument(parsedUri);
+      body = fetch(parsedUri, builder);
+    } catch (UnsupportedMimeTypeException e) {
+      // The page was rejected by its content type, rather than failing.
+      return builder.setFailure(e).setDropped(true).build();
     } catch (Exception e) {
       // There are multiple exceptions that can be encountered due to invalid URIs or Mimetypes that
-      // Jsoup does not handle. There is not much we can do here.
-      return new Result.Builder().build();
+      // Jsoup does not handle. There is not much we can do here, other than to report the failure
+      // so the crawler can tell an unhealthy host apart from an empty page.
+      return builder.setFailure(e).build();
+    } finally {
+      fetchEvent.finish(uri, parsedUri.getHost(), builder.getStatusCode());
+      trace.end("page", "fetch", uri, fetchBegin);
     }
 
-    Result.Builder builder = new Result.Builder();
-    // Do a single pass over the document to gather all hyperlinks and text.
+    PageParseEvent parseEvent = new PageParseEvent();
+    parseEvent.begin();
+    long parseBegin = trace.begin();
+    Result result = parseBody(body, parsedUri, builder, deadlineNanos);
+    parseEvent.finish(uri, parsedUri.getHost(), result);
+    trace.end("page", "parse", uri, parseBegin);
+    return result;
+  }
+
+  /**
+   * Streams the given body into the parser, and then does a single pass over the document to
+   * gather all hyperlinks and text. Reading stops at the byte limit, so an oversized page is never
+   * held in memory in full. The time spent waiting for the body is recorded as the download phase,
+   * and the rest as the parse phase.
+   */
+  private Result parseBody(
+      Body body, URI parsedUri, Result.Builder builder, long deadlineNanos) {
+    long start = System.nanoTime();
+    LimitedInputStream in = new LimitedInputStream(body.stream(), maxBodyBytes, deadlineNanos);
+    parseInto(in, body, parsedUri, builder, deadlineNanos);
+    long download = in.getReadNanos();
+    return builder
+        .addPhaseTime(FetchPhase.DOWNLOAD, download)
+        .addPhaseTime(FetchPhase.PARSE, System.nanoTime() - start - download)
+        .build();
+  }
+
+  /**
+   * Reads and discards the rest of the given stream, up to {@link #MAX_ERROR_BODY_BYTES}. A
+   * failure to read it is ignored, since the stream is closed either way.
+   */
+  private static void drain(InputStream in) {
+    byte[] buffer = new byte[8192];
+    long left = MAX_ERROR_BODY_BYTES;
+    try {
+      int n;
+      while (left > 0 && (n = in.read(buffer, 0, (int) Math.min(buffer.length, left))) >= 0) {
+        left -= n;
+      }
+    } catch (IOException e) {
+      // The connection is not reused, which costs no more than not draining it.
+    }
+  }
+
+  /**
+   * Parses the body read from the given stream into the given {@link Result.Builder}, recording
+   * any failure in the builder.
+   */
+  private void parseInto(
+      LimitedInputStream in,
+      Body body,
+      URI parsedUri,
+      Result.Builder builder,
+      long deadlineNanos) {
+    Document document;
+    try (in) {
+      document = Jsoup.parse(in, body.charset(), body.baseUri());
+      builder.setTruncated(in.isTruncated());
+    } catch (ParseTimeoutException e) {
+      // The page was rejected by the parse time limit, rather than failing.
+      builder.setFailure(e).setDropped(true);
+      return;
+    } catch (UncheckedIOException e) {
+      builder.setFailure(e.getCause());
+      return;
+    } catch (Exception e) {
+      builder.setFailure(e);
+      return;
+    }
+
+    try {
+      traverse(document, parsedUri, builder, deadlineNanos);
+    } catch (ParseTimeoutException e) {
+      // Drop everything gathered so far, so that the page does not count half-way.
+      builder.discardContent().setFailure(e).setDropped(true);
+    }
+  }
+
+  /**
+   * Gathers the words and hyperlinks in the given document into the given {@link Result.Builder}.
+   *
+   * @throws ParseTimeoutException if the deadline passes before the traversal is done.
+   */
+  private void traverse(
+      Document document, URI parsedUri, Result.Builder builder, long deadlineNanos) {
     document.traverse(new NodeVisitor() {
       @Override
       public void head(Node node, int depth) {
+        if (deadlineNanos != Long.MAX_VALUE && System.nanoTime() - deadlineNanos > 0) {
+          throw new ParseTimeoutException();
+        }
         if (node instanceof TextNode) {
           String text = ((TextNode) node).text().strip();
           Arrays.stream(WHITESPACE.split(text))
@@ -113,31 +280,125 @@ final class PageParserImpl implements PageParser {
       public void tail(Node node, int depth) {
       }
     });
-    return builder.build();
   }
 
   /**
-   * Returns a Jsoup {@link Document} representation of the file at the given {@link URI}, which may
-   * refer to a local document or a remote web page.
+   * Opens the body of the file at the given {@link URI}, which may refer to a local document or a
+   * remote web page. For a remote page, this downloads the response headers, and records the HTTP
+   * status code in the given {@link Result.Builder}.
    */
-  private Document parseDocument(URI uri) throws IOException {
+  private Body fetch(URI uri, Result.Builder builder) throws IOException {
     if (!isLocalFile(uri)) {
-      return Jsoup.parse(uri.toURL(), (int) timeout.toMillis());
+      // Resolve the host name up front to time it apart from the connection. The address is
+      // cached by the JVM, so the connection below does not resolve it again.
+      long start = System.nanoTime();
+      try {
+        if (uri.getHost() != null) {
+          InetAddress.getByName(uri.getHost());
+        }
+      } finally {
+        builder.addPhaseTime(FetchPhase.DNS, System.nanoTime() - start);
+      }
+      // Jsoup's own body size limit silently truncates, and its content type check lets through
+      // any text/* type, so both are disabled here in favor of the checks below.
+      long resolved = System.nanoTime();
+      Connection.Response response;
+      try {
+        response = Jsoup.connect(uri.toString())
+            .timeout((int) timeout.toMillis())
+            .ignoreHttpErrors(true)
+            .ignoreContentType(true)
+            .maxBodySize(0)
+            .execute();
+      } finally {
+        builder.addPhaseTime(FetchPhase.TIME_TO_FIRST_BYTE, System.nanoTime() - resolved);
+      }
+      // Jsoup leaves the body open once the headers are read, whatever the status, and only the
+      // caller of the returned Body closes it, so it is closed here on every other path.
+      // Otherwise the connection is never released.
+      InputStream body = response.bodyStream();
+      try {
+        builder.setStatusCode(response.statusCode());
+        if (response.hasHeader("Retry-After")) {
+          parseRetryAfter(response.header("Retry-After")).ifPresent(builder::setRetryAfter);
+        }
+        if (response.statusCode() >= 400) {
+          // Read the rest of the error page, which is usually short, so that the connection is
+          // released for reuse right away, rather than by a JDK thread that drains it later.
+          drain(body);
+          throw new HttpStatusException(
+              "HTTP error fetching URL", response.statusCode(), uri.toString());
+        }
+        // Check the content type before reading any of the body.
+        if (!isHtml(response.contentType())) {
+          throw new UnsupportedMimeTypeException(
+              "Unhandled content type", response.contentType(), uri.toString());
+        }
+        return new Body(body, response.charset(), uri.toString());
+      } catch (IOException | RuntimeException e) {
+        try {
+          body.close();
+        } catch (IOException suppressed) {
+          e.addSuppressed(suppressed);
+        }
+        throw e;
+      }
     }
 
     // Unfortunately, Jsoup.parse() has a baseUri parameter that does not work with local
     // "file://" URIs. If we want the parser to support those URIs, which are very useful for
     // testing, the work-around is to pass in an empty baseUri and manually add the base back to
     // href attributes.
-    try (InputStream in = Files.newInputStream(Path.of(uri))) {
-      return Jsoup.parse(in, StandardCharsets.UTF_8.name(), "");
+    long start = System.nanoTime();
+    try {
+      return new Body(Files.newInputStream(Path.of(uri)), StandardCharsets.UTF_8.name(), "");
+    } finally {
+      builder.addPhaseTime(FetchPhase.TIME_TO_FIRST_BYTE, System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Parses the value of a {@code Retry-After} header, which is either a number of seconds or an
+   * HTTP date. Returns an empty {@link Optional} if the value is malformed.
+   */
+  static Optional<Duration> parseRetryAfter(String value) {
+    String trimmed = value.strip();
+    try {
+      return Optional.of(Duration.ofSeconds(Math.max(0, Long.parseLong(trimmed))));
+    } catch (NumberFormatException e) {
+      // Not a number of seconds; try an HTTP date next.
+    }
+    try {
+      Instant date = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+      Duration wait = Duration.between(Instant.now(), date);
+      return Optional.of(wait.isNegative() ? Duration.ZERO : wait);
+    } catch (DateTimeParseException e) {
+      return Optional.empty();
     }
   }
 
+  /**
+   * Returns true if the given {@code Content-Type} header value is an HTML type. Responses without
+   * a content type are assumed to be HTML.
+   */
+  static boolean isHtml(String contentType) {
+    if (contentType == null || contentType.isBlank()) {
+      return true;
+    }
+    String mimeType = contentType.split(";", 2)[0].strip().toLowerCase();
+    return mimeType.equals("text/html") || mimeType.equals("application/xhtml+xml");
+  }
+
   /**
    * Returns true if and only if the given {@link URI} represents a local file.
    */
   private static boolean isLocalFile(URI uri) {
     return uri.getScheme() != null && uri.getScheme().equals("file");
   }
+
+  /**
+   * The body of a page that is ready to be parsed, with the charset and base URI to parse it with.
+   */
+  private record Body(InputStream stream, String charset, String baseUri) {
+  }
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.udacity.webcrawler.parser;
+
+/**
+ * Thrown when a page takes longer to download and parse than the configured maximum parse time.
+ *
+ * <p>This is an unchecked exception so that it can escape from Jsoup's parser and
+ * {@link org.jsoup.select.NodeVisitor} callbacks, neither of which allow checked exceptions.
+ */
+final class ParseTimeoutException extends RuntimeException {
+  private static final long serialVersionUID = 1L;
+
+  ParseTimeoutException() {
+    super("Maximum parse time exceeded");
+  }
+}
@@ -15,19 +15,26 @@ import java.util.regex.Pattern;
 public final class ParserModule extends AbstractModule {
   private final Duration timeout;
   private final List<Pattern> ignoredWords;
+  private final long maxBodyBytes;
+  private final Duration maxParseTime;
 
   /**
-   * Creates a {@link ParserModule} from the given timeout and ignored word patterns.
+   * Creates a {@link ParserModule} from the given timeout, ignored word patterns and page limits.
    */
-  private ParserModule(Duration timeout, List<Pattern> ignoredWords) {
+  private ParserModule(
+      Duration timeout, List<Pattern> ignoredWords, long maxBodyBytes, Duration maxParseTime) {
     this.timeout = timeout;
     this.ignoredWords = ignoredWords;
+    this.maxBodyBytes = maxBodyBytes;
+    this.maxParseTime = maxParseTime;
   }
 
   @Override
   protected void configure() {
     bind(Key.get(Duration.class, ParseDeadline.class)).toInstance(timeout);
     bind(new Key<List<Pattern>>(IgnoredWords.class) {}).toInstance(ignoredWords);
+    bind(Key.get(Long.class, MaxBodyBytes.class)).toInstance(maxBodyBytes);
+    bind(Key.get(Duration.class, MaxParseTime.class)).toInstance(maxParseTime);
     bind(PageParserFactory.class).to(PageParserFactoryImpl.class);
   }
 
@@ -37,6 +44,8 @@ public final class ParserModule extends AbstractModule {
   public static final class Builder {
     private Duration timeout;
     private List<Pattern> ignoredWords;
+    private long maxBodyBytes = 0;
+    private Duration maxParseTime = Duration.ZERO;
 
     /**
      * Sets the timeout that will be used by the page parser.
@@ -54,11 +63,29 @@ public final class ParserModule extends AbstractModule {
       return this;
     }
 
+    /**
+     * Sets the number of bytes of a page after which the rest of the page is ignored. Defaults to
+     * 0, which means there is no limit.
+     */
+    public Builder setMaxBodyBytes(long maxBodyBytes) {
+      this.maxBodyBytes = maxBodyBytes;
+      return this;
+    }
+
+    /**
+     * Sets the time after which downloading and parsing a page is abandoned. Defaults to
+     * {@link Duration#ZERO}, which means there is no limit.
+     */
+    public Builder setMaxParseTime(Duration maxParseTime) {
+      this.maxParseTime = Objects.requireNonNull(maxParseTime);
+      return this;
+    }
+
     /**
      * Builds a {@link ParserModule} from this {@link Builder}.
      */
     public ParserModule build() {
-      return new ParserModule(timeout, ignoredWords);
+      return new ParserModule(timeout, ignoredWords, maxBodyBytes, maxParseTime);
     }
   }
 }
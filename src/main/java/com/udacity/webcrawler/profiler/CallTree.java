@@ -0,0 +1,177 @@
+package com.udacity.webcrawler.profiler;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@link Profiled} calls made by all threads, arranged by call path.
+ *
+ * <p>Each thread keeps a stack of the profiled calls it is in, so a call is counted under the path
+ * of profiled calls that led to it. For every path the tree keeps the inclusive time, which is the
+ * elapsed time of the calls, and the exclusive time, which leaves out the time spent in profiled
+ * calls nested inside them. Calls that a thread hands off to other threads, such as the tasks of a
+ * {@link java.util.concurrent.ForkJoinPool}, start new paths on those threads.
+ *
+ * <p>Paths deeper than {@link #MAX_DEPTH} calls are not added to the tree, which keeps recursive
+ * calls from growing it without bound.
+ *
+ * <p>This class is thread-safe, and recording never takes a lock.
+ */
+final class CallTree {
+
+  static final int MAX_DEPTH = 32;
+
+  private final Node root = new Node(null);
+  private final ThreadLocal<Stack> stacks = ThreadLocal.withInitial(() -> new Stack(root));
+
+  /**
+   * Records that the current thread entered a profiled call, and returns the thread's stack, which
+   * must be given the elapsed time of the call when it returns.
+   */
+  Stack enter(ProfilingState.MethodKey key) {
+    Stack stack = stacks.get();
+    stack.push(key);
+    return stack;
+  }
+
+  /**
+   * Returns true if any profiled call was made inside another one.
+   */
+  boolean isNested() {
+    return root.children.values().stream().anyMatch(node -> !node.children.isEmpty());
+  }
+
+  /**
+   * Returns the calls made outside any other profiled call, by the name of their method.
+   */
+  Node getRoot() {
+    return root;
+  }
+
+  /**
+   * Formats the tree with one line per call path, indented by depth, with the children of each
+   * call sorted by inclusive time:
+   * <pre>
+   *   fully.qualified.ClassName#methodName 3 calls; inclusive 1500.000ms, exclusive 200.000ms
+   *     fully.qualified.OtherClass#nestedMethod 30 calls; inclusive 1300.000ms, exclusive ...
+   * </pre>
+   */
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    for (Node child : root.sortedChildren()) {
+      format(child, 0, builder);
+    }
+    return builder.toString().trim();
+  }
+
+  private static void format(Node node, int depth, StringBuilder builder) {
+    builder.append("  ".repeat(depth))
+        .append(node.key)
+        .append(String.format(
+            Locale.ROOT,
+            " %d calls; inclusive %s, exclusive %s",
+            node.getCount(),
+            ProfilingState.formatMillis(node.getInclusive()),
+            ProfilingState.formatMillis(node.getExclusive())))
+        .append(System.lineSeparator());
+    for (Node child : node.sortedChildren()) {
+      format(child, depth + 1, builder);
+    }
+  }
+
+  /**
+   * A call path: the method called last on the path, with the totals of the calls made along it.
+   */
+  static final class Node {
+    private final ProfilingState.MethodKey key;
+    private final ConcurrentMap<ProfilingState.MethodKey, Node> children =
+        new ConcurrentHashMap<>();
+    private final LongAdder count = new LongAdder();
+    private final LongAdder inclusiveNanos = new LongAdder();
+    private final LongAdder exclusiveNanos = new LongAdder();
+
+    private Node(ProfilingState.MethodKey key) {
+      this.key = key;
+    }
+
+    private Node child(ProfilingState.MethodKey key) {
+      Node child = children.get(key);
+      if (child != null) {
+        return child;
+      }
+      return children.computeIfAbsent(key, Node::new);
+    }
+
+    /**
+     * Returns the call path below this one that ends with the given method, or null if it was
+     * never called there.
+     */
+    Node getChild(String name) {
+      return children.values().stream()
+          .filter(child -> child.key.toString().equals(name))
+          .findFirst()
+          .orElse(null);
+    }
+
+    long getCount() {
+      return count.sum();
+    }
+
+    Duration getInclusive() {
+      return Duration.ofNanos(inclusiveNanos.sum());
+    }
+
+    Duration getExclusive() {
+      return Duration.ofNanos(exclusiveNanos.sum());
+    }
+
+    private List<Node> sortedChildren() {
+      return children.values().stream()
+          .sorted(Comparator.comparingLong((Node node) -> node.inclusiveNanos.sum()).reversed()
+              .thenComparing(node -> node.key.toString()))
+          .toList();
+    }
+  }
+
+  /**
+   * The profiled calls a single thread is in. Only ever used by its own thread.
+   */
+  static final class Stack {
+    private final Node[] nodes = new Node[MAX_DEPTH + 1];
+    private final long[] nestedNanos = new long[MAX_DEPTH + 1];
+    private int depth;
+
+    private Stack(Node root) {
+      nodes[0] = root;
+    }
+
+    private void push(ProfilingState.MethodKey key) {
+      depth++;
+      if (depth <= MAX_DEPTH) {
+        nodes[depth] = nodes[depth - 1].child(key);
+        nestedNanos[depth] = 0;
+      }
+    }
+
+    /**
+     * Records that the innermost call the thread is in returned after the given elapsed time.
+     */
+    void exit(long elapsedNanos) {
+      if (depth <= MAX_DEPTH) {
+        Node node = nodes[depth];
+        node.count.increment();
+        node.inclusiveNanos.add(elapsedNanos);
+        node.exclusiveNanos.add(Math.max(0, elapsedNanos - nestedNanos[depth]));
+        nodes[depth] = null;
+        nestedNanos[depth - 1] += elapsedNanos;
+      }
+      depth--;
+    }
+  }
+}
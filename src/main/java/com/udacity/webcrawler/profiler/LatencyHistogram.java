@@ -0,0 +1,190 @@
+package com.udacity.webcrawler.profiler;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size histogram of durations, recorded in nanoseconds.
+ *
+ * <p>Values are counted in logarithmic buckets: every power of two is split into
+ * {@link #SUB_BUCKETS} equal sub-buckets, so a percentile read back from the histogram is within
+ * 12.5% of the true value. The count, sum and maximum are kept exactly. The histogram takes the
+ * same amount of memory no matter how many values are recorded.
+ *
+ * <p>This class is thread-safe, and recording never takes a lock.
+ */
+public final class LatencyHistogram {
+
+  /**
+   * The number of sub-buckets each power of two is divided into.
+   */
+  static final int SUB_BUCKETS = 8;
+
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+  /**
+   * Records a single value. Negative values are recorded as zero.
+   */
+  public void record(long nanos) {
+    record(nanos, 1);
+  }
+
+  /**
+   * Records a value as if it had been recorded the given number of times. This is how a sampled
+   * value stands in for the values that were not sampled. Negative values are recorded as zero.
+   */
+  public void record(long nanos, long weight) {
+    long value = Math.max(0, nanos);
+    count.add(weight);
+    totalNanos.add(value * weight);
+    maxNanos.accumulate(value);
+    buckets.addAndGet(bucketOf(value), weight);
+  }
+
+  /**
+   * Records a single value. Negative values are recorded as zero.
+   */
+  public void record(Duration duration) {
+    record(duration.toNanos());
+  }
+
+  /**
+   * Adds every value recorded in the given histogram to this one.
+   */
+  public void add(LatencyHistogram other) {
+    for (int i = 0; i < BUCKETS; i++) {
+      long bucketCount = other.buckets.get(i);
+      if (bucketCount > 0) {
+        buckets.addAndGet(i, bucketCount);
+      }
+    }
+    count.add(other.count.sum());
+    totalNanos.add(other.totalNanos.sum());
+    maxNanos.accumulate(other.maxNanos.get());
+  }
+
+  /**
+   * Returns the number of recorded values.
+   */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * Returns the sum of all recorded values.
+   */
+  public Duration getTotal() {
+    return Duration.ofNanos(totalNanos.sum());
+  }
+
+  /**
+   * Returns the largest recorded value, or {@link Duration#ZERO} if nothing was recorded.
+   */
+  public Duration getMax() {
+    return Duration.ofNanos(maxNanos.get());
+  }
+
+  /**
+   * Returns an estimate of the given percentile of the recorded values, or {@link Duration#ZERO}
+   * if nothing was recorded. The estimate is the upper bound of the bucket the percentile falls
+   * into, but never more than the largest recorded value.
+   *
+   * @param percentile the percentile, between 0 and 100.
+   */
+  public Duration getPercentile(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("percentile must be between 0 and 100: " + percentile);
+    }
+    long[] counts = new long[BUCKETS];
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets.get(i);
+      total += counts[i];
+    }
+    if (total == 0) {
+      return Duration.ZERO;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Duration.ofNanos(Math.min(upperBoundOf(i), maxNanos.get()));
+      }
+    }
+    return getMax();
+  }
+
+  /**
+   * Returns the number of recorded values that are at most the given value. Only whole buckets are
+   * counted, so values in the same bucket as the given value, but not above it, may be left out.
+   */
+  public long getCountAtMost(Duration value) {
+    long bound = value.toNanos();
+    long count = 0;
+    for (int i = 0; i < BUCKETS && upperBoundOf(i) <= bound; i++) {
+      count += buckets.get(i);
+    }
+    return count;
+  }
+
+  /**
+   * Visits the buckets that hold at least one value, from the smallest values to the largest.
+   */
+  void forEachBucket(BucketVisitor visitor) throws IOException {
+    for (int i = 0; i < BUCKETS; i++) {
+      long bucketCount = buckets.get(i);
+      if (bucketCount > 0) {
+        visitor.visit(upperBoundOf(i), bucketCount);
+      }
+    }
+  }
+
+  /**
+   * Returns the index of the bucket that counts the given non-negative value.
+   */
+  static int bucketOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * Returns the largest value counted by the bucket with the given index.
+   */
+  static long upperBoundOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    long subBucket = bucket % SUB_BUCKETS;
+    long width = 1L << (exponent - SUB_BUCKET_BITS);
+    long lowerBound = (SUB_BUCKETS + subBucket) * width;
+    return lowerBound + width - 1;
+  }
+
+  /**
+   * Visits the buckets of a histogram.
+   */
+  interface BucketVisitor {
+    /**
+     * Visits a bucket.
+     *
+     * @param upperBoundNanos the largest value counted by the bucket.
+     * @param count           the number of values in the bucket.
+     */
+    void visit(long upperBoundNanos, long count) throws IOException;
+  }
+}
@@ -0,0 +1,85 @@
+package com.udacity.webcrawler.profiler;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The profiling data of a single {@link Profiled} method: a histogram of the elapsed time of its
+ * calls, and the total CPU time and memory allocated by the calling threads during those calls.
+ *
+ * <p>Comparing the elapsed time with the CPU time tells whether a method spends its time waiting,
+ * such as on the network, or computing. CPU time and allocation are only available if the
+ * {@link ProfilingClock} could measure them.
+ *
+ * <p>This class is thread-safe, and recording never takes a lock.
+ */
+public final class MethodProfile {
+
+  private final LatencyHistogram elapsed = new LatencyHistogram();
+  private final LongAdder cpuNanos = new LongAdder();
+  private final LongAdder cpuCalls = new LongAdder();
+  private final LongAdder allocatedBytes = new LongAdder();
+  private final LongAdder allocationCalls = new LongAdder();
+
+  /**
+   * Records a call, counted as the given number of calls.
+   *
+   * @param elapsedNanos   the elapsed time of the call.
+   * @param cpuNanos       the CPU time used during the call, or a negative number if unknown.
+   * @param allocatedBytes the bytes allocated during the call, or a negative number if unknown.
+   * @param weight         the number of calls this call stands for.
+   */
+  void record(long elapsedNanos, long cpuNanos, long allocatedBytes, long weight) {
+    elapsed.record(elapsedNanos, weight);
+    if (cpuNanos >= 0) {
+      this.cpuNanos.add(cpuNanos * weight);
+      cpuCalls.add(weight);
+    }
+    if (allocatedBytes >= 0) {
+      this.allocatedBytes.add(allocatedBytes * weight);
+      allocationCalls.add(weight);
+    }
+  }
+
+  /**
+   * Returns the histogram of the elapsed time of the calls, which also holds the call count.
+   */
+  public LatencyHistogram getElapsed() {
+    return elapsed;
+  }
+
+  /**
+   * Returns the number of recorded calls.
+   */
+  public long getCount() {
+    return elapsed.getCount();
+  }
+
+  /**
+   * Returns the total CPU time used during the calls whose CPU time was measured.
+   */
+  public Duration getCpuTime() {
+    return Duration.ofNanos(cpuNanos.sum());
+  }
+
+  /**
+   * Returns the number of calls whose CPU time was measured.
+   */
+  public long getCpuTimeCount() {
+    return cpuCalls.sum();
+  }
+
+  /**
+   * Returns the total number of bytes allocated during the calls whose allocation was measured.
+   */
+  public long getAllocatedBytes() {
+    return allocatedBytes.sum();
+  }
+
+  /**
+   * Returns the number of calls whose allocation was measured.
+   */
+  public long getAllocatedBytesCount() {
+    return allocationCalls.sum();
+  }
+}
@@ -0,0 +1,42 @@
+package com.udacity.webcrawler.profiler;
+
+import java.util.Locale;
+
+/**
+ * The format the {@link Profiler} writes its data in.
+ */
+public enum ProfileFormat {
+
+  /**
+   * A line of text per profiled method, followed by the call tree, for people to read.
+   */
+  TEXT,
+
+  /**
+   * A single-line JSON object per run, with the aggregates and latency histogram of every
+   * profiled method. Runs appended to the same file form a JSON Lines file.
+   */
+  JSON,
+
+  /**
+   * A CSV row per profiled method, with the run in the first column. The header row is only
+   * written to an empty file, so runs appended to the same file form a single table.
+   */
+  CSV;
+
+  /**
+   * Returns the format that matches the extension of the given file name: {@link #JSON} for
+   * {@code .json} and {@code .jsonl} files, {@link #CSV} for {@code .csv} files, and
+   * {@link #TEXT} for anything else.
+   */
+  public static ProfileFormat forFileName(String fileName) {
+    String name = fileName.toLowerCase(Locale.ROOT);
+    if (name.endsWith(".json") || name.endsWith(".jsonl")) {
+      return JSON;
+    }
+    if (name.endsWith(".csv")) {
+      return CSV;
+    }
+    return TEXT;
+  }
+}
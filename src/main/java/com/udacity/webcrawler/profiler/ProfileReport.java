@@ -0,0 +1,191 @@
+package com.udacity.webcrawler.profiler;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Writes the profiling data of a single run in one of the {@link ProfileFormat}s.
+ *
+ * <p>The report is streamed to the {@link Writer} a method at a time, so the memory it takes
+ * depends on the number of profiled methods, and not on how often they were called. Every format
+ * includes the ID of the run, so that runs appended to the same file can be told apart.
+ */
+final class ProfileReport {
+
+  /**
+   * The columns of the {@link ProfileFormat#CSV} format. Times are in nanoseconds. The histogram
+   * column lists the non-empty buckets of the elapsed time histogram as
+   * {@code upperBoundNanos:count} pairs separated by semicolons.
+   */
+  static final String CSV_HEADER = "run_id,written_at,level,sample_interval,method,calls,"
+      + "total_ns,p50_ns,p90_ns,p99_ns,max_ns,cpu_ns,cpu_calls,allocated_bytes,allocation_calls,"
+      + "histogram";
+
+  private final String runId;
+  private final Instant writtenAt;
+  private final ProfilingLevel level;
+  private final int sampleInterval;
+  private final ProfilingState state;
+
+  ProfileReport(
+      String runId,
+      Instant writtenAt,
+      ProfilingLevel level,
+      int sampleInterval,
+      ProfilingState state) {
+    this.runId = Objects.requireNonNull(runId);
+    this.writtenAt = Objects.requireNonNull(writtenAt);
+    this.level = Objects.requireNonNull(level);
+    this.sampleInterval = sampleInterval;
+    this.state = Objects.requireNonNull(state);
+  }
+
+  /**
+   * Writes the report in the given format.
+   *
+   * @param format the format to write the report in.
+   * @param writer the destination of the report.
+   * @param header whether the {@link ProfileFormat#CSV} header row should be written; the other
+   *               formats ignore it.
+   */
+  void write(ProfileFormat format, Writer writer, boolean header) throws IOException {
+    switch (format) {
+      case TEXT -> writeText(writer);
+      case JSON -> writeJson(writer);
+      case CSV -> writeCsv(writer, header);
+    }
+    writer.flush();
+  }
+
+  /**
+   * Writes a header line with the time and ID of the run, a line for each profiled method as
+   * described in {@link ProfilingState#toString()}, and the call tree if profiled calls nested.
+   */
+  void writeText(Writer writer) throws IOException {
+    writer.write("Run at " + writtenAt + ", run ID " + runId);
+    if (level == ProfilingLevel.OFF) {
+      writer.write(" (profiling off)");
+    } else if (sampleInterval > 1) {
+      writer.write(" (sampled 1 in " + sampleInterval + " calls; counts and totals are estimates)");
+    }
+    writer.write("\n");
+    for (Map.Entry<String, MethodProfile> entry : state.getData().entrySet()) {
+      writer.write(ProfilingState.format(entry.getKey(), entry.getValue()));
+      writer.write("\n");
+    }
+    // The tree only adds information when profiled calls nest; otherwise it repeats the totals.
+    CallTree callTree = state.getCallTree();
+    if (callTree.isNested()) {
+      writer.write("Call tree (inclusive and exclusive time):\n");
+      writer.write(callTree.toString());
+      writer.write("\n");
+    }
+  }
+
+  /**
+   * Writes the run as a single line holding a JSON object, followed by a line separator.
+   */
+  void writeJson(Writer writer) throws IOException {
+    JsonGenerator json = new JsonFactory()
+        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+        .createGenerator(writer);
+    json.writeStartObject();
+    json.writeStringField("runId", runId);
+    json.writeStringField("writtenAt", writtenAt.toString());
+    json.writeStringField("level", level.name());
+    json.writeNumberField("sampleInterval", sampleInterval);
+    json.writeArrayFieldStart("methods");
+    for (Map.Entry<String, MethodProfile> entry : state.getData().entrySet()) {
+      MethodProfile profile = entry.getValue();
+      LatencyHistogram histogram = profile.getElapsed();
+      json.writeStartObject();
+      json.writeStringField("method", entry.getKey());
+      json.writeNumberField("calls", histogram.getCount());
+      json.writeNumberField("totalNanos", histogram.getTotal().toNanos());
+      json.writeNumberField("p50Nanos", histogram.getPercentile(50).toNanos());
+      json.writeNumberField("p90Nanos", histogram.getPercentile(90).toNanos());
+      json.writeNumberField("p99Nanos", histogram.getPercentile(99).toNanos());
+      json.writeNumberField("maxNanos", histogram.getMax().toNanos());
+      if (profile.getCpuTimeCount() > 0) {
+        json.writeNumberField("cpuNanos", profile.getCpuTime().toNanos());
+        json.writeNumberField("cpuCalls", profile.getCpuTimeCount());
+      }
+      if (profile.getAllocatedBytesCount() > 0) {
+        json.writeNumberField("allocatedBytes", profile.getAllocatedBytes());
+        json.writeNumberField("allocationCalls", profile.getAllocatedBytesCount());
+      }
+      json.writeArrayFieldStart("histogram");
+      histogram.forEachBucket((upperBoundNanos, count) -> {
+        json.writeStartObject();
+        json.writeNumberField("upperBoundNanos", upperBoundNanos);
+        json.writeNumberField("count", count);
+        json.writeEndObject();
+      });
+      json.writeEndArray();
+      json.writeEndObject();
+    }
+    json.writeEndArray();
+    json.writeEndObject();
+    json.flush();
+    writer.write("\n");
+  }
+
+  /**
+   * Writes a row for each profiled method, after the {@link #CSV_HEADER} row if asked to.
+   */
+  void writeCsv(Writer writer, boolean header) throws IOException {
+    if (header) {
+      writer.write(CSV_HEADER);
+      writer.write("\n");
+    }
+    for (Map.Entry<String, MethodProfile> entry : state.getData().entrySet()) {
+      MethodProfile profile = entry.getValue();
+      LatencyHistogram histogram = profile.getElapsed();
+      StringBuilder row = new StringBuilder()
+          .append(csv(runId)).append(',')
+          .append(writtenAt).append(',')
+          .append(level.name()).append(',')
+          .append(sampleInterval).append(',')
+          .append(csv(entry.getKey())).append(',')
+          .append(histogram.getCount()).append(',')
+          .append(histogram.getTotal().toNanos()).append(',')
+          .append(histogram.getPercentile(50).toNanos()).append(',')
+          .append(histogram.getPercentile(90).toNanos()).append(',')
+          .append(histogram.getPercentile(99).toNanos()).append(',')
+          .append(histogram.getMax().toNanos()).append(',');
+      // Measurements that were not taken are left empty rather than written as zero.
+      if (profile.getCpuTimeCount() > 0) {
+        row.append(profile.getCpuTime().toNanos());
+      }
+      row.append(',').append(profile.getCpuTimeCount()).append(',');
+      if (profile.getAllocatedBytesCount() > 0) {
+        row.append(profile.getAllocatedBytes());
+      }
+      row.append(',').append(profile.getAllocatedBytesCount()).append(',');
+      int start = row.length();
+      histogram.forEachBucket((upperBoundNanos, count) -> {
+        if (row.length() > start) {
+          row.append(';');
+        }
+        row.append(upperBoundNanos).append(':').append(count);
+      });
+      writer.write(row.append('\n').toString());
+    }
+  }
+
+  /**
+   * Quotes the given CSV field if it contains a character that would otherwise end it.
+   */
+  private static String csv(String field) {
+    if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0) {
+      return field;
+    }
+    return '"' + field.replace("\"", "\"\"") + '"';
+  }
+}
@@ -0,0 +1,43 @@
+package com.udacity.webcrawler.profiler;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A Java Flight Recorder event for a call to a {@link Profiled} method.
+ *
+ * <p>By default only calls that take at least 20 ms are recorded. The event is emitted for every
+ * call to a profiled method, whether or not the profiler samples it.
+ */
+@Name("com.udacity.webcrawler.ProfiledMethod")
+@Label("Profiled Method")
+@Category("Web Crawler")
+@Description("A call to a method annotated with @Profiled")
+@Threshold("20 ms")
+@StackTrace(false)
+final class ProfiledMethodEvent extends Event {
+
+  @Label("Class")
+  String className;
+
+  @Label("Method")
+  String methodName;
+
+  /**
+   * Ends the call to the given method, and commits the event if it is enabled and took at least
+   * the threshold.
+   */
+  void finish(Class<?> klass, String methodName) {
+    end();
+    if (shouldCommit()) {
+      this.className = klass.getName();
+      this.methodName = methodName;
+      commit();
+    }
+  }
+}
@@ -3,6 +3,7 @@ package com.udacity.webcrawler.profiler;
 import java.io.IOException;
 import java.io.Writer;
 import java.nio.file.Path;
+import java.util.Map;
 
 /**
  * A utility that wraps an object that should be performance profiled.
@@ -30,7 +31,8 @@ public interface Profiler {
    * Formats the profile data as a string and writes it to the given {@link Path}.
    *
    * <p>If a file already exists at the path, the existing file should not be deleted; new data
-   * should be appended to it.
+   * should be appended to it. The data is written in the {@link ProfileFormat} the profiler was
+   * configured with.
    *
    * @param path the destination where the formatted data should be written.
    * @throws IOException if there was a problem writing the data to file.
@@ -44,4 +46,14 @@ public interface Profiler {
    * @throws IOException if there was a problem writing the data.
    */
   void writeData(Writer writer) throws IOException;
+
+  /**
+   * Returns the profile of every profiled method called so far, keyed by
+   * {@code "fully.qualified.ClassName#methodName"}. This can be called while calls are being
+   * recorded, for example to export the data during a crawl; the profiles keep changing as calls
+   * are recorded.
+   */
+  default Map<String, MethodProfile> getData() {
+    return Map.of();
+  }
 }
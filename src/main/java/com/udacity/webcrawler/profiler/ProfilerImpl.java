@@ -4,28 +4,85 @@ import javax.inject.Inject;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.Writer;
-import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.time.Clock;
 import java.time.Instant;
-import java.util.Arrays;
+import java.util.Map;
 import java.util.Objects;
+import java.util.UUID;
 
 /**
  * A method interceptor that checks whether {@link Profiled} methods are called and records their
  * execution times.
+ *
+ * <p>Each profiler is a single run, with a random ID that is written with its data in every
+ * {@link ProfileFormat}.
  */
 final class ProfilerImpl implements Profiler {
 
   private final Clock clock;
+  private final ProfilingClock profilingClock;
+  private final ProfilingLevel level;
+  private final int sampleInterval;
+  private final ProfileFormat format;
+  private final String runId = UUID.randomUUID().toString();
   private final ProfilingState state = new ProfilingState();
 
   @Inject
   ProfilerImpl(Clock clock) {
+    this(clock, ProfilingLevel.FULL, 1);
+  }
+
+  /**
+   * Creates a profiler with the given profiling level.
+   *
+   * @param clock          the clock used to time calls.
+   * @param level          how much the profiler records.
+   * @param sampleInterval when the level is {@link ProfilingLevel#SAMPLED}, the profiler records
+   *                       one in this many calls, on average.
+   */
+  ProfilerImpl(Clock clock, ProfilingLevel level, int sampleInterval) {
+    this(clock, ProfilingClock.fromClock(clock), level, sampleInterval);
+  }
+
+  /**
+   * Creates a profiler with the given profiling level that times calls with a
+   * {@link ProfilingClock}, which can also measure CPU time and allocation.
+   *
+   * @param clock          the clock used to timestamp the profiling data.
+   * @param profilingClock the clock used to time calls.
+   * @param level          how much the profiler records.
+   * @param sampleInterval when the level is {@link ProfilingLevel#SAMPLED}, the profiler records
+   *                       one in this many calls, on average.
+   */
+  ProfilerImpl(
+      Clock clock, ProfilingClock profilingClock, ProfilingLevel level, int sampleInterval) {
+    this(clock, profilingClock, level, sampleInterval, ProfileFormat.TEXT);
+  }
+
+  /**
+   * Creates a profiler with the given profiling level, which writes its data in the given format.
+   *
+   * @param clock          the clock used to timestamp the profiling data.
+   * @param profilingClock the clock used to time calls.
+   * @param level          how much the profiler records.
+   * @param sampleInterval when the level is {@link ProfilingLevel#SAMPLED}, the profiler records
+   *                       one in this many calls, on average.
+   * @param format         the format {@link #writeData} writes the data in.
+   */
+  ProfilerImpl(
+      Clock clock,
+      ProfilingClock profilingClock,
+      ProfilingLevel level,
+      int sampleInterval,
+      ProfileFormat format) {
     this.clock = Objects.requireNonNull(clock);
+    this.profilingClock = Objects.requireNonNull(profilingClock);
+    this.level = Objects.requireNonNull(level);
+    this.sampleInterval = level == ProfilingLevel.SAMPLED ? sampleInterval : 1;
+    this.format = Objects.requireNonNull(format);
   }
 
   @Override
@@ -33,41 +90,67 @@ final class ProfilerImpl implements Profiler {
     Objects.requireNonNull(klass);
     Objects.requireNonNull(delegate);
 
-    // Check if the class has any @Profiled methods
-    boolean hasProfiledMethods = Arrays.stream(klass.getDeclaredMethods())
-            .anyMatch(method -> method.isAnnotationPresent(Profiled.class));
-
-    if (!hasProfiledMethods) {
+    // Everything that only depends on the interface is cached by its factory
+    ProfilingProxyFactory factory = ProfilingProxyFactory.forInterface(klass);
+    if (!factory.hasProfiledMethods()) {
       throw new IllegalArgumentException(klass.getName() + " does not have any @Profiled methods");
     }
+    if (level == ProfilingLevel.OFF) {
+      return delegate;
+    }
 
-    // Create a dynamic proxy - pass klass to the interceptor
-    Object proxy = Proxy.newProxyInstance(
-            klass.getClassLoader(),
-            new Class[]{klass},
-            new ProfilingMethodInterceptor(clock, state, delegate)  // Pass klass here
-    );
+    Object proxy = factory.newProxy(
+        new ProfilingMethodInterceptor(profilingClock, state, delegate, factory, sampleInterval));
 
     return klass.cast(proxy);
   }
 
+  /**
+   * Returns the profiling data gathered so far.
+   */
+  ProfilingState getState() {
+    return state;
+  }
+
+  /**
+   * Returns the ID of this run, which is written with the profiling data.
+   */
+  String getRunId() {
+    return runId;
+  }
+
+  @Override
+  public Map<String, MethodProfile> getData() {
+    return state.getData();
+  }
+
   @Override
   public void writeData(Path path) throws IOException {
     Objects.requireNonNull(path);
 
+    // Runs appended to a CSV file share the header row of the first run.
+    boolean header = Files.notExists(path) || Files.size(path) == 0;
     try (BufferedWriter writer = Files.newBufferedWriter(path,
             StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
-      writeData(writer);
+      report().write(format, writer, header);
     }
   }
 
   @Override
   public void writeData(Writer writer) throws IOException {
     Objects.requireNonNull(writer);
+    report().write(format, writer, true);
+  }
+
+  /**
+   * Writes the profiling data in the given format, whatever format this profiler was created
+   * with.
+   */
+  void writeData(ProfileFormat format, Writer writer) throws IOException {
+    report().write(Objects.requireNonNull(format), Objects.requireNonNull(writer), true);
+  }
 
-    writer.write("Run at " + Instant.now(clock) + "\n");
-    writer.write(state.toString());
-    writer.write("\n");
-    writer.flush();
+  private ProfileReport report() {
+    return new ProfileReport(runId, Instant.now(clock), level, sampleInterval, state);
   }
 }
\ No newline at end of file
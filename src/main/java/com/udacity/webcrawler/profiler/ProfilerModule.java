@@ -5,16 +5,59 @@ import com.google.inject.Provides;
 import com.google.inject.Singleton;
 
 import java.time.Clock;
+import java.util.Objects;
 
 /**
  * Guice dependency injection module that installs a {@link Profiler} singleton.
  *
- * <p>Requires a {@link java.time.Clock} to already be bound.
+ * <p>Requires a {@link java.time.Clock} to already be bound. The clock only timestamps the
+ * profiling data; calls are timed with {@link ProfilingClock#system()}, which also measures the
+ * CPU time and memory each call uses.
  */
 public final class ProfilerModule extends AbstractModule {
+
+  private final ProfilingLevel level;
+  private final int sampleInterval;
+  private final ProfileFormat format;
+
+  /**
+   * Installs a profiler that records every call to a profiled method.
+   */
+  public ProfilerModule() {
+    this(ProfilingLevel.FULL, 1);
+  }
+
+  /**
+   * Installs a profiler with the given profiling level.
+   *
+   * @param level          how much the profiler records.
+   * @param sampleInterval when the level is {@link ProfilingLevel#SAMPLED}, the profiler records
+   *                       one in this many calls, on average.
+   */
+  public ProfilerModule(ProfilingLevel level, int sampleInterval) {
+    this(level, sampleInterval, ProfileFormat.TEXT);
+  }
+
+  /**
+   * Installs a profiler with the given profiling level, which writes its data in the given format.
+   *
+   * @param level          how much the profiler records.
+   * @param sampleInterval when the level is {@link ProfilingLevel#SAMPLED}, the profiler records
+   *                       one in this many calls, on average.
+   * @param format         the format the profiler writes its data in.
+   */
+  public ProfilerModule(ProfilingLevel level, int sampleInterval, ProfileFormat format) {
+    if (sampleInterval <= 0) {
+      throw new IllegalArgumentException("sampleInterval must be positive");
+    }
+    this.level = Objects.requireNonNull(level);
+    this.sampleInterval = sampleInterval;
+    this.format = Objects.requireNonNull(format);
+  }
+
   @Provides
   @Singleton
   Profiler provideProfiler(Clock clock) {
-    return new ProfilerImpl(clock);
+    return new ProfilerImpl(clock, ProfilingClock.system(), level, sampleInterval, format);
   }
 }
@@ -0,0 +1,67 @@
+package com.udacity.webcrawler.profiler;
+
+import java.lang.management.ThreadMXBean;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * The source of the measurements the profiler takes before and after each profiled call: elapsed
+ * time, CPU time used by the current thread, and bytes allocated by the current thread.
+ *
+ * <p>Production code should use {@link #system()}. Tests can drive the profiler from a fake
+ * {@link Clock} with {@link #fromClock(Clock)}, or implement this interface directly.
+ */
+public interface ProfilingClock {
+
+  /**
+   * Returns a monotonic time in nanoseconds, which is only meaningful relative to other values
+   * returned by the same clock.
+   */
+  long nanoTime();
+
+  /**
+   * Returns the CPU time used by the current thread so far, in nanoseconds, or a negative number
+   * if it cannot be measured.
+   */
+  long threadCpuNanos();
+
+  /**
+   * Returns the number of bytes allocated by the current thread so far, or a negative number if
+   * it cannot be measured.
+   */
+  long threadAllocatedBytes();
+
+  /**
+   * Returns a clock based on {@link System#nanoTime()} and the JVM's {@link ThreadMXBean}. CPU
+   * time and allocation are only measured if the JVM supports them and has them enabled.
+   */
+  static ProfilingClock system() {
+    return SystemProfilingClock.INSTANCE;
+  }
+
+  /**
+   * Returns a clock that measures elapsed time with the given {@link Clock}, and does not measure
+   * CPU time or allocation.
+   */
+  static ProfilingClock fromClock(Clock clock) {
+    Objects.requireNonNull(clock);
+    return new ProfilingClock() {
+      @Override
+      public long nanoTime() {
+        Instant now = clock.instant();
+        return now.getEpochSecond() * 1_000_000_000L + now.getNano();
+      }
+
+      @Override
+      public long threadCpuNanos() {
+        return -1;
+      }
+
+      @Override
+      public long threadAllocatedBytes() {
+        return -1;
+      }
+    };
+  }
+}
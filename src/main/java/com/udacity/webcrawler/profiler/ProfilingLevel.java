@@ -0,0 +1,24 @@
+package com.udacity.webcrawler.profiler;
+
+/**
+ * How much of the time spent in {@link Profiled} methods the {@link Profiler} records.
+ */
+public enum ProfilingLevel {
+
+  /**
+   * Nothing is recorded, and {@link Profiler#wrap} returns its delegate as it is, so profiling
+   * costs nothing at all.
+   */
+  OFF,
+
+  /**
+   * A random sample of calls is recorded, and each recorded call is counted as many times as the
+   * sample interval, so that call counts and total times are estimates of the real ones.
+   */
+  SAMPLED,
+
+  /**
+   * Every call is recorded.
+   */
+  FULL
+}
@@ -2,57 +2,92 @@ package com.udacity.webcrawler.profiler;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
-import java.time.Clock;
-import java.time.Duration;
-import java.time.Instant;
 import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * A method interceptor that checks whether {@link Profiled} methods are called and records their
- * execution times.
+ * execution times, along with the CPU time and memory the calling thread used during the call.
+ *
+ * <p>Whether a method is profiled, and how to call it, is looked up in the
+ * {@link ProfilingProxyFactory} of the proxy's interface rather than worked out on every call,
+ * and the profiles the calls are recorded in are resolved once, when the interceptor is created.
+ *
+ * <p>When every call is recorded, the calls are also added to the {@link CallTree} of the state,
+ * under the profiled calls the current thread is in.
+ *
+ * <p>Every call to a profiled method is also emitted as a {@link ProfiledMethodEvent} to Java
+ * Flight Recorder, which records it if a recording is running and the call took long enough.
+ *
+ * <p>With a sample interval greater than one, each call to a profiled method is recorded with a
+ * probability of one in the interval, and counted as that many calls.
  */
 final class ProfilingMethodInterceptor implements InvocationHandler {
 
-  private final Clock clock;
+  private final ProfilingClock clock;
   private final ProfilingState state;
   private final Object delegate;
+  private final ProfilingProxyFactory factory;
+  private final ProfilingState.ProfiledMethod[] profiledMethods;
+  private final int sampleInterval;
 
-  ProfilingMethodInterceptor(Clock clock, ProfilingState state, Object delegate) {
+  ProfilingMethodInterceptor(
+      ProfilingClock clock,
+      ProfilingState state,
+      Object delegate,
+      ProfilingProxyFactory factory,
+      int sampleInterval) {
     this.clock = Objects.requireNonNull(clock);
     this.state = Objects.requireNonNull(state);
     this.delegate = Objects.requireNonNull(delegate);
+    this.factory = Objects.requireNonNull(factory);
+    this.profiledMethods = state.resolve(delegate.getClass(), factory);
+    this.sampleInterval = sampleInterval;
   }
 
   @Override
   public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-    // Skip profiling for Object methods (equals, hashCode, toString)
-    if (method.getDeclaringClass().equals(Object.class)) {
-      return method.invoke(delegate, args);
+    ProfilingProxyFactory.Target target = factory.targetOf(method);
+    if (target == null) {
+      throw new IllegalStateException("Unexpected method " + method);
     }
+    if (!target.isProfiled()) {
+      return target.invoke(delegate, args);
+    }
+    ProfiledMethodEvent event = new ProfiledMethodEvent();
+    event.begin();
+    try {
+      return profile(target, profiledMethods[target.getIndex()], args);
+    } finally {
+      event.finish(delegate.getClass(), method.getName());
+    }
+  }
 
-    // Check if the method has @Profiled annotation
-    boolean isProfiled = method.isAnnotationPresent(Profiled.class);
-
-    Instant start = null;
-    if (isProfiled) {
-      start = clock.instant();
+  /**
+   * Calls the given profiled method on the delegate, and records the call unless it is not
+   * sampled.
+   */
+  private Object profile(
+      ProfilingProxyFactory.Target target, ProfilingState.ProfiledMethod method, Object[] args)
+      throws Throwable {
+    if (sampleInterval > 1 && ThreadLocalRandom.current().nextInt(sampleInterval) != 0) {
+      return target.invoke(delegate, args);
     }
 
+    CallTree.Stack stack = sampleInterval == 1 ? state.getCallTree().enter(method.key()) : null;
+    long startCpu = clock.threadCpuNanos();
+    long startAllocated = clock.threadAllocatedBytes();
+    long start = clock.nanoTime();
     try {
-      // Invoke the original method
-      return method.invoke(delegate, args);
-    } catch (Throwable t) {
-      // Re-throw the original exception
-      Throwable cause = t.getCause();
-      throw cause != null ? cause : t;
+      return target.invoke(delegate, args);
     } finally {
-      // Record the duration if the method was profiled
-      if (isProfiled && start != null) {
-        Instant end = clock.instant();
-        Duration duration = Duration.between(start, end);
-        // Use delegate.getClass() to get the actual implementation class
-        state.record(delegate.getClass(), method, duration);
+      long elapsed = clock.nanoTime() - start;
+      long cpu = startCpu < 0 ? -1 : clock.threadCpuNanos() - startCpu;
+      long allocated = startAllocated < 0 ? -1 : clock.threadAllocatedBytes() - startAllocated;
+      method.profile().record(elapsed, cpu, allocated, sampleInterval);
+      if (stack != null) {
+        stack.exit(elapsed);
       }
     }
   }
-}
\ No newline at end of file
+}
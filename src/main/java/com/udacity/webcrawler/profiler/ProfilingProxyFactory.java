@@ -0,0 +1,204 @@
+package com.udacity.webcrawler.profiler;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates profiling proxies for a single interface.
+ *
+ * <p>Everything that only depends on the interface is worked out once and cached for the lifetime
+ * of the interface: the proxy class and its constructor, which methods are {@link Profiled}, and a
+ * {@link MethodHandle} for calling each method on a delegate. Wrapping a new delegate is then
+ * little more than allocating the proxy and its {@link ProfilingMethodInterceptor}, which matters
+ * for interfaces such as {@code PageParser} that get wrapped once for every page crawled.
+ *
+ * <p>Each profiled method is numbered by its position in {@link #getProfiledMethods()}, so that the
+ * {@link ProfilingState} can resolve the profiles of a delegate class into an array once, and
+ * calls find their profile by index.
+ *
+ * <p>This class is thread-safe.
+ */
+final class ProfilingProxyFactory {
+
+  private static final ClassValue<ProfilingProxyFactory> FACTORIES =
+      new ClassValue<>() {
+        @Override
+        protected ProfilingProxyFactory computeValue(Class<?> klass) {
+          return new ProfilingProxyFactory(klass);
+        }
+      };
+
+  private static final MethodType GENERIC_TYPE =
+      MethodType.methodType(Object.class, Object.class, Object[].class);
+
+  private final Class<?> klass;
+  private final List<Method> profiledMethods;
+  private final Constructor<?> constructor;
+  private final Map<Method, Target> targets;
+
+  private ProfilingProxyFactory(Class<?> klass) {
+    if (!klass.isInterface()) {
+      throw new IllegalArgumentException(klass.getName() + " is not an interface");
+    }
+    this.klass = klass;
+
+    Map<Method, Target> targets = new HashMap<>();
+    List<Method> profiledMethods = new ArrayList<>();
+    for (Method method : klass.getMethods()) {
+      int index = -1;
+      if (method.isAnnotationPresent(Profiled.class)) {
+        index = profiledMethods.size();
+        profiledMethods.add(method);
+      }
+      targets.put(method, new Target(handleFor(method), index));
+    }
+    // The proxy also routes these Object methods through its invocation handler.
+    for (String name : new String[] {"equals", "hashCode", "toString"}) {
+      Method method = Arrays.stream(Object.class.getMethods())
+          .filter(m -> m.getName().equals(name))
+          .findFirst()
+          .orElseThrow();
+      targets.put(method, new Target(handleFor(method), -1));
+    }
+    this.profiledMethods = List.copyOf(profiledMethods);
+    this.targets = Map.copyOf(targets);
+
+    Class<?> proxyClass = Proxy.newProxyInstance(
+        klass.getClassLoader(), new Class<?>[] {klass}, (proxy, method, args) -> null).getClass();
+    try {
+      this.constructor = proxyClass.getConstructor(InvocationHandler.class);
+    } catch (NoSuchMethodException e) {
+      throw new IllegalStateException("Proxy class without the standard constructor", e);
+    }
+  }
+
+  /**
+   * Returns the factory for the given interface.
+   */
+  static ProfilingProxyFactory forInterface(Class<?> klass) {
+    return FACTORIES.get(klass);
+  }
+
+  /**
+   * Returns true if the interface has at least one {@link Profiled} method.
+   */
+  boolean hasProfiledMethods() {
+    return !profiledMethods.isEmpty();
+  }
+
+  /**
+   * Returns the {@link Profiled} methods of the interface, in the order of their indexes.
+   */
+  List<Method> getProfiledMethods() {
+    return profiledMethods;
+  }
+
+  /**
+   * Returns a proxy that implements the interface by forwarding every call to the given handler.
+   */
+  Object newProxy(InvocationHandler handler) {
+    try {
+      return constructor.newInstance(handler);
+    } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+      throw new IllegalStateException("Could not create a proxy for " + klass.getName(), e);
+    }
+  }
+
+  /**
+   * Returns how to call the given method, which was passed to the invocation handler of one of
+   * this factory's proxies, or null if it is not a method of the interface.
+   */
+  Target targetOf(Method method) {
+    return targets.get(method);
+  }
+
+  /**
+   * Returns a {@link MethodHandle} that calls the given method with a receiver and an array of
+   * arguments, and returns the result as an {@link Object}.
+   */
+  private static MethodHandle handleFor(Method method) {
+    try {
+      // Interfaces that are not public still need to be callable, so skip the access check.
+      method.setAccessible(true);
+      return MethodHandles.lookup()
+          .unreflect(method)
+          .asSpreader(Object[].class, method.getParameterCount())
+          .asType(GENERIC_TYPE);
+    } catch (IllegalAccessException | RuntimeException e) {
+      // Fall back to reflection for methods that cannot be opened up, such as those of an
+      // interface in a module that does not open its package.
+      return Target.REFLECTIVE_INVOKE.bindTo(method);
+    }
+  }
+
+  /**
+   * A method of the interface, and how to call it on a delegate.
+   */
+  static final class Target {
+    private static final Object[] NO_ARGS = new Object[0];
+    private static final MethodHandle REFLECTIVE_INVOKE;
+
+    static {
+      try {
+        REFLECTIVE_INVOKE = MethodHandles.lookup().findStatic(
+            Target.class,
+            "invokeReflectively",
+            MethodType.methodType(Object.class, Method.class, Object.class, Object[].class));
+      } catch (NoSuchMethodException | IllegalAccessException e) {
+        throw new ExceptionInInitializerError(e);
+      }
+    }
+
+    private final MethodHandle handle;
+    private final int index;
+
+    Target(MethodHandle handle, int index) {
+      this.handle = handle;
+      this.index = index;
+    }
+
+    /**
+     * Returns true if calls to this method should be profiled.
+     */
+    boolean isProfiled() {
+      return index >= 0;
+    }
+
+    /**
+     * Returns the position of this method in {@link #getProfiledMethods()}, or -1 if it is not
+     * profiled.
+     */
+    int getIndex() {
+      return index;
+    }
+
+    /**
+     * Calls this method on the given delegate. Exceptions thrown by the method are thrown as they
+     * are, without being wrapped.
+     */
+    Object invoke(Object delegate, Object[] args) throws Throwable {
+      Object[] arguments = args == null ? NO_ARGS : args;
+      return (Object) handle.invokeExact(delegate, arguments);
+    }
+
+    private static Object invokeReflectively(Method method, Object delegate, Object[] args)
+        throws Throwable {
+      try {
+        return method.invoke(delegate, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+  }
+}
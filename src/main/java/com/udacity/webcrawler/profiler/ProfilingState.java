@@ -1,23 +1,36 @@
 package com.udacity.webcrawler.profiler;
 
+import java.lang.reflect.Method;
 import java.time.Duration;
-import java.time.Instant;
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A container class that holds profiling information about the execution of {@link Profiled}
  * methods.
  *
- * <p>This class is thread-safe.
+ * <p>Each profiled method has a {@link MethodProfile} with a histogram of its running times, which
+ * takes the same amount of memory no matter how often the method is called. Methods are identified
+ * by their class and name, so overloads of the same method share a profile.
+ *
+ * <p>Profiling proxies look up the profiles of their methods once for each class they wrap, with
+ * {@link #resolve(Class, ProfilingProxyFactory)}, so that profiled calls record without looking up
+ * or allocating a key.
+ *
+ * <p>This class is thread-safe, and recording never takes a lock.
  */
 public final class ProfilingState {
 
-  private final Map<String, List<Duration>> state = new HashMap<>();
+  private final ConcurrentMap<MethodKey, MethodProfile> state = new ConcurrentHashMap<>();
+  private final CallTree callTree = new CallTree();
+  private final ConcurrentMap<Class<?>, ConcurrentMap<ProfilingProxyFactory, ProfiledMethod[]>>
+      resolved = new ConcurrentHashMap<>();
 
   /**
    * Records that the given {@link Profiled} method executed for the specified {@link Duration}.
@@ -26,32 +39,107 @@ public final class ProfilingState {
    * @param method the profiled method.
    * @param duration the length of time the method took to execute.
    */
-  public void record(Class<?> klass, java.lang.reflect.Method method, Duration duration) {
-    Objects.requireNonNull(klass);
-    Objects.requireNonNull(method);
+  public void record(Class<?> klass, Method method, Duration duration) {
+    record(klass, method, duration, 1);
+  }
+
+  /**
+   * Records that the given {@link Profiled} method executed for the specified {@link Duration},
+   * counting it as the given number of calls. This is used for sampled calls.
+   *
+   * @param klass the class containing the profiled method.
+   * @param method the profiled method.
+   * @param duration the length of time the method took to execute.
+   * @param weight the number of calls this call stands for.
+   */
+  public void record(Class<?> klass, Method method, Duration duration, long weight) {
     Objects.requireNonNull(duration);
+    profile(klass, method).record(duration.toNanos(), -1, -1, weight);
+  }
+
+  /**
+   * Records a call to the given {@link Profiled} method, counted as the given number of calls.
+   *
+   * @param klass the class containing the profiled method.
+   * @param method the profiled method.
+   * @param elapsedNanos the elapsed time of the call.
+   * @param cpuNanos the CPU time used during the call, or a negative number if unknown.
+   * @param allocatedBytes the bytes allocated during the call, or a negative number if unknown.
+   * @param weight the number of calls this call stands for.
+   */
+  public void record(
+      Class<?> klass,
+      Method method,
+      long elapsedNanos,
+      long cpuNanos,
+      long allocatedBytes,
+      long weight) {
+    profile(klass, method).record(elapsedNanos, cpuNanos, allocatedBytes, weight);
+  }
+
+  /**
+   * Returns the calls recorded by call path. Only calls recorded by a profiler that records every
+   * call are added to the tree, since sampling would break up the paths.
+   */
+  CallTree getCallTree() {
+    return callTree;
+  }
 
-    synchronized (state) {
-      String key = klass.getName() + "#" + method.getName();
-      state.computeIfAbsent(key, k -> new ArrayList<>()).add(duration);
+  /**
+   * Returns the profile of the given method, creating it if needed.
+   *
+   * @param klass the class containing the profiled method.
+   * @param method the profiled method.
+   */
+  MethodProfile profile(Class<?> klass, Method method) {
+    return profile(new MethodKey(klass, method.getName()));
+  }
+
+  private MethodProfile profile(MethodKey key) {
+    MethodProfile profile = state.get(key);
+    if (profile != null) {
+      return profile;
     }
+    return state.computeIfAbsent(key, k -> new MethodProfile());
   }
 
   /**
-   * Returns a {@link Map} containing all the profiling data. The keys of the map are fully
-   * qualified method names, formatted as "{@code com.example.ClassName#methodName}". The values
-   * are {@link List}s of {@link Duration}s, each of which is a recorded invocation of that method.
+   * Returns the profiled methods of the given factory's interface as implemented by the given
+   * class, indexed like {@link ProfilingProxyFactory#getProfiledMethods()}. The array is worked
+   * out the first time and shared after that, so it must not be modified.
    *
-   * <p>The returned map is an unmodifiable copy of the profiling data.
+   * @param klass the class of the delegate the proxy calls.
+   * @param factory the factory of the proxy's interface.
    */
-  public Map<String, List<Duration>> getData() {
-    synchronized (state) {
-      Map<String, List<Duration>> copy = new HashMap<>();
-      for (Map.Entry<String, List<Duration>> entry : state.entrySet()) {
-        copy.put(entry.getKey(), new ArrayList<>(entry.getValue()));
-      }
-      return Collections.unmodifiableMap(copy);
+  ProfiledMethod[] resolve(Class<?> klass, ProfilingProxyFactory factory) {
+    ConcurrentMap<ProfilingProxyFactory, ProfiledMethod[]> byFactory =
+        resolved.computeIfAbsent(klass, k -> new ConcurrentHashMap<>());
+    ProfiledMethod[] methods = byFactory.get(factory);
+    if (methods != null) {
+      return methods;
     }
+    return byFactory.computeIfAbsent(factory, f -> {
+      List<Method> profiledMethods = f.getProfiledMethods();
+      ProfiledMethod[] result = new ProfiledMethod[profiledMethods.size()];
+      for (int i = 0; i < result.length; i++) {
+        result[i] = new ProfiledMethod(new MethodKey(klass, profiledMethods.get(i).getName()));
+      }
+      return result;
+    });
+  }
+
+  /**
+   * Returns a {@link Map} containing all the profiling data, sorted by key. The keys of the map
+   * are fully qualified method names, formatted as "{@code com.example.ClassName#methodName}".
+   * The values are the live profiles of those methods.
+   *
+   * <p>The returned map is unmodifiable. Methods that are first called after this method returns
+   * are not added to it.
+   */
+  public Map<String, MethodProfile> getData() {
+    Map<String, MethodProfile> copy = new TreeMap<>();
+    state.forEach((key, profile) -> copy.put(key.toString(), profile));
+    return Collections.unmodifiableMap(copy);
   }
 
   /**
@@ -61,15 +149,9 @@ public final class ProfilingState {
    * @param method the profiled method.
    * @return the call count.
    */
-  public int getInvocationCount(Class<?> klass, java.lang.reflect.Method method) {
-    Objects.requireNonNull(klass);
-    Objects.requireNonNull(method);
-
-    String key = klass.getName() + "#" + method.getName();
-    synchronized (state) {
-      List<Duration> durations = state.get(key);
-      return durations != null ? durations.size() : 0;
-    }
+  public int getInvocationCount(Class<?> klass, Method method) {
+    MethodProfile profile = state.get(new MethodKey(klass, method.getName()));
+    return profile != null ? (int) profile.getCount() : 0;
   }
 
   /**
@@ -79,61 +161,122 @@ public final class ProfilingState {
    * @param method the profiled method.
    * @return the total duration.
    */
-  public Duration getTotalDuration(Class<?> klass, java.lang.reflect.Method method) {
-    Objects.requireNonNull(klass);
-    Objects.requireNonNull(method);
-
-    String key = klass.getName() + "#" + method.getName();
-    synchronized (state) {
-      List<Duration> durations = state.get(key);
-      if (durations == null) {
-        return Duration.ZERO;
-      }
-      return durations.stream().reduce(Duration.ZERO, Duration::plus);
-    }
+  public Duration getTotalDuration(Class<?> klass, Method method) {
+    MethodProfile profile = state.get(new MethodKey(klass, method.getName()));
+    return profile != null ? profile.getElapsed().getTotal() : Duration.ZERO;
   }
 
   /**
    * Formats this {@link ProfilingState} as a string that can be written to a file or printed to the
    * console.
    *
-   * <p>The format of each line is:
+   * <p>Each profiled method has a single line with its total running time, followed by the number
+   * of calls and the distribution of the running time of a single call, in milliseconds:
    * <pre>
-   *   fully.qualified.ClassName#methodName took 1m 30s 500ms
+   *   fully.qualified.ClassName#methodName took 1m 30s 500ms (120 calls; p50 510.000ms,
+   *   p90 1020.000ms, p99 2040.000ms, max 2100.000ms; cpu 120.500ms/call, 2048 bytes/call)
    * </pre>
    *
-   * <p>If the same method was called multiple times, each invocation appears on its own line.
+   * <p>The CPU time and allocation per call are left out if they were not measured.
    *
    * @return the formatted string.
    */
   @Override
   public String toString() {
     StringBuilder builder = new StringBuilder();
-    synchronized (state) {
-      List<String> keys = new ArrayList<>(state.keySet());
-      Collections.sort(keys);
-
-      for (String key : keys) {
-        List<Duration> durations = state.get(key);
-        for (Duration duration : durations) {
-          long minutes = duration.toMinutes();
-          long seconds = duration.minusMinutes(minutes).getSeconds();
-          long milliseconds = duration.minusMinutes(minutes).minusSeconds(seconds).toMillis();
-
-          builder.append(key)
-                  .append(" took ")
-                  .append(minutes)
-                  .append('m')
-                  .append(' ')
-                  .append(seconds)
-                  .append('s')
-                  .append(' ')
-                  .append(milliseconds)
-                  .append("ms")
-                  .append(System.lineSeparator());
-        }
+    getData().forEach((key, profile) -> builder.append(format(key, profile))
+        .append(System.lineSeparator()));
+    return builder.toString().trim();
+  }
+
+  /**
+   * Formats the profile of a single method as a line of text, as described in
+   * {@link #toString()}, without a line separator.
+   *
+   * @param key     the fully qualified name of the method.
+   * @param profile the profile of the method.
+   */
+  static String format(String key, MethodProfile profile) {
+    StringBuilder builder = new StringBuilder();
+    LatencyHistogram histogram = profile.getElapsed();
+    Duration total = histogram.getTotal();
+    long minutes = total.toMinutes();
+    long seconds = total.minusMinutes(minutes).getSeconds();
+    long milliseconds = total.minusMinutes(minutes).minusSeconds(seconds).toMillis();
+
+    builder.append(key)
+        .append(" took ")
+        .append(minutes)
+        .append('m')
+        .append(' ')
+        .append(seconds)
+        .append('s')
+        .append(' ')
+        .append(milliseconds)
+        .append("ms")
+        .append(String.format(
+            Locale.ROOT,
+            " (%d calls; p50 %s, p90 %s, p99 %s, max %s",
+            histogram.getCount(),
+            formatMillis(histogram.getPercentile(50)),
+            formatMillis(histogram.getPercentile(90)),
+            formatMillis(histogram.getPercentile(99)),
+            formatMillis(histogram.getMax())));
+    if (profile.getCpuTimeCount() > 0) {
+      builder.append("; cpu ")
+          .append(formatMillis(profile.getCpuTime().dividedBy(profile.getCpuTimeCount())))
+          .append("/call");
+    }
+    if (profile.getAllocatedBytesCount() > 0) {
+      builder.append(profile.getCpuTimeCount() > 0 ? ", " : "; ")
+          .append(profile.getAllocatedBytes() / profile.getAllocatedBytesCount())
+          .append(" bytes/call");
+    }
+    return builder.append(')').toString();
+  }
+
+  static String formatMillis(Duration duration) {
+    return String.format(Locale.ROOT, "%.3fms", duration.toNanos() / 1e6);
+  }
+
+  /**
+   * A profiled method of a class, with the profile its calls are recorded in. The profile is only
+   * created when the first call is recorded, so methods that are never called are not reported.
+   */
+  final class ProfiledMethod {
+    private final MethodKey key;
+    private volatile MethodProfile profile;
+
+    private ProfiledMethod(MethodKey key) {
+      this.key = key;
+    }
+
+    MethodKey key() {
+      return key;
+    }
+
+    MethodProfile profile() {
+      MethodProfile profile = this.profile;
+      if (profile == null) {
+        profile = ProfilingState.this.profile(key);
+        this.profile = profile;
       }
+      return profile;
+    }
+  }
+
+  /**
+   * Identifies a profiled method by its class and name.
+   */
+  record MethodKey(Class<?> klass, String methodName) {
+    MethodKey {
+      Objects.requireNonNull(klass);
+      Objects.requireNonNull(methodName);
+    }
+
+    @Override
+    public String toString() {
+      return klass.getName() + "#" + methodName;
     }
-    return builder.toString().trim();
   }
-}
\ No newline at end of file
+}
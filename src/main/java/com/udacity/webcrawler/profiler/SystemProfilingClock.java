@@ -0,0 +1,44 @@
+package com.udacity.webcrawler.profiler;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * The {@link ProfilingClock} of the running JVM.
+ */
+final class SystemProfilingClock implements ProfilingClock {
+
+  static final SystemProfilingClock INSTANCE = new SystemProfilingClock();
+
+  private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+  private final boolean cpuTimeEnabled;
+  private final com.sun.management.ThreadMXBean allocationBean;
+
+  private SystemProfilingClock() {
+    this.cpuTimeEnabled =
+        threads.isCurrentThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled();
+    com.sun.management.ThreadMXBean allocationBean = null;
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threads;
+      if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+        allocationBean = bean;
+      }
+    }
+    this.allocationBean = allocationBean;
+  }
+
+  @Override
+  public long nanoTime() {
+    return System.nanoTime();
+  }
+
+  @Override
+  public long threadCpuNanos() {
+    return cpuTimeEnabled ? threads.getCurrentThreadCpuTime() : -1;
+  }
+
+  @Override
+  public long threadAllocatedBytes() {
+    return allocationBean != null ? allocationBean.getCurrentThreadAllocatedBytes() : -1;
+  }
+}
@@ -0,0 +1,335 @@
+package com.udacity.webcrawler.trace;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records a timeline of what each thread does during a crawl, and writes it in the Chrome trace
+ * event format, which can be opened in Perfetto or {@code chrome://tracing}.
+ *
+ * <p>Each thread records its spans into a ring buffer of its own, so recording never takes a lock
+ * or contends with other threads. A buffer starts small and doubles as it fills, up to the buffer
+ * size, as long as all the buffers together hold no more than {@link #MAX_TOTAL_SPANS} spans (or
+ * the buffer size, if it is larger). Once a buffer can no longer grow, its thread's oldest spans
+ * are overwritten. The buffers of threads that have died are kept, with their spans, so the total
+ * is what bounds the memory used however many threads come and go.
+ *
+ * <p>A span is recorded by calling {@link #begin()} when it starts and passing the returned value
+ * to {@link #end} when it ends:
+ *
+ * <pre>{@code
+ *   long begin = recorder.begin();
+ *   try {
+ *     ...
+ *   } finally {
+ *     recorder.end("crawl", "fetch", url, begin);
+ *   }
+ * }</pre>
+ *
+ * <p>Recording is thread-safe. The trace should be written once the threads have stopped
+ * recording, such as at the end of a crawl; spans recorded while it is being written may or may
+ * not be included.
+ */
+public final class TraceRecorder {
+
+  /**
+   * The number of spans all the threads of a recorder keep together, unless a single thread's
+   * buffer size is larger.
+   */
+  public static final int MAX_TOTAL_SPANS = 1 << 20;
+
+  static final int INITIAL_CAPACITY = 64;
+
+  private static final TraceRecorder DISABLED = new TraceRecorder(0);
+
+  private final int bufferSize;
+  private final long originNanos = System.nanoTime();
+  private final Queue<RingBuffer> buffers = new ConcurrentLinkedQueue<>();
+  private final ThreadLocal<RingBuffer> localBuffer;
+
+  // The number of span slots that buffers may still allocate.
+  private final AtomicLong slotsLeft;
+
+  /**
+   * Creates a recorder.
+   *
+   * @param bufferSize the number of spans each thread keeps, or 0 to record nothing.
+   */
+  public TraceRecorder(int bufferSize) {
+    this(bufferSize, Math.max(bufferSize, MAX_TOTAL_SPANS));
+  }
+
+  /**
+   * Creates a recorder whose threads keep at most the given number of spans together.
+   */
+  TraceRecorder(int bufferSize, long maxTotalSpans) {
+    if (bufferSize < 0) {
+      throw new IllegalArgumentException("bufferSize cannot be negative");
+    }
+    this.bufferSize = bufferSize;
+    this.slotsLeft = new AtomicLong(maxTotalSpans);
+    this.localBuffer = ThreadLocal.withInitial(() -> {
+      RingBuffer buffer = new RingBuffer(Thread.currentThread(),
+          reserve(Math.min(INITIAL_CAPACITY, bufferSize)));
+      buffers.add(buffer);
+      return buffer;
+    });
+  }
+
+  /**
+   * Takes up to the given number of slots from what buffers may still allocate, and returns the
+   * number taken.
+   */
+  private int reserve(int slots) {
+    while (true) {
+      long left = slotsLeft.get();
+      int taken = (int) Math.min(slots, left);
+      if (slotsLeft.compareAndSet(left, left - taken)) {
+        return taken;
+      }
+    }
+  }
+
+  /**
+   * Returns a recorder that records nothing.
+   */
+  public static TraceRecorder disabled() {
+    return DISABLED;
+  }
+
+  /**
+   * Returns true if this recorder records spans.
+   */
+  public boolean isEnabled() {
+    return bufferSize > 0;
+  }
+
+  /**
+   * Returns the start time of a span that starts now, to be passed to {@link #end}.
+   */
+  public long begin() {
+    return bufferSize > 0 ? System.nanoTime() : 0;
+  }
+
+  /**
+   * Records a span on the current thread that started at the given time and ends now.
+   *
+   * @param category   the category of the span, such as {@code "crawl"}.
+   * @param name       the name of the span.
+   * @param url        the URL the span worked on, or null.
+   * @param beginNanos the value returned by {@link #begin()} when the span started.
+   */
+  public void end(String category, String name, String url, long beginNanos) {
+    if (bufferSize == 0) {
+      return;
+    }
+    localBuffer.get().add(category, name, url, beginNanos, System.nanoTime(), this);
+  }
+
+  /**
+   * Returns the number of span slots allocated by every thread so far.
+   */
+  long getAllocatedSlots() {
+    long slots = 0;
+    for (RingBuffer buffer : buffers) {
+      slots += buffer.slots.names.length;
+    }
+    return slots;
+  }
+
+  /**
+   * Writes the recorded spans to the given {@link Path}. If a file already exists at the path, it
+   * is replaced, since a trace file holds a single JSON document.
+   *
+   * @param path the destination where the trace should be written.
+   * @throws IOException if there was a problem writing the trace.
+   */
+  public void write(Path path) throws IOException {
+    Objects.requireNonNull(path);
+    try (BufferedWriter writer = Files.newBufferedWriter(path,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      write(writer);
+    }
+  }
+
+  /**
+   * Writes the recorded spans to the given {@link Writer}, in the JSON object format of the Chrome
+   * trace event format. Each span is a complete ({@code "X"}) event, with times in microseconds
+   * since this recorder was created, and each thread is named with a metadata event. The number
+   * of spans that were overwritten because a buffer was full is given as {@code "droppedSpans"}.
+   *
+   * @param writer the destination where the trace should be written.
+   * @throws IOException if there was a problem writing the trace.
+   */
+  public void write(Writer writer) throws IOException {
+    Objects.requireNonNull(writer);
+    long dropped = 0;
+    JsonGenerator json = new JsonFactory()
+        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+        .createGenerator(writer);
+    json.writeStartObject();
+    json.writeArrayFieldStart("traceEvents");
+    for (RingBuffer buffer : buffers) {
+      json.writeStartObject();
+      json.writeStringField("name", "thread_name");
+      json.writeStringField("ph", "M");
+      json.writeNumberField("pid", 1);
+      json.writeNumberField("tid", buffer.threadId);
+      json.writeObjectFieldStart("args");
+      json.writeStringField("name", buffer.threadName);
+      json.writeEndObject();
+      json.writeEndObject();
+      dropped += buffer.forEach(span -> {
+        json.writeStartObject();
+        json.writeStringField("name", span.name);
+        json.writeStringField("cat", span.category);
+        json.writeStringField("ph", "X");
+        json.writeNumberField("ts", micros(span.beginNanos - originNanos));
+        json.writeNumberField("dur", micros(span.endNanos - span.beginNanos));
+        json.writeNumberField("pid", 1);
+        json.writeNumberField("tid", buffer.threadId);
+        if (span.url != null) {
+          json.writeObjectFieldStart("args");
+          json.writeStringField("url", span.url);
+          json.writeEndObject();
+        }
+        json.writeEndObject();
+      });
+    }
+    json.writeEndArray();
+    json.writeStringField("displayTimeUnit", "ms");
+    json.writeObjectFieldStart("otherData");
+    json.writeNumberField("droppedSpans", dropped);
+    json.writeEndObject();
+    json.writeEndObject();
+    json.flush();
+  }
+
+  private static double micros(long nanos) {
+    return nanos / 1000.0;
+  }
+
+  /**
+   * A recorded span.
+   */
+  private record Span(
+      String category, String name, String url, long beginNanos, long endNanos) {
+  }
+
+  /**
+   * Visits the spans of a buffer.
+   */
+  private interface SpanVisitor {
+    void visit(Span span) throws IOException;
+  }
+
+  /**
+   * The spans recorded by a single thread. Only that thread adds spans, so adding needs no
+   * synchronization other than publishing the slots and the number of spans added for readers.
+   *
+   * <p>The buffer only grows while it has never wrapped around, so span {@code i} is always in
+   * slot {@code i} modulo the capacity, and growing it is a plain copy.
+   */
+  private static final class RingBuffer {
+    final long threadId;
+    final String threadName;
+    volatile Slots slots;
+    private volatile long added;
+
+    RingBuffer(Thread thread, int capacity) {
+      this.threadId = thread.getId();
+      this.threadName = thread.getName();
+      this.slots = new Slots(capacity);
+    }
+
+    void add(
+        String category,
+        String name,
+        String url,
+        long beginNanos,
+        long endNanos,
+        TraceRecorder recorder) {
+      long count = added;
+      Slots current = slots;
+      int capacity = current.names.length;
+      if (count == capacity && capacity < recorder.bufferSize) {
+        int more = recorder.reserve(Math.min(capacity, recorder.bufferSize - capacity));
+        if (more > 0) {
+          current = current.grow(capacity + more);
+          slots = current;
+          capacity += more;
+        }
+      }
+      if (capacity > 0) {
+        int slot = (int) (count % capacity);
+        current.categories[slot] = category;
+        current.names[slot] = name;
+        current.urls[slot] = url;
+        current.begins[slot] = beginNanos;
+        current.ends[slot] = endNanos;
+      }
+      // The volatile write publishes the slot, and any new slots, to readers.
+      added = count + 1;
+    }
+
+    /**
+     * Visits the spans still in the buffer, oldest first, and returns the number of spans that
+     * were overwritten, or never kept.
+     */
+    long forEach(SpanVisitor visitor) throws IOException {
+      // Read the count first: the slots are then at least as new as the spans it counts.
+      long count = added;
+      Slots current = slots;
+      int capacity = current.names.length;
+      long first = Math.max(0, count - capacity);
+      for (long i = first; i < count; i++) {
+        int slot = (int) (i % capacity);
+        visitor.visit(new Span(current.categories[slot], current.names[slot],
+            current.urls[slot], current.begins[slot], current.ends[slot]));
+      }
+      return first;
+    }
+  }
+
+  /**
+   * The columns a {@link RingBuffer} keeps its spans in.
+   */
+  private static final class Slots {
+    final String[] categories;
+    final String[] names;
+    final String[] urls;
+    final long[] begins;
+    final long[] ends;
+
+    Slots(int capacity) {
+      this(new String[capacity], new String[capacity], new String[capacity], new long[capacity],
+          new long[capacity]);
+    }
+
+    private Slots(String[] categories, String[] names, String[] urls, long[] begins, long[] ends) {
+      this.categories = categories;
+      this.names = names;
+      this.urls = urls;
+      this.begins = begins;
+      this.ends = ends;
+    }
+
+    Slots grow(int capacity) {
+      return new Slots(Arrays.copyOf(categories, capacity), Arrays.copyOf(names, capacity),
+          Arrays.copyOf(urls, capacity), Arrays.copyOf(begins, capacity),
+          Arrays.copyOf(ends, capacity));
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.profiler.FakeClock;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class AdaptiveParallelismControllerTest {
+
+  private final FakeClock clock = new FakeClock();
+
+  @Test
+  public void initialLimitIsClampedToBounds() {
+    assertThat(new AdaptiveParallelismController(clock, 2, 8, 1).getLimit()).isEqualTo(2);
+    assertThat(new AdaptiveParallelismController(clock, 2, 8, 4).getLimit()).isEqualTo(4);
+    assertThat(new AdaptiveParallelismController(clock, 2, 8, 20).getLimit()).isEqualTo(8);
+  }
+
+  @Test
+  public void rejectsInvalidBounds() {
+    assertThrows(
+        IllegalArgumentException.class, () -> new AdaptiveParallelismController(clock, 0, 8, 4));
+    assertThrows(
+        IllegalArgumentException.class, () -> new AdaptiveParallelismController(clock, 4, 2, 4));
+  }
+
+  @Test
+  public void healthyWindowIncreasesLimitByOne() throws Exception {
+    AdaptiveParallelismController controller = new AdaptiveParallelismController(clock, 1, 8, 4);
+
+    runWindow(controller, 10, Duration.ofMillis(100), 0);
+
+    assertThat(controller.getLimit()).isEqualTo(5);
+  }
+
+  @Test
+  public void errorsHalveLimit() throws Exception {
+    AdaptiveParallelismController controller = new AdaptiveParallelismController(clock, 1, 8, 8);
+
+    runWindow(controller, 10, Duration.ofMillis(100), 5);
+
+    assertThat(controller.getLimit()).isEqualTo(4);
+  }
+
+  @Test
+  public void latencyGrowthWithoutThroughputGainHalvesLimit() throws Exception {
+    AdaptiveParallelismController controller = new AdaptiveParallelismController(clock, 1, 8, 4);
+
+    runWindow(controller, 10, Duration.ofMillis(100), 0);
+    assertThat(controller.getLimit()).isEqualTo(5);
+    runWindow(controller, 10, Duration.ofMillis(500), 0);
+
+    assertThat(controller.getLimit()).isEqualTo(2);
+  }
+
+  @Test
+  public void limitStaysWithinBounds() throws Exception {
+    AdaptiveParallelismController controller = new AdaptiveParallelismController(clock, 2, 3, 3);
+
+    runWindow(controller, 10, Duration.ofMillis(100), 0);
+    assertThat(controller.getLimit()).isEqualTo(3);
+    runWindow(controller, 10, Duration.ofMillis(100), 10);
+    assertThat(controller.getLimit()).isEqualTo(2);
+    runWindow(controller, 10, Duration.ofMillis(100), 10);
+    assertThat(controller.getLimit()).isEqualTo(2);
+  }
+
+  @Test
+  public void acquireRespectsLimit() throws Exception {
+    AdaptiveParallelismController controller = new AdaptiveParallelismController(clock, 1, 4, 2);
+
+    controller.acquire();
+    assertThat(controller.hasPermit()).isTrue();
+    controller.acquire();
+    assertThat(controller.hasPermit()).isFalse();
+    controller.release(Duration.ZERO, false);
+    assertThat(controller.hasPermit()).isTrue();
+  }
+
+  /**
+   * Completes the given number of fetches, the last of which closes a one-second sample window.
+   */
+  private void runWindow(
+      AdaptiveParallelismController controller, int fetches, Duration latency, int failures)
+      throws InterruptedException {
+    for (int i = 0; i < fetches; i++) {
+      if (i == fetches - 1) {
+        clock.tick(AdaptiveParallelismController.WINDOW);
+      }
+      controller.acquire();
+      controller.release(latency, i < failures);
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package com.udacity.webcrawler;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class FetchLatencyBreakdownTest {
+
+  private static final long MS = Duration.ofMillis(1).toNanos();
+
+  @Test
+  public void listsSlowestHostsFirst() {
+    FetchLatencyBreakdown breakdown = new FetchLatencyBreakdown(10);
+    for (int i = 0; i < 100; i++) {
+      breakdown.record("fast.example", 200, new long[] {MS, 5 * MS, 2 * MS, MS}, 10 * MS);
+      breakdown.record("slow.example", 200, new long[] {MS, 500 * MS, 2 * MS, MS}, 505 * MS);
+    }
+    breakdown.record("slow.example", 503, new long[] {MS, 50 * MS, 0, 0}, 52 * MS);
+
+    Map<String, String> report = breakdown.getSlowestHosts();
+
+    assertThat(report.keySet()).containsExactly("slow.example", "fast.example").inOrder();
+    assertThat(report.get("slow.example")).startsWith("p99 ");
+    assertThat(report.get("slow.example"))
+        .contains(" over 101 fetches; 2xx: 100 fetches, p99 dns ");
+    assertThat(report.get("slow.example")).contains("; 5xx: 1 fetches, p99 dns 1.000ms, ");
+    assertThat(report.get("fast.example")).doesNotContain("5xx");
+  }
+
+  @Test
+  public void untrackedHostsShareOneEntry() {
+    FetchLatencyBreakdown breakdown = new FetchLatencyBreakdown(2);
+    for (String host : new String[] {"a.example", "b.example", "c.example", "d.example"}) {
+      breakdown.record(host, 200, new long[4], MS);
+    }
+    breakdown.record("a.example", 200, new long[4], MS);
+
+    Map<String, String> report = breakdown.getSlowestHosts();
+
+    assertThat(report.keySet())
+        .containsExactly("a.example", "b.example", FetchLatencyBreakdown.OTHER_HOSTS);
+    assertThat(report.get("a.example")).contains(" over 2 fetches");
+    assertThat(report.get(FetchLatencyBreakdown.OTHER_HOSTS)).contains(" over 2 fetches");
+  }
+
+  @Test
+  public void slowHostFoundLateEvictsFastestHost() {
+    FetchLatencyBreakdown breakdown = new FetchLatencyBreakdown(2);
+    for (int i = 0; i < 10; i++) {
+      breakdown.record("fast.example", 200, new long[4], MS);
+      breakdown.record("medium.example", 200, new long[4], 20 * MS);
+    }
+    // No slower than the fastest tracked host, so not worth tracking.
+    breakdown.record("quick.example", 200, new long[4], MS);
+    breakdown.record("slow.example", 503, new long[4], 900 * MS);
+    breakdown.record("slow.example", 200, new long[4], 800 * MS);
+
+    Map<String, String> report = breakdown.getSlowestHosts();
+
+    assertThat(report.keySet())
+        .containsExactly("slow.example", "medium.example", FetchLatencyBreakdown.OTHER_HOSTS)
+        .inOrder();
+    assertThat(report.get("slow.example")).contains(" over 2 fetches; 2xx: 1 fetches, ");
+    assertThat(report.get("slow.example")).contains("; 5xx: 1 fetches, ");
+    // The evicted host's fetches are still counted, with those of the untracked hosts.
+    assertThat(report.get(FetchLatencyBreakdown.OTHER_HOSTS))
+        .contains(" over 11 fetches; 2xx: 11 fetches, ");
+  }
+}
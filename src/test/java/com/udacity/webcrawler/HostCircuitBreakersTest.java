@@ -0,0 +1,108 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.profiler.FakeClock;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class HostCircuitBreakersTest {
+
+  private static final String URL = "http://example.com/page";
+  private static final String OTHER_URL = "http://example.com/other";
+
+  private final FakeClock clock = new FakeClock();
+  private final HostCircuitBreakers breakers =
+      new HostCircuitBreakers(clock, 3, Duration.ofSeconds(2), Duration.ofSeconds(10));
+
+  @Test
+  public void opensAfterConsecutiveFailures() {
+    fail(2);
+    record(false);
+    fail(2);
+    assertThat(breakers.getState("example.com")).isEqualTo(HostCircuitBreakers.State.CLOSED);
+
+    fail(1);
+    assertThat(breakers.getState("example.com")).isEqualTo(HostCircuitBreakers.State.OPEN);
+    assertThat(breakers.allowRequest(OTHER_URL)).isFalse();
+    assertThat(breakers.allowRequest("http://example.org/")).isTrue();
+  }
+
+  @Test
+  public void slowFetchesCountAsFailures() {
+    for (int i = 0; i < 3; i++) {
+      assertThat(breakers.allowRequest(URL)).isTrue();
+      breakers.record(URL, Duration.ofSeconds(3), false);
+    }
+
+    assertThat(breakers.getState("example.com")).isEqualTo(HostCircuitBreakers.State.OPEN);
+  }
+
+  @Test
+  public void halfOpenAllowsSingleProbe() {
+    fail(3);
+    clock.tick(Duration.ofSeconds(10));
+
+    assertThat(breakers.allowRequest(URL)).isTrue();
+    assertThat(breakers.getState("example.com")).isEqualTo(HostCircuitBreakers.State.HALF_OPEN);
+    assertThat(breakers.allowRequest(OTHER_URL)).isFalse();
+
+    breakers.record(URL, Duration.ZERO, false);
+    assertThat(breakers.getState("example.com")).isEqualTo(HostCircuitBreakers.State.CLOSED);
+    assertThat(breakers.allowRequest(OTHER_URL)).isTrue();
+  }
+
+  @Test
+  public void failedProbeDoublesBackoff() {
+    fail(3);
+    clock.tick(Duration.ofSeconds(10));
+    fail(1);
+    assertThat(breakers.getState("example.com")).isEqualTo(HostCircuitBreakers.State.OPEN);
+
+    clock.tick(Duration.ofSeconds(10));
+    assertThat(breakers.allowRequest(URL)).isFalse();
+    clock.tick(Duration.ofSeconds(10));
+    assertThat(breakers.allowRequest(URL)).isTrue();
+  }
+
+  @Test
+  public void reportsHostsThatOpened() {
+    fail(3);
+    assertThat(breakers.allowRequest(OTHER_URL)).isFalse();
+
+    assertThat(breakers.getReport())
+        .containsExactly("example.com", "OPEN (opened 1 times, 1 URLs skipped)");
+  }
+
+  @Test
+  public void disabledBreakersAlwaysAllowRequests() {
+    HostCircuitBreakers disabled =
+        new HostCircuitBreakers(clock, 0, Duration.ZERO, Duration.ofSeconds(1));
+    for (int i = 0; i < 10; i++) {
+      assertThat(disabled.allowRequest(URL)).isTrue();
+      disabled.record(URL, Duration.ZERO, true);
+    }
+    assertThat(disabled.getReport()).isEmpty();
+  }
+
+  @Test
+  public void localFilesHaveNoBreaker() {
+    assertThat(HostCircuitBreakers.hostOf("file:///tmp/page.html")).isNull();
+    for (int i = 0; i < 5; i++) {
+      assertThat(breakers.allowRequest("file:///tmp/page.html")).isTrue();
+      breakers.record("file:///tmp/page.html", Duration.ZERO, true);
+    }
+  }
+
+  private void fail(int times) {
+    for (int i = 0; i < times; i++) {
+      record(true);
+    }
+  }
+
+  private void record(boolean failed) {
+    assertThat(breakers.allowRequest(URL)).isTrue();
+    breakers.record(URL, Duration.ZERO, failed);
+  }
+}
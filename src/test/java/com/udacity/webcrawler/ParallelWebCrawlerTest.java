@@ -1,10 +1,18 @@
 package com.udacity.webcrawler;
 
 import com.google.inject.Guice;
+import com.google.inject.util.Modules;
+import com.udacity.webcrawler.benchmark.LatencyDistribution;
+import com.udacity.webcrawler.json.CrawlResult;
 import com.udacity.webcrawler.json.CrawlerConfiguration;
+import com.udacity.webcrawler.parser.SimulatedWeb;
+import com.udacity.webcrawler.parser.SimulatedWebModule;
 import org.junit.jupiter.api.Test;
 
 import javax.inject.Inject;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.google.common.truth.Truth.assertThat;
 
@@ -19,4 +27,44 @@ public final class ParallelWebCrawlerTest {
         .injectMembers(this);
     assertThat(parallelWebCrawler.getMaxParallelism()).isGreaterThan(1);
   }
+
+  @Test
+  public void poolStaysBoundedByTheParallelismController() throws Exception {
+    SimulatedWeb web = new SimulatedWeb(new SimulatedWeb.Options(
+        400, 4, 6, 50, 1000, LatencyDistribution.fixed(Duration.ofMillis(10)), 17));
+    CrawlerConfiguration config = new CrawlerConfiguration.Builder()
+        .setParallelism(2)
+        .setMinParallelism(1)
+        .setMaxParallelism(4)
+        .setMaxDepth(400)
+        .setTimeoutSeconds(60)
+        .addStartPages(web.getStartUrl())
+        .build();
+    ParallelWebCrawler crawler = Guice.createInjector(
+            Modules.override(new WebCrawlerModule(config)).with(new SimulatedWebModule(web)),
+            new NoOpProfilerModule())
+        .getInstance(ParallelWebCrawler.class);
+
+    // Sample the size of the pool while it crawls, since the pool does not keep its peak.
+    AtomicInteger peak = new AtomicInteger();
+    AtomicBoolean crawling = new AtomicBoolean(true);
+    Thread sampler = new Thread(() -> {
+      while (crawling.get()) {
+        peak.accumulateAndGet(crawler.getPoolSize(), Math::max);
+        Thread.onSpinWait();
+      }
+    });
+    sampler.start();
+    CrawlResult result;
+    try {
+      result = crawler.crawl(config.getStartPages());
+    } finally {
+      crawling.set(false);
+      sampler.join();
+    }
+
+    assertThat(result.getUrlsVisited()).isEqualTo(400);
+    // At most one spare worker per fetch slot, on top of the pool's own workers.
+    assertThat(peak.get()).isAtMost(2 + 4);
+  }
 }
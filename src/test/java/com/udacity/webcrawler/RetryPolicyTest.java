@@ -0,0 +1,92 @@
+package com.udacity.webcrawler;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class RetryPolicyTest {
+
+  @Test
+  public void backoffGrowsExponentiallyWithJitter() {
+    RetryPolicy policy = new RetryPolicy(10, Duration.ofMillis(100), 1.0, new Random(42));
+    for (int i = 0; i < 100; i++) {
+      policy.recordRequest();
+    }
+
+    for (int retried = 0; retried < 4; retried++) {
+      Duration delay = policy.nextDelay(retried, Optional.empty()).orElseThrow();
+      assertThat(delay).isAtLeast(Duration.ZERO);
+      assertThat(delay).isAtMost(Duration.ofMillis(100L << retried));
+    }
+  }
+
+  @Test
+  public void backoffIsCapped() {
+    RetryPolicy policy = new RetryPolicy(100, Duration.ofSeconds(1), 1.0, new Random(42));
+
+    Duration delay = policy.nextDelay(40, Optional.empty()).orElseThrow();
+
+    assertThat(delay).isAtMost(RetryPolicy.MAX_DELAY);
+  }
+
+  @Test
+  public void retryAfterOverridesBackoff() {
+    RetryPolicy policy = new RetryPolicy(3, Duration.ofMillis(100), 1.0, new Random(42));
+
+    assertThat(policy.nextDelay(0, Optional.of(Duration.ofSeconds(30))))
+        .hasValue(Duration.ofSeconds(30));
+  }
+
+  @Test
+  public void stopsAfterMaxRetries() {
+    RetryPolicy policy = new RetryPolicy(2, Duration.ofMillis(100), 1.0, new Random(42));
+
+    assertThat(policy.nextDelay(1, Optional.empty()).isPresent()).isTrue();
+    assertThat(policy.nextDelay(2, Optional.empty()).isPresent()).isFalse();
+  }
+
+  @Test
+  public void disabledPolicyNeverRetries() {
+    RetryPolicy policy = new RetryPolicy(0, Duration.ofMillis(100), 1.0, new Random(42));
+
+    assertThat(policy.nextDelay(0, Optional.empty()).isPresent()).isFalse();
+  }
+
+  @Test
+  public void retriesAreLimitedByBudget() {
+    RetryPolicy policy = new RetryPolicy(5, Duration.ofMillis(100), 0.1, new Random(42));
+    for (int i = 0; i < 50; i++) {
+      policy.recordRequest();
+    }
+
+    // 10% of 50 fetches is 5 retries.
+    int granted = 0;
+    for (int i = 0; i < 20; i++) {
+      if (policy.nextDelay(0, Optional.empty()).isPresent()) {
+        granted++;
+      }
+    }
+
+    assertThat(granted).isEqualTo(5);
+    assertThat(policy.getRetryCount()).isEqualTo(5);
+  }
+
+  @Test
+  public void smallCrawlsGetMinimumBudget() {
+    RetryPolicy policy = new RetryPolicy(5, Duration.ofMillis(100), 0.1, new Random(42));
+    policy.recordRequest();
+
+    int granted = 0;
+    for (int i = 0; i < 10; i++) {
+      if (policy.nextDelay(0, Optional.empty()).isPresent()) {
+        granted++;
+      }
+    }
+
+    assertThat(granted).isEqualTo(RetryPolicy.MIN_RETRIES);
+  }
+}
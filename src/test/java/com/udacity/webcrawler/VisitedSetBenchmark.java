@@ -0,0 +1,55 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.benchmark.Benchmark;
+import com.udacity.webcrawler.benchmark.BenchmarkSpec;
+import com.udacity.webcrawler.benchmark.ZipfVocabulary;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Measures the check {@link ParallelWebCrawler} makes before crawling a URL: adding it to the set
+ * of visited URLs, which fails if another task already added it.
+ *
+ * <p>The URLs are drawn at random from a fixed set, so the visited set quickly holds most of them
+ * and most adds find the URL already there, as they do in a crawl where pages link to the same
+ * pages over and over. The crawler's {@link ConcurrentSkipListSet} is measured against a set
+ * backed by a {@link ConcurrentHashMap}.
+ */
+public final class VisitedSetBenchmark implements Benchmark {
+
+  public static final BenchmarkSpec SPEC = new BenchmarkSpec(
+      VisitedSetBenchmark.class.getName() + ".add",
+      Map.of("set", List.of("skipList", "hash"), "urls", List.of("100000")),
+      List.of(1, 4),
+      VisitedSetBenchmark::new);
+
+  private String[] urls;
+  private Set<String> visited;
+
+  @Override
+  public void setUp(Map<String, String> params) {
+    ZipfVocabulary vocabulary = new ZipfVocabulary(10_000, 1.0, 42);
+    Random random = new Random(42);
+    urls = new String[Integer.parseInt(params.get("urls"))];
+    for (int i = 0; i < urls.length; i++) {
+      urls[i] = "https://www." + vocabulary.sample(random) + ".com/" + vocabulary.sample(random)
+          + "/" + vocabulary.sample(random) + "-" + i + ".html";
+    }
+    visited = switch (params.get("set")) {
+      case "skipList" -> new ConcurrentSkipListSet<>();
+      case "hash" -> ConcurrentHashMap.newKeySet();
+      default -> throw new IllegalArgumentException("Unknown set: " + params.get("set"));
+    };
+  }
+
+  @Override
+  public Object run() {
+    return visited.add(urls[ThreadLocalRandom.current().nextInt(urls.length)]);
+  }
+}
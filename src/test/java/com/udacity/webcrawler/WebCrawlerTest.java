@@ -1,6 +1,11 @@
 package com.udacity.webcrawler;
 
 import com.google.inject.Guice;
+import com.udacity.webcrawler.benchmark.HostBehavior;
+import com.udacity.webcrawler.benchmark.LatencyDistribution;
+import com.udacity.webcrawler.benchmark.SiteGenerator;
+import com.udacity.webcrawler.benchmark.SiteServer;
+import com.udacity.webcrawler.index.InvertedIndex;
 import com.udacity.webcrawler.json.CrawlResult;
 import com.udacity.webcrawler.json.CrawlerConfiguration;
 import org.junit.jupiter.api.Test;
@@ -9,9 +14,12 @@ import org.junit.jupiter.params.provider.MethodSource;
 
 import javax.inject.Inject;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Stream;
 
 import static com.google.common.truth.Truth.assertThat;
@@ -21,6 +29,9 @@ public final class WebCrawlerTest {
   @Inject
   private WebCrawler crawler;
 
+  @Inject
+  private CrawlMetrics metrics;
+
   private static final String DATA_DIR = System.getProperty("testDataDir");
 
   static Stream<Class<?>> provideTestParameters() throws Exception {
@@ -154,6 +165,100 @@ public final class WebCrawlerTest {
         .inOrder();
   }
 
+  @ParameterizedTest
+  @MethodSource("provideTestParameters")
+  public void crawlUpdatesMetrics(Class<?> crawlerClass) {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(crawlerClass.getName())
+            .setMaxDepth(10)
+            .setPopularWordCount(3)
+            .addStartPages(Paths.get(DATA_DIR, "test-page.html").toUri().toString())
+            .build();
+    Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+        .injectMembers(this);
+
+    crawler.crawl(config.getStartPages());
+
+    assertThat(metrics.getUrlsVisited()).isEqualTo(3);
+    assertThat(metrics.getPagesFetched()).isEqualTo(3);
+    assertThat(metrics.getFetchesInFlight()).isEqualTo(0);
+    assertThat(metrics.getFrontierSize()).isEqualTo(0);
+  }
+
+  @ParameterizedTest
+  @MethodSource("provideTestParameters")
+  public void strictDeadlineCrawlWithinTimeIsComplete(Class<?> crawlerClass) {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(crawlerClass.getName())
+            .setMaxDepth(10)
+            .setPopularWordCount(3)
+            .setStrictDeadline(true)
+            .addStartPages(Paths.get(DATA_DIR, "test-page.html").toUri().toString())
+            .build();
+    Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+        .injectMembers(this);
+    assertThat(crawler.getClass()).isAssignableTo(crawlerClass);
+
+    CrawlResult result = crawler.crawl(config.getStartPages());
+
+    assertThat(result.isPartial()).isFalse();
+    assertThat(result.getUrlsVisited()).isEqualTo(3);
+    assertThat(result.getWordCounts().entrySet())
+        .containsExactly(
+            Map.entry("the", 4),
+            Map.entry("jumped", 2),
+            Map.entry("brown", 2))
+        .inOrder();
+  }
+
+  @ParameterizedTest
+  @MethodSource("provideTestParameters")
+  public void strictDeadlineCrawlOutOfTimeIsPartial(Class<?> crawlerClass) throws Exception {
+    SiteGenerator.Options site =
+        new SiteGenerator.Options(2_000, 4, SiteGenerator.FanOut.FIXED, 512, 0.5, 7);
+    HostBehavior host = new HostBehavior.Builder()
+        .setLatency(LatencyDistribution.fixed(Duration.ofMillis(20)))
+        .build();
+    try (SiteServer server = SiteServer.start(site, List.of(host, host))) {
+      CrawlerConfiguration config =
+          new CrawlerConfiguration.Builder()
+              .setImplementationOverride(crawlerClass.getName())
+              .setMaxDepth(site.pages())
+              .setTimeoutSeconds(1)
+              .setStrictDeadline(true)
+              .addStartPages(server.getStartUrl())
+              // Recording is what tasks still running after the deadline would race with.
+              .setLinkGraphOutputPath("links.bin")
+              .setIndexOutputPath("index.bin")
+              .build();
+      Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+          .injectMembers(this);
+
+      long start = System.nanoTime();
+      CrawlResult result = crawler.crawl(config.getStartPages());
+      Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+      assertThat(result.isPartial()).isTrue();
+      assertThat(result.getUrlsVisited()).isLessThan(site.pages());
+      // The crawl may only overrun its deadline by the grace period given to running tasks, and
+      // not by another timeout.
+      assertThat(elapsed).isLessThan(Duration.ofSeconds(1).plusMillis(500));
+      // Pages stopped being recorded before the result was built, so the index holds only pages
+      // that are in the link graph too.
+      Set<String> nodes = new HashSet<>();
+      for (int node = 0; node < result.getLinkGraph().getNodeCount(); node++) {
+        nodes.add(result.getLinkGraph().getUrl(node));
+      }
+      InvertedIndex index = result.getIndex();
+      assertThat(index.getDocumentCount()).isGreaterThan(0);
+      for (int document = 0; document < index.getDocumentCount(); document++) {
+        assertThat(nodes).contains(index.getUrl(document));
+      }
+    }
+  }
+
   @ParameterizedTest
   @MethodSource("provideTestParameters")
   public void respectsIgnoredUrls(Class<?> crawlerClass) {
@@ -323,4 +428,31 @@ public final class WebCrawlerTest {
             Map.entry("brown", 4))
         .inOrder();
   }
-}
\ No newline at end of file
+
+  @ParameterizedTest
+  @MethodSource("provideTestParameters")
+  public void crawlsSiteOverHttp(Class<?> crawlerClass) throws Exception {
+    SiteGenerator.Options site =
+        new SiteGenerator.Options(60, 4, SiteGenerator.FanOut.FIXED, 512, 0.5, 7);
+    HostBehavior host = new HostBehavior.Builder()
+        .setLatency(LatencyDistribution.fixed(Duration.ofMillis(2)))
+        .build();
+    try (SiteServer server = SiteServer.start(site, List.of(host, host, host))) {
+      CrawlerConfiguration config =
+          new CrawlerConfiguration.Builder()
+              .setImplementationOverride(crawlerClass.getName())
+              .setMaxDepth(site.pages())
+              .setTimeoutSeconds(30)
+              .setPopularWordCount(3)
+              .addStartPages(server.getStartUrl())
+              .build();
+      Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+          .injectMembers(this);
+
+      CrawlResult result = crawler.crawl(config.getStartPages());
+
+      assertThat(result.getUrlsVisited()).isEqualTo(site.pages());
+      assertThat(server.getStats().requests()).isEqualTo(site.pages());
+    }
+  }
+}
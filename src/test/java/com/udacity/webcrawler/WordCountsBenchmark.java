@@ -0,0 +1,42 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.benchmark.Benchmark;
+import com.udacity.webcrawler.benchmark.BenchmarkSpec;
+import com.udacity.webcrawler.benchmark.ZipfVocabulary;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures {@link WordCounts#sort}, which runs once at the end of every crawl over every word the
+ * crawl found.
+ *
+ * <p>The word counts follow Zipf's law, so a few words have large counts and most words have
+ * small, often equal, counts that the comparator has to break ties between.
+ */
+public final class WordCountsBenchmark implements Benchmark {
+
+  public static final BenchmarkSpec SPEC = new BenchmarkSpec(
+      WordCountsBenchmark.class.getName() + ".sort",
+      Map.of("vocabulary", List.of("1000", "100000"), "popularWordCount", List.of("5", "100")),
+      List.of(1),
+      WordCountsBenchmark::new);
+
+  private Map<String, Integer> wordCounts;
+  private int popularWordCount;
+
+  @Override
+  public void setUp(Map<String, String> params) {
+    ZipfVocabulary vocabulary =
+        new ZipfVocabulary(Integer.parseInt(params.get("vocabulary")), 1.0, 42);
+    // On the order of 50 words of text for every distinct word, as in a crawl of a few hundred
+    // pages.
+    wordCounts = vocabulary.counts(50L * vocabulary.size());
+    popularWordCount = Integer.parseInt(params.get("popularWordCount"));
+  }
+
+  @Override
+  public Object run() {
+    return WordCounts.sort(wordCounts, popularWordCount);
+  }
+}
@@ -2,8 +2,11 @@ package com.udacity.webcrawler;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import static com.google.common.truth.Truth.assertWithMessage;
 
@@ -82,4 +85,22 @@ public final class WordCountsTest {
             Map.entry("quick", 1),
             Map.entry("fox", 1))
         .inOrder();  }
+
+  @Test
+  public void forEachSortedVisitsEveryWordInOrder() throws Exception {
+    Map<String, Integer> unsortedCounts = new HashMap<>();
+    Random random = new Random(3);
+    for (int i = 0; i < 10_000; i++) {
+      unsortedCounts.put(Integer.toString(random.nextInt(1_000_000), 36), 1 + random.nextInt(20));
+    }
+    List<Map.Entry<String, Integer>> visited = new ArrayList<>();
+
+    WordCounts.forEachSorted(unsortedCounts, (word, count) -> visited.add(Map.entry(word, count)));
+
+    assertWithMessage("Visited the words in a different order than sort()")
+        .that(visited)
+        .containsExactlyElementsIn(
+            WordCounts.sort(unsortedCounts, unsortedCounts.size()).entrySet())
+        .inOrder();
+  }
 }
@@ -0,0 +1,32 @@
+package com.udacity.webcrawler.benchmark;
+
+import java.util.Map;
+
+/**
+ * An operation whose throughput is measured by the {@link BenchmarkRunner}.
+ *
+ * <p>A new instance is created for every combination of parameters and thread count. When a
+ * benchmark is run by more than one thread, {@link #run()} is called concurrently and must be
+ * thread-safe.
+ */
+public interface Benchmark {
+
+  /**
+   * Prepares the inputs of the benchmark. This is not timed.
+   *
+   * @param params the value of each parameter of the {@link BenchmarkSpec}.
+   */
+  void setUp(Map<String, String> params) throws Exception;
+
+  /**
+   * Runs the benchmarked operation once. The result is kept by the runner, so that the work done
+   * to compute it cannot be optimized away.
+   */
+  Object run() throws Exception;
+
+  /**
+   * Releases the inputs of the benchmark, such as temporary files. This is not timed.
+   */
+  default void tearDown() throws Exception {
+  }
+}
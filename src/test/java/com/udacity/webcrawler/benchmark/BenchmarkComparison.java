@@ -0,0 +1,304 @@
+package com.udacity.webcrawler.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Compares benchmark results against a baseline, and fails if any benchmark got slower by more than
+ * its tolerance.
+ *
+ * <p>A single mean is not enough to tell a regression from noise, so each result is compared by
+ * the 99.9% confidence interval of its score: the difference of two means has an error of about
+ * the root of the sum of the squares of their errors. A benchmark has regressed only if even the
+ * most favorable end of the interval of the difference is a drop of more than the tolerance. If the
+ * means differ by more than the tolerance but the interval does not, the change is reported as
+ * noisy, which does not fail the comparison, but suggests running the benchmark for longer.
+ *
+ * <p>Usage: {@code BenchmarkComparison --baseline <path> --results <path> [options]}, where the
+ * files are written by {@link BenchmarkReport}, such as by {@link BenchmarkMain} or
+ * {@link CrawlBenchmark}, and the options are
+ * <ul>
+ *   <li>{@code --tolerance <percent>}: the drop in throughput that is tolerated. Defaults to
+ *       10.</li>
+ *   <li>{@code --tolerances <path>}: a JSON object whose keys are regular expressions and whose
+ *       values are tolerances in percent. A benchmark gets the tolerance of the first expression
+ *       found in its key, which is its name followed by its parameters and thread count, as in
+ *       {@code "com.udacity.webcrawler.WordCountsBenchmark.sort popularWordCount=100
+ *       vocabulary=100000 threads=1"}, and the default tolerance if there is none.</li>
+ * </ul>
+ *
+ * <p>The diff table is printed to standard output. The exit code is 0 if nothing regressed, 1 if
+ * something did, and 2 if the comparison could not be made.
+ */
+public final class BenchmarkComparison {
+
+  static final double DEFAULT_TOLERANCE_PERCENT = 10;
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private BenchmarkComparison() {
+  }
+
+  /**
+   * The outcome of comparing one benchmark.
+   */
+  enum Verdict {
+    /**
+     * The benchmark got slower by more than its tolerance, beyond the noise.
+     */
+    REGRESSION,
+
+    /**
+     * The benchmark got faster by more than its tolerance, beyond the noise.
+     */
+    IMPROVEMENT,
+
+    /**
+     * The means differ by more than the tolerance, but within the noise.
+     */
+    NOISY,
+
+    /**
+     * The benchmark is within its tolerance of the baseline.
+     */
+    UNCHANGED,
+
+    /**
+     * The benchmark is not in the baseline.
+     */
+    NEW,
+
+    /**
+     * The benchmark is in the baseline, but not in the results.
+     */
+    MISSING
+  }
+
+  /**
+   * One line of the diff table. Either result is null if the benchmark is missing from its file.
+   */
+  record Row(
+      String key,
+      BenchmarkResult baseline,
+      BenchmarkResult current,
+      double tolerancePercent,
+      Verdict verdict) {
+
+    /**
+     * Returns the relative change of the score, in percent, or {@link Double#NaN} if either result
+     * is missing.
+     */
+    double changePercent() {
+      if (baseline == null || current == null) {
+        return Double.NaN;
+      }
+      return 100 * (current.score() - baseline.score()) / baseline.score();
+    }
+  }
+
+  /**
+   * The tolerance of each benchmark, in percent.
+   */
+  static final class Tolerances {
+    private final double defaultPercent;
+    private final Map<Pattern, Double> percentByPattern;
+
+    Tolerances(double defaultPercent, Map<Pattern, Double> percentByPattern) {
+      if (defaultPercent < 0) {
+        throw new IllegalArgumentException("defaultPercent cannot be negative");
+      }
+      this.defaultPercent = defaultPercent;
+      this.percentByPattern = new LinkedHashMap<>(percentByPattern);
+    }
+
+    /**
+     * Reads the tolerances from a JSON object of regular expressions and tolerances in percent.
+     */
+    static Tolerances read(Path path, double defaultPercent) throws IOException {
+      JsonNode root = MAPPER.readTree(path.toFile());
+      if (!root.isObject()) {
+        throw new IOException("Expected an object of tolerances in " + path);
+      }
+      Map<Pattern, Double> percentByPattern = new LinkedHashMap<>();
+      root.fields().forEachRemaining(entry -> percentByPattern.put(
+          Pattern.compile(entry.getKey()), entry.getValue().asDouble()));
+      return new Tolerances(defaultPercent, percentByPattern);
+    }
+
+    /**
+     * Returns the tolerance of the benchmark with the given key.
+     */
+    double forKey(String key) {
+      for (Map.Entry<Pattern, Double> entry : percentByPattern.entrySet()) {
+        if (entry.getKey().matcher(key).find()) {
+          return entry.getValue();
+        }
+      }
+      return defaultPercent;
+    }
+  }
+
+  public static void main(String[] args) {
+    System.exit(run(args, System.out, System.err));
+  }
+
+  /**
+   * Runs the comparison with the given arguments, and returns the exit code.
+   */
+  static int run(String[] args, PrintStream out, PrintStream err) {
+    Path baselinePath = null;
+    Path resultsPath = null;
+    Path tolerancesPath = null;
+    double tolerance = DEFAULT_TOLERANCE_PERCENT;
+    for (int i = 0; i < args.length; i += 2) {
+      if (i + 1 >= args.length) {
+        return usage(err, "Missing value for " + args[i]);
+      }
+      String value = args[i + 1];
+      switch (args[i]) {
+        case "--baseline" -> baselinePath = Path.of(value);
+        case "--results" -> resultsPath = Path.of(value);
+        case "--tolerance" -> tolerance = Double.parseDouble(value);
+        case "--tolerances" -> tolerancesPath = Path.of(value);
+        default -> {
+          return usage(err, "Unknown option " + args[i]);
+        }
+      }
+    }
+    if (baselinePath == null || resultsPath == null) {
+      return usage(err, "Both --baseline and --results are required");
+    }
+
+    List<Row> rows;
+    try {
+      Tolerances tolerances = tolerancesPath == null
+          ? new Tolerances(tolerance, Map.of())
+          : Tolerances.read(tolerancesPath, tolerance);
+      rows = compare(
+          BenchmarkReport.read(baselinePath), BenchmarkReport.read(resultsPath), tolerances);
+    } catch (IOException | RuntimeException e) {
+      err.println("Could not compare benchmark results: " + e);
+      return 2;
+    }
+    printTable(rows, out);
+    long regressions = rows.stream().filter(row -> row.verdict() == Verdict.REGRESSION).count();
+    if (regressions > 0) {
+      out.println(regressions + " of " + rows.size() + " benchmarks regressed");
+      return 1;
+    }
+    out.println("No regressions in " + rows.size() + " benchmarks");
+    return 0;
+  }
+
+  private static int usage(PrintStream err, String error) {
+    err.println(error);
+    err.println("Usage: BenchmarkComparison --baseline path --results path "
+        + "[--tolerance percent] [--tolerances path]");
+    return 2;
+  }
+
+  /**
+   * Compares each of the current results against the baseline result with the same key. Results
+   * that are only in one of the lists are reported as {@link Verdict#NEW} or
+   * {@link Verdict#MISSING}, after the others.
+   */
+  static List<Row> compare(
+      List<BenchmarkResult> baseline, List<BenchmarkResult> current, Tolerances tolerances) {
+    Map<String, BenchmarkResult> baselineByKey = byKey(baseline);
+    Map<String, BenchmarkResult> currentByKey = byKey(current);
+    List<Row> rows = new ArrayList<>();
+    List<Row> unmatched = new ArrayList<>();
+    currentByKey.forEach((key, result) -> {
+      double tolerance = tolerances.forKey(key);
+      BenchmarkResult before = baselineByKey.get(key);
+      if (before == null) {
+        unmatched.add(new Row(key, null, result, tolerance, Verdict.NEW));
+      } else {
+        rows.add(new Row(key, before, result, tolerance, verdict(before, result, tolerance)));
+      }
+    });
+    baselineByKey.forEach((key, result) -> {
+      if (!currentByKey.containsKey(key)) {
+        unmatched.add(new Row(key, result, null, tolerances.forKey(key), Verdict.MISSING));
+      }
+    });
+    rows.addAll(unmatched);
+    return rows;
+  }
+
+  private static Map<String, BenchmarkResult> byKey(List<BenchmarkResult> results) {
+    return results.stream().collect(Collectors.toMap(
+        BenchmarkResult::key, Function.identity(), (first, second) -> second, LinkedHashMap::new));
+  }
+
+  /**
+   * Decides whether the current result is a regression of the baseline. A result with a single
+   * iteration has no error, so its score is taken at face value.
+   */
+  static Verdict verdict(BenchmarkResult baseline, BenchmarkResult current, double tolerance) {
+    Objects.requireNonNull(baseline);
+    Objects.requireNonNull(current);
+    double difference = current.score() - baseline.score();
+    double error = Math.sqrt(square(error(baseline)) + square(error(current)));
+    double allowed = tolerance / 100 * baseline.score();
+    if (difference + error < -allowed) {
+      return Verdict.REGRESSION;
+    }
+    if (difference - error > allowed) {
+      return Verdict.IMPROVEMENT;
+    }
+    return Math.abs(difference) > allowed ? Verdict.NOISY : Verdict.UNCHANGED;
+  }
+
+  private static double error(BenchmarkResult result) {
+    double error = result.scoreError();
+    return Double.isNaN(error) ? 0 : error;
+  }
+
+  private static double square(double value) {
+    return value * value;
+  }
+
+  /**
+   * Prints the rows as a table, with the score and error of each side, the change and the
+   * tolerance.
+   */
+  static void printTable(List<Row> rows, PrintStream out) {
+    int width = Math.max("benchmark".length(),
+        rows.stream().mapToInt(row -> row.key().length()).max().orElse(0));
+    String format = "%-" + width + "s  %24s  %24s  %9s  %9s  %s%n";
+    out.printf(Locale.ROOT, format,
+        "benchmark", "baseline", "current", "change", "tolerance", "verdict");
+    for (Row row : rows) {
+      out.printf(Locale.ROOT, format,
+          row.key(),
+          score(row.baseline()),
+          score(row.current()),
+          Double.isNaN(row.changePercent())
+              ? "-"
+              : String.format(Locale.ROOT, "%+.1f%%", row.changePercent()),
+          String.format(Locale.ROOT, "%.1f%%", row.tolerancePercent()),
+          row.verdict());
+    }
+  }
+
+  private static String score(BenchmarkResult result) {
+    if (result == null) {
+      return "-";
+    }
+    return String.format(Locale.ROOT, "%.3f +- %.3f", result.score(), error(result));
+  }
+}
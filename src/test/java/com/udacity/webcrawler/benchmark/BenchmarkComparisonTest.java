@@ -0,0 +1,92 @@
+package com.udacity.webcrawler.benchmark;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class BenchmarkComparisonTest {
+
+  @Test
+  public void consistentDropBeyondToleranceIsRegression() {
+    assertThat(BenchmarkComparison.verdict(
+        result("a", 100, 101, 99, 100), result("a", 80, 81, 79, 80), 10))
+        .isEqualTo(BenchmarkComparison.Verdict.REGRESSION);
+    assertThat(BenchmarkComparison.verdict(
+        result("a", 100, 101, 99, 100), result("a", 120, 121, 119, 120), 10))
+        .isEqualTo(BenchmarkComparison.Verdict.IMPROVEMENT);
+    assertThat(BenchmarkComparison.verdict(
+        result("a", 100, 101, 99, 100), result("a", 95, 96, 94, 95), 10))
+        .isEqualTo(BenchmarkComparison.Verdict.UNCHANGED);
+  }
+
+  @Test
+  public void noisyDropIsNotRegression() {
+    assertThat(BenchmarkComparison.verdict(
+        result("a", 100, 101, 99, 100), result("a", 40, 120, 60, 100), 10))
+        .isEqualTo(BenchmarkComparison.Verdict.NOISY);
+  }
+
+  @Test
+  public void toleranceComesFromFirstMatchingPattern() {
+    Map<Pattern, Double> percentByPattern = new LinkedHashMap<>();
+    percentByPattern.put(Pattern.compile("^slow "), 50.0);
+    percentByPattern.put(Pattern.compile("slow|fast"), 25.0);
+    BenchmarkComparison.Tolerances tolerances =
+        new BenchmarkComparison.Tolerances(10, percentByPattern);
+
+    List<BenchmarkComparison.Row> rows = BenchmarkComparison.compare(
+        List.of(result("slow", 100, 100), result("fast", 100, 100), result("gone", 1, 1)),
+        List.of(result("slow", 70, 70), result("fast", 70, 70), result("added", 1, 1)),
+        tolerances);
+
+    assertThat(rows.stream().map(BenchmarkComparison.Row::verdict).toList())
+        .containsExactly(
+            BenchmarkComparison.Verdict.UNCHANGED,
+            BenchmarkComparison.Verdict.REGRESSION,
+            BenchmarkComparison.Verdict.NEW,
+            BenchmarkComparison.Verdict.MISSING)
+        .inOrder();
+    assertThat(rows.get(0).tolerancePercent()).isEqualTo(50.0);
+    assertThat(rows.get(1).changePercent()).isWithin(1e-9).of(-30);
+  }
+
+  @Test
+  public void exitCodeReportsRegressions() throws Exception {
+    Path baseline = Files.createTempFile("baseline", ".json");
+    Path current = Files.createTempFile("current", ".json");
+    try {
+      BenchmarkReport.write(List.of(result("a", 100, 101, 99, 100)), baseline);
+      BenchmarkReport.write(List.of(result("a", 50, 51, 49, 50)), current);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      PrintStream print = new PrintStream(out, true, StandardCharsets.UTF_8);
+
+      String[] regressed = {"--baseline", baseline.toString(), "--results", current.toString()};
+      assertThat(BenchmarkComparison.run(regressed, print, print)).isEqualTo(1);
+      assertThat(out.toString(StandardCharsets.UTF_8)).contains("REGRESSION");
+
+      String[] tolerated = {"--baseline", baseline.toString(), "--results", current.toString(),
+          "--tolerance", "60"};
+      assertThat(BenchmarkComparison.run(tolerated, print, print)).isEqualTo(0);
+      assertThat(BenchmarkComparison.run(new String[] {"--results"}, print, print)).isEqualTo(2);
+    } finally {
+      Files.delete(baseline);
+      Files.delete(current);
+    }
+  }
+
+  private static BenchmarkResult result(String name, double... scores) {
+    return new BenchmarkResult(
+        name, Map.of(), 1, 0, scores.length, 100, Arrays.stream(scores).boxed().toList(), Map.of());
+  }
+}
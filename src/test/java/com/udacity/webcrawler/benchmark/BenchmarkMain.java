@@ -0,0 +1,84 @@
+package com.udacity.webcrawler.benchmark;
+
+import com.udacity.webcrawler.VisitedSetBenchmark;
+import com.udacity.webcrawler.WordCountsBenchmark;
+import com.udacity.webcrawler.parser.PageParserBenchmark;
+import com.udacity.webcrawler.profiler.ProfilingStateBenchmark;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the benchmark suite and writes the results as JSON.
+ *
+ * <p>Usage: {@code BenchmarkMain [options]}, where the options are
+ * <ul>
+ *   <li>{@code --output <path>}: where the results are written. Defaults to
+ *       {@code benchmark-results.json}.</li>
+ *   <li>{@code --include <regex>}: only run the benchmarks whose name contains a match.</li>
+ *   <li>{@code --warmup-iterations <n>}: defaults to 3.</li>
+ *   <li>{@code --iterations <n>}: the number of measured iterations. Defaults to 5.</li>
+ *   <li>{@code --iteration-millis <n>}: the length of each iteration. Defaults to 1000.</li>
+ * </ul>
+ */
+public final class BenchmarkMain {
+
+  /**
+   * Every benchmark in the suite.
+   */
+  static final List<BenchmarkSpec> SUITE = List.of(
+      WordCountsBenchmark.SPEC,
+      PageParserBenchmark.SPEC,
+      ProfilingStateBenchmark.SPEC,
+      VisitedSetBenchmark.SPEC);
+
+  private BenchmarkMain() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    Path output = Path.of("benchmark-results.json");
+    Pattern include = Pattern.compile("");
+    int warmupIterations = 3;
+    int iterations = 5;
+    long iterationMillis = 1000;
+    for (int i = 0; i < args.length; i++) {
+      String value = i + 1 < args.length ? args[i + 1] : null;
+      if (value == null) {
+        usage("Missing value for " + args[i]);
+        return;
+      }
+      switch (args[i]) {
+        case "--output" -> output = Path.of(value);
+        case "--include" -> include = Pattern.compile(value);
+        case "--warmup-iterations" -> warmupIterations = Integer.parseInt(value);
+        case "--iterations" -> iterations = Integer.parseInt(value);
+        case "--iteration-millis" -> iterationMillis = Long.parseLong(value);
+        default -> {
+          usage("Unknown option " + args[i]);
+          return;
+        }
+      }
+      i++;
+    }
+
+    BenchmarkRunner runner = new BenchmarkRunner(
+        warmupIterations, iterations, Duration.ofMillis(iterationMillis), System.out);
+    List<BenchmarkResult> results = new ArrayList<>();
+    for (BenchmarkSpec spec : SUITE) {
+      if (include.matcher(spec.name()).find()) {
+        results.addAll(runner.run(spec));
+      }
+    }
+    BenchmarkReport.write(results, output);
+    System.out.println("Benchmark results written to: " + output);
+  }
+
+  private static void usage(String error) {
+    System.err.println(error);
+    System.err.println("Usage: BenchmarkMain [--output path] [--include regex] "
+        + "[--warmup-iterations n] [--iterations n] [--iteration-millis n]");
+  }
+}
@@ -0,0 +1,122 @@
+package com.udacity.webcrawler.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes {@link BenchmarkResult}s as JSON.
+ *
+ * <p>The file is laid out like the JSON results of JMH, with one object per result holding
+ * {@code "benchmark"}, {@code "mode"}, {@code "threads"}, {@code "params"} and a
+ * {@code "primaryMetric"} with the score, its error, its unit and the raw score of each iteration,
+ * so tools that read JMH results can read these too. Measurements other than throughput are
+ * written to {@code "secondaryMetrics"}, as JMH writes those of its profilers.
+ */
+public final class BenchmarkReport {
+
+  private static final ObjectMapper MAPPER =
+      new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+  private BenchmarkReport() {
+  }
+
+  /**
+   * Writes the given results to the given path, replacing any file that is already there.
+   */
+  public static void write(List<BenchmarkResult> results, Path path) throws IOException {
+    ArrayNode root = MAPPER.createArrayNode();
+    for (BenchmarkResult result : results) {
+      ObjectNode node = root.addObject();
+      node.put("benchmark", result.benchmark());
+      node.put("mode", "thrpt");
+      node.put("threads", result.threads());
+      node.put("forks", 1);
+      node.put("warmupIterations", result.warmupIterations());
+      node.put("warmupTime", result.iterationMillis() + " ms");
+      node.put("measurementIterations", result.measurementIterations());
+      node.put("measurementTime", result.iterationMillis() + " ms");
+      ObjectNode params = node.putObject("params");
+      result.params().entrySet().stream()
+          .sorted(Map.Entry.comparingByKey())
+          .forEach(param -> params.put(param.getKey(), param.getValue()));
+      ObjectNode metric = node.putObject("primaryMetric");
+      metric.put("score", result.score());
+      if (!Double.isNaN(result.scoreError())) {
+        metric.put("scoreError", result.scoreError());
+        metric.putArray("scoreConfidence")
+            .add(result.score() - result.scoreError())
+            .add(result.score() + result.scoreError());
+      }
+      metric.put("scoreUnit", BenchmarkResult.UNIT);
+      ArrayNode rawData = metric.putArray("rawData").addArray();
+      result.scores().forEach(rawData::add);
+      if (!result.secondaryMetrics().isEmpty()) {
+        ObjectNode secondary = node.putObject("secondaryMetrics");
+        result.secondaryMetrics().forEach((name, value) -> secondary.putObject(name)
+            .put("score", value.score())
+            .put("scoreUnit", value.unit()));
+      }
+    }
+    MAPPER.writeValue(path.toFile(), root);
+  }
+
+  /**
+   * Reads the results written by {@link #write}.
+   */
+  public static List<BenchmarkResult> read(Path path) throws IOException {
+    JsonNode root = MAPPER.readTree(path.toFile());
+    if (!root.isArray()) {
+      throw new IOException("Expected an array of benchmark results in " + path);
+    }
+    List<BenchmarkResult> results = new ArrayList<>();
+    for (JsonNode node : root) {
+      Map<String, String> params = new LinkedHashMap<>();
+      node.path("params").fields()
+          .forEachRemaining(param -> params.put(param.getKey(), param.getValue().asText()));
+      List<Double> scores = new ArrayList<>();
+      for (JsonNode fork : node.path("primaryMetric").path("rawData")) {
+        fork.forEach(score -> scores.add(score.asDouble()));
+      }
+      Map<String, BenchmarkResult.Metric> secondaryMetrics = new LinkedHashMap<>();
+      node.path("secondaryMetrics").fields().forEachRemaining(metric -> secondaryMetrics.put(
+          metric.getKey(),
+          new BenchmarkResult.Metric(
+              metric.getValue().path("score").asDouble(),
+              metric.getValue().path("scoreUnit").asText())));
+      results.add(new BenchmarkResult(
+          node.path("benchmark").asText(),
+          params,
+          node.path("threads").asInt(1),
+          node.path("warmupIterations").asInt(),
+          scores.size(),
+          parseMillis(node.path("measurementTime").asText()),
+          scores,
+          secondaryMetrics));
+    }
+    return results;
+  }
+
+  /**
+   * Parses an iteration time such as {@code "500 ms"} or {@code "1 s"}, as JMH writes them.
+   * Returns 0 if the time is missing or cannot be parsed, since it is only informative.
+   */
+  private static long parseMillis(String time) {
+    String[] parts = time.trim().split(" ");
+    try {
+      long value = Long.parseLong(parts[0]);
+      return parts.length > 1 && parts[1].equals("s") ? value * 1000 : value;
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+}
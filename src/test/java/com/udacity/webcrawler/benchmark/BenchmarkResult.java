@@ -0,0 +1,127 @@
+package com.udacity.webcrawler.benchmark;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The measured throughput of a benchmark, for one combination of parameters and thread count.
+ *
+ * @param benchmark             the name of the benchmark.
+ * @param params                the value of each parameter.
+ * @param threads               the number of threads that ran the benchmark.
+ * @param warmupIterations      the number of iterations that were run before measuring.
+ * @param measurementIterations the number of measured iterations.
+ * @param iterationMillis       the length of each iteration.
+ * @param scores                the throughput of each measured iteration, in operations per
+ *                              second.
+ * @param secondaryMetrics      other measurements of the benchmark, such as its latency or
+ *                              memory use, averaged over the measured iterations.
+ */
+public record BenchmarkResult(
+    String benchmark,
+    Map<String, String> params,
+    int threads,
+    int warmupIterations,
+    int measurementIterations,
+    long iterationMillis,
+    List<Double> scores,
+    Map<String, Metric> secondaryMetrics) {
+
+  /**
+   * The unit of the scores.
+   */
+  public static final String UNIT = "ops/s";
+
+  /**
+   * Two-sided 99.9% quantiles of Student's t-distribution for 1 to 30 degrees of freedom, which
+   * is also the confidence level JMH reports its score errors at.
+   */
+  private static final double[] T_999 = {
+      636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587,
+      4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850,
+      3.819, 3.792, 3.768, 3.745, 3.725, 3.707, 3.690, 3.674, 3.659, 3.646};
+
+  public BenchmarkResult {
+    Objects.requireNonNull(benchmark);
+    params = Map.copyOf(params);
+    scores = List.copyOf(scores);
+    secondaryMetrics = Collections.unmodifiableMap(new LinkedHashMap<>(secondaryMetrics));
+    if (scores.isEmpty()) {
+      throw new IllegalArgumentException("A result needs at least one score");
+    }
+  }
+
+  /**
+   * Returns the mean throughput of the measured iterations.
+   */
+  public double score() {
+    return scores.stream().mapToDouble(Double::doubleValue).average().orElseThrow();
+  }
+
+  /**
+   * Returns the half-width of the 99.9% confidence interval of {@link #score()}, or
+   * {@link Double#NaN} if there was only one measured iteration.
+   */
+  public double scoreError() {
+    int n = scores.size();
+    if (n < 2) {
+      return Double.NaN;
+    }
+    double mean = score();
+    double squares = 0;
+    for (double score : scores) {
+      squares += (score - mean) * (score - mean);
+    }
+    double standardDeviation = Math.sqrt(squares / (n - 1));
+    return studentT999(n - 1) * standardDeviation / Math.sqrt(n);
+  }
+
+  /**
+   * Returns a key that identifies the benchmark, its parameters and thread count, so that results
+   * of different runs can be matched up.
+   */
+  public String key() {
+    StringBuilder key = new StringBuilder(benchmark);
+    params.entrySet().stream()
+        .sorted(Map.Entry.comparingByKey())
+        .forEach(param -> key.append(' ').append(param.getKey()).append('=')
+            .append(param.getValue()));
+    return key.append(" threads=").append(threads).toString();
+  }
+
+  /**
+   * A measurement other than throughput.
+   *
+   * @param score the measured value.
+   * @param unit  the unit of the value, such as {@code "ms"}.
+   */
+  public record Metric(double score, String unit) {
+    public Metric {
+      Objects.requireNonNull(unit);
+    }
+  }
+
+  /**
+   * Returns the two-sided 99.9% quantile of Student's t-distribution with the given degrees of
+   * freedom. Beyond 30 degrees of freedom, the quantile of the nearest tabulated value below is
+   * used, which makes the interval slightly wider than it needs to be.
+   */
+  static double studentT999(int degreesOfFreedom) {
+    if (degreesOfFreedom < 1) {
+      throw new IllegalArgumentException("degreesOfFreedom must be positive");
+    }
+    if (degreesOfFreedom <= T_999.length) {
+      return T_999[degreesOfFreedom - 1];
+    }
+    if (degreesOfFreedom <= 40) {
+      return 3.646;
+    }
+    if (degreesOfFreedom <= 60) {
+      return 3.551;
+    }
+    return degreesOfFreedom <= 120 ? 3.460 : 3.373;
+  }
+}
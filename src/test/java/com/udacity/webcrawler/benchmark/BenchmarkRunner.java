@@ -0,0 +1,166 @@
+package com.udacity.webcrawler.benchmark;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Measures the throughput of {@link Benchmark}s.
+ *
+ * <p>Each combination of parameters and thread count is a trial: the benchmark is set up, run for
+ * a number of warmup iterations so that the JIT compiler has compiled its hot paths, and then for
+ * a number of measured iterations. During an iteration, every thread calls {@link Benchmark#run()}
+ * in a loop until the iteration time is up, and the score of the iteration is the total number of
+ * calls divided by the time it took.
+ *
+ * <p>All trials run in the JVM of the runner, so benchmarks that run earlier can change how the
+ * JIT compiler treats the code of later ones. Comparing results is most reliable between runs of
+ * the same suite.
+ */
+public final class BenchmarkRunner {
+
+  private final int warmupIterations;
+  private final int measurementIterations;
+  private final Duration iterationTime;
+  private final PrintStream log;
+
+  /**
+   * Creates a runner.
+   *
+   * @param warmupIterations      the number of iterations to run before measuring.
+   * @param measurementIterations the number of measured iterations.
+   * @param iterationTime         the length of each iteration.
+   * @param log                   where the progress of the runner is printed.
+   */
+  public BenchmarkRunner(
+      int warmupIterations, int measurementIterations, Duration iterationTime, PrintStream log) {
+    if (warmupIterations < 0) {
+      throw new IllegalArgumentException("warmupIterations cannot be negative");
+    }
+    if (measurementIterations <= 0) {
+      throw new IllegalArgumentException("measurementIterations must be positive");
+    }
+    if (iterationTime.isNegative() || iterationTime.isZero()) {
+      throw new IllegalArgumentException("iterationTime must be positive");
+    }
+    this.warmupIterations = warmupIterations;
+    this.measurementIterations = measurementIterations;
+    this.iterationTime = iterationTime;
+    this.log = Objects.requireNonNull(log);
+  }
+
+  /**
+   * Runs every trial of the given benchmark and returns their results.
+   */
+  public List<BenchmarkResult> run(BenchmarkSpec spec) throws Exception {
+    List<BenchmarkResult> results = new ArrayList<>();
+    for (Map<String, String> params : spec.parameterCombinations()) {
+      for (int threads : spec.threads()) {
+        results.add(runTrial(spec, params, threads));
+      }
+    }
+    return results;
+  }
+
+  private BenchmarkResult runTrial(BenchmarkSpec spec, Map<String, String> params, int threads)
+      throws Exception {
+    log.printf("# %s %s threads=%d%n", spec.name(), params, threads);
+    Benchmark benchmark = spec.factory().get();
+    benchmark.setUp(params);
+    List<Double> scores = new ArrayList<>();
+    try {
+      for (int i = 1; i <= warmupIterations; i++) {
+        log.printf(Locale.ROOT, "  warmup %d: %.3f %s%n",
+            i, runIteration(benchmark, threads), BenchmarkResult.UNIT);
+      }
+      for (int i = 1; i <= measurementIterations; i++) {
+        double score = runIteration(benchmark, threads);
+        scores.add(score);
+        log.printf(Locale.ROOT, "  iteration %d: %.3f %s%n", i, score, BenchmarkResult.UNIT);
+      }
+    } finally {
+      benchmark.tearDown();
+    }
+    BenchmarkResult result = new BenchmarkResult(spec.name(), params, threads, warmupIterations,
+        measurementIterations, iterationTime.toMillis(), scores, Map.of());
+    log.printf(Locale.ROOT, "  result: %.3f +- %.3f %s%n",
+        result.score(), result.scoreError(), BenchmarkResult.UNIT);
+    return result;
+  }
+
+  /**
+   * Runs the benchmark on the given number of threads until the iteration time is up, and returns
+   * the number of operations per second.
+   */
+  private double runIteration(Benchmark benchmark, int threads) throws Exception {
+    Iteration iteration = new Iteration();
+    CountDownLatch ready = new CountDownLatch(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    long[] operations = new long[threads];
+    List<Thread> workers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      int index = t;
+      Thread worker = new Thread(() -> {
+        ready.countDown();
+        long count = 0;
+        Object last = null;
+        try {
+          start.await();
+          while (!iteration.stopped) {
+            last = benchmark.run();
+            count++;
+          }
+        } catch (Throwable e) {
+          failure.compareAndSet(null, e);
+          iteration.stopped = true;
+        }
+        operations[index] = count;
+        iteration.sink = last;
+      }, "benchmark-worker-" + t);
+      workers.add(worker);
+      worker.start();
+    }
+
+    ready.await();
+    long begin = System.nanoTime();
+    start.countDown();
+    Thread.sleep(iterationTime.toMillis());
+    iteration.stopped = true;
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    // The threads finish the operation they were running when the iteration stopped, so the time
+    // is measured until they have all finished.
+    long elapsed = System.nanoTime() - begin;
+
+    Throwable error = failure.get();
+    if (error instanceof Exception e) {
+      throw e;
+    }
+    if (error != null) {
+      throw new IllegalStateException("Benchmark failed", error);
+    }
+    long total = 0;
+    for (long count : operations) {
+      total += count;
+    }
+    return total / (elapsed / 1e9);
+  }
+
+  /**
+   * The state shared by the threads of an iteration.
+   */
+  private static final class Iteration {
+    volatile boolean stopped;
+
+    // Keeps the last result of each thread reachable, so the JIT compiler cannot drop the work.
+    volatile Object sink;
+  }
+}
@@ -0,0 +1,55 @@
+package com.udacity.webcrawler.benchmark;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * A benchmark, the values of its parameters, and the thread counts it is run with.
+ *
+ * @param name    the name of the benchmark, written in the results. By convention, this is the
+ *                name of the benchmark class followed by the name of the operation.
+ * @param params  the values of each parameter. The benchmark is run for every combination.
+ * @param threads the numbers of threads the benchmark is run with.
+ * @param factory creates the benchmark.
+ */
+public record BenchmarkSpec(
+    String name,
+    Map<String, List<String>> params,
+    List<Integer> threads,
+    Supplier<Benchmark> factory) {
+
+  public BenchmarkSpec {
+    Objects.requireNonNull(name);
+    params = new LinkedHashMap<>(params);
+    threads = List.copyOf(threads);
+    Objects.requireNonNull(factory);
+    if (threads.isEmpty() || threads.stream().anyMatch(count -> count <= 0)) {
+      throw new IllegalArgumentException("threads must be positive numbers: " + threads);
+    }
+  }
+
+  /**
+   * Returns every combination of parameter values, in the order the parameters and values were
+   * given. A benchmark without parameters has a single, empty combination.
+   */
+  public List<Map<String, String>> parameterCombinations() {
+    List<Map<String, String>> combinations = new ArrayList<>();
+    combinations.add(Map.of());
+    for (Map.Entry<String, List<String>> param : params.entrySet()) {
+      List<Map<String, String>> next = new ArrayList<>();
+      for (Map<String, String> combination : combinations) {
+        for (String value : param.getValue()) {
+          Map<String, String> extended = new LinkedHashMap<>(combination);
+          extended.put(param.getKey(), value);
+          next.add(extended);
+        }
+      }
+      combinations = next;
+    }
+    return combinations;
+  }
+}
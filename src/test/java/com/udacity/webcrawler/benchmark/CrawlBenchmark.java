@@ -0,0 +1,485 @@
+package com.udacity.webcrawler.benchmark;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Module;
+import com.google.inject.util.Modules;
+import com.udacity.webcrawler.WebCrawler;
+import com.udacity.webcrawler.WebCrawlerModule;
+import com.udacity.webcrawler.json.CrawlResult;
+import com.udacity.webcrawler.json.CrawlerConfiguration;
+import com.udacity.webcrawler.parser.SimulatedWeb;
+import com.udacity.webcrawler.parser.SimulatedWebModule;
+import com.udacity.webcrawler.profiler.LatencyHistogram;
+import com.udacity.webcrawler.profiler.MethodProfile;
+import com.udacity.webcrawler.profiler.Profiler;
+import com.udacity.webcrawler.profiler.ProfilerModule;
+import com.udacity.webcrawler.profiler.ProfilingLevel;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
+
+/**
+ * Crawls a generated site with each {@link WebCrawler} implementation, under the same conditions,
+ * and reports how they perform. The site is either written to a local directory and crawled
+ * through {@code file://} URLs, served over HTTP by a {@link SiteServer}, whose hosts add the
+ * latency, bandwidth limits and failures of a real network, or simulated in memory by a
+ * {@link SimulatedWeb}, which scales to millions of pages.
+ *
+ * <p>Every crawl gets a new injector with a {@link WebCrawlerModule}, so it runs exactly as a
+ * crawl started by {@code WebCrawlerMain} would, with a profiler that records every call. For each
+ * implementation, a number of warmup crawls are run first, and then each measured crawl reports:
+ * <ul>
+ *   <li>its throughput, in pages visited per second, which is the score of the result;</li>
+ *   <li>the time from starting the crawl to getting its result;</li>
+ *   <li>percentiles of the time to fetch and parse a page, from the profile of
+ *       {@code PageParser#parse};</li>
+ *   <li>the peak heap use, sampled every few milliseconds after a full garbage collection;</li>
+ *   <li>the time spent in garbage collection.</li>
+ * </ul>
+ *
+ * <p>Usage: {@code CrawlBenchmark [options]}, where the options are
+ * <ul>
+ *   <li>{@code --pages <n>}: the number of pages of the site. Defaults to 10000.</li>
+ *   <li>{@code --links <n>}: the mean number of links on a page. Defaults to 8.</li>
+ *   <li>{@code --fan-out fixed|power-law}: how the number of links is distributed. Defaults to
+ *       {@code power-law}.</li>
+ *   <li>{@code --page-bytes <n>}: the size of the text of a page. Defaults to 2048.</li>
+ *   <li>{@code --locality <p>}: the probability that a link leads to a nearby page. Defaults to
+ *       0.8.</li>
+ *   <li>{@code --seed <n>}: the seed of the site. Defaults to 42.</li>
+ *   <li>{@code --site-dir <path>}: where the site is generated, and kept after the benchmark.
+ *       Defaults to a temporary directory that is deleted afterwards.</li>
+ *   <li>{@code --implementations <names>}: comma-separated class names of the crawlers. Defaults
+ *       to the sequential and parallel crawlers.</li>
+ *   <li>{@code --parallelism <n>}: defaults to the number of processors.</li>
+ *   <li>{@code --max-depth <n>}: defaults to 64. Crawlers that reach a page through a long path
+ *       first do not visit it again through a shorter one, so the deeper the crawl, the more of
+ *       the site it visits; the number of URLs visited is reported with the results.</li>
+ *   <li>{@code --max-parse-millis <n>}: the time limit for fetching and parsing a page. Defaults
+ *       to 10000.</li>
+ *   <li>{@code --simulated true|false}: whether to crawl a {@link SimulatedWeb} with the pages,
+ *       links, seed, hosts and latency of the other options, and as many words per page as fit in
+ *       the page size. Its fan-out is always a power law, and its links have no locality.
+ *       Defaults to false.</li>
+ *   <li>{@code --hosts <n>}: the number of hosts to serve the site from over HTTP. Defaults to 0,
+ *       which crawls local files instead, and ignores the options below unless the web is
+ *       simulated.</li>
+ *   <li>{@code --latency-millis <n>}: the median time a host takes to respond. Defaults to 20.</li>
+ *   <li>{@code --latency-sigma <s>}: the spread of the log-normal latency. Defaults to 0.5.</li>
+ *   <li>{@code --bytes-per-second <n>}: the bandwidth of each host, or 0 for unlimited. Defaults
+ *       to 0.</li>
+ *   <li>{@code --error-rate <p>}: the fraction of requests that fail with a 503. Defaults to
+ *       0.</li>
+ *   <li>{@code --redirect-rate <p>}: the fraction of requests that are redirected. Defaults to
+ *       0.</li>
+ *   <li>{@code --slow-rate <p>}: the fraction of responses whose body trickles out a byte every
+ *       100 ms, until the page's time limit is up. Defaults to 0.</li>
+ *   <li>{@code --index true|false}: whether the crawls also build an inverted index of the pages,
+ *       to measure what indexing costs. Defaults to false.</li>
+ *   <li>{@code --warmups <n>}: defaults to 1.</li>
+ *   <li>{@code --repetitions <n>}: the number of measured crawls. Defaults to 3.</li>
+ *   <li>{@code --output <path>}: where the results are written as JSON, in the layout of
+ *       {@link BenchmarkReport}. Defaults to {@code crawl-benchmark-results.json}.</li>
+ * </ul>
+ */
+public final class CrawlBenchmark {
+
+  private static final Duration HEAP_SAMPLE_INTERVAL = Duration.ofMillis(5);
+
+  private final SiteGenerator.Options site;
+  private final int parallelism;
+  private final int maxDepth;
+  private final int maxParseMillis;
+  private final boolean index;
+  private final int warmups;
+  private final int repetitions;
+
+  CrawlBenchmark(
+      SiteGenerator.Options site,
+      int parallelism,
+      int maxDepth,
+      int maxParseMillis,
+      boolean index,
+      int warmups,
+      int repetitions) {
+    this.site = site;
+    this.parallelism = parallelism;
+    this.maxDepth = maxDepth;
+    this.maxParseMillis = maxParseMillis;
+    this.index = index;
+    this.warmups = warmups;
+    this.repetitions = repetitions;
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = new LinkedHashMap<>();
+    options.put("--pages", "10000");
+    options.put("--links", "8");
+    options.put("--fan-out", "power-law");
+    options.put("--page-bytes", "2048");
+    options.put("--locality", "0.8");
+    options.put("--seed", "42");
+    options.put("--site-dir", "");
+    options.put("--implementations",
+        "com.udacity.webcrawler.SequentialWebCrawler,com.udacity.webcrawler.ParallelWebCrawler");
+    options.put("--parallelism", String.valueOf(Runtime.getRuntime().availableProcessors()));
+    options.put("--max-depth", "64");
+    options.put("--max-parse-millis", "10000");
+    options.put("--simulated", "false");
+    options.put("--hosts", "0");
+    options.put("--latency-millis", "20");
+    options.put("--latency-sigma", "0.5");
+    options.put("--bytes-per-second", "0");
+    options.put("--error-rate", "0");
+    options.put("--redirect-rate", "0");
+    options.put("--slow-rate", "0");
+    options.put("--index", "false");
+    options.put("--warmups", "1");
+    options.put("--repetitions", "3");
+    options.put("--output", "crawl-benchmark-results.json");
+    for (int i = 0; i < args.length; i += 2) {
+      if (!options.containsKey(args[i]) || i + 1 >= args.length) {
+        System.err.println("Unknown option or missing value: " + args[i]);
+        System.err.println("Options: " + options.keySet());
+        return;
+      }
+      options.put(args[i], args[i + 1]);
+    }
+
+    SiteGenerator.Options site = new SiteGenerator.Options(
+        Integer.parseInt(options.get("--pages")),
+        Integer.parseInt(options.get("--links")),
+        SiteGenerator.FanOut.valueOf(
+            options.get("--fan-out").toUpperCase(Locale.ROOT).replace('-', '_')),
+        Integer.parseInt(options.get("--page-bytes")),
+        Double.parseDouble(options.get("--locality")),
+        Long.parseLong(options.get("--seed")));
+    CrawlBenchmark benchmark = new CrawlBenchmark(
+        site,
+        Integer.parseInt(options.get("--parallelism")),
+        Integer.parseInt(options.get("--max-depth")),
+        Integer.parseInt(options.get("--max-parse-millis")),
+        Boolean.parseBoolean(options.get("--index")),
+        Integer.parseInt(options.get("--warmups")),
+        Integer.parseInt(options.get("--repetitions")));
+
+    List<String> implementations = new ArrayList<>();
+    for (String implementation : options.get("--implementations").split(",")) {
+      implementations.add(implementation.trim());
+    }
+    int hosts = Integer.parseInt(options.get("--hosts"));
+    List<BenchmarkResult> results;
+    if (Boolean.parseBoolean(options.get("--simulated"))) {
+      results = benchmark.runSimulated(implementations, Math.max(1, hosts),
+          hostBehavior(options).getLatency());
+    } else if (hosts > 0) {
+      results = benchmark.runOverHttp(implementations, hosts, hostBehavior(options));
+    } else {
+      results = benchmark.runOnFiles(implementations, options.get("--site-dir"));
+    }
+    Path output = Path.of(options.get("--output"));
+    BenchmarkReport.write(results, output);
+    printTable(results);
+    System.out.println("Benchmark results written to: " + output);
+  }
+
+  private static HostBehavior hostBehavior(Map<String, String> options) {
+    return new HostBehavior.Builder()
+        .setLatency(LatencyDistribution.logNormal(
+            Duration.ofMillis(Long.parseLong(options.get("--latency-millis"))),
+            Double.parseDouble(options.get("--latency-sigma"))))
+        .setBytesPerSecond(Long.parseLong(options.get("--bytes-per-second")))
+        .setErrors(Double.parseDouble(options.get("--error-rate")), 503)
+        .setRedirectRate(Double.parseDouble(options.get("--redirect-rate")))
+        .setSlowResponses(Double.parseDouble(options.get("--slow-rate")), Duration.ofMillis(100))
+        .build();
+  }
+
+  /**
+   * Generates the site in the given directory, or in a temporary one that is deleted afterwards
+   * if it is empty, and crawls it with each of the given implementations.
+   */
+  private List<BenchmarkResult> runOnFiles(List<String> implementations, String siteDir)
+      throws IOException, InterruptedException {
+    boolean keepSite = !siteDir.isEmpty();
+    Path directory = keepSite ? Path.of(siteDir) : Files.createTempDirectory("crawl-benchmark");
+    try {
+      System.out.println("Generating site: " + site);
+      long start = System.nanoTime();
+      Path startPage = new SiteGenerator(site).generate(directory);
+      System.out.printf(Locale.ROOT, "Generated %s in %.1f s%n",
+          directory, (System.nanoTime() - start) / 1e9);
+
+      List<BenchmarkResult> results = new ArrayList<>();
+      for (String implementation : implementations) {
+        results.add(run(implementation, startPage.toUri().toString(), Map.of(), null));
+      }
+      return results;
+    } finally {
+      if (!keepSite) {
+        delete(directory);
+      }
+    }
+  }
+
+  /**
+   * Serves the site from the given number of hosts that all behave as given, and crawls it with
+   * each of the given implementations.
+   */
+  private List<BenchmarkResult> runOverHttp(
+      List<String> implementations, int hosts, HostBehavior behavior)
+      throws IOException, InterruptedException {
+    System.out.println("Serving site: " + site);
+    System.out.println("From " + hosts + " hosts: " + behavior);
+    Map<String, String> params = new LinkedHashMap<>();
+    params.put("hosts", String.valueOf(hosts));
+    params.put("host", behavior.toString());
+    List<BenchmarkResult> results = new ArrayList<>();
+    try (SiteServer server = SiteServer.start(site, Collections.nCopies(hosts, behavior))) {
+      for (String implementation : implementations) {
+        results.add(run(implementation, server.getStartUrl(), params, null));
+      }
+      System.out.println("Server: " + server.getStats());
+    }
+    return results;
+  }
+
+  /**
+   * Simulates the site in memory, spread over the given number of hosts with the given latency,
+   * and crawls it with each of the given implementations.
+   */
+  private List<BenchmarkResult> runSimulated(
+      List<String> implementations, int hosts, LatencyDistribution latency)
+      throws InterruptedException {
+    SimulatedWeb web = new SimulatedWeb(new SimulatedWeb.Options(
+        site.pages(), hosts, site.meanLinks(), site.pageBytes() / 6, 20_000, latency, site.seed()));
+    System.out.println("Simulating web: " + web.getOptions());
+    Map<String, String> params = new LinkedHashMap<>();
+    params.put("simulated", "true");
+    params.put("hosts", String.valueOf(hosts));
+    params.put("latency", latency.toString());
+    List<BenchmarkResult> results = new ArrayList<>();
+    for (String implementation : implementations) {
+      results.add(run(implementation, web.getStartUrl(), params, new SimulatedWebModule(web)));
+    }
+    return results;
+  }
+
+  /**
+   * Runs the warmup and measured crawls of the given implementation from the given start page,
+   * and reports them with the given parameters of the site on top of the usual ones. If a module
+   * is given, it overrides the bindings of the {@link WebCrawlerModule}, to fetch pages from
+   * somewhere else.
+   */
+  BenchmarkResult run(
+      String implementation, String startPage, Map<String, String> siteParams, Module parsers)
+      throws InterruptedException {
+    CrawlerConfiguration config = new CrawlerConfiguration.Builder()
+        .addStartPages(startPage)
+        .setImplementationOverride(implementation)
+        .setParallelism(parallelism)
+        .setMaxDepth(maxDepth)
+        .setMaxParseMillis(maxParseMillis)
+        .setTimeoutSeconds(24 * 60 * 60)
+        .setPopularWordCount(10)
+        // The index is built in memory, which is what is measured, but never written.
+        .setIndexOutputPath(index ? "index" : "")
+        .build();
+    String name = implementation.substring(implementation.lastIndexOf('.') + 1);
+    for (int i = 1; i <= warmups; i++) {
+      Run run = crawl(config, parsers);
+      System.out.printf(Locale.ROOT, "%s warmup %d: %s%n", name, i, run);
+    }
+    List<Run> runs = new ArrayList<>();
+    for (int i = 1; i <= repetitions; i++) {
+      Run run = crawl(config, parsers);
+      runs.add(run);
+      System.out.printf(Locale.ROOT, "%s crawl %d: %s%n", name, i, run);
+    }
+
+    Map<String, String> params = new LinkedHashMap<>();
+    params.put("implementation", name);
+    params.put("pages", String.valueOf(site.pages()));
+    params.put("links", String.valueOf(site.meanLinks()));
+    params.put("fanOut", site.fanOut().name().toLowerCase(Locale.ROOT).replace('_', '-'));
+    params.put("pageBytes", String.valueOf(site.pageBytes()));
+    params.put("locality", String.valueOf(site.locality()));
+    params.put("maxDepth", String.valueOf(maxDepth));
+    if (index) {
+      params.put("index", "true");
+    }
+    params.putAll(siteParams);
+    Map<String, BenchmarkResult.Metric> metrics = new LinkedHashMap<>();
+    metrics.put("timeToResult", mean(runs, run -> run.elapsedNanos / 1e6, "ms"));
+    metrics.put("pageLatencyP50", mean(runs, run -> run.latencyNanos[0] / 1e6, "ms"));
+    metrics.put("pageLatencyP90", mean(runs, run -> run.latencyNanos[1] / 1e6, "ms"));
+    metrics.put("pageLatencyP99", mean(runs, run -> run.latencyNanos[2] / 1e6, "ms"));
+    metrics.put("peakHeap", mean(runs, run -> run.peakHeapBytes / 1048576.0, "MB"));
+    metrics.put("gcTime", mean(runs, run -> run.gcMillis, "ms"));
+    metrics.put("urlsVisited", mean(runs, run -> run.urlsVisited, "urls"));
+    return new BenchmarkResult(
+        CrawlBenchmark.class.getName() + ".crawl",
+        params,
+        runs.get(0).threads,
+        warmups,
+        repetitions,
+        0,
+        runs.stream().map(Run::pagesPerSecond).toList(),
+        metrics);
+  }
+
+  /**
+   * Runs one crawl with a new injector, whose bindings are overridden by the given module if it is
+   * not null.
+   */
+  private Run crawl(CrawlerConfiguration config, Module parsers) throws InterruptedException {
+    Module crawler = parsers == null
+        ? new WebCrawlerModule(config)
+        : Modules.override(new WebCrawlerModule(config)).with(parsers);
+    Injector injector =
+        Guice.createInjector(crawler, new ProfilerModule(ProfilingLevel.FULL, 1));
+    WebCrawler webCrawler = injector.getInstance(WebCrawler.class);
+    Profiler profiler = injector.getInstance(Profiler.class);
+
+    List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    System.gc();
+    long gcMillisBefore = gcMillis(collectors);
+    HeapSampler sampler = new HeapSampler();
+    sampler.start();
+    long start = System.nanoTime();
+    CrawlResult result = webCrawler.crawl(config.getStartPages());
+    long elapsed = System.nanoTime() - start;
+    long peakHeap = sampler.finish();
+    long gcMillis = gcMillis(collectors) - gcMillisBefore;
+
+    LatencyHistogram latency = profiler.getData().entrySet().stream()
+        .filter(entry -> entry.getKey().endsWith("#parse"))
+        .map(Map.Entry::getValue)
+        .max(Comparator.comparingLong(MethodProfile::getCount))
+        .map(MethodProfile::getElapsed)
+        .orElseGet(LatencyHistogram::new);
+    return new Run(
+        Math.min(config.getParallelism(), webCrawler.getMaxParallelism()),
+        result.getUrlsVisited(),
+        elapsed,
+        new long[] {
+            latency.getPercentile(50).toNanos(),
+            latency.getPercentile(90).toNanos(),
+            latency.getPercentile(99).toNanos()},
+        peakHeap,
+        gcMillis);
+  }
+
+  private static long gcMillis(List<GarbageCollectorMXBean> collectors) {
+    return collectors.stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+  }
+
+  private static BenchmarkResult.Metric mean(
+      List<Run> runs, ToDoubleFunction<Run> value, String unit) {
+    return new BenchmarkResult.Metric(
+        runs.stream().mapToDouble(value).average().orElse(Double.NaN), unit);
+  }
+
+  private static void printTable(List<BenchmarkResult> results) {
+    System.out.printf(Locale.ROOT, "%n%-24s %10s %12s %9s %9s %9s %10s %9s%n",
+        "implementation", "pages/s", "time (ms)", "p50 (ms)", "p90 (ms)", "p99 (ms)",
+        "heap (MB)", "gc (ms)");
+    for (BenchmarkResult result : results) {
+      Map<String, BenchmarkResult.Metric> metrics = result.secondaryMetrics();
+      System.out.printf(Locale.ROOT, "%-24s %10.1f %12.1f %9.3f %9.3f %9.3f %10.1f %9.1f%n",
+          result.params().get("implementation"),
+          result.score(),
+          metrics.get("timeToResult").score(),
+          metrics.get("pageLatencyP50").score(),
+          metrics.get("pageLatencyP90").score(),
+          metrics.get("pageLatencyP99").score(),
+          metrics.get("peakHeap").score(),
+          metrics.get("gcTime").score());
+    }
+  }
+
+  private static void delete(Path directory) throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  /**
+   * The measurements of a single crawl.
+   */
+  private record Run(
+      int threads,
+      int urlsVisited,
+      long elapsedNanos,
+      long[] latencyNanos,
+      long peakHeapBytes,
+      long gcMillis) {
+
+    double pagesPerSecond() {
+      return urlsVisited / (elapsedNanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+      return String.format(Locale.ROOT,
+          "%d pages in %.1f ms (%.1f pages/s), page p50 %.3f ms, p99 %.3f ms, "
+              + "peak heap %.1f MB, gc %d ms",
+          urlsVisited, elapsedNanos / 1e6, pagesPerSecond(), latencyNanos[0] / 1e6,
+          latencyNanos[2] / 1e6, peakHeapBytes / 1048576.0, gcMillis);
+    }
+  }
+
+  /**
+   * Samples the heap use until it is interrupted, and keeps the largest sample.
+   */
+  private static final class HeapSampler extends Thread {
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final AtomicLong peak = new AtomicLong();
+
+    HeapSampler() {
+      super("heap-sampler");
+      setDaemon(true);
+      peak.set(memory.getHeapMemoryUsage().getUsed());
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (!isInterrupted()) {
+          peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+          Thread.sleep(HEAP_SAMPLE_INTERVAL.toMillis());
+        }
+      } catch (InterruptedException e) {
+        // Interrupted at the end of the crawl.
+      }
+      peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+    }
+
+    /**
+     * Stops sampling and returns the largest sample, in bytes.
+     */
+    long finish() throws InterruptedException {
+      interrupt();
+      join();
+      return peak.get();
+    }
+  }
+}
@@ -0,0 +1,182 @@
+package com.udacity.webcrawler.benchmark;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * How a host of a {@link SiteServer} responds: how long it takes, how fast it sends, and how
+ * often it fails, stalls or redirects.
+ *
+ * <p>Each request draws at most one of the failure modes, in the order error, redirect and slow
+ * response, so the rates add up: an error rate of 0.1 and a redirect rate of 0.2 give 10% errors,
+ * 20% redirects and 70% ordinary responses.
+ */
+public final class HostBehavior {
+
+  private final LatencyDistribution latency;
+  private final long bytesPerSecond;
+  private final double errorRate;
+  private final int errorStatus;
+  private final double redirectRate;
+  private final double slowRate;
+  private final Duration slowByteInterval;
+
+  private HostBehavior(
+      LatencyDistribution latency,
+      long bytesPerSecond,
+      double errorRate,
+      int errorStatus,
+      double redirectRate,
+      double slowRate,
+      Duration slowByteInterval) {
+    this.latency = latency;
+    this.bytesPerSecond = bytesPerSecond;
+    this.errorRate = errorRate;
+    this.errorStatus = errorStatus;
+    this.redirectRate = redirectRate;
+    this.slowRate = slowRate;
+    this.slowByteInterval = slowByteInterval;
+  }
+
+  /**
+   * Returns the distribution of the time the host takes before it sends the response headers.
+   */
+  public LatencyDistribution getLatency() {
+    return latency;
+  }
+
+  /**
+   * Returns the rate the host sends response bodies at, or 0 if it is not limited.
+   */
+  public long getBytesPerSecond() {
+    return bytesPerSecond;
+  }
+
+  /**
+   * Returns the fraction of requests that get an error response.
+   */
+  public double getErrorRate() {
+    return errorRate;
+  }
+
+  /**
+   * Returns the HTTP status code of error responses.
+   */
+  public int getErrorStatus() {
+    return errorStatus;
+  }
+
+  /**
+   * Returns the fraction of requests that are redirected to another address of the same page.
+   */
+  public double getRedirectRate() {
+    return redirectRate;
+  }
+
+  /**
+   * Returns the fraction of requests that get a "slow loris" response: the headers are sent as
+   * usual, but the body trickles out a byte at a time, for as long as the client keeps reading.
+   */
+  public double getSlowRate() {
+    return slowRate;
+  }
+
+  /**
+   * Returns the time between the bytes of a slow response.
+   */
+  public Duration getSlowByteInterval() {
+    return slowByteInterval;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(Locale.ROOT,
+        "latency %s, %s, errors %.2f (%d), redirects %.2f, slow %.2f",
+        latency, bytesPerSecond == 0 ? "unlimited bandwidth" : bytesPerSecond + " bytes/s",
+        errorRate, errorStatus, redirectRate, slowRate);
+  }
+
+  /**
+   * A builder class for {@link HostBehavior}. By default, a host responds at once, at full speed,
+   * and never fails.
+   */
+  public static final class Builder {
+    private LatencyDistribution latency = LatencyDistribution.none();
+    private long bytesPerSecond = 0;
+    private double errorRate = 0;
+    private int errorStatus = 503;
+    private double redirectRate = 0;
+    private double slowRate = 0;
+    private Duration slowByteInterval = Duration.ofMillis(100);
+
+    /**
+     * Sets the distribution of the time the host takes before it sends the response headers.
+     */
+    public Builder setLatency(LatencyDistribution latency) {
+      this.latency = Objects.requireNonNull(latency);
+      return this;
+    }
+
+    /**
+     * Sets the rate the host sends response bodies at. 0 means unlimited.
+     */
+    public Builder setBytesPerSecond(long bytesPerSecond) {
+      if (bytesPerSecond < 0) {
+        throw new IllegalArgumentException("bytesPerSecond cannot be negative");
+      }
+      this.bytesPerSecond = bytesPerSecond;
+      return this;
+    }
+
+    /**
+     * Sets the fraction of requests that get an error response with the given status code.
+     */
+    public Builder setErrors(double errorRate, int errorStatus) {
+      if (errorStatus < 400 || errorStatus > 599) {
+        throw new IllegalArgumentException("errorStatus must be an HTTP error status");
+      }
+      this.errorRate = rate(errorRate);
+      this.errorStatus = errorStatus;
+      return this;
+    }
+
+    /**
+     * Sets the fraction of requests that are redirected.
+     */
+    public Builder setRedirectRate(double redirectRate) {
+      this.redirectRate = rate(redirectRate);
+      return this;
+    }
+
+    /**
+     * Sets the fraction of requests that get a slow response, and the time between its bytes.
+     */
+    public Builder setSlowResponses(double slowRate, Duration slowByteInterval) {
+      if (slowByteInterval.isNegative() || slowByteInterval.isZero()) {
+        throw new IllegalArgumentException("slowByteInterval must be positive");
+      }
+      this.slowRate = rate(slowRate);
+      this.slowByteInterval = slowByteInterval;
+      return this;
+    }
+
+    /**
+     * Constructs a {@link HostBehavior} from this builder.
+     */
+    public HostBehavior build() {
+      if (errorRate + redirectRate + slowRate > 1) {
+        throw new IllegalArgumentException("The error, redirect and slow rates add up to over 1");
+      }
+      return new HostBehavior(latency, bytesPerSecond, errorRate, errorStatus, redirectRate,
+          slowRate, slowByteInterval);
+    }
+
+    private static double rate(double rate) {
+      if (rate < 0 || rate > 1) {
+        throw new IllegalArgumentException("A rate must be between 0 and 1");
+      }
+      return rate;
+    }
+  }
+}
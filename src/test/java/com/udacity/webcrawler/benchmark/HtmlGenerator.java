@@ -0,0 +1,106 @@
+package com.udacity.webcrawler.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Generates HTML pages of a given size from a {@link ZipfVocabulary}, laid out like ordinary web
+ * pages: a title, headings and paragraphs of text, with a link every few dozen words.
+ */
+public final class HtmlGenerator {
+
+  // Roughly what the words of a Zipf vocabulary take up, with the space after them.
+  private static final int AVERAGE_BYTES_PER_WORD = 6;
+  private static final int AVERAGE_BYTES_BETWEEN_LINKS = 30 * AVERAGE_BYTES_PER_WORD;
+
+  private final ZipfVocabulary vocabulary;
+
+  public HtmlGenerator(ZipfVocabulary vocabulary) {
+    this.vocabulary = Objects.requireNonNull(vocabulary);
+  }
+
+  /**
+   * Returns a page of roughly the given size, with a link every few dozen words to a random
+   * address.
+   *
+   * @param targetBytes the size of the page. The page is a little longer, since it is finished
+   *                    after the paragraph that reaches this size.
+   * @param linkBase    the URL the links of the page start with, such as
+   *                    {@code "https://example.com/"}.
+   * @param random      the source of the words and links.
+   */
+  public String page(int targetBytes, String linkBase, Random random) {
+    List<String> links = new ArrayList<>();
+    for (int i = 0; i < targetBytes / AVERAGE_BYTES_BETWEEN_LINKS; i++) {
+      links.add(linkBase + vocabulary.sample(random) + '/' + random.nextInt(10_000) + ".html");
+    }
+    return page(targetBytes, links, random);
+  }
+
+  /**
+   * Returns a page of roughly the given size, with the given links spread evenly through its
+   * text. If the page is too short for all of them, the rest are listed at its end.
+   *
+   * @param targetBytes the size of the page. The page is a little longer, since it is finished
+   *                    after the paragraph that reaches this size.
+   * @param links       the addresses the page links to, in the order they appear.
+   * @param random      the source of the words.
+   */
+  public String page(int targetBytes, List<String> links, Random random) {
+    StringBuilder html = new StringBuilder(targetBytes + 64 * links.size() + 1024);
+    html.append("<!DOCTYPE html>\n<html>\n<head>\n<title>");
+    words(html, 3 + random.nextInt(5), random);
+    html.append("</title>\n</head>\n<body>\n");
+    int expectedWords = Math.max(1, targetBytes / AVERAGE_BYTES_PER_WORD);
+    int wordsBetweenLinks = Math.max(1, expectedWords / (links.size() + 1));
+    int nextLink = 0;
+    int wordCount = 0;
+    while (html.length() < targetBytes) {
+      if (random.nextInt(5) == 0) {
+        html.append("<h2>");
+        words(html, 2 + random.nextInt(4), random);
+        html.append("</h2>\n");
+      }
+      html.append("<p>");
+      int length = 40 + random.nextInt(80);
+      for (int i = 0; i < length; i++, wordCount++) {
+        if (i > 0) {
+          html.append(' ');
+        }
+        if (nextLink < links.size() && wordCount % wordsBetweenLinks == wordsBetweenLinks - 1) {
+          link(html, links.get(nextLink++), random);
+        } else {
+          html.append(vocabulary.sample(random));
+        }
+      }
+      html.append(".</p>\n");
+    }
+    if (nextLink < links.size()) {
+      html.append("<ul>\n");
+      while (nextLink < links.size()) {
+        html.append("<li>");
+        link(html, links.get(nextLink++), random);
+        html.append("</li>\n");
+      }
+      html.append("</ul>\n");
+    }
+    return html.append("</body>\n</html>\n").toString();
+  }
+
+  private void link(StringBuilder html, String href, Random random) {
+    html.append("<a href=\"").append(href).append("\">");
+    words(html, 1 + random.nextInt(3), random);
+    html.append("</a>");
+  }
+
+  private void words(StringBuilder html, int count, Random random) {
+    for (int i = 0; i < count; i++) {
+      if (i > 0) {
+        html.append(' ');
+      }
+      html.append(vocabulary.sample(random));
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package com.udacity.webcrawler.benchmark;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * A distribution of the time a {@link SiteServer} host takes before it starts to respond.
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+  /**
+   * Draws a latency, in nanoseconds, from the given source of randomness.
+   */
+  long sampleNanos(Random random);
+
+  /**
+   * Returns a distribution that never waits.
+   */
+  static LatencyDistribution none() {
+    return fixed(Duration.ZERO);
+  }
+
+  /**
+   * Returns a distribution that always waits for the given time.
+   */
+  static LatencyDistribution fixed(Duration latency) {
+    long nanos = nonNegative(latency).toNanos();
+    return new Described(random -> nanos, "fixed " + latency.toMillis() + " ms");
+  }
+
+  /**
+   * Returns a distribution that waits for a time drawn uniformly between the given bounds.
+   */
+  static LatencyDistribution uniform(Duration min, Duration max) {
+    long low = nonNegative(min).toNanos();
+    long high = nonNegative(max).toNanos();
+    if (high < low) {
+      throw new IllegalArgumentException("max cannot be less than min");
+    }
+    return new Described(
+        random -> low + (long) (random.nextDouble() * (high - low)),
+        "uniform " + min.toMillis() + "-" + max.toMillis() + " ms");
+  }
+
+  /**
+   * Returns a log-normal distribution with the given median, which has the long tail of real
+   * network latencies: with a sigma of 1, one request in a hundred takes ten times the median.
+   *
+   * @param median the median latency.
+   * @param sigma  the standard deviation of the logarithm of the latency. 0 always waits for the
+   *               median.
+   */
+  static LatencyDistribution logNormal(Duration median, double sigma) {
+    long nanos = nonNegative(median).toNanos();
+    if (sigma < 0) {
+      throw new IllegalArgumentException("sigma cannot be negative");
+    }
+    return new Described(
+        random -> (long) (nanos * Math.exp(sigma * random.nextGaussian())),
+        String.format(Locale.ROOT, "log-normal %d ms, sigma %.2f", median.toMillis(), sigma));
+  }
+
+  private static Duration nonNegative(Duration duration) {
+    if (duration.isNegative()) {
+      throw new IllegalArgumentException("Latency cannot be negative");
+    }
+    return duration;
+  }
+
+  /**
+   * A distribution with a readable description.
+   */
+  record Described(LatencyDistribution distribution, String description)
+      implements LatencyDistribution {
+    @Override
+    public long sampleNanos(Random random) {
+      return distribution.sampleNanos(random);
+    }
+
+    @Override
+    public String toString() {
+      return description;
+    }
+  }
+}
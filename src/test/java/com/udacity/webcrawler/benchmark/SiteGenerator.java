@@ -0,0 +1,175 @@
+package com.udacity.webcrawler.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Generates a web site of linked HTML files in a local directory, for crawling through
+ * {@code file://} URLs.
+ *
+ * <p>The pages are named {@code page-0.html} to {@code page-<n-1>.html}, and the crawl starts at
+ * {@code page-0.html}. Page {@code i} always links to pages {@code 2i + 1} and {@code 2i + 2}, so
+ * every page can be reached from the start page within {@code log2(n)} links. The rest of its links
+ * are drawn at random: with the probability given by the locality, to one of the
+ * {@link #NEIGHBORHOOD} pages on either side of it, and otherwise to any page of the site, so that
+ * most links lead to pages that have already been visited, as they do on real sites.
+ *
+ * <p>Each page is generated from its own seed, so the same options always give the same site.
+ */
+public final class SiteGenerator {
+
+  /**
+   * How far from a page its local links may lead.
+   */
+  static final int NEIGHBORHOOD = 50;
+
+  /**
+   * How the number of links of a page is distributed.
+   */
+  public enum FanOut {
+    /**
+     * Every page has the mean number of links.
+     */
+    FIXED,
+
+    /**
+     * The number of links follows a power law with exponent 2, so most pages have a few links and
+     * a few pages have a great many, up to 20 times the mean.
+     */
+    POWER_LAW
+  }
+
+  /**
+   * The shape of a generated site.
+   *
+   * @param pages      the number of pages.
+   * @param meanLinks  the mean number of links on a page, at least 2.
+   * @param fanOut     how the number of links of a page is distributed.
+   * @param pageBytes  the size of the text of a page.
+   * @param locality   the probability that a link leads to a page near the page it is on.
+   * @param seed       the seed the site is generated from.
+   */
+  public record Options(
+      int pages, int meanLinks, FanOut fanOut, int pageBytes, double locality, long seed) {
+    public Options {
+      Objects.requireNonNull(fanOut);
+      if (pages <= 0) {
+        throw new IllegalArgumentException("pages must be positive");
+      }
+      if (meanLinks < 2) {
+        throw new IllegalArgumentException("meanLinks must be at least 2");
+      }
+      if (pageBytes < 0) {
+        throw new IllegalArgumentException("pageBytes cannot be negative");
+      }
+      if (locality < 0 || locality > 1) {
+        throw new IllegalArgumentException("locality must be between 0 and 1");
+      }
+    }
+
+    @Override
+    public String toString() {
+      return String.format(Locale.ROOT, "%d pages, %d links per page (%s), %d bytes, locality %.2f",
+          pages, meanLinks, fanOut.name().toLowerCase(Locale.ROOT).replace('_', '-'), pageBytes,
+          locality);
+    }
+  }
+
+  private final Options options;
+  private final HtmlGenerator html;
+
+  public SiteGenerator(Options options) {
+    this.options = Objects.requireNonNull(options);
+    this.html = new HtmlGenerator(new ZipfVocabulary(20_000, 1.0, options.seed()));
+  }
+
+  /**
+   * Writes the site to the given directory, creating it if needed, and returns the path of its
+   * start page. The pages are written in parallel.
+   */
+  public Path generate(Path directory) throws IOException {
+    Files.createDirectories(directory);
+    try {
+      IntStream.range(0, options.pages()).parallel().forEach(page -> {
+        try {
+          Files.writeString(directory.resolve(fileName(page)), page(page));
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    return directory.resolve(fileName(0));
+  }
+
+  /**
+   * Returns the options the site is generated from.
+   */
+  public Options getOptions() {
+    return options;
+  }
+
+  /**
+   * Returns the HTML of the given page, linking to other pages by their file names.
+   */
+  String page(int page) {
+    return page(page, SiteGenerator::fileName);
+  }
+
+  /**
+   * Returns the HTML of the given page, linking to other pages by the given addresses.
+   */
+  String page(int page, IntFunction<String> href) {
+    Random random = new Random(options.seed() * 1_000_003 + page);
+    Set<Integer> targets = new LinkedHashSet<>();
+    for (long child = 2L * page + 1; child <= 2L * page + 2 && child < options.pages(); child++) {
+      targets.add((int) child);
+    }
+    int links = linkCount(random);
+    // Small sites do not have enough distinct pages for every link.
+    int attempts = 0;
+    while (targets.size() < links && attempts++ < 4 * links) {
+      targets.add(target(page, random));
+    }
+    List<String> hrefs = new ArrayList<>(targets.size());
+    for (int target : targets) {
+      hrefs.add(href.apply(target));
+    }
+    return html.page(options.pageBytes(), hrefs, random);
+  }
+
+  private int linkCount(Random random) {
+    int mean = options.meanLinks();
+    if (options.fanOut() == FanOut.FIXED) {
+      return mean;
+    }
+    // A Pareto distribution with exponent 2 has a mean of twice its minimum.
+    double minimum = mean / 2.0;
+    double links = minimum / Math.sqrt(1 - random.nextDouble());
+    return (int) Math.min(Math.round(links), 20L * mean);
+  }
+
+  private int target(int page, Random random) {
+    if (random.nextDouble() < options.locality()) {
+      int offset = random.nextInt(2 * NEIGHBORHOOD + 1) - NEIGHBORHOOD;
+      return Math.floorMod(page + offset, options.pages());
+    }
+    return random.nextInt(options.pages());
+  }
+
+  static String fileName(int page) {
+    return "page-" + page + ".html";
+  }
+}
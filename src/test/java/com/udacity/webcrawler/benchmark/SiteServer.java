@@ -0,0 +1,281 @@
+package com.udacity.webcrawler.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serves the pages of a {@link SiteGenerator} site over HTTP, from one or more local hosts that
+ * each behave like a real web server: they take time to respond, send at a limited rate, and now
+ * and then fail, redirect or stall, as set by their {@link HostBehavior}.
+ *
+ * <p>This lets crawls go through real {@code PageParserImpl} fetches, so that how the crawlers
+ * cope with latency, timeouts and failing hosts can be measured without a network.
+ *
+ * <p>Page {@code i} is served by host {@code i % hosts}, and links to other pages by their full
+ * URLs on their own hosts. Each host listens on its own loopback address, {@code 127.0.0.1},
+ * {@code 127.0.0.2} and so on, so that the crawler sees each one as a different host name. Linux
+ * routes all of {@code 127.0.0.0/8} to the loopback interface; other systems may need the extra
+ * addresses to be added to it before a server with more than one host can be started.
+ *
+ * <p>The pages are generated when they are requested, so sites of any size can be served. Whether
+ * a request fails, and how long it takes, is drawn from a seed made of the site's seed, the page
+ * and the number of times the page has been requested before, so that the same crawl meets the
+ * same failures however its requests are scheduled.
+ *
+ * <p>Requests are handled on a thread pool that grows as needed, so slow responses never hold up
+ * other requests. This class is thread-safe.
+ */
+public final class SiteServer implements AutoCloseable {
+
+  private static final Pattern PAGE_PATH = Pattern.compile("/page-(\\d+)\\.html");
+  private static final String REDIRECT_QUERY = "redirected";
+  private static final String CONTENT_TYPE = "text/html; charset=utf-8";
+  private static final int MAX_HOSTS = 254;
+  private static final int CHUNK_BYTES = 8192;
+
+  private final SiteGenerator site;
+  private final List<HostBehavior> hosts;
+  private final List<HttpServer> servers = new ArrayList<>();
+  private final ExecutorService executor;
+  private final AtomicIntegerArray requestsPerPage;
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder errors = new LongAdder();
+  private final LongAdder redirects = new LongAdder();
+  private final LongAdder slowResponses = new LongAdder();
+  private final LongAdder bytesSent = new LongAdder();
+  private final Set<InetSocketAddress> clients = ConcurrentHashMap.newKeySet();
+
+  private SiteServer(SiteGenerator site, List<HostBehavior> hosts) {
+    this.site = site;
+    this.hosts = List.copyOf(hosts);
+    this.requestsPerPage = new AtomicIntegerArray(site.getOptions().pages());
+    AtomicInteger threads = new AtomicInteger();
+    this.executor = Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, "site-server-" + threads.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Starts serving the given site from one host for each of the given behaviors.
+   *
+   * @throws IOException if a host could not be started, for example because its loopback address
+   *                     is not available.
+   */
+  public static SiteServer start(SiteGenerator.Options site, List<HostBehavior> hosts)
+      throws IOException {
+    if (hosts.isEmpty() || hosts.size() > MAX_HOSTS) {
+      throw new IllegalArgumentException("There must be between 1 and " + MAX_HOSTS + " hosts");
+    }
+    SiteServer server = new SiteServer(new SiteGenerator(site), hosts);
+    try {
+      for (int host = 0; host < hosts.size(); host++) {
+        server.startHost(host);
+      }
+    } catch (IOException | RuntimeException e) {
+      server.close();
+      throw e;
+    }
+    return server;
+  }
+
+  private void startHost(int host) throws IOException {
+    InetAddress address =
+        InetAddress.getByAddress(new byte[] {127, 0, 0, (byte) (host + 1)});
+    HttpServer server = HttpServer.create(new InetSocketAddress(address, 0), 0);
+    server.setExecutor(executor);
+    server.createContext("/", exchange -> {
+      try (exchange) {
+        handle(host, exchange);
+      } catch (IOException e) {
+        // The client went away, as it does when it gives up on a slow response.
+      } catch (InterruptedException e) {
+        // The server is being closed.
+        Thread.currentThread().interrupt();
+      }
+    });
+    servers.add(server);
+    server.start();
+  }
+
+  /**
+   * Returns the URL of the given page.
+   */
+  public String getUrl(int page) {
+    HttpServer server = servers.get(page % hosts.size());
+    InetSocketAddress address = server.getAddress();
+    return "http://" + address.getAddress().getHostAddress() + ":" + address.getPort() + "/"
+        + SiteGenerator.fileName(page);
+  }
+
+  /**
+   * Returns the URL of the page the crawl starts at.
+   */
+  public String getStartUrl() {
+    return getUrl(0);
+  }
+
+  /**
+   * Returns the number of hosts the site is served from.
+   */
+  public int getHostCount() {
+    return hosts.size();
+  }
+
+  /**
+   * Returns what the server has done so far.
+   */
+  public Stats getStats() {
+    return new Stats(requests.sum(), errors.sum(), redirects.sum(), slowResponses.sum(),
+        bytesSent.sum(), clients.size());
+  }
+
+  private void handle(int host, HttpExchange exchange) throws IOException, InterruptedException {
+    clients.add(exchange.getRemoteAddress());
+    Matcher matcher = PAGE_PATH.matcher(exchange.getRequestURI().getPath());
+    int page = matcher.matches() ? parsePage(matcher.group(1)) : -1;
+    if (!exchange.getRequestMethod().equals("GET") || page < 0 || page % hosts.size() != host) {
+      exchange.sendResponseHeaders(404, -1);
+      return;
+    }
+    requests.increment();
+    HostBehavior behavior = hosts.get(host);
+    int attempt = requestsPerPage.getAndIncrement(page);
+    Random random =
+        new Random(site.getOptions().seed() * 1_000_003 + ((long) page << 24) + attempt);
+    TimeUnit.NANOSECONDS.sleep(behavior.getLatency().sampleNanos(random));
+
+    double outcome = random.nextDouble();
+    double redirectBound = behavior.getErrorRate() + behavior.getRedirectRate();
+    if (outcome < behavior.getErrorRate()) {
+      errors.increment();
+      // Like a real server, send an error page, which the client has to read or close before it
+      // can reuse the connection.
+      byte[] body = ("<html><body>Error " + behavior.getErrorStatus() + "</body></html>")
+          .getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+      exchange.sendResponseHeaders(behavior.getErrorStatus(), body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+      return;
+    }
+    // A redirected request is not redirected again, but gets an ordinary response.
+    if (outcome < redirectBound
+        && !REDIRECT_QUERY.equals(exchange.getRequestURI().getQuery())) {
+      redirects.increment();
+      exchange.getResponseHeaders().set(
+          "Location", exchange.getRequestURI().getPath() + "?" + REDIRECT_QUERY);
+      exchange.sendResponseHeaders(302, -1);
+      return;
+    }
+    boolean slow = outcome >= redirectBound && outcome < redirectBound + behavior.getSlowRate();
+
+    byte[] body = site.page(page, this::getUrl).getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+    exchange.sendResponseHeaders(200, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      if (slow) {
+        slowResponses.increment();
+        writeSlowly(out, body, behavior.getSlowByteInterval().toNanos());
+      } else {
+        writeThrottled(out, body, behavior.getBytesPerSecond());
+      }
+    }
+  }
+
+  private static int parsePage(String digits) {
+    try {
+      return Integer.parseInt(digits);
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Writes the body at no more than the given rate, in chunks of at most a hundredth of a
+   * second's worth of bytes, so that the client sees a steady stream.
+   */
+  private void writeThrottled(OutputStream out, byte[] body, long bytesPerSecond)
+      throws IOException, InterruptedException {
+    if (bytesPerSecond == 0) {
+      out.write(body);
+      bytesSent.add(body.length);
+      return;
+    }
+    int chunk = (int) Math.max(1, Math.min(CHUNK_BYTES, bytesPerSecond / 100));
+    long start = System.nanoTime();
+    for (int offset = 0; offset < body.length; offset += chunk) {
+      int length = Math.min(chunk, body.length - offset);
+      out.write(body, offset, length);
+      out.flush();
+      bytesSent.add(length);
+      long due = start + (long) ((offset + length) * 1e9 / bytesPerSecond);
+      TimeUnit.NANOSECONDS.sleep(due - System.nanoTime());
+    }
+  }
+
+  /**
+   * Writes the body a byte at a time, until it is all written or the client stops reading.
+   */
+  private void writeSlowly(OutputStream out, byte[] body, long byteIntervalNanos)
+      throws IOException, InterruptedException {
+    for (byte b : body) {
+      out.write(b);
+      out.flush();
+      bytesSent.increment();
+      TimeUnit.NANOSECONDS.sleep(byteIntervalNanos);
+    }
+  }
+
+  /**
+   * Stops every host. Responses in progress are cut off.
+   */
+  @Override
+  public void close() {
+    for (HttpServer server : servers) {
+      server.stop(0);
+    }
+    executor.shutdownNow();
+  }
+
+  /**
+   * What a {@link SiteServer} has done.
+   *
+   * @param requests      the number of requests for pages of the site.
+   * @param errors        the number of error responses.
+   * @param redirects     the number of redirects.
+   * @param slowResponses the number of responses that were sent a byte at a time.
+   * @param bytesSent     the number of bytes of page bodies sent.
+   * @param connections   the number of connections requests came in on, which is less than the
+   *                      number of requests when clients reuse their connections.
+   */
+  public record Stats(
+      long requests,
+      long errors,
+      long redirects,
+      long slowResponses,
+      long bytesSent,
+      long connections) {
+  }
+}
@@ -0,0 +1,111 @@
+package com.udacity.webcrawler.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * A vocabulary of made-up words whose frequencies follow Zipf's law: the word of rank {@code k}
+ * is used in proportion to {@code 1 / k^s}, as words in natural language roughly are.
+ *
+ * <p>The words are generated from a seed, so the same arguments always give the same vocabulary.
+ * As in natural language, the most frequent words are the shortest ones.
+ *
+ * <p>This class is immutable, and can be sampled from many threads at once.
+ */
+public final class ZipfVocabulary {
+
+  private static final String LETTERS = "etaoinshrdlcumwfgypbvkjxqz";
+
+  private final List<String> words;
+  private final double[] cumulative;
+
+  /**
+   * Creates a vocabulary.
+   *
+   * @param size     the number of distinct words.
+   * @param exponent the exponent {@code s} of Zipf's law. Natural language is close to 1.
+   * @param seed     the seed the words are generated from.
+   */
+  public ZipfVocabulary(int size, double exponent, long seed) {
+    if (size <= 0) {
+      throw new IllegalArgumentException("size must be positive");
+    }
+    Random random = new Random(seed);
+    Set<String> unique = new LinkedHashSet<>();
+    while (unique.size() < size) {
+      // Word lengths from 1 to 14 letters, most of them between 3 and 8.
+      int length = 1 + Math.min(13, (int) Math.abs(random.nextGaussian() * 2.5 + 4));
+      StringBuilder word = new StringBuilder(length);
+      for (int i = 0; i < length; i++) {
+        // Skewed towards the common letters.
+        word.append(LETTERS.charAt((int) (LETTERS.length() * Math.pow(random.nextDouble(), 2))));
+      }
+      unique.add(word.toString());
+    }
+    List<String> words = new ArrayList<>(unique);
+    words.sort(Comparator.comparingInt(String::length));
+    this.words = List.copyOf(words);
+
+    this.cumulative = new double[size];
+    double total = 0;
+    for (int rank = 1; rank <= size; rank++) {
+      total += 1 / Math.pow(rank, exponent);
+      cumulative[rank - 1] = total;
+    }
+    for (int i = 0; i < size; i++) {
+      cumulative[i] /= total;
+    }
+  }
+
+  /**
+   * Returns the words, from the most frequent to the least.
+   */
+  public List<String> words() {
+    return words;
+  }
+
+  /**
+   * Returns the number of distinct words.
+   */
+  public int size() {
+    return words.size();
+  }
+
+  /**
+   * Returns the rank, starting at 0, of a word drawn at random according to the frequencies.
+   */
+  public int sampleRank(Random random) {
+    int index = Arrays.binarySearch(cumulative, random.nextDouble());
+    int rank = index >= 0 ? index : -index - 1;
+    return Math.min(rank, cumulative.length - 1);
+  }
+
+  /**
+   * Returns a word drawn at random according to the frequencies.
+   */
+  public String sample(Random random) {
+    return words.get(sampleRank(random));
+  }
+
+  /**
+   * Returns how often each word is expected to occur in a text of the given number of words.
+   * Every word is counted at least once, so the map has an entry for every word.
+   */
+  public Map<String, Integer> counts(long totalWords) {
+    Map<String, Integer> counts = new HashMap<>();
+    double previous = 0;
+    for (int i = 0; i < words.size(); i++) {
+      double probability = cumulative[i] - previous;
+      previous = cumulative[i];
+      counts.put(words.get(i), (int) Math.max(1, Math.round(probability * totalWords)));
+    }
+    return counts;
+  }
+}
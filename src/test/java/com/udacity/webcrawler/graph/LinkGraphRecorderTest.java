@@ -0,0 +1,122 @@
+package com.udacity.webcrawler.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class LinkGraphRecorderTest {
+
+  @Test
+  public void dropsLinksToPagesThatWereNotCrawled() {
+    LinkGraphRecorder recorder = new LinkGraphRecorder();
+    recorder.record("a", List.of("c", "b", "x", "b", "a"));
+    recorder.record("b", List.of());
+    recorder.record("c", List.of("y", "a"));
+
+    LinkGraph graph = recorder.toGraph();
+
+    assertThat(graph.getNodeCount()).isEqualTo(3);
+    assertThat(graph.getLinkCount()).isEqualTo(4);
+    assertThat(graph.getUrl(0)).isEqualTo("a");
+    assertThat(graph.getUrl(1)).isEqualTo("c");
+    assertThat(graph.getUrl(2)).isEqualTo("b");
+    assertThat(graph.getLinks(0)).isEqualTo(new int[] {0, 1, 2});
+    assertThat(graph.getLinks(1)).isEqualTo(new int[] {0});
+    assertThat(graph.getOutDegree(2)).isEqualTo(0);
+  }
+
+  @Test
+  public void disabledRecorderHasEmptyGraph() {
+    LinkGraphRecorder recorder = LinkGraphRecorder.disabled();
+    recorder.record("a", List.of("a"));
+
+    assertThat(recorder.isEnabled()).isFalse();
+    assertThat(recorder.toGraph().getNodeCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void ignoresPagesRecordedAfterBuilding() {
+    LinkGraphRecorder recorder = new LinkGraphRecorder();
+    recorder.record("a", List.of("b"));
+    recorder.toGraph();
+    recorder.record("b", List.of("a"));
+
+    LinkGraph graph = recorder.toGraph();
+
+    assertThat(graph.getNodeCount()).isEqualTo(1);
+    assertThat(graph.getUrl(0)).isEqualTo("a");
+    assertThat(graph.getLinkCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void recordsFromManyThreads() throws Exception {
+    // Page i links to the next 100 pages, so each thread fills several chunks, and rows span them.
+    int pages = 10_000;
+    LinkGraphRecorder recorder = new LinkGraphRecorder();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int thread = 0; thread < 4; thread++) {
+        int first = thread;
+        futures.add(executor.submit(() -> {
+          for (int page = first; page < pages; page += 4) {
+            List<String> links = new ArrayList<>();
+            for (int link = 1; link <= 100; link++) {
+              links.add("page" + (page + link) % pages);
+            }
+            recorder.record("page" + page, links);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    LinkGraph graph = recorder.toGraph();
+
+    assertThat(graph.getNodeCount()).isEqualTo(pages);
+    assertThat(graph.getLinkCount()).isEqualTo(pages * 100);
+    for (int node = 0; node < pages; node++) {
+      int page = Integer.parseInt(graph.getUrl(node).substring("page".length()));
+      assertThat(graph.getOutDegree(node)).isEqualTo(100);
+      for (int target : graph.getLinks(node)) {
+        int linked = Integer.parseInt(graph.getUrl(target).substring("page".length()));
+        assertThat(Math.floorMod(linked - page, pages)).isAtLeast(1);
+        assertThat(Math.floorMod(linked - page, pages)).isAtMost(100);
+      }
+    }
+  }
+
+  @Test
+  public void readsBackWhatWasWritten() throws Exception {
+    LinkGraphRecorder recorder = new LinkGraphRecorder();
+    recorder.record("http://example.com/", List.of("http://example.com/caf\u00e9"));
+    recorder.record("http://example.com/caf\u00e9", List.of("http://example.com/"));
+    LinkGraph graph = recorder.toGraph();
+
+    Path path = Files.createTempFile("links", ".bin");
+    try {
+      graph.write(path);
+      LinkGraph read = LinkGraph.read(path);
+
+      assertThat(read.getNodeCount()).isEqualTo(2);
+      assertThat(read.getUrl(1)).isEqualTo("http://example.com/caf\u00e9");
+      assertThat(read.getLinks(0)).isEqualTo(new int[] {1});
+      assertThat(read.getLinks(1)).isEqualTo(new int[] {0});
+    } finally {
+      Files.delete(path);
+    }
+  }
+}
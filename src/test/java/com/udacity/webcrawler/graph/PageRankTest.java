@@ -0,0 +1,107 @@
+package com.udacity.webcrawler.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class PageRankTest {
+
+  @Test
+  public void cycleHasUniformRanks() {
+    LinkGraphRecorder recorder = new LinkGraphRecorder();
+    recorder.record("a", List.of("b"));
+    recorder.record("b", List.of("c"));
+    recorder.record("c", List.of("a"));
+
+    double[] ranks = new PageRank(0.85).rank(recorder.toGraph());
+
+    for (double rank : ranks) {
+      assertThat(rank).isWithin(1e-9).of(1.0 / 3);
+    }
+  }
+
+  @Test
+  public void pagesLinkedFromEverywhereRankHighest() {
+    // Every page links to the hub, and the hub and the dangling page link nowhere.
+    LinkGraphRecorder recorder = new LinkGraphRecorder();
+    recorder.record("hub", List.of());
+    recorder.record("dangling", List.of());
+    for (int i = 0; i < 10; i++) {
+      recorder.record("spoke" + i, List.of("hub", "spoke" + (i + 1) % 10));
+    }
+    LinkGraph graph = recorder.toGraph();
+
+    double[] ranks = new PageRank(0.85).rank(graph);
+
+    assertThat(Arrays.stream(ranks).sum()).isWithin(1e-9).of(1);
+    assertThat(graph.getUrl(0)).isEqualTo("hub");
+    for (int node = 1; node < ranks.length; node++) {
+      assertThat(ranks[0]).isGreaterThan(ranks[node]);
+    }
+    assertThat(ranks[1]).isLessThan(ranks[2]);
+  }
+
+  @Test
+  public void parallelRanksMatchSequentialDefinition() {
+    // Enough links for the ranges to be split many times, some pages with no links at all.
+    int pages = 20_000;
+    Random random = new Random(7);
+    LinkGraphRecorder recorder = new LinkGraphRecorder();
+    for (int page = 0; page < pages; page++) {
+      List<String> links = new ArrayList<>();
+      int count = page % 10 == 0 ? 0 : random.nextInt(20);
+      for (int i = 0; i < count; i++) {
+        links.add("page" + (int) Math.pow(pages, random.nextDouble()) % pages);
+      }
+      recorder.record("page" + page, links);
+    }
+    LinkGraph graph = recorder.toGraph();
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    double[] ranks;
+    try {
+      ranks = new PageRank(0.85, 1e-12, 200, pool).rank(graph);
+    } finally {
+      pool.shutdown();
+    }
+    double[] expected = rankSequentially(graph, 0.85, 200);
+
+    for (int node = 0; node < pages; node++) {
+      assertThat(ranks[node]).isWithin(1e-9).of(expected[node]);
+    }
+  }
+
+  /**
+   * Ranks the graph by pushing the rank of each node along its links, straight from the
+   * definition.
+   */
+  private static double[] rankSequentially(LinkGraph graph, double damping, int iterations) {
+    int nodes = graph.getNodeCount();
+    double[] rank = new double[nodes];
+    Arrays.fill(rank, 1.0 / nodes);
+    for (int iteration = 0; iteration < iterations; iteration++) {
+      double[] next = new double[nodes];
+      double dangling = 0;
+      for (int node = 0; node < nodes; node++) {
+        int[] links = graph.getLinks(node);
+        if (links.length == 0) {
+          dangling += rank[node];
+        }
+        for (int target : links) {
+          next[target] += damping * rank[node] / links.length;
+        }
+      }
+      for (int node = 0; node < nodes; node++) {
+        next[node] += (1 - damping + damping * dangling) / nodes;
+      }
+      rank = next;
+    }
+    return rank;
+  }
+}
@@ -0,0 +1,175 @@
+package com.udacity.webcrawler.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class InvertedIndexTest {
+
+  @Test
+  public void findsPagesWithAllWords() throws Exception {
+    InvertedIndexBuilder builder = new InvertedIndexBuilder();
+    builder.add("a", Map.of("quick", 1, "brown", 2, "fox", 1));
+    builder.add("b", Map.of());
+    builder.add("c", Map.of("brown", 1, "dog", 3));
+    builder.add("d", Map.of("quick", 4, "brown", 1));
+    InvertedIndex index = builder.build();
+
+    assertThat(index.getDocumentCount()).isEqualTo(3);
+    assertThat(index.getTermCount()).isEqualTo(4);
+    assertThat(index.getPostingCount()).isEqualTo(7L);
+    assertThat(urls(index, index.lookup("brown"))).containsExactly("a", "c", "d");
+    assertThat(urls(index, index.lookup("cat"))).isEmpty();
+    assertThat(urls(index, index.and("brown", "quick"))).containsExactly("a", "d");
+    assertThat(urls(index, index.and("quick", "dog"))).isEmpty();
+    assertThat(urls(index, index.and("quick", "cat"))).isEmpty();
+    assertThat(urls(index, index.and())).isEmpty();
+
+    builder.add("e", Map.of("quick", 1));
+    assertThat(index.lookup("quick")).hasSize(2);
+  }
+
+  @Test
+  public void mergesSegmentsFromManyThreads() throws Exception {
+    // Enough postings for every thread to hand over several full segments, and for the merger to
+    // merge a whole level.
+    int threads = 4;
+    int pagesPerThread = 6_000;
+    InvertedIndexBuilder builder = new InvertedIndexBuilder();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int thread = 0; thread < threads; thread++) {
+        int first = thread;
+        futures.add(executor.submit(() -> {
+          for (int page = first; page < threads * pagesPerThread; page += threads) {
+            builder.add("page" + page, words(page));
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    InvertedIndex index = builder.build();
+
+    int pages = threads * pagesPerThread;
+    assertThat(index.getDocumentCount()).isEqualTo(pages);
+    assertThat(index.getPostingCount()).isEqualTo(pages * 100L);
+    for (String word : List.of("w0", "w7", "w99", "w1000", "w1099")) {
+      Set<String> expected = new HashSet<>();
+      for (int page = 0; page < pages; page++) {
+        if (words(page).containsKey(word)) {
+          expected.add("page" + page);
+        }
+      }
+      int[] documents = index.lookup(word);
+      for (int i = 1; i < documents.length; i++) {
+        assertThat(documents[i]).isGreaterThan(documents[i - 1]);
+      }
+      assertThat(urls(index, documents)).containsExactlyElementsIn(expected);
+    }
+  }
+
+  @Test
+  public void buildsWhilePagesAreStillAdded() throws Exception {
+    int threads = 4;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      for (int round = 0; round < 20; round++) {
+        InvertedIndexBuilder builder = new InvertedIndexBuilder();
+        AtomicInteger added = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+          futures.add(executor.submit(() -> {
+            for (int page = 0; page < 20_000; page++) {
+              builder.add("page" + added.incrementAndGet(), words(page));
+            }
+          }));
+        }
+        // Build as soon as some segments have been handed over, while the threads keep adding.
+        while (added.get() < 6_000) {
+          Thread.onSpinWait();
+        }
+        InvertedIndex index = builder.build();
+        for (Future<?> future : futures) {
+          future.get(60, TimeUnit.SECONDS);
+        }
+
+        // Every page that got a document is in the index, so the documents have no gaps.
+        assertThat(index.getPostingCount()).isEqualTo(index.getDocumentCount() * 100L);
+        for (int document = 0; document < index.getDocumentCount(); document++) {
+          assertThat(index.getUrl(document)).isNotNull();
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void readsBackWhatWasWritten() throws Exception {
+    InvertedIndexBuilder builder = new InvertedIndexBuilder();
+    for (int page = 0; page < 500; page++) {
+      builder.add("http://example.com/" + page, words(page));
+    }
+    InvertedIndex index = builder.build();
+
+    Path path = Files.createTempFile("index", ".bin");
+    try {
+      index.write(path);
+      InvertedIndex read = InvertedIndex.read(path);
+
+      assertThat(read.getDocumentCount()).isEqualTo(500);
+      assertThat(read.getTermCount()).isEqualTo(index.getTermCount());
+      assertThat(urls(read, read.and("w3", "w50"))).isEqualTo(urls(index, index.and("w3", "w50")));
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void disabledBuilderHasEmptyIndex() {
+    InvertedIndexBuilder builder = InvertedIndexBuilder.disabled();
+    builder.add("a", Map.of("word", 1));
+
+    assertThat(builder.isEnabled()).isFalse();
+    assertThat(builder.build().getDocumentCount()).isEqualTo(0);
+  }
+
+  /**
+   * Returns the words of the given page: 100 consecutive words of a vocabulary of 1100, starting
+   * at a word that depends on the page.
+   */
+  private static Map<String, Integer> words(int page) {
+    Map<String, Integer> words = new HashMap<>();
+    for (int i = 0; i < 100; i++) {
+      words.put("w" + (page % 1001 + i), 1);
+    }
+    return words;
+  }
+
+  private static List<String> urls(InvertedIndex index, int[] documents) {
+    List<String> urls = new ArrayList<>();
+    for (int document : documents) {
+      urls.add(index.getUrl(document));
+    }
+    return urls;
+  }
+}
@@ -0,0 +1,136 @@
+package com.udacity.webcrawler.json;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class BinaryResultWriterTest {
+
+  @Test
+  public void readsBackWhatWasWritten() throws Exception {
+    Map<String, Integer> allCounts = new HashMap<>();
+    for (int i = 0; i < 5_000; i++) {
+      allCounts.put("word" + i, 1 + i % 300);
+    }
+    allCounts.put("caf\u00e9", 100_000);
+    Map<String, Integer> popular = new LinkedHashMap<>();
+    popular.put("caf\u00e9", 100_000);
+    popular.put("word1199", 300);
+    List<PageStats> pages = List.of(
+        new PageStats("http://example.com/", 0, 200, 1234, 321, 17, 52_000, false, false, false),
+        new PageStats("http://example.com/big", 1, 200, 99, 50, 3, 9_000_000_000L, true, false,
+            false),
+        new PageStats("http://example.com/gone", 1, 404, 0, 0, 0, 12, false, true, true));
+    Map<String, String> breakers = Map.of("example.org", "open");
+    CrawlResult result = new CrawlResult.Builder()
+        .setWordCounts(popular)
+        .setAllWordCounts(allCounts)
+        .setUrlsVisited(3)
+        .setHostCircuitBreakers(breakers)
+        .setPagesTruncated(1)
+        .setPagesDropped(1)
+        .setPartial(true)
+        .setPages(pages)
+        .build();
+
+    Path path = Files.createTempFile("result", ".bin");
+    try {
+      // A small buffer makes the writer flush many times, and write some strings around it.
+      new BinaryResultWriter(result).write(path, 64);
+
+      try (BinaryResultReader reader = BinaryResultReader.open(path)) {
+        assertThat(reader.getSectionNames()).containsAtLeast("summary", "words", "counts",
+            "page.url", "page.flags").inOrder();
+        assertThat(reader.getSectionNames()).doesNotContain("popular");
+        assertThat(reader.getUrlsVisited()).isEqualTo(3);
+        assertThat(reader.getPagesTruncated()).isEqualTo(1);
+        assertThat(reader.getPagesDropped()).isEqualTo(1);
+        assertThat(reader.isPartial()).isTrue();
+        assertThat(reader.getHostCircuitBreakers()).isEqualTo(breakers);
+        assertThat(reader.getSlowestHosts()).isEmpty();
+        assertThat(reader.getVocabularySize()).isEqualTo(allCounts.size());
+        assertThat(reader.getPopularWordCounts().entrySet())
+            .containsExactlyElementsIn(popular.entrySet())
+            .inOrder();
+        assertThat(reader.getPageCount()).isEqualTo(3);
+        assertThat(reader.readPages()).containsExactlyElementsIn(pages).inOrder();
+
+        CrawlResult read = reader.readResult();
+        assertThat(read.getAllWordCounts()).isEqualTo(allCounts);
+        assertThat(read.getPages()).isEqualTo(pages);
+      }
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void keepsPopularWordsThatAreNotTheMostCounted() throws Exception {
+    Map<String, Integer> allCounts = Map.of("common", 50, "often", 40, "rare", 2, "once", 1);
+    // As when the popular words are ranked by weighted counts.
+    Map<String, Integer> popular = new LinkedHashMap<>();
+    popular.put("rare", 90);
+    popular.put("common", 12);
+    CrawlResult result = new CrawlResult.Builder()
+        .setWordCounts(popular)
+        .setAllWordCounts(allCounts)
+        .build();
+
+    Path path = Files.createTempFile("result", ".bin");
+    try {
+      new BinaryResultWriter(result).write(path);
+
+      try (BinaryResultReader reader = BinaryResultReader.open(path)) {
+        assertThat(reader.getSectionNames()).contains("popular");
+        assertThat(reader.getPopularWordCounts().entrySet())
+            .containsExactlyElementsIn(popular.entrySet())
+            .inOrder();
+        CrawlResult read = reader.readResult();
+        assertThat(read.getWordCounts()).isEqualTo(popular);
+        assertThat(read.getAllWordCounts()).isEqualTo(allCounts);
+      }
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void emptyResultHasNoRows() throws Exception {
+    Path path = Files.createTempFile("result", ".bin");
+    try {
+      new BinaryResultWriter(new CrawlResult.Builder().build()).write(path);
+
+      try (BinaryResultReader reader = BinaryResultReader.open(path)) {
+        assertThat(reader.getUrlsVisited()).isEqualTo(0);
+        assertThat(reader.isPartial()).isFalse();
+        assertThat(reader.getPopularWordCounts()).isEmpty();
+        assertThat(reader.getVocabularySize()).isEqualTo(0);
+        assertThat(reader.readPages()).isEmpty();
+      }
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void rejectsOtherFiles() throws Exception {
+    Path path = Files.createTempFile("result", ".json");
+    try {
+      new CrawlResultWriter(new CrawlResult.Builder().setUrlsVisited(1).build()).write(path);
+
+      IOException e = assertThrows(IOException.class, () -> BinaryResultReader.open(path));
+      assertThat(e.getMessage()).contains("Not a binary crawl result");
+    } finally {
+      Files.delete(path);
+    }
+  }
+}
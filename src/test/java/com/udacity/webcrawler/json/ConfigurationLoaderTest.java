@@ -77,5 +77,6 @@ public final class ConfigurationLoaderTest {
     assertThat(config.getPopularWordCount()).isEqualTo(5);
     assertThat(config.getProfileOutputPath()).isEmpty();
     assertThat(config.getResultPath()).isEmpty();
+    assertThat(config.getResultFormat()).isEqualTo(ResultFormat.JSON);
   }
 }
\ No newline at end of file
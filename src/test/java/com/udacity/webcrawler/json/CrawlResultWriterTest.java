@@ -3,6 +3,7 @@ package com.udacity.webcrawler.json;
 import com.udacity.webcrawler.testing.CloseableStringWriter;
 import org.junit.jupiter.api.Test;
 
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.regex.Pattern;
@@ -46,4 +47,45 @@ public final class CrawlResultWriterTest {
 
     assertThat(written).matches(expected);
   }
+
+  @Test
+  public void onlyWritesFieldsThatAreSet() {
+    CrawlResult result =
+        new CrawlResult.Builder()
+            .setUrlsVisited(3)
+            .setWordCounts(Map.of("foo", 2))
+            .setPagesDropped(1)
+            .setPartial(true)
+            .setSlowestHosts(Map.of("example.com", "p99 5 ms"))
+            .build();
+
+    CloseableStringWriter stringWriter = new CloseableStringWriter();
+    new CrawlResultWriter(result).write(stringWriter);
+
+    assertThat(stringWriter.toString()).isEqualTo("{\"wordCounts\":{\"foo\":2},\"urlsVisited\":3,"
+        + "\"pagesDropped\":1,\"partial\":true,\"slowestHosts\":{\"example.com\":\"p99 5 ms\"}}");
+  }
+
+  @Test
+  public void writesWholeVocabularyInOrder() {
+    Map<String, Integer> counts = new HashMap<>();
+    counts.put("b", 1);
+    counts.put("apple", 4);
+    counts.put("a", 1);
+    counts.put("bb", 1);
+    counts.put("pear", 4);
+    CrawlResult result =
+        new CrawlResult.Builder()
+            .setUrlsVisited(2)
+            .setWordCounts(Map.of("apple", 4))
+            .setAllWordCounts(counts)
+            .build();
+
+    CloseableStringWriter stringWriter = new CloseableStringWriter();
+    new CrawlResultWriter(result).writeVocabulary(stringWriter);
+
+    assertThat(stringWriter.isClosed()).isFalse();
+    assertThat(stringWriter.toString())
+        .isEqualTo("{\"apple\":4,\"pear\":4,\"bb\":1,\"a\":1,\"b\":1}");
+  }
 }
@@ -0,0 +1,103 @@
+package com.udacity.webcrawler.metrics;
+
+import com.udacity.webcrawler.CrawlMetrics;
+import com.udacity.webcrawler.profiler.MethodProfile;
+import com.udacity.webcrawler.profiler.Profiler;
+import org.junit.jupiter.api.Test;
+
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class MetricsServerTest {
+
+  private final HttpClient client = HttpClient.newHttpClient();
+
+  @Test
+  public void servesMetricsInPrometheusFormat() throws Exception {
+    Profiler profiler = new FakeProfiler(Map.of("com.example.Parser#parse", new MethodProfile()));
+    try (MetricsServer server = MetricsServer.start(0, new CrawlMetrics(), profiler)) {
+      HttpResponse<String> response = client.send(
+          HttpRequest.newBuilder(uri(server)).GET().build(),
+          HttpResponse.BodyHandlers.ofString());
+
+      assertThat(response.statusCode()).isEqualTo(200);
+      assertThat(response.headers().firstValue("Content-Type").orElse(""))
+          .startsWith("text/plain; version=0.0.4");
+      assertThat(response.body()).contains("# TYPE webcrawler_pages_fetched_total counter\n");
+      assertThat(response.body()).contains("\nwebcrawler_pages_fetched_total 0\n");
+      assertThat(response.body())
+          .contains("\nwebcrawler_fetch_errors_total{reason=\"timeout\"} 0\n");
+      assertThat(response.body()).contains("\nwebcrawler_frontier_size 0\n");
+      assertThat(response.body()).contains("\nwebcrawler_profiled_method_duration_seconds_bucket"
+          + "{method=\"com.example.Parser#parse\",le=\"0.25\"} 0\n");
+      assertThat(response.body()).contains("\nwebcrawler_profiled_method_duration_seconds_bucket"
+          + "{method=\"com.example.Parser#parse\",le=\"+Inf\"} 0\n");
+      assertThat(response.body()).contains("\nwebcrawler_profiled_method_duration_seconds_count"
+          + "{method=\"com.example.Parser#parse\"} 0\n");
+    }
+  }
+
+  @Test
+  public void rejectsOtherMethods() throws Exception {
+    try (MetricsServer server =
+             MetricsServer.start(0, new CrawlMetrics(), new FakeProfiler(Map.of()))) {
+      HttpResponse<String> response = client.send(
+          HttpRequest.newBuilder(uri(server)).POST(HttpRequest.BodyPublishers.noBody()).build(),
+          HttpResponse.BodyHandlers.ofString());
+
+      assertThat(response.statusCode()).isEqualTo(405);
+    }
+  }
+
+  @Test
+  public void listensOnLoopbackUnlessGivenAnAddress() throws Exception {
+    try (MetricsServer server =
+             MetricsServer.start(0, new CrawlMetrics(), new FakeProfiler(Map.of()))) {
+      assertThat(server.getAddress().isLoopbackAddress()).isTrue();
+    }
+    InetAddress any = InetAddress.getByName("0.0.0.0");
+    try (MetricsServer server =
+             MetricsServer.start(any, 0, new CrawlMetrics(), new FakeProfiler(Map.of()))) {
+      assertThat(server.getAddress().isAnyLocalAddress()).isTrue();
+    }
+  }
+
+  private static URI uri(MetricsServer server) {
+    return URI.create("http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":"
+        + server.getPort() + "/metrics");
+  }
+
+  private static final class FakeProfiler implements Profiler {
+    private final Map<String, MethodProfile> data;
+
+    FakeProfiler(Map<String, MethodProfile> data) {
+      this.data = data;
+    }
+
+    @Override
+    public <T> T wrap(Class<T> klass, T delegate) {
+      return delegate;
+    }
+
+    @Override
+    public void writeData(Path path) {
+    }
+
+    @Override
+    public void writeData(Writer writer) {
+    }
+
+    @Override
+    public Map<String, MethodProfile> getData() {
+      return data;
+    }
+  }
+}
@@ -0,0 +1,53 @@
+package com.udacity.webcrawler.parser;
+
+import com.udacity.webcrawler.benchmark.Benchmark;
+import com.udacity.webcrawler.benchmark.BenchmarkSpec;
+import com.udacity.webcrawler.benchmark.HtmlGenerator;
+import com.udacity.webcrawler.benchmark.ZipfVocabulary;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * Measures {@link PageParserImpl#parse()} on generated pages of different sizes, read from a
+ * local file so that the network does not add to the time.
+ *
+ * <p>Words of up to three letters are ignored, as in the sample configuration.
+ */
+public final class PageParserBenchmark implements Benchmark {
+
+  public static final BenchmarkSpec SPEC = new BenchmarkSpec(
+      PageParserBenchmark.class.getName() + ".parse",
+      Map.of("pageKb", List.of("10", "100", "1000")),
+      List.of(1),
+      PageParserBenchmark::new);
+
+  private final List<Pattern> ignoredWords = List.of(Pattern.compile("^.{1,3}$"));
+  private Path page;
+  private String uri;
+
+  @Override
+  public void setUp(Map<String, String> params) throws Exception {
+    HtmlGenerator generator = new HtmlGenerator(new ZipfVocabulary(20_000, 1.0, 42));
+    String html = generator.page(
+        Integer.parseInt(params.get("pageKb")) * 1024, "https://example.com/", new Random(42));
+    page = Files.createTempFile("page-parser-benchmark", ".html");
+    Files.writeString(page, html);
+    uri = page.toUri().toString();
+  }
+
+  @Override
+  public Object run() {
+    return new PageParserImpl(uri, Duration.ZERO, ignoredWords).parse();
+  }
+
+  @Override
+  public void tearDown() throws Exception {
+    Files.deleteIfExists(page);
+  }
+}
@@ -1,10 +1,22 @@
 package com.udacity.webcrawler.parser;
 
+import com.udacity.webcrawler.benchmark.HostBehavior;
+import com.udacity.webcrawler.benchmark.SiteGenerator;
+import com.udacity.webcrawler.benchmark.SiteServer;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.Test;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Optional;
 import java.util.regex.Pattern;
 
 import static com.google.common.truth.Truth.assertThat;
@@ -14,6 +26,10 @@ public final class PageParserImplTest {
   private static final String DATA_DIR = System.getProperty("testDataDir");
   private final String testPage = Paths.get(DATA_DIR, "test-page.html").toUri().toString();
 
+  private static final SiteGenerator.Options SITE =
+      new SiteGenerator.Options(10, 4, SiteGenerator.FanOut.FIXED, 1024, 0.5, 1);
+  private static final Duration HTTP_TIMEOUT = Duration.ofSeconds(10);
+
   @Test
   public void basicParsing() {
     PageParser.Result result = new PageParserImpl(testPage, Duration.ZERO, List.of()).parse();
@@ -45,4 +61,169 @@ public final class PageParserImplTest {
     assertThat(result.getWordCounts()).containsEntry("over", 1);
     assertThat(result.getWordCounts()).containsEntry("lazy", 1);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void emitsFlightRecorderEvents() throws Exception {
+    Path dump = Files.createTempFile("page-parser", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable("com.udacity.webcrawler.PageFetch").withThreshold(Duration.ZERO);
+      recording.enable("com.udacity.webcrawler.PageParse").withThreshold(Duration.ZERO);
+      recording.start();
+      new PageParserImpl(testPage, Duration.ZERO, List.of()).parse();
+      recording.stop();
+      recording.dump(dump);
+
+      List<RecordedEvent> events = RecordingFile.readAllEvents(dump).stream()
+          .filter(event -> testPage.equals(event.getString("url")))
+          .toList();
+      assertThat(events.stream().map(event -> event.getEventType().getName()).toList())
+          .containsExactly("com.udacity.webcrawler.PageFetch", "com.udacity.webcrawler.PageParse");
+      RecordedEvent parse = events.get(1);
+      assertThat(parse.getInt("words")).isEqualTo(9);
+      assertThat(parse.getInt("links")).isEqualTo(1);
+    } finally {
+      Files.deleteIfExists(dump);
+    }
+  }
+
+  @Test
+  public void localFileHasNoStatusOrFailure() {
+    PageParser.Result result = new PageParserImpl(testPage, Duration.ZERO, List.of()).parse();
+
+    assertThat(result.getStatusCode()).isEqualTo(0);
+    assertThat(result.getFailure()).isEmpty();
+  }
+
+  @Test
+  public void missingFileIsReportedAsFailure() {
+    String missing = Paths.get(DATA_DIR, "does-not-exist.html").toUri().toString();
+
+    PageParser.Result result = new PageParserImpl(missing, Duration.ZERO, List.of()).parse();
+
+    assertThat(result.getFailure().isPresent()).isTrue();
+    assertThat(result.getWordCounts()).isEmpty();
+    assertThat(result.getLinks()).isEmpty();
+  }
+
+  @Test
+  public void oversizedPageIsTruncated() {
+    PageParser.Result result =
+        new PageParserImpl(testPage, Duration.ZERO, List.of(), 100, Duration.ZERO).parse();
+
+    assertThat(result.isTruncated()).isTrue();
+    assertThat(result.isDropped()).isFalse();
+    assertThat(result.getWordCounts()).containsEntry("quick", 1);
+    assertThat(result.getWordCounts().containsKey("dog")).isFalse();
+    assertThat(result.getLinks()).isEmpty();
+  }
+
+  @Test
+  public void pageWithinSizeLimitIsNotTruncated() {
+    PageParser.Result result =
+        new PageParserImpl(testPage, Duration.ZERO, List.of(), 182, Duration.ZERO).parse();
+
+    assertThat(result.isTruncated()).isFalse();
+    assertThat(result.getWordCounts()).hasSize(9);
+  }
+
+  @Test
+  public void slowPageIsDropped() {
+    PageParser.Result result =
+        new PageParserImpl(testPage, Duration.ZERO, List.of(), 0, Duration.ofNanos(1)).parse();
+
+    assertThat(result.isDropped()).isTrue();
+    assertThat(result.getFailure().isPresent()).isTrue();
+    assertThat(result.getWordCounts()).isEmpty();
+    assertThat(result.getLinks()).isEmpty();
+  }
+
+  @Test
+  public void fetchesPagesOverHttp() throws Exception {
+    try (SiteServer server = SiteServer.start(SITE, List.of(new HostBehavior.Builder().build()))) {
+      PageParser.Result result =
+          new PageParserImpl(server.getUrl(0), HTTP_TIMEOUT, List.of()).parse();
+
+      assertThat(result.getStatusCode()).isEqualTo(200);
+      assertThat(result.getFailure()).isEmpty();
+      assertThat(result.getLinks()).containsAtLeast(server.getUrl(1), server.getUrl(2));
+      assertThat(result.getWordCounts()).isNotEmpty();
+    }
+  }
+
+  @Test
+  public void httpErrorIsReportedWithStatusCode() throws Exception {
+    HostBehavior failing = new HostBehavior.Builder().setErrors(1, 503).build();
+    try (SiteServer server = SiteServer.start(SITE, List.of(failing))) {
+      PageParser.Result result =
+          new PageParserImpl(server.getUrl(0), HTTP_TIMEOUT, List.of()).parse();
+      PageParser.Result again =
+          new PageParserImpl(server.getUrl(0), HTTP_TIMEOUT, List.of()).parse();
+
+      assertThat(result.getStatusCode()).isEqualTo(503);
+      assertThat(result.getFailure().isPresent()).isTrue();
+      assertThat(result.getLinks()).isEmpty();
+      assertThat(again.getStatusCode()).isEqualTo(503);
+      assertThat(server.getStats().errors()).isEqualTo(2);
+      // The second request reuses the connection, which it only can if the first one released
+      // it by reading the error page to the end and closing it.
+      assertThat(server.getStats().connections()).isEqualTo(1);
+    }
+  }
+
+  @Test
+  public void followsRedirects() throws Exception {
+    HostBehavior redirecting = new HostBehavior.Builder().setRedirectRate(1).build();
+    try (SiteServer server = SiteServer.start(SITE, List.of(redirecting))) {
+      PageParser.Result result =
+          new PageParserImpl(server.getUrl(0), HTTP_TIMEOUT, List.of()).parse();
+
+      assertThat(result.getStatusCode()).isEqualTo(200);
+      assertThat(result.getLinks()).contains(server.getUrl(1));
+      assertThat(server.getStats().redirects()).isEqualTo(1);
+      assertThat(server.getStats().requests()).isEqualTo(2);
+    }
+  }
+
+  @Test
+  public void slowResponseIsDropped() throws Exception {
+    HostBehavior slow =
+        new HostBehavior.Builder().setSlowResponses(1, Duration.ofMillis(20)).build();
+    try (SiteServer server = SiteServer.start(SITE, List.of(slow))) {
+      PageParser.Result result = new PageParserImpl(
+          server.getUrl(0), HTTP_TIMEOUT, List.of(), 0, Duration.ofMillis(200)).parse();
+
+      assertThat(result.isDropped()).isTrue();
+      assertThat(result.getWordCounts()).isEmpty();
+      assertThat(server.getStats().slowResponses()).isEqualTo(1);
+    }
+  }
+
+  @Test
+  public void onlyHtmlContentTypesAreParsed() {
+    assertThat(PageParserImpl.isHtml("text/html; charset=UTF-8")).isTrue();
+    assertThat(PageParserImpl.isHtml("application/xhtml+xml")).isTrue();
+    assertThat(PageParserImpl.isHtml(null)).isTrue();
+    assertThat(PageParserImpl.isHtml("text/plain")).isFalse();
+    assertThat(PageParserImpl.isHtml("application/pdf")).isFalse();
+  }
+
+  @Test
+  public void parsesRetryAfterSeconds() {
+    assertThat(PageParserImpl.parseRetryAfter(" 120 ")).hasValue(Duration.ofSeconds(120));
+    assertThat(PageParserImpl.parseRetryAfter("-5")).hasValue(Duration.ZERO);
+    assertThat(PageParserImpl.parseRetryAfter("soon")).isEmpty();
+  }
+
+  @Test
+  public void parsesRetryAfterDate() {
+    String past = DateTimeFormatter.RFC_1123_DATE_TIME.format(
+        ZonedDateTime.of(2000, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC));
+    String future = DateTimeFormatter.RFC_1123_DATE_TIME.format(
+        ZonedDateTime.now(ZoneOffset.UTC).plusHours(1));
+
+    assertThat(PageParserImpl.parseRetryAfter(past)).hasValue(Duration.ZERO);
+    Optional<Duration> wait = PageParserImpl.parseRetryAfter(future);
+    assertThat(wait.isPresent()).isTrue();
+    assertThat(wait.get()).isGreaterThan(Duration.ofMinutes(59));
+  }
+}
@@ -0,0 +1,57 @@
+package com.udacity.webcrawler.parser;
+
+import com.udacity.webcrawler.Timeout;
+import com.udacity.webcrawler.profiler.Profiler;
+
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link PageParserFactory} whose parsers fetch pages from a {@link SimulatedWeb} instead of the
+ * network, and are wrapped using a {@link Profiler} like those of the real factory.
+ */
+final class SimulatedPageParserFactory implements PageParserFactory {
+
+  private final SimulatedWeb web;
+  private final Profiler profiler;
+  private final List<Pattern> ignoredWords;
+  private final Duration timeout;
+
+  @Inject
+  SimulatedPageParserFactory(
+      SimulatedWeb web,
+      Profiler profiler,
+      @IgnoredWords List<Pattern> ignoredWords,
+      @Timeout Duration timeout) {
+    this.web = web;
+    this.profiler = profiler;
+    this.ignoredWords = ignoredWords;
+    this.timeout = timeout;
+  }
+
+  @Override
+  public PageParser get(String url) {
+    return parser(url, timeout);
+  }
+
+  @Override
+  public PageParser get(String url, Duration budget) {
+    return parser(url, budget.compareTo(timeout) < 0 ? budget : timeout);
+  }
+
+  private PageParser parser(String url, Duration fetchTimeout) {
+    PageParser delegate = () -> {
+      PageParser.Result.Builder builder = new PageParser.Result.Builder();
+      try {
+        web.fetch(url, fetchTimeout, ignoredWords, builder);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        builder.setFailure(e);
+      }
+      return builder.build();
+    };
+    return profiler.wrap(PageParser.class, delegate);
+  }
+}
@@ -0,0 +1,185 @@
+package com.udacity.webcrawler.parser;
+
+import com.udacity.webcrawler.benchmark.LatencyDistribution;
+import com.udacity.webcrawler.benchmark.ZipfVocabulary;
+import org.jsoup.HttpStatusException;
+
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A web of any size that only exists in memory: each page is generated when it is fetched, from
+ * the seed of the web and the number of the page, so the same page always has the same words and
+ * links, whichever crawler fetches it and in whatever order.
+ *
+ * <p>Page {@code i} is at {@code http://host-<i % hosts>.sim/page/<i>}. It always links to pages
+ * {@code 2i + 1} and {@code 2i + 2}, so that the whole web can be reached from page 0, and to a
+ * number of other pages that follows a power law. The other links lead to page {@code k} with a
+ * probability roughly proportional to {@code 1 / (k + 1)}, so, as on the real web, a few pages are
+ * linked from almost everywhere and most are linked from hardly anywhere. The words of a page are
+ * drawn from a {@link ZipfVocabulary}.
+ *
+ * <p>Fetching a page waits for a time drawn from the latency distribution of the web, seeded by
+ * the page too, so a crawl of the web takes the same simulated network time every time.
+ * Nothing is stored per page, so a web of millions of pages takes no more memory than one of a
+ * hundred. This class is thread-safe.
+ */
+public final class SimulatedWeb {
+
+  private static final Pattern PAGE_URL = Pattern.compile("http://host-(\\d+)\\.sim/page/(\\d+)");
+
+  /**
+   * The shape of a simulated web.
+   *
+   * @param pages          the number of pages.
+   * @param hosts          the number of hosts the pages are spread over.
+   * @param meanLinks      the mean number of links on a page, at least 2.
+   * @param wordsPerPage   the mean number of words on a page.
+   * @param vocabularySize the number of distinct words.
+   * @param latency        the distribution of the time it takes to fetch a page.
+   * @param seed           the seed the web is generated from.
+   */
+  public record Options(
+      int pages,
+      int hosts,
+      int meanLinks,
+      int wordsPerPage,
+      int vocabularySize,
+      LatencyDistribution latency,
+      long seed) {
+    public Options {
+      Objects.requireNonNull(latency);
+      if (pages <= 0 || hosts <= 0 || vocabularySize <= 0) {
+        throw new IllegalArgumentException("pages, hosts and vocabularySize must be positive");
+      }
+      if (meanLinks < 2) {
+        throw new IllegalArgumentException("meanLinks must be at least 2");
+      }
+      if (wordsPerPage < 0) {
+        throw new IllegalArgumentException("wordsPerPage cannot be negative");
+      }
+    }
+  }
+
+  private final Options options;
+  private final ZipfVocabulary vocabulary;
+
+  public SimulatedWeb(Options options) {
+    this.options = Objects.requireNonNull(options);
+    this.vocabulary = new ZipfVocabulary(options.vocabularySize(), 1.0, options.seed());
+  }
+
+  /**
+   * Returns the options the web is generated from.
+   */
+  public Options getOptions() {
+    return options;
+  }
+
+  /**
+   * Returns the URL of the given page.
+   */
+  public String getUrl(int page) {
+    return "http://host-" + page % options.hosts() + ".sim/page/" + page;
+  }
+
+  /**
+   * Returns the URL of the page the crawl starts at.
+   */
+  public String getStartUrl() {
+    return getUrl(0);
+  }
+
+  /**
+   * Fetches the page at the given URL, waiting for its simulated latency, and adds its words and
+   * links to the given builder.
+   *
+   * <p>If the latency is longer than the given timeout, the fetch waits for the timeout and then
+   * fails as a download that timed out would. A URL that is not a page of the web gets a 404.
+   */
+  void fetch(
+      String url, Duration timeout, List<Pattern> ignoredWords, PageParser.Result.Builder builder)
+      throws InterruptedException {
+    int page = parsePage(url);
+    if (page < 0) {
+      builder.setStatusCode(404)
+          .setFailure(new HttpStatusException("HTTP error fetching URL", 404, url));
+      return;
+    }
+    // The latency has a seed of its own, so that the pages are the same whatever the latency.
+    long seed = options.seed() * 1_000_003 + page;
+    Random random = new Random(seed);
+    long latency = options.latency().sampleNanos(new Random(~seed));
+    long timeoutNanos = timeout.isZero() ? Long.MAX_VALUE : timeout.toNanos();
+    if (latency > timeoutNanos) {
+      TimeUnit.NANOSECONDS.sleep(timeoutNanos);
+      builder.addPhaseTime(FetchPhase.TIME_TO_FIRST_BYTE, timeoutNanos)
+          .setFailure(new SocketTimeoutException("Simulated fetch of " + url + " timed out"));
+      return;
+    }
+    TimeUnit.NANOSECONDS.sleep(latency);
+    builder.addPhaseTime(FetchPhase.TIME_TO_FIRST_BYTE, latency).setStatusCode(200);
+
+    long start = System.nanoTime();
+    for (int target : links(page, random)) {
+      builder.addLink(getUrl(target));
+    }
+    int words = options.wordsPerPage() / 2 + random.nextInt(options.wordsPerPage() + 1);
+    for (int i = 0; i < words; i++) {
+      String word = vocabulary.sample(random);
+      if (ignoredWords.stream().noneMatch(pattern -> pattern.matcher(word).matches())) {
+        builder.addWord(word);
+      }
+    }
+    builder.addPhaseTime(FetchPhase.PARSE, System.nanoTime() - start);
+  }
+
+  /**
+   * Returns the pages the given page links to, drawing the links after the first two from the
+   * given source of randomness.
+   */
+  List<Integer> links(int page, Random random) {
+    int pages = options.pages();
+    Set<Integer> targets = new LinkedHashSet<>();
+    for (long child = 2L * page + 1; child <= 2L * page + 2 && child < pages; child++) {
+      targets.add((int) child);
+    }
+    // A Pareto distribution with exponent 2 has a mean of twice its minimum.
+    double minimum = options.meanLinks() / 2.0;
+    long links = Math.min(
+        Math.round(minimum / Math.sqrt(1 - random.nextDouble())), 20L * options.meanLinks());
+    int attempts = 0;
+    while (targets.size() < links && attempts++ < 4 * links) {
+      // pages^u - 1 for a uniform u is log-uniform, which makes page k about as likely as
+      // 1 / (k + 1).
+      targets.add((int) Math.min(pages - 1, Math.pow(pages, random.nextDouble()) - 1));
+    }
+    return new ArrayList<>(targets);
+  }
+
+  /**
+   * Returns the number of the page at the given URL, or -1 if the URL is not a page of the web.
+   */
+  int parsePage(String url) {
+    Matcher matcher = PAGE_URL.matcher(url);
+    if (!matcher.matches()) {
+      return -1;
+    }
+    try {
+      int page = Integer.parseInt(matcher.group(2));
+      boolean onItsHost = Integer.parseInt(matcher.group(1)) == page % options.hosts();
+      return page < options.pages() && onItsHost ? page : -1;
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+}
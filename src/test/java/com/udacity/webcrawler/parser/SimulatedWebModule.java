@@ -0,0 +1,31 @@
+package com.udacity.webcrawler.parser;
+
+import com.google.inject.AbstractModule;
+
+import java.util.Objects;
+
+/**
+ * Guice module that installs a {@link PageParserFactory} whose pages come from the given
+ * {@link SimulatedWeb}.
+ *
+ * <p>The {@code WebCrawlerModule} already binds the real factory, so this module has to override
+ * it:
+ * <pre>{@code
+ * Guice.createInjector(
+ *     Modules.override(new WebCrawlerModule(config)).with(new SimulatedWebModule(web)),
+ *     new NoOpProfilerModule());
+ * }</pre>
+ */
+public final class SimulatedWebModule extends AbstractModule {
+  private final SimulatedWeb web;
+
+  public SimulatedWebModule(SimulatedWeb web) {
+    this.web = Objects.requireNonNull(web);
+  }
+
+  @Override
+  protected void configure() {
+    bind(SimulatedWeb.class).toInstance(web);
+    bind(PageParserFactory.class).to(SimulatedPageParserFactory.class);
+  }
+}
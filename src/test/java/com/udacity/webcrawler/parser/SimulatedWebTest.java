@@ -0,0 +1,160 @@
+package com.udacity.webcrawler.parser;
+
+import com.google.inject.Guice;
+import com.google.inject.util.Modules;
+import com.udacity.webcrawler.NoOpProfilerModule;
+import com.udacity.webcrawler.WebCrawler;
+import com.udacity.webcrawler.WebCrawlerModule;
+import com.udacity.webcrawler.benchmark.LatencyDistribution;
+import com.udacity.webcrawler.graph.LinkGraph;
+import com.udacity.webcrawler.index.InvertedIndex;
+import com.udacity.webcrawler.json.CrawlResult;
+import com.udacity.webcrawler.json.CrawlerConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class SimulatedWebTest {
+
+  private static SimulatedWeb web(int pages, LatencyDistribution latency) {
+    return new SimulatedWeb(new SimulatedWeb.Options(pages, 4, 6, 50, 1000, latency, 17));
+  }
+
+  private static PageParser.Result fetch(SimulatedWeb web, String url, Duration timeout)
+      throws InterruptedException {
+    PageParser.Result.Builder builder = new PageParser.Result.Builder();
+    web.fetch(url, timeout, List.of(), builder);
+    return builder.build();
+  }
+
+  @Test
+  public void pagesAreTheSameEveryTime() throws Exception {
+    SimulatedWeb first = web(1_000_000, LatencyDistribution.none());
+    SimulatedWeb second = web(1_000_000, LatencyDistribution.none());
+
+    PageParser.Result page = fetch(first, first.getUrl(123_456), Duration.ZERO);
+    PageParser.Result again = fetch(second, second.getUrl(123_456), Duration.ZERO);
+
+    assertThat(page.getStatusCode()).isEqualTo(200);
+    assertThat(page.getLinks()).containsAtLeast(first.getUrl(246_913), first.getUrl(246_914));
+    assertThat(page.getLinks()).containsExactlyElementsIn(again.getLinks()).inOrder();
+    assertThat(page.getWordCounts()).isNotEmpty();
+    assertThat(page.getWordCounts()).isEqualTo(again.getWordCounts());
+  }
+
+  @Test
+  public void unknownPageIsNotFound() throws Exception {
+    SimulatedWeb web = web(10, LatencyDistribution.none());
+
+    assertThat(fetch(web, web.getUrl(9), Duration.ZERO).getStatusCode()).isEqualTo(200);
+    assertThat(fetch(web, "http://host-2.sim/page/10", Duration.ZERO).getStatusCode())
+        .isEqualTo(404);
+    assertThat(fetch(web, "http://host-0.sim/page/1", Duration.ZERO).getStatusCode())
+        .isEqualTo(404);
+  }
+
+  @Test
+  public void slowPageTimesOut() throws Exception {
+    SimulatedWeb web = web(10, LatencyDistribution.fixed(Duration.ofMillis(200)));
+
+    PageParser.Result result = fetch(web, web.getStartUrl(), Duration.ofMillis(5));
+
+    assertThat(result.isTimedOut()).isTrue();
+    assertThat(result.getLinks()).isEmpty();
+  }
+
+  @Test
+  public void crawlersFindTheSameWords() {
+    SimulatedWeb web = web(2_000, LatencyDistribution.none());
+    CrawlResult sequential = crawl(web, "com.udacity.webcrawler.SequentialWebCrawler");
+    CrawlResult parallel = crawl(web, "com.udacity.webcrawler.ParallelWebCrawler");
+
+    assertThat(sequential.getUrlsVisited()).isEqualTo(2_000);
+    assertThat(parallel.getUrlsVisited()).isEqualTo(2_000);
+    assertThat(parallel.getWordCounts().entrySet())
+        .containsExactlyElementsIn(sequential.getWordCounts().entrySet())
+        .inOrder();
+  }
+
+  @Test
+  public void crawlersRecordTheWholeLinkGraph() throws Exception {
+    SimulatedWeb web = web(2_000, LatencyDistribution.none());
+    List<String> startLinks = fetch(web, web.getStartUrl(), Duration.ZERO).getLinks();
+
+    for (String implementation : List.of("com.udacity.webcrawler.SequentialWebCrawler",
+        "com.udacity.webcrawler.ParallelWebCrawler")) {
+      LinkGraph graph = crawl(web, implementation).getLinkGraph();
+
+      assertThat(graph.getNodeCount()).isEqualTo(2_000);
+      assertThat(graph.getUrl(0)).isEqualTo(web.getStartUrl());
+      List<String> linked = new ArrayList<>();
+      for (int target : graph.getLinks(0)) {
+        linked.add(graph.getUrl(target));
+      }
+      assertThat(linked).containsExactlyElementsIn(startLinks);
+    }
+  }
+
+  @Test
+  public void crawlersIndexEveryPage() throws Exception {
+    SimulatedWeb web = web(2_000, LatencyDistribution.none());
+    List<String> startWords =
+        List.copyOf(fetch(web, web.getStartUrl(), Duration.ZERO).getWordCounts().keySet());
+
+    for (String implementation : List.of("com.udacity.webcrawler.SequentialWebCrawler",
+        "com.udacity.webcrawler.ParallelWebCrawler")) {
+      InvertedIndex index = crawl(web, implementation).getIndex();
+
+      assertThat(index.getDocumentCount()).isEqualTo(2_000);
+      List<String> urls = new ArrayList<>();
+      for (int document : index.and(startWords)) {
+        urls.add(index.getUrl(document));
+      }
+      assertThat(urls).contains(web.getStartUrl());
+    }
+  }
+
+  @Test
+  public void crawlersWeighTheSameWordsByRank() {
+    SimulatedWeb web = web(2_000, LatencyDistribution.none());
+    CrawlResult sequential = crawl(web, "com.udacity.webcrawler.SequentialWebCrawler", true);
+    CrawlResult parallel = crawl(web, "com.udacity.webcrawler.ParallelWebCrawler", true);
+    CrawlResult unweighted = crawl(web, "com.udacity.webcrawler.ParallelWebCrawler", false);
+
+    assertThat(parallel.getWordCounts()).hasSize(10);
+    assertThat(parallel.getWordCounts().entrySet())
+        .containsExactlyElementsIn(sequential.getWordCounts().entrySet())
+        .inOrder();
+    assertThat(parallel.getWordCounts()).isNotEqualTo(unweighted.getWordCounts());
+    assertThat(parallel.getAllWordCounts()).isEqualTo(unweighted.getAllWordCounts());
+  }
+
+  private static CrawlResult crawl(SimulatedWeb web, String implementation) {
+    return crawl(web, implementation, false);
+  }
+
+  private static CrawlResult crawl(
+      SimulatedWeb web, String implementation, boolean rankWeightedWordCounts) {
+    CrawlerConfiguration config = new CrawlerConfiguration.Builder()
+        .setImplementationOverride(implementation)
+        .setParallelism(4)
+        .setMaxDepth(web.getOptions().pages())
+        .setTimeoutSeconds(60)
+        .setPopularWordCount(10)
+        .addStartPages(web.getStartUrl())
+        // Setting the paths is what turns on recording; only WebCrawlerMain writes the files.
+        .setLinkGraphOutputPath("links.bin")
+        .setRankWeightedWordCounts(rankWeightedWordCounts)
+        .setIndexOutputPath("index.bin")
+        .build();
+    WebCrawler crawler = Guice.createInjector(
+            Modules.override(new WebCrawlerModule(config)).with(new SimulatedWebModule(web)),
+            new NoOpProfilerModule())
+        .getInstance(WebCrawler.class);
+    return crawler.crawl(config.getStartPages());
+  }
+}
@@ -0,0 +1,57 @@
+package com.udacity.webcrawler.profiler;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class LatencyHistogramTest {
+
+  @Test
+  public void emptyHistogramReportsZero() {
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    assertThat(histogram.getCount()).isEqualTo(0L);
+    assertThat(histogram.getTotal()).isEqualTo(Duration.ZERO);
+    assertThat(histogram.getMax()).isEqualTo(Duration.ZERO);
+    assertThat(histogram.getPercentile(99)).isEqualTo(Duration.ZERO);
+  }
+
+  @Test
+  public void keepsExactCountTotalAndMax() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(Duration.ofMillis(i));
+    }
+
+    assertThat(histogram.getCount()).isEqualTo(1000L);
+    assertThat(histogram.getTotal()).isEqualTo(Duration.ofMillis(500500));
+    assertThat(histogram.getMax()).isEqualTo(Duration.ofMillis(1000));
+  }
+
+  @Test
+  public void percentilesAreWithinBucketError() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(Duration.ofMillis(i));
+    }
+
+    assertThat(histogram.getPercentile(50).toNanos() / 1e6).isWithin(50 * 0.125).of(500);
+    assertThat(histogram.getPercentile(90).toNanos() / 1e6).isWithin(900 * 0.125).of(900);
+    assertThat(histogram.getPercentile(99).toNanos() / 1e6).isWithin(990 * 0.125).of(990);
+    assertThat(histogram.getPercentile(100)).isEqualTo(Duration.ofMillis(1000));
+  }
+
+  @Test
+  public void bucketsCoverEveryValue() {
+    long[] values = {0, 1, 7, 8, 9, 15, 16, 1000, 123456789, Long.MAX_VALUE};
+    for (long value : values) {
+      int bucket = LatencyHistogram.bucketOf(value);
+      assertThat(LatencyHistogram.upperBoundOf(bucket)).isAtLeast(value);
+      if (bucket > 0) {
+        assertThat(LatencyHistogram.upperBoundOf(bucket - 1)).isLessThan(value);
+      }
+    }
+  }
+}
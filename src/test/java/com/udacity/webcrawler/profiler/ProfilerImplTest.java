@@ -1,73 +1,305 @@
 package com.udacity.webcrawler.profiler;
 
-import javax.inject.Inject;
-import java.io.BufferedWriter;
-import java.io.IOException;
-import java.io.Writer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
 import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
-import java.time.Clock;
-import java.time.Instant;
-import java.util.Arrays;
-import java.util.Objects;
+import java.time.Duration;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
-/**
- * A method interceptor that checks whether {@link Profiled} methods are called and records their
- * execution times.
- */
-final class ProfilerImpl implements Profiler {
+public final class ProfilerImplTest {
 
-  private final Clock clock;
-  private final ProfilingState state = new ProfilingState();
+  private final FakeClock clock = new FakeClock();
+  private final ProfilerImpl profiler = new ProfilerImpl(clock);
 
-  @Inject
-  ProfilerImpl(Clock clock) {
-    this.clock = Objects.requireNonNull(clock);
+  @Test
+  public void rejectsInterfaceWithoutProfiledMethods() {
+    assertThrows(
+        IllegalArgumentException.class, () -> profiler.wrap(Runnable.class, () -> {}));
   }
 
-  @Override
-  public <T> T wrap(Class<T> klass, T delegate) {
-    Objects.requireNonNull(klass);
-    Objects.requireNonNull(delegate);
+  @Test
+  public void delegatesCallsAndExceptions() {
+    Fake delegate = new Fake();
+    Greeter greeter = profiler.wrap(Greeter.class, delegate);
+
+    assertThat(greeter.greet("world")).isEqualTo("hello world");
+    assertThrows(IllegalStateException.class, greeter::fail);
+    assertThat(greeter.unprofiled()).isEqualTo(42);
+  }
 
-    // Check if the class has any @Profiled methods
-    boolean hasProfiledMethods = Arrays.stream(klass.getDeclaredMethods())
-            .anyMatch(method -> method.isAnnotationPresent(Profiled.class));
+  @Test
+  public void recordsProfiledCallsOnly() throws Exception {
+    Greeter greeter = profiler.wrap(Greeter.class, new Fake());
+
+    greeter.greet("a");
+    greeter.greet("b");
+    greeter.unprofiled();
+    assertThrows(IllegalStateException.class, greeter::fail);
+
+    ProfilingState state = profiler.getState();
+    Method greet = Greeter.class.getMethod("greet", String.class);
+    Method fail = Greeter.class.getMethod("fail");
+    Method unprofiled = Greeter.class.getMethod("unprofiled");
+    assertThat(state.getInvocationCount(Fake.class, greet)).isEqualTo(2);
+    assertThat(state.getTotalDuration(Fake.class, greet)).isEqualTo(Duration.ofMillis(20));
+    assertThat(state.getInvocationCount(Fake.class, fail)).isEqualTo(1);
+    assertThat(state.getInvocationCount(Fake.class, unprofiled)).isEqualTo(0);
+  }
 
-    if (!hasProfiledMethods) {
-      throw new IllegalArgumentException(klass.getName() + " does not have any @Profiled methods");
+  @Test
+  public void resolvesProfilesOncePerDelegateClass() throws Exception {
+    Greeter first = profiler.wrap(Greeter.class, new Fake());
+    Greeter second = profiler.wrap(Greeter.class, new Fake());
+    first.greet("a");
+    second.greet("b");
+
+    ProfilingState state = profiler.getState();
+    ProfilingProxyFactory factory = ProfilingProxyFactory.forInterface(Greeter.class);
+    ProfilingState.ProfiledMethod[] methods = state.resolve(Fake.class, factory);
+    assertThat(state.resolve(Fake.class, factory)).isSameInstanceAs(methods);
+
+    Method greet = Greeter.class.getMethod("greet", String.class);
+    ProfilingState.ProfiledMethod resolved = methods[factory.targetOf(greet).getIndex()];
+    assertThat(resolved.key().toString()).isEqualTo(Fake.class.getName() + "#greet");
+    assertThat(resolved.profile())
+        .isSameInstanceAs(state.getData().get(Fake.class.getName() + "#greet"));
+    assertThat(resolved.profile().getCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void writesOneLinePerMethod() throws Exception {
+    Greeter greeter = profiler.wrap(Greeter.class, new Fake());
+    for (int i = 0; i < 100; i++) {
+      greeter.greet("x");
     }
 
-    // Create a dynamic proxy
-    Object proxy = Proxy.newProxyInstance(
-            klass.getClassLoader(),
-            new Class[]{klass},
-            new ProfilingMethodInterceptor(clock, state, delegate)  // Back to 3 parameters
-    );
+    StringWriter writer = new StringWriter();
+    profiler.writeData(writer);
+
+    String[] lines = writer.toString().strip().split("\\R");
+    assertThat(lines.length).isEqualTo(2);
+    assertThat(lines[0]).startsWith("Run at ");
+    assertThat(lines[1]).isEqualTo(Fake.class.getName() + "#greet took 0m 1s 0ms "
+        + "(100 calls; p50 10.000ms, p90 10.000ms, p99 10.000ms, max 10.000ms)");
+  }
+
+  @Test
+  public void writesJsonReport() throws Exception {
+    ProfilerImpl json = new ProfilerImpl(
+        clock, ProfilingClock.fromClock(clock), ProfilingLevel.FULL, 1, ProfileFormat.JSON);
+    Greeter greeter = json.wrap(Greeter.class, new Fake());
+    greeter.greet("a");
+    greeter.greet("b");
+
+    StringWriter writer = new StringWriter();
+    json.writeData(writer);
 
-    return klass.cast(proxy);
+    assertThat(writer.toString().strip().lines().count()).isEqualTo(1);
+    JsonNode run = new ObjectMapper().readTree(writer.toString());
+    assertThat(run.get("runId").asText()).isEqualTo(json.getRunId());
+    assertThat(run.get("level").asText()).isEqualTo("FULL");
+    JsonNode method = run.get("methods").get(0);
+    assertThat(method.get("method").asText()).isEqualTo(Fake.class.getName() + "#greet");
+    assertThat(method.get("calls").asLong()).isEqualTo(2);
+    assertThat(method.get("totalNanos").asLong()).isEqualTo(Duration.ofMillis(20).toNanos());
+    JsonNode bucket = method.get("histogram").get(0);
+    assertThat(bucket.get("count").asLong()).isEqualTo(2);
+    assertThat(bucket.get("upperBoundNanos").asLong())
+        .isAtLeast(Duration.ofMillis(10).toNanos());
   }
 
-  @Override
-  public void writeData(Path path) throws IOException {
-    Objects.requireNonNull(path);
+  @Test
+  public void appendedCsvRunsShareHeader() throws Exception {
+    Path path = Files.createTempFile("profile", ".csv");
+    assertThat(ProfileFormat.forFileName(path.toString())).isEqualTo(ProfileFormat.CSV);
+    ProfilerImpl first = new ProfilerImpl(
+        clock, ProfilingClock.fromClock(clock), ProfilingLevel.FULL, 1, ProfileFormat.CSV);
+    ProfilerImpl second = new ProfilerImpl(
+        clock, ProfilingClock.fromClock(clock), ProfilingLevel.FULL, 1, ProfileFormat.CSV);
+    first.wrap(Greeter.class, new Fake()).greet("a");
+    second.wrap(Greeter.class, new Fake()).greet("b");
+
+    first.writeData(path);
+    second.writeData(path);
+
+    List<String> lines = Files.readAllLines(path);
+    Files.delete(path);
+    assertThat(lines).hasSize(3);
+    assertThat(lines.get(0)).isEqualTo(ProfileReport.CSV_HEADER);
+    assertThat(lines.get(1)).startsWith(first.getRunId() + ",");
+    assertThat(lines.get(2)).startsWith(second.getRunId() + ",");
+    String[] columns = lines.get(1).split(",", -1);
+    assertThat(columns.length).isEqualTo(ProfileReport.CSV_HEADER.split(",").length);
+    assertThat(columns[4]).isEqualTo(Fake.class.getName() + "#greet");
+    assertThat(columns[5]).isEqualTo("1");
+    assertThat(columns[11]).isEmpty();
+  }
+
+  @Test
+  public void wrapsPackagePrivateInterface() {
+    Counter counter = profiler.wrap(Counter.class, () -> 7);
+
+    assertThat(counter.count()).isEqualTo(7);
+    assertThat(profiler.wrap(Counter.class, () -> 8).count()).isEqualTo(8);
+  }
+
+  @Test
+  public void forwardsObjectMethodsUnprofiled() {
+    Fake delegate = new Fake();
+    Greeter greeter = profiler.wrap(Greeter.class, delegate);
+
+    assertThat(greeter.toString()).isEqualTo(delegate.toString());
+    assertThat(greeter.hashCode()).isEqualTo(delegate.hashCode());
+    assertThat(profiler.getState().getData()).isEmpty();
+  }
+
+  @Test
+  public void offLevelReturnsDelegateUnwrapped() throws Exception {
+    ProfilerImpl off = new ProfilerImpl(clock, ProfilingLevel.OFF, 1);
+    Fake delegate = new Fake();
+
+    assertThat(off.wrap(Greeter.class, delegate) == delegate).isTrue();
+    assertThrows(IllegalArgumentException.class, () -> off.wrap(Runnable.class, () -> {}));
 
-    try (BufferedWriter writer = Files.newBufferedWriter(path,
-            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
-      writeData(writer);
+    StringWriter writer = new StringWriter();
+    off.writeData(writer);
+    assertThat(writer.toString().strip()).endsWith("(profiling off)");
+  }
+
+  @Test
+  public void sampledLevelScalesCounts() throws Exception {
+    ProfilerImpl sampled = new ProfilerImpl(clock, ProfilingLevel.SAMPLED, 10);
+    Greeter greeter = sampled.wrap(Greeter.class, new Fake());
+    for (int i = 0; i < 10_000; i++) {
+      greeter.greet("x");
     }
+
+    Method greet = Greeter.class.getMethod("greet", String.class);
+    int count = sampled.getState().getInvocationCount(Fake.class, greet);
+    assertThat(count % 10).isEqualTo(0);
+    assertThat(count).isGreaterThan(5_000);
+    assertThat(count).isLessThan(15_000);
+    assertThat(sampled.getState().getTotalDuration(Fake.class, greet))
+        .isEqualTo(Duration.ofMillis(10).multipliedBy(count));
+  }
+
+  @Test
+  public void recordsCpuTimeAndAllocation() throws Exception {
+    // Every reading advances the fake thread counters, so each call uses 3ms of CPU and 64 bytes.
+    ProfilingClock profilingClock = new ProfilingClock() {
+      private long cpu;
+      private long allocated;
+
+      @Override
+      public long nanoTime() {
+        return ProfilingClock.fromClock(clock).nanoTime();
+      }
+
+      @Override
+      public long threadCpuNanos() {
+        cpu += Duration.ofMillis(3).toNanos();
+        return cpu;
+      }
+
+      @Override
+      public long threadAllocatedBytes() {
+        allocated += 64;
+        return allocated;
+      }
+    };
+    ProfilerImpl measured = new ProfilerImpl(clock, profilingClock, ProfilingLevel.FULL, 1);
+    Greeter greeter = measured.wrap(Greeter.class, new Fake());
+    greeter.greet("a");
+    greeter.greet("b");
+
+    MethodProfile profile = measured.getState().getData().get(Fake.class.getName() + "#greet");
+    assertThat(profile.getCount()).isEqualTo(2);
+    assertThat(profile.getElapsed().getTotal()).isEqualTo(Duration.ofMillis(20));
+    assertThat(profile.getCpuTime()).isEqualTo(Duration.ofMillis(6));
+    assertThat(profile.getCpuTimeCount()).isEqualTo(2);
+    assertThat(profile.getAllocatedBytes()).isEqualTo(128);
+
+    StringWriter writer = new StringWriter();
+    measured.writeData(writer);
+    assertThat(writer.toString()).contains("; cpu 3.000ms/call, 64 bytes/call)");
+  }
+
+  @Test
+  public void nestedCallsFormCallTree() throws Exception {
+    Greeter greeter = profiler.wrap(Greeter.class, new Fake());
+    Counter counter = profiler.wrap(Counter.class, () -> {
+      clock.tick(Duration.ofMillis(5));
+      greeter.greet("a");
+      greeter.greet("b");
+      return 2;
+    });
+    counter.count();
+    greeter.greet("c");
+
+    CallTree.Node root = profiler.getState().getCallTree().getRoot();
+    CallTree.Node outer = root.getChild(countMethodName());
+    assertThat(outer.getCount()).isEqualTo(1);
+    assertThat(outer.getInclusive()).isEqualTo(Duration.ofMillis(25));
+    assertThat(outer.getExclusive()).isEqualTo(Duration.ofMillis(5));
+    CallTree.Node nested = outer.getChild(Fake.class.getName() + "#greet");
+    assertThat(nested.getCount()).isEqualTo(2);
+    assertThat(nested.getInclusive()).isEqualTo(Duration.ofMillis(20));
+    assertThat(nested.getExclusive()).isEqualTo(Duration.ofMillis(20));
+    assertThat(root.getChild(Fake.class.getName() + "#greet").getCount()).isEqualTo(1);
+
+    StringWriter writer = new StringWriter();
+    profiler.writeData(writer);
+    assertThat(writer.toString()).contains("Call tree (inclusive and exclusive time):");
+    assertThat(writer.toString()).contains("  " + Fake.class.getName()
+        + "#greet 2 calls; inclusive 20.000ms, exclusive 20.000ms");
+  }
+
+  private String countMethodName() {
+    return profiler.getState().getData().keySet().stream()
+        .filter(name -> name.endsWith("#count"))
+        .findFirst()
+        .orElseThrow();
+  }
+
+  public interface Greeter {
+    @Profiled
+    String greet(String name);
+
+    @Profiled
+    void fail();
+
+    int unprofiled();
   }
 
-  @Override
-  public void writeData(Writer writer) throws IOException {
-    Objects.requireNonNull(writer);
+  private final class Fake implements Greeter {
+    @Override
+    public String greet(String name) {
+      clock.tick(Duration.ofMillis(10));
+      return "hello " + name;
+    }
+
+    @Override
+    public void fail() {
+      throw new IllegalStateException();
+    }
+
+    @Override
+    public int unprofiled() {
+      clock.tick(Duration.ofMillis(10));
+      return 42;
+    }
+  }
 
-    writer.write("Run at " + Instant.now(clock) + "\n");
-    writer.write(state.toString());
-    writer.write("\n");
-    writer.flush();
+  interface Counter {
+    @Profiled
+    int count();
   }
-}
\ No newline at end of file
+}
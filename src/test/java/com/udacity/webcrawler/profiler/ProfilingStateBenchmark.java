@@ -0,0 +1,53 @@
+package com.udacity.webcrawler.profiler;
+
+import com.udacity.webcrawler.benchmark.Benchmark;
+import com.udacity.webcrawler.benchmark.BenchmarkSpec;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Measures {@link ProfilingState#record}, which runs after every call to a profiled method, from
+ * several threads at once as the crawler's workers call it.
+ *
+ * <p>With a single profiled method, every thread updates the same {@link MethodProfile}, which is
+ * the most contended case. The elapsed times are spread over several orders of magnitude, from
+ * about a microsecond to a tenth of a second, so they fall into many histogram buckets.
+ */
+public final class ProfilingStateBenchmark implements Benchmark {
+
+  public static final BenchmarkSpec SPEC = new BenchmarkSpec(
+      ProfilingStateBenchmark.class.getName() + ".record",
+      Map.of("methods", List.of("1", "16")),
+      List.of(1, 4),
+      ProfilingStateBenchmark::new);
+
+  private ProfilingState state;
+  private Method[] methods;
+
+  @Override
+  public void setUp(Map<String, String> params) {
+    state = new ProfilingState();
+    // Methods are profiled by name, so take methods with distinct names.
+    methods = Arrays.stream(String.class.getMethods())
+        .collect(Collectors.toMap(Method::getName, method -> method, (a, b) -> a))
+        .values().stream()
+        .sorted(Comparator.comparing(Method::getName))
+        .limit(Integer.parseInt(params.get("methods")))
+        .toArray(Method[]::new);
+  }
+
+  @Override
+  public Object run() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long elapsed = 1L << random.nextInt(10, 27);
+    Method method = methods[random.nextInt(methods.length)];
+    state.record(String.class, method, elapsed, elapsed / 2, 256, 1);
+    return null;
+  }
+}
@@ -0,0 +1,127 @@
+package com.udacity.webcrawler.trace;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class TraceRecorderTest {
+
+  @Test
+  public void writesSpansAsChromeTraceEvents() throws Exception {
+    TraceRecorder recorder = new TraceRecorder(16);
+    long begin = recorder.begin();
+    recorder.end("page", "fetch", "http://example.com/", begin);
+    Thread worker = new Thread(
+        () -> recorder.end("crawl", "task", null, recorder.begin()), "trace-test-worker");
+    worker.start();
+    worker.join();
+
+    JsonNode trace = write(recorder);
+
+    assertThat(trace.get("displayTimeUnit").asText()).isEqualTo("ms");
+    assertThat(trace.get("otherData").get("droppedSpans").asLong()).isEqualTo(0);
+    List<String> threadNames = new ArrayList<>();
+    List<JsonNode> spans = new ArrayList<>();
+    for (JsonNode event : trace.get("traceEvents")) {
+      if (event.get("ph").asText().equals("M")) {
+        threadNames.add(event.get("args").get("name").asText());
+      } else {
+        spans.add(event);
+      }
+    }
+    assertThat(threadNames).containsExactly(Thread.currentThread().getName(), "trace-test-worker");
+    assertThat(spans).hasSize(2);
+
+    JsonNode fetch = spans.get(0);
+    assertThat(fetch.get("name").asText()).isEqualTo("fetch");
+    assertThat(fetch.get("cat").asText()).isEqualTo("page");
+    assertThat(fetch.get("ph").asText()).isEqualTo("X");
+    assertThat(fetch.get("tid").asLong()).isEqualTo(Thread.currentThread().getId());
+    assertThat(fetch.get("ts").asDouble()).isAtLeast(0.0);
+    assertThat(fetch.get("dur").asDouble()).isAtLeast(0.0);
+    assertThat(fetch.get("args").get("url").asText()).isEqualTo("http://example.com/");
+    assertThat(spans.get(1).has("args")).isFalse();
+  }
+
+  @Test
+  public void fullBufferOverwritesOldestSpans() throws Exception {
+    TraceRecorder recorder = new TraceRecorder(3);
+    for (int i = 0; i < 5; i++) {
+      recorder.end("crawl", "span" + i, null, recorder.begin());
+    }
+
+    JsonNode trace = write(recorder);
+
+    List<String> names = new ArrayList<>();
+    for (JsonNode event : trace.get("traceEvents")) {
+      if (event.get("ph").asText().equals("X")) {
+        names.add(event.get("name").asText());
+      }
+    }
+    assertThat(names).containsExactly("span2", "span3", "span4").inOrder();
+    assertThat(trace.get("otherData").get("droppedSpans").asLong()).isEqualTo(2);
+  }
+
+  @Test
+  public void buffersGrowAsSpansAreRecorded() throws Exception {
+    TraceRecorder recorder = new TraceRecorder(1_000);
+    recorder.end("crawl", "first", null, recorder.begin());
+    assertThat(recorder.getAllocatedSlots()).isEqualTo((long) TraceRecorder.INITIAL_CAPACITY);
+
+    for (int i = 1; i < 1_000; i++) {
+      recorder.end("crawl", "span" + i, null, recorder.begin());
+    }
+
+    JsonNode trace = write(recorder);
+    List<String> names = new ArrayList<>();
+    for (JsonNode event : trace.get("traceEvents")) {
+      if (event.get("ph").asText().equals("X")) {
+        names.add(event.get("name").asText());
+      }
+    }
+    assertThat(names).hasSize(1_000);
+    assertThat(names.get(0)).isEqualTo("first");
+    assertThat(names.get(999)).isEqualTo("span999");
+    assertThat(recorder.getAllocatedSlots()).isEqualTo(1_000L);
+  }
+
+  @Test
+  public void threadsKeepAtMostTheTotalNumberOfSpans() throws Exception {
+    TraceRecorder recorder = new TraceRecorder(16_384, 1_000);
+    // Threads that come and go, as the spare workers of a pool do.
+    for (int thread = 0; thread < 50; thread++) {
+      Thread worker = new Thread(() -> {
+        for (int i = 0; i < 200; i++) {
+          recorder.end("crawl", "task", null, recorder.begin());
+        }
+      });
+      worker.start();
+      worker.join();
+    }
+
+    assertThat(recorder.getAllocatedSlots()).isAtMost(1_000L);
+    JsonNode trace = write(recorder);
+    assertThat(trace.get("otherData").get("droppedSpans").asLong()).isAtLeast(50 * 200 - 1_000L);
+  }
+
+  @Test
+  public void disabledRecorderRecordsNothing() throws Exception {
+    TraceRecorder recorder = TraceRecorder.disabled();
+    recorder.end("crawl", "task", null, recorder.begin());
+
+    assertThat(recorder.isEnabled()).isFalse();
+    assertThat(write(recorder).get("traceEvents").size()).isEqualTo(0);
+  }
+
+  private static JsonNode write(TraceRecorder recorder) throws Exception {
+    StringWriter writer = new StringWriter();
+    recorder.write(writer);
+    return new ObjectMapper().readTree(writer.toString());
+  }
+}